@@ -2,13 +2,16 @@ package bibleReader;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 
 import bibleReader.model.Bible;
 import bibleReader.model.BibleFactory;
+import bibleReader.model.BibleImage;
 import bibleReader.model.BookOfBible;
 import bibleReader.model.Concordance;
 import bibleReader.model.Reference;
@@ -39,6 +42,8 @@ public class BibleIO {
 			return readATV(bibleFile);
 		} else if ("xmv".equals(extension.toLowerCase())) {
 			return readXMV(bibleFile);
+		} else if ("bbin".equals(extension.toLowerCase())) {
+			return readBinary(bibleFile);
 		} else {
 			return null;
 		}
@@ -85,7 +90,7 @@ public class BibleIO {
 					return null;
 				}
 				
-				Reference r = new Reference(book,
+				Reference r = Reference.of(book,
 											Integer.parseInt(ref[0]),
 											Integer.parseInt(ref[1]));
 				Verse v = new Verse(r, split[2]);
@@ -147,7 +152,7 @@ public class BibleIO {
 				
 				if (split[0].startsWith("<Verse")) {
 					// Is verse
-					Reference r = new Reference(currentBook,
+					Reference r = Reference.of(currentBook,
 												currentChapter,
 												Integer.parseInt(split[0].replaceAll("<Verse ", "")));
 					
@@ -179,6 +184,27 @@ public class BibleIO {
 		return null;
 	}
 
+	/**
+	 * Read in a Bible that is saved in the binary "BBIN" format (see BibleImage for the layout). The whole file is read
+	 * in one pass and nothing needs to be parsed but the header, so this is much faster than reading ATV or XMV.
+	 *
+	 * @param bibleFile The file containing a Bible with .bbin extension.
+	 * @return A Bible object constructed from the file bibleFile, or null if there was an error reading the file.
+	 */
+	private static VerseList readBinary(File bibleFile) {
+		try {
+			InputStream in = new FileInputStream(bibleFile);
+			try {
+				return BibleImage.read(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			System.out.println("Error reading binary Bible: " + e.getMessage());
+		}
+		return null;
+	}
+
 	/**
 	 * Write out the Bible in the ATV format.
 	 *
@@ -206,6 +232,22 @@ public class BibleIO {
 		}
 	}
 
+	/**
+	 * Write out the Bible in the binary "BBIN" format (see BibleImage). The file can be read back with readBible, or
+	 * opened without reading the text into memory with MappedBible. If the Bible has more than one verse with the same
+	 * reference, only the last one is written.
+	 *
+	 * @param file The file that the Bible should be written to. Its name should end with .bbin.
+	 * @param bible The Bible that will be written to the file.
+	 */
+	public static void writeBibleBinary(File file, Bible bible) {
+		try {
+			BibleImage.write(bible, file);
+		} catch (IOException e) {
+			System.out.println("I/O Error");
+		}
+	}
+
 	/**
 	 * Write out the given verses in the ATV format, using the description as the first line of the file.
 	 *
@@ -10,6 +10,7 @@ import java.io.File;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -20,10 +21,10 @@ import javax.swing.JTextField;
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
-import bibleReader.model.ArrayListBible;
 import bibleReader.model.Bible;
 import bibleReader.model.BibleReaderModel;
 import bibleReader.model.ReferenceList;
+import bibleReader.model.SortedArrayBible;
 import bibleReader.model.TreeMapBible;
 import bibleReader.model.VerseList;
 
@@ -51,6 +52,9 @@ public class BibleReaderApp extends JFrame {
 	private JTextField textField;
 	private JButton wordSearchButton;
 	private JButton passageSearchButton;
+	private JCheckBox fuzzyCheckBox;
+	private JCheckBox wordFormsCheckBox;
+	private JCheckBox rankedCheckBox;
 	private JMenuBar menuBar;
 	private JMenu fileMenu;
 	private JMenu helpMenu;
@@ -67,17 +71,17 @@ public class BibleReaderApp extends JFrame {
 		File kjvFile     = new File("kjv.atv");
 		VerseList kjvVerses = BibleIO.readBible(kjvFile);
 		Bible kjv        = new TreeMapBible(kjvVerses);
-		model.addBible(kjv);
+		model.addBible(kjv, kjvFile);
 
 		File asvFile     = new File("asv.xmv");
 		VerseList asvVerses = BibleIO.readBible(asvFile);
 		Bible asv        = new TreeMapBible(asvVerses);
-		model.addBible(asv);
+		model.addBible(asv, asvFile);
 		
 		File esvFile     = new File("esv.atv");
 		VerseList esvVerses = BibleIO.readBible(esvFile);
 		Bible esv        = new TreeMapBible(esvVerses);
-		model.addBible(esv);
+		model.addBible(esv, esvFile);
 
 		
 		
@@ -117,9 +121,10 @@ public class BibleReaderApp extends JFrame {
 				int returnVal = chooser.showOpenDialog(getOwner());
 				if (returnVal == JFileChooser.APPROVE_OPTION) {
 					//File f = new File(chooser.getSelectedFile().getAbsolutePath());
-					model.addBible(new ArrayListBible(BibleIO.readBible(chooser.getSelectedFile())));
+					File file = chooser.getSelectedFile();
+					model.addBible(new SortedArrayBible(BibleIO.readBible(file)), file);
 
-					JOptionPane.showMessageDialog(getOwner(), "Imported new Bible: " + chooser.getSelectedFile().getName());
+					JOptionPane.showMessageDialog(getOwner(), "Imported new Bible: " + file.getName());
 				}
 			}
 		});
@@ -150,6 +155,7 @@ public class BibleReaderApp extends JFrame {
 		textField = new JTextField(25);
 		textField.setMaximumSize(textField.getPreferredSize());
 		textField.setName("InputTextField");
+		textField.setToolTipText("Words and \"phrases\", with AND, OR, NOT and parentheses, book:John and version:KJV");
 
 		wordSearchButton = new JButton("Search");
 		wordSearchButton.setMaximumSize(wordSearchButton.getPreferredSize());
@@ -157,8 +163,13 @@ public class BibleReaderApp extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				String searchText = textField.getText().trim();
-				ReferenceList list = model.getReferencesContainingAllWordsAndPhrases(searchText);
-				resultView.displaySearchResults(list, searchText);
+				if (model.isRankedSearch()) {
+					// Only the best verses on the pages shown are found.
+					resultView.displaySearchResults(model.getRankedResults(searchText));
+				} else {
+					ReferenceList list = model.getReferencesContainingAllWordsAndPhrases(searchText);
+					resultView.displaySearchResults(list, searchText);
+				}
 			}
 		});
 		wordSearchButton.setName("SearchButton");
@@ -175,12 +186,46 @@ public class BibleReaderApp extends JFrame {
 		});
 		passageSearchButton.setName("PassageButton");
 
+		fuzzyCheckBox = new JCheckBox("Fuzzy");
+		fuzzyCheckBox.setToolTipText("Also find words a letter or two different, for misspelled words");
+		fuzzyCheckBox.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				model.setFuzzySearch(fuzzyCheckBox.isSelected());
+			}
+		});
+		fuzzyCheckBox.setName("FuzzyCheckBox");
+
+		wordFormsCheckBox = new JCheckBox("Word forms");
+		wordFormsCheckBox.setToolTipText("Also find other forms of the words, like \"eateth\" and \"ate\" for \"eat\"");
+		wordFormsCheckBox.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				model.setMatchWordForms(wordFormsCheckBox.isSelected());
+			}
+		});
+		wordFormsCheckBox.setName("WordFormsCheckBox");
+
+		rankedCheckBox = new JCheckBox("Best first");
+		rankedCheckBox.setToolTipText("List the verses that match best first, instead of in order");
+		rankedCheckBox.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				model.setRankedSearch(rankedCheckBox.isSelected());
+			}
+		});
+		rankedCheckBox.setName("RankedCheckBox");
+
 		searchBox.add(Box.createHorizontalGlue());
 		searchBox.add(textField);
 		searchBox.add(Box.createHorizontalStrut(10));
 		searchBox.add(wordSearchButton);
 		searchBox.add(Box.createHorizontalStrut(10));
 		searchBox.add(passageSearchButton);
+		searchBox.add(Box.createHorizontalStrut(10));
+		searchBox.add(fuzzyCheckBox);
+		searchBox.add(wordFormsCheckBox);
+		searchBox.add(rankedCheckBox);
 		searchBox.add(Box.createHorizontalGlue());
 
 		this.setJMenuBar(menuBar);
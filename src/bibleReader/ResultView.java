@@ -15,8 +15,10 @@ import javax.swing.JTextField;
 import javax.swing.border.EmptyBorder;
 
 import bibleReader.model.BibleReaderModel;
+import bibleReader.model.NavigableResults;
 import bibleReader.model.Reference;
 import bibleReader.model.ReferenceList;
+import bibleReader.model.ResultType;
 
 /**
  * The display panel for the Bible Reader.
@@ -33,11 +35,10 @@ public class ResultView extends JPanel {
 	private JButton nextButton;
 	private JButton previousButton;
 	private JTextField pagingTextField;
-	private int currentPage;
 	private boolean isWordSearch;
 	private boolean isPassageSearch;
 
-	private ReferenceList searchResults; // store all of the current results
+	private NavigableResults searchResults; // store all of the current results, a page at a time
 	private String searchPhrase;
 
 	private final class NextButtonActionListener implements ActionListener {
@@ -128,7 +129,6 @@ public class ResultView extends JPanel {
 		this.add(controls);
 		
 		searchPhrase = "";
-		currentPage = 0;
 		isWordSearch = false;
 		isPassageSearch = false;
 		
@@ -140,57 +140,45 @@ public class ResultView extends JPanel {
 	 * Display the results from a word search.
 	 */
 	public void displaySearchResults(ReferenceList references, String searchText) {
-		searchResults = references; // set current results, start at page 1
-		searchPhrase = searchText;
-		currentPage = 1;
+		displaySearchResults(new NavigableResults(references, searchText, ResultType.SEARCH));
+	}
+
+	/**
+	 * Display the results from a word search that finds them a page at a time, like a ranked search (see
+	 * BibleReaderModel.getRankedResults). Only the verses on the pages shown are found.
+	 */
+	public void displaySearchResults(NavigableResults results) {
+		searchResults = results; // set current results, start at page 1
+		searchPhrase = results.getQueryPhrase();
 		isPassageSearch = false;
 		isWordSearch = true;
 		setCurrentPageText(1);
 		
-		ReferenceList pageOneReferences;
-		// If more than one page, use a sublist of the first twenty
-		if (references.size() > 20) {
-			pageOneReferences = new ReferenceList(references.subList(0, 20)); // 1 - 20
-			nextButton.setEnabled(true);
-		}
-		else {
-			pageOneReferences = references;
-			nextButton.setEnabled(false);
-		}
+		nextButton.setEnabled(results.hasNextResults());
 		previousButton.setEnabled(false);
 		
-		if (searchText.isEmpty()) {
+		if (searchPhrase.isEmpty()) {
 			resultsField.setText("Nothing was inputted.");
 			return; // don't render results
 		} else {
-			resultsField.setText("The bible contains \"" + searchText + "\" "
-					+ references.size() + " times.");
+			resultsField.setText("The bible contains \"" + searchPhrase + "\" "
+					+ results.size() + " times.");
 		}
 
-		renderSearchResults(pageOneReferences);
+		renderSearchResults(results.currentResults());
 	}
 
 	/**
 	 * Display the results from a passage search.
 	 */
 	public void displayPassageResults(ReferenceList references, String searchText) {
-		searchResults = references; // set current results, start at page 1
+		searchResults = new NavigableResults(references, searchText, ResultType.PASSAGE); // start at page 1
 		searchPhrase = searchText;
-		currentPage = 1;
 		isPassageSearch = true;
 		isWordSearch = false;
 		setCurrentPageText(1);
 		
-		ReferenceList pageOneReferences;
-		// If more than one page, use a sublist of the first twenty
-		if (references.size() > 20) {
-			pageOneReferences = new ReferenceList(references.subList(0, 20));
-			nextButton.setEnabled(true);
-		}
-		else {
-			pageOneReferences = references;
-			nextButton.setEnabled(false);
-		}
+		nextButton.setEnabled(searchResults.hasNextResults());
 		previousButton.setEnabled(false);
 		
 		if (searchText.isEmpty()) {
@@ -202,7 +190,7 @@ public class ResultView extends JPanel {
 		}
 		
 		// render the results
-		renderPassageResults(pageOneReferences);
+		renderPassageResults(searchResults.currentResults());
 	}
 	
 	private void renderSearchResults(ReferenceList ref) {
@@ -317,12 +305,11 @@ public class ResultView extends JPanel {
 	}
 	
 	private int getNumberOfPagesForCurrentResult() {
-		return (int)Math.ceil(searchResults.size()/20.0);
+		return searchResults.getNumberPages();
 	}
 	
 	// Set 0 to void text
 	private void setCurrentPageText(int page) {
-		currentPage = page;
 		if (page != 0) {
 			pagingTextField.setText("Displaying page "+page+" of "+getNumberOfPagesForCurrentResult());
 		}
@@ -332,24 +319,12 @@ public class ResultView extends JPanel {
 	}
 	
 	private void incrementPage() {
-		if ((currentPage+1) > getNumberOfPagesForCurrentResult()) return;
+		if (!searchResults.hasNextResults()) return;
 		previousButton.setEnabled(true);
 		
-		currentPage++;
-		
-		setCurrentPageText(currentPage);
-		
-		int fromIndex = ((currentPage-1)*20);
-		int toIndex =   (currentPage*20);
-		
-		if (toIndex > (searchResults.size()-1)) {
-			// use what's left
-			toIndex = searchResults.size();//(searchResults.size()%(currentPage*20))-1;
-			//System.out.println("Shortened: fromIndex:"+fromIndex+" toIndex: "+toIndex);
-		}
-		
-		// sublist of the next page of results
-		ReferenceList nextPageRef = new ReferenceList(searchResults.subList(fromIndex, toIndex));
+		// the next page of results, found now if they haven't been yet
+		ReferenceList nextPageRef = searchResults.nextResults();
+		setCurrentPageText(searchResults.getPageNumber());
 		
 		if (isWordSearch) {
 			renderSearchResults(nextPageRef);
@@ -359,20 +334,18 @@ public class ResultView extends JPanel {
 		}
 		
 		// If on last page, cannot next.
-		if (currentPage == getNumberOfPagesForCurrentResult()) {
+		if (!searchResults.hasNextResults()) {
 			nextButton.setEnabled(false);
 		}
 	}
 	
 	private void decrementPage() {
-		if ((currentPage-1) == 0) return;
+		if (!searchResults.hasPreviousResults()) return;
 		nextButton.setEnabled(true);
 		
-		currentPage--;
-		setCurrentPageText(currentPage);
-		
-		// sublist of the next page of results
-		ReferenceList nextPageRef = new ReferenceList(searchResults.subList(((currentPage-1)*20), (currentPage*20)));
+		// the previous page of results
+		ReferenceList nextPageRef = searchResults.previousResults();
+		setCurrentPageText(searchResults.getPageNumber());
 		
 		if (isWordSearch) {
 			renderSearchResults(nextPageRef);
@@ -382,7 +355,7 @@ public class ResultView extends JPanel {
 		}
 		
 		// If on first page, cannot previous.
-		if (currentPage == 1) {
+		if (!searchResults.hasPreviousResults()) {
 			previousButton.setEnabled(false);
 		}
 	}
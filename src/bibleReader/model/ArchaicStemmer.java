@@ -0,0 +1,136 @@
+package bibleReader.model;
+
+import java.util.HashMap;
+
+/**
+ * A Stemmer for the English of older translations as well as modern ones: it knows the -eth and -est endings ("eateth",
+ * "lovest") as well as -s, -ed and -ing, and the irregular forms of common verbs ("ate", "spake", "begat").
+ *
+ * Endings are removed by rules, not looked up, so a stem isn't always a word ("loveth", "loved" and "love" have the
+ * stem "lov"), and now and then two different words share a stem. Words of three letters or fewer are never changed.
+ */
+public final class ArchaicStemmer implements Stemmer {
+	// Change this whenever the rules or the irregular forms change (see Stemmer.getName).
+	private static final String						NAME		= "archaic1";
+
+	// The shortest stem an ending can be removed from.
+	private static final int						MIN_STEM	= 3;
+
+	// Irregular forms and the stems of the words they are forms of.
+	private static final HashMap<String, String>	IRREGULAR	= new HashMap<String, String>();
+
+	static {
+		irregular("eat", "ate", "eaten");
+		irregular("speak", "spake", "spoke", "spoken");
+		irregular("say", "saith", "said", "saidst", "sayest");
+		irregular("go", "goes", "goeth", "goest", "went", "gone");
+		irregular("die", "died", "dieth", "diest", "dying");
+		irregular("com", "came", "camest");
+		irregular("beget", "begat", "begot", "begotten");
+		irregular("break", "brake", "broke", "broken");
+		irregular("swear", "sware", "swore", "sworn");
+		irregular("know", "knew", "knewest", "known");
+		irregular("giv", "gave", "gavest", "given");
+		irregular("tak", "took", "tookest", "taken");
+		irregular("slay", "slew", "slain");
+		irregular("sit", "sat", "satest");
+		irregular("aris", "arose", "arisen");
+		irregular("ris", "rose", "risen");
+		irregular("work", "wrought");
+		irregular("hav", "hath", "hast", "had", "hadst", "has");
+		irregular("do", "doth", "dost", "didst", "did", "done", "does");
+		irregular("shall", "shalt");
+		irregular("will", "wilt");
+		irregular("see", "saw", "sawest", "seen", "seeth", "seest");
+		irregular("fall", "fell", "fallen");
+		irregular("bear", "bare", "borne");
+		irregular("driv", "drave", "drove", "driven");
+		irregular("writ", "wrote", "written");
+		irregular("find", "found", "foundest");
+		irregular("hear", "heard", "heardest");
+		irregular("mak", "made", "madest");
+		irregular("bring", "brought", "broughtest");
+		irregular("tell", "told");
+		irregular("stand", "stood");
+		irregular("send", "sent");
+		irregular("build", "built");
+		irregular("sell", "sold");
+		irregular("forsak", "forsook", "forsaken");
+	}
+
+	private static void irregular(String stem, String... forms) {
+		for (String form : forms) {
+			IRREGULAR.put(form, stem);
+		}
+	}
+
+	@Override
+	public String stem(String word) {
+		String stem = IRREGULAR.get(word);
+		if (stem != null) {
+			return stem;
+		}
+		if (word.length() <= MIN_STEM) {
+			return word;
+		}
+		String base = removeEnding(word);
+		if (base.length() < word.length()) {
+			// "sitteth" and "running" double the last consonant of "sit" and "run".
+			int n = base.length();
+			char last = base.charAt(n - 1);
+			if (n > MIN_STEM && last == base.charAt(n - 2) && isConsonant(last) && last != 'l' && last != 's'
+					&& last != 'z' && last != 'f') {
+				base = base.substring(0, n - 1);
+			}
+		}
+		// "love", "loveth" and "loved" all become "lov".
+		if (base.length() > MIN_STEM && base.charAt(base.length() - 1) == 'e') {
+			base = base.substring(0, base.length() - 1);
+		}
+		return base;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	/*
+	 * Remove the word's inflectional endings, if it has them and enough of the word is left: first a plural or
+	 * third person -s, then a verb ending, so that "blessings" becomes "bless".
+	 */
+	private static String removeEnding(String word) {
+		if (word.endsWith("ies") && word.length() - 3 >= MIN_STEM) {
+			word = word.substring(0, word.length() - 3) + "y";
+		} else if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+			word = strip(word, 1);
+		}
+		if (word.endsWith("eth") || word.endsWith("est") || word.endsWith("ing")) {
+			return strip(word, 3);
+		}
+		if (word.endsWith("ed")) {
+			return strip(word, 2);
+		}
+		return word;
+	}
+
+	/*
+	 * The word without its last n characters, unless what is left is too short or has no vowel ("king", "seed").
+	 */
+	private static String strip(String word, int n) {
+		String base = word.substring(0, word.length() - n);
+		if (base.length() < MIN_STEM) {
+			return word;
+		}
+		for (int i = 0; i < base.length(); i++) {
+			if (!isConsonant(base.charAt(i))) {
+				return base;
+			}
+		}
+		return word;
+	}
+
+	private static boolean isConsonant(char c) {
+		return "aeiouy".indexOf(c) < 0;
+	}
+}
@@ -1,6 +1,9 @@
 package bibleReader.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * A class that stores a version of the Bible.
@@ -15,6 +18,9 @@ public class ArrayListBible implements Bible {
 	private final String title;
 	private final ArrayList<Verse> theVerses;
 
+	// Where each book and chapter starts in theVerses.
+	private final Versification versification;
+
 	/**
 	 * Create a new Bible with the given verses.
 	 *
@@ -28,6 +34,41 @@ public class ArrayListBible implements Bible {
 		}
 		version = verses.getVersion();
 		title = verses.getDescription();
+
+		// The versification needs the verses in order. They almost always already are, so only sort if we have to.
+		// The sort is stable, so verses with the same reference stay in the order they were given.
+		if (!isInOrder(theVerses)) {
+			Collections.sort(theVerses, new Comparator<Verse>() {
+				@Override
+				public int compare(Verse v1, Verse v2) {
+					return v1.getReference().compareTo(v2.getReference());
+				}
+			});
+		}
+		Versification.Builder builder = new Versification.Builder(theVerses.size());
+		for (Verse v : theVerses) {
+			builder.add(v.getReference());
+		}
+		versification = builder.build();
+	}
+
+	/*
+	 * Are the verses in canonical order? Verses with the same reference can be next to each other.
+	 */
+	private static boolean isInOrder(List<Verse> verses) {
+		for (int i = 1; i < verses.size(); i++) {
+			if (verses.get(i - 1).getReference().compareTo(verses.get(i).getReference()) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the Versification of this Bible.
+	 */
+	public Versification getVersification() {
+		return versification;
 	}
 
 	@Override
@@ -47,48 +88,33 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public boolean isValid(Reference ref) {
-		for (Verse v : theVerses) {
-			if (ref.equals(v.getReference())) {
-				return true;
-			}
-		}
-		return false;
+		return versification.getOrdinal(ref) >= 0;
 	}
 
 	@Override
 	public String getVerseText(Reference r) {
-		for (Verse v : theVerses) {
-			if (r.equals(v.getReference())) {
-				return v.getText();
-			}
+		int index = versification.getOrdinal(r);
+		if (index < 0) {
+			return "";
 		}
-		return "";
+		return theVerses.get(index).getText();
 	}
 
 	@Override
 	public Verse getVerse(Reference r) {
-		for (Verse v : theVerses) {
-			if (r.equals(v.getReference())) {
-				return v;
-			}
-		}
-		return null;
+		int index = versification.getOrdinal(r);
+		return (index >= 0) ? theVerses.get(index) : null;
 	}
 
 	@Override
 	public Verse getVerse(BookOfBible book, int chapter, int verse) {
-		Reference r = new Reference(book, chapter, verse);
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(r)) {
-				return v;
-			}
-		}
-		return null;
+		int index = versification.getOrdinal(book, chapter, verse);
+		return (index >= 0) ? theVerses.get(index) : null;
 	}
 
 	@Override
 	public VerseList getAllVerses() {
-		return new VerseList(version, title, theVerses);
+		return new VerseListView(version, title, theVerses);
 	}
 
 	@Override
@@ -123,11 +149,8 @@ public class ArrayListBible implements Bible {
 	}
 
 	// ---------------------------------------------------------------------------------------------
-	// The following part of this class should be implemented for Stage 7.
-	//
-	// HINT: Do not reinvent the wheel. Some of these methods can be implemented
-	// by looking up
-	// one or two things and calling another method to do the bulk of the work.
+	// The passage methods. The versification tells us where each book and chapter starts, so each
+	// of these looks up the first and last index and returns a view of everything in between.
 	// ---------------------------------------------------------------------------------------------
 
 	@Override
@@ -141,363 +164,103 @@ public class ArrayListBible implements Bible {
 
 	@Override
 	public int getLastVerseNumber(BookOfBible book, int chapter) {
-		// Set previous verse, iterate through the verses until the chapter of the verse is greater than
-		// the chapter we are looking for. Once we have found the verse chapter that is one greater than the 
-		// one we are looking for, return the previous verse's verse number.
-		
 		if (book == null) {
 			return 0;
 		}
-		
-		Verse pV = null;
-		boolean inBook = false;
-		for (int i = 0; i < theVerses.size(); i++) {
-			Verse v = theVerses.get(i);
-			if (v.getReference().getBookOfBible().equals(book)) {
-				inBook = true;
-				if (v.getReference().getChapter() > chapter) {
-					return pV.getReference().getVerse();
-				}
-			}
-			else {
-				// If just passed the book, use the last verse in the book
-				if (inBook) {
-					return pV.getReference().getVerse();
-				}
-			}
-			pV = v;
-		}
-		// Just in case for last book of the bible
-		return pV.getReference().getVerse();
+		return versification.getLastVerseNumber(book, chapter);
 	}
 
 	@Override
 	public int getLastChapterNumber(BookOfBible book) {
-		// Gets last verse, returns its chapter number
-		if (book == null) {
-			return 0;
-		}
-		
-		Verse pV = null;
-		boolean inBook = false;
-		for (int i = 0; i < theVerses.size(); i++) {
-			Verse v = theVerses.get(i);
-			if (v.getReference().getBookOfBible().equals(book)) {
-				inBook = true;
-			}
-			else {
-				if (inBook) {
-					// Just passed book.
-					// Use last verse's chapter number
-					return pV.getReference().getChapter();
-				}
-			}
-			pV = v;
-		}
-		// Just in case for last book of the bible
-		return pV.getReference().getChapter();
+		return versification.getLastChapterNumber(book);
 	}
 
 	@Override
 	public ReferenceList getReferencesInclusive(Reference firstVerse, Reference lastVerse) {
-		// Homework 8 solution
-		
-		ReferenceList results = new ReferenceList();
-		//return results;
-		
 		if (firstVerse.compareTo(lastVerse) > 0) {
-			return results;
-		}
-		
-		int index1 = 0;
-		// If the first condition is true it will not read the second condition, thus not resulting in a null pointer exception
-		while (index1 <= theVerses.size()-1 && !theVerses.get(index1).getReference().equals(firstVerse)) {
-			index1++;
-		}
-		if (index1 == theVerses.size()) return results;
-		
-		int index2 = index1;
-		// If the first condition is true it will not read the second condition, thus not resulting in a null pointer exception
-		while (index2 <= theVerses.size()-1 && !theVerses.get(index2).getReference().equals(lastVerse) ) {
-			index2++;
+			return new ReferenceList();
 		}
-		if (index2 == theVerses.size()) return results;
-		
-		for (int i = index1; i < theVerses.size(); i++) {
-			if (i <= index2) {
-				results.add(theVerses.get(i).getReference());
-			}
+		// Both ends have to be in this Bible.
+		int index1 = versification.getOrdinal(firstVerse);
+		int index2 = versification.getOrdinal(lastVerse);
+		if (index1 < 0 || index2 < 0) {
+			return new ReferenceList();
 		}
-		return results;
+		return referencesBetween(index1, index2 + 1);
 	}
-		/*
-		ReferenceList refList = new ReferenceList();
-		
-		if (firstVerse.compareTo(lastVerse) > 0) {
-			return refList;
-		}
-		
-		// Not sure if we should check if the references are both valid.
-		// Seems a bit complex of an operation.
-		if (!isValid(firstVerse) || !isValid(lastVerse)) {
-			return refList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstVerse)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(lastVerse)) {
-				insideRange = false;
-				refList.add(v.getReference()); // Inclusive of last verse
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
-		}
-		
-		return refList;
-		*/
-	//}
 
 	@Override
 	public ReferenceList getReferencesExclusive(Reference firstVerse, Reference lastVerse) {
-		ReferenceList refList = new ReferenceList();
 		if (firstVerse.compareTo(lastVerse) > 0) {
-			return refList;
-		}
-		
-		// Not sure if we should check if the references are both valid.
-		// Seems a bit complex of an operation.
-		if (!isValid(firstVerse) || !isValid(lastVerse)) {
-			return refList;
+			return new ReferenceList();
 		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstVerse)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(lastVerse)) {
-				insideRange = false;
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
+		// Both ends have to be in this Bible.
+		int index1 = versification.getOrdinal(firstVerse);
+		int index2 = versification.getOrdinal(lastVerse);
+		if (index1 < 0 || index2 < 0) {
+			return new ReferenceList();
 		}
-		return refList;
+		return referencesBetween(index1, index2);
 	}
 
 	@Override
 	public ReferenceList getReferencesForBook(BookOfBible book) {
-		ReferenceList refList = new ReferenceList();
-		
 		if (book == null) {
-			return refList;
+			return new ReferenceList();
 		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book)) {
-				insideRange = true;
-			}
-			else {
-				if (insideRange) {
-					insideRange = false;
-					return refList;
-				}
-			}
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
-		}
-		return refList;
+		return referencesBetween(versification.getBookStart(book), versification.getBookEnd(book));
 	}
 
 	@Override
 	public ReferenceList getReferencesForChapter(BookOfBible book, int chapter) {
-		ReferenceList refList = new ReferenceList();
-		
 		if (book == null) {
-			return refList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book) && v.getReference().getChapter() == chapter) {
-				insideRange = true;
-			}
-			else if (v.getReference().getChapter() != chapter && insideRange) {
-				insideRange = false;
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
+			return new ReferenceList();
 		}
-		
-		return refList;
+		return referencesBetween(versification.getChapterStart(book, chapter), versification.getChapterEnd(book, chapter));
 	}
 
 	@Override
 	public ReferenceList getReferencesForChapters(BookOfBible book, int chapter1, int chapter2) {
-		ReferenceList refList = new ReferenceList();
-		
-		if (chapter1 > chapter2) {
-			return refList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book) && v.getReference().getChapter() >= chapter1 && v.getReference().getChapter() <= chapter2) {
-				insideRange = true;
-			}
-			else if ((v.getReference().getChapter() < chapter1 || v.getReference().getChapter() > chapter2) && insideRange) {
-				insideRange = false;
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
+		if (book == null || chapter1 > chapter2) {
+			return new ReferenceList();
 		}
-		
-		return refList;
+		return referencesBetween(versification.getChapterStart(book, chapter1),
+				versification.getChapterEnd(book, chapter2));
 	}
 
 	@Override
 	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter, int verse1, int verse2) {
-		Reference firstRef = new Reference(book, chapter, verse1);
-		Reference secondRef = new Reference(book, chapter, verse2);
-		
-		ReferenceList refList = new ReferenceList();
-		
-		if (verse1 > verse2) {
-			return refList;
+		if (book == null || verse1 > verse2) {
+			return new ReferenceList();
 		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			
-			if (v.getReference().equals(firstRef)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(secondRef)) {
-				insideRange = false;
-				refList.add(v.getReference()); // inclusive of last reference
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
-		}
-		
-		return refList;
+		return getReferencesInclusive(new Reference(book, chapter, verse1), new Reference(book, chapter, verse2));
 	}
 
 	@Override
 	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
-		Reference firstRef = new Reference(book, chapter1, verse1);
-		Reference secondRef = new Reference(book, chapter2, verse2);
-		
-		ReferenceList refList = new ReferenceList();
-		
-		if (firstRef.compareTo(secondRef) > 0) {
-			return refList;
-		}
-		
-		if (!isValid(firstRef) || !isValid(secondRef)) {
-			return refList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstRef)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(secondRef)) {
-				insideRange = false;
-				refList.add(v.getReference());
-				return refList;
-			}
-			
-			if (insideRange) {
-				refList.add(v.getReference());
-			}
+		if (book == null) {
+			return new ReferenceList();
 		}
-		
-		return refList;
+		return getReferencesInclusive(new Reference(book, chapter1, verse1), new Reference(book, chapter2, verse2));
 	}
 
 	@Override
 	public VerseList getVersesInclusive(Reference firstVerse, Reference lastVerse) {
-        VerseList vList = new VerseList(this.version,firstVerse+" to "+lastVerse);
-        
-        if (firstVerse.compareTo(lastVerse) > 0) {
-            return vList;
-        }
-        
-        // Not sure if we should check if the references are both valid.
-        // Seems a bit complex of an operation.
-        if (!isValid(firstVerse) || !isValid(lastVerse)) {
-            return vList;
-        }
-        
-        boolean insideRange = false;
-        for (Verse v : theVerses) {
-            if (v.getReference().equals(firstVerse)) {
-                insideRange = true;
-            }
-            else if (v.getReference().equals(lastVerse)) {
-                insideRange = false;
-                vList.add(v); // Inclusive of last verse
-                return vList;
-            }
-            
-            if (insideRange) {
-            	vList.add(v);
-            }
-        }
-        
-        return vList;
+		return versesInclusive(firstVerse, lastVerse, firstVerse + " to " + lastVerse);
 	}
 
 	@Override
 	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
-		VerseList vList = new VerseList(this.version,firstVerse+" to "+lastVerse);
-		
+		String description = firstVerse + " to " + lastVerse;
 		if (firstVerse.compareTo(lastVerse) > 0) {
-			return vList;
+			return new VerseList(version, description);
 		}
-		
-		// Not sure if we should check if the references are both valid.
-		// Seems a bit complex of an operation.
-		if (!isValid(firstVerse) || !isValid(lastVerse)) {
-			return vList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstVerse)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(lastVerse)) {
-				insideRange = false;
-				return vList;
-			}
-			
-			if (insideRange) {
-				vList.add(v);
-			}
+		int index1 = versification.getOrdinal(firstVerse);
+		int index2 = versification.getOrdinal(lastVerse);
+		if (index1 < 0 || index2 < 0) {
+			return new VerseList(version, description);
 		}
-		return vList;
+		return versesBetween(index1, index2, description);
 	}
 
 	@Override
@@ -505,26 +268,7 @@ public class ArrayListBible implements Bible {
 		if (book == null) {
 			return new VerseList(this.version,"");
 		}
-		
-		VerseList vList = new VerseList(this.version,book.toString());
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book)) {
-				insideRange = true;
-			}
-			else {
-				if (insideRange) {
-					insideRange = false;
-					return vList;
-				}
-			}
-			if (insideRange) {
-				vList.add(v);
-			}
-		}
-		
-		return vList;
+		return versesBetween(versification.getBookStart(book), versification.getBookEnd(book), book.toString());
 	}
 
 	@Override
@@ -532,25 +276,8 @@ public class ArrayListBible implements Bible {
 		if (book == null) {
 			return new VerseList(this.version,"");
 		}
-		
-		VerseList vList = new VerseList(this.version,book+" "+chapter);
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book) && v.getReference().getChapter() == chapter) {
-				insideRange = true;
-			}
-			else if (v.getReference().getChapter() != chapter && insideRange) {
-				insideRange = false;
-				return vList;
-			}
-			
-			if (insideRange) {
-				vList.add(v);
-			}
-		}
-		
-		return vList;
+		return versesBetween(versification.getChapterStart(book, chapter), versification.getChapterEnd(book, chapter),
+				book + " " + chapter);
 	}
 
 	@Override
@@ -558,96 +285,58 @@ public class ArrayListBible implements Bible {
 		if (book == null) {
 			return new VerseList(this.version,"");
 		}
-		
-		VerseList vList = new VerseList(this.version,book+" "+chapter1+"-"+chapter2);
-		
+		String description = book + " " + chapter1 + "-" + chapter2;
 		if (chapter1 > chapter2) {
-			return vList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().getBookOfBible().equals(book) && v.getReference().getChapter() >= chapter1 && v.getReference().getChapter() <= chapter2) {
-				insideRange = true;
-			}
-			else if ((v.getReference().getChapter() < chapter1 || v.getReference().getChapter() > chapter2) && insideRange) {
-				insideRange = false;
-				return vList;
-			}
-			
-			if (insideRange) {
-				vList.add(v);
-			}
+			return new VerseList(this.version, description);
 		}
-		
-		return vList;
+		return versesBetween(versification.getChapterStart(book, chapter1), versification.getChapterEnd(book, chapter2),
+				description);
 	}
 
 	@Override
 	public VerseList getPassage(BookOfBible book, int chapter, int verse1, int verse2) {
-		Reference firstRef = new Reference(book, chapter, verse1);
-		Reference secondRef = new Reference(book, chapter, verse2);
-		
-		VerseList vList = new VerseList(this.version,book+" "+chapter+":"+verse1+"-"+verse2);
-		
-		if (firstRef.compareTo(secondRef) > 0) {
-			return vList;
-		}
-		
-		if (!isValid(firstRef) || !isValid(secondRef)) {
-			return vList;
-		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstRef)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(secondRef)) {
-				insideRange = false;
-				vList.add(v); // inclusive of last reference
-				return vList;
-			}
-			
-			if (insideRange) {
-				vList.add(v);
-			}
+		String description = book + " " + chapter + ":" + verse1 + "-" + verse2;
+		if (book == null) {
+			return new VerseList(this.version, description);
 		}
-		
-		return vList;
+		return versesInclusive(new Reference(book, chapter, verse1), new Reference(book, chapter, verse2), description);
 	}
 
 	@Override
 	public VerseList getPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
-		Reference firstRef = new Reference(book, chapter1, verse1);
-		Reference secondRef = new Reference(book, chapter2, verse2);
-		
-		VerseList vList = new VerseList(this.version,book+" "+chapter1+":"+verse1+" - "+chapter2+":"+verse2);
-		
-		if (firstRef.compareTo(secondRef) > 0) {
-			return vList;
+		String description = book + " " + chapter1 + ":" + verse1 + " - " + chapter2 + ":" + verse2;
+		if (book == null) {
+			return new VerseList(this.version, description);
 		}
-		
-		if (!isValid(firstRef) || !isValid(secondRef)) {
-			return vList;
+		return versesInclusive(new Reference(book, chapter1, verse1), new Reference(book, chapter2, verse2), description);
+	}
+
+	/*
+	 * A view of the references of theVerses.get(from) up to, but not including, theVerses.get(to).
+	 */
+	private ReferenceList referencesBetween(int from, int to) {
+		return ReferenceListView.referencesOf(theVerses.subList(from, Math.max(from, to)));
+	}
+
+	/*
+	 * The verses from firstVerse to lastVerse, including both. Both have to be in this Bible.
+	 */
+	private VerseList versesInclusive(Reference firstVerse, Reference lastVerse, String description) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(version, description);
 		}
-		
-		boolean insideRange = false;
-		for (Verse v : theVerses) {
-			if (v.getReference().equals(firstRef)) {
-				insideRange = true;
-			}
-			else if (v.getReference().equals(secondRef)) {
-				insideRange = false;
-				vList.add(v);
-				return vList;
-			}
-			
-			if (insideRange) {
-				vList.add(v);
-			}
+		int index1 = versification.getOrdinal(firstVerse);
+		int index2 = versification.getOrdinal(lastVerse);
+		if (index1 < 0 || index2 < 0) {
+			return new VerseList(version, description);
 		}
-		
-		return vList;
+		return versesBetween(index1, index2 + 1, description);
+	}
+
+	/*
+	 * A view of theVerses.get(from) up to, but not including, theVerses.get(to).
+	 */
+	private VerseList versesBetween(int from, int to, String description) {
+		return new VerseListView(version, description, theVerses.subList(from, Math.max(from, to)));
 	}
 }
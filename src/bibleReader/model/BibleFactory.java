@@ -11,10 +11,42 @@ import java.lang.UnsupportedOperationException;
  */
 public class BibleFactory {
 
+	/**
+	 * The Bible implementations that createBible knows how to make.
+	 */
+	public enum BibleType {
+		ARRAY_LIST, TREE_MAP, COLUMNAR, SORTED_ARRAY, COMPRESSED
+	}
+
 	public static Bible createBible(VerseList verses) {
 		//return new ArrayListBible(verses);
 		return new TreeMapBible(verses);
 	}
+
+	/**
+	 * Create a Bible using a particular implementation rather than the default one.
+	 * 
+	 * @param verses All of the verses of this version of the Bible.
+	 * @param type Which implementation to use.
+	 * @return a Bible of the given type containing the verses.
+	 */
+	public static Bible createBible(VerseList verses, BibleType type) {
+		switch (type) {
+		case ARRAY_LIST:
+			return new ArrayListBible(verses);
+		case TREE_MAP:
+			return new TreeMapBible(verses);
+		case COLUMNAR:
+			return new ColumnarBible(verses);
+		case SORTED_ARRAY:
+			return new SortedArrayBible(verses);
+		case COMPRESSED:
+			return new ColumnarBible(verses, TokenDictionary.getShared(), CompressedTextStore.DEFAULT_CACHE_SIZE);
+		default:
+			throw new UnsupportedOperationException("Unknown Bible type: " + type);
+		}
+	}
+
 	public static Concordance createConcordance(Bible bible) {
 		return new Concordance(bible);
 	}
@@ -0,0 +1,320 @@
+package bibleReader.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The binary image of a Bible: a file that can be read in one go (or mapped into memory, see MappedBible) without any
+ * parsing. All numbers are 4-byte big-endian ints, and the layout is:
+ *
+ * <pre>
+ * magic number ("BBIN")
+ * format version
+ * number of verses (n)
+ * number of bytes of text
+ * the version (e.g. "ESV"): its length in bytes, then the bytes in UTF-8, padded with zeros to a multiple of 4
+ * the title: the same way
+ * the reference of each verse, packed by ReferenceCodec, in increasing order (n ints)
+ * where the text of each verse starts, counted from the start of the text, and where the text ends (n+1 ints)
+ * the text of every verse, back to back, in UTF-8
+ * </pre>
+ *
+ * The references are the versification of the Bible: which chapters and verses it has, in order.
+ */
+public final class BibleImage {
+	/**
+	 * The first four bytes of every image: "BBIN".
+	 */
+	public static final int		MAGIC			= 0x4242494E;
+
+	/**
+	 * The version of the layout that write produces. Readers reject images with a newer version.
+	 */
+	public static final int		FORMAT_VERSION	= 1;
+
+	/**
+	 * The file extension used for images.
+	 */
+	public static final String	EXTENSION		= ".bbin";
+
+	static final Charset		UTF8			= Charset.forName("UTF-8");
+
+	// How much of a list read is made room for at first; see readInts.
+	private static final int	CHUNK			= 1 << 16;
+
+	/*
+	 * Not meant to be instantiated.
+	 */
+	private BibleImage() {
+	}
+
+	/**
+	 * Write the image of a Bible to a file.
+	 *
+	 * @param bible the Bible to write.
+	 * @param file the file to write it to.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static void write(Bible bible, File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			write(bible, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the image of a Bible to a stream. The stream is flushed but not closed.
+	 *
+	 * @param bible the Bible to write. If it has more than one verse with the same reference, only the last one is
+	 *            written.
+	 * @param stream where to write it.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public static void write(Bible bible, OutputStream stream) throws IOException {
+		// SortedArrayBible puts the verses in order and drops duplicates, if there are any.
+		VerseList verses = new SortedArrayBible(bible.getAllVerses()).getAllVerses();
+		int n = verses.size();
+		byte[][] texts = new byte[n][];
+		int textLength = 0;
+		for (int i = 0; i < n; i++) {
+			texts[i] = verses.get(i).getText().getBytes(UTF8);
+			textLength += texts[i].length;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(n);
+		out.writeInt(textLength);
+		writeString(out, bible.getVersion());
+		writeString(out, bible.getTitle());
+		for (Verse v : verses) {
+			out.writeInt(ReferenceCodec.encode(v.getReference()));
+		}
+		int offset = 0;
+		for (byte[] text : texts) {
+			out.writeInt(offset);
+			offset += text.length;
+		}
+		out.writeInt(offset);
+		for (byte[] text : texts) {
+			out.write(text);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Read a whole image from a stream. Everything is read in order, in one pass, and there is nothing to parse but the
+	 * header, so this is much faster than reading a text format. (To avoid reading the text at all, use MappedBible.)
+	 *
+	 * @param stream where to read the image from. It is not closed.
+	 * @return the verses, in order, with the version and title of the Bible as their version and description.
+	 * @throws IOException if there is a problem reading or the stream isn't a valid image.
+	 */
+	public static VerseList read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		Header header = readHeader(in);
+		int n = header.getVerseCount();
+		// The counts in the header aren't trusted with an allocation until the stream turns out to be that long.
+		int[] codes = readInts(in, n);
+		checkCodes(codes);
+		int[] offsets = readInts(in, n + 1);
+		checkOffsets(IntBuffer.wrap(offsets), header.getTextLength());
+		byte[] text = readBytes(in, header.getTextLength());
+
+		VerseList verses = new VerseList(header.getVersion(), header.getTitle());
+		verses.ensureCapacity(n);
+		for (int i = 0; i < n; i++) {
+			String verseText = new String(text, offsets[i], offsets[i + 1] - offsets[i], UTF8);
+			verses.add(new Verse(ReferenceCodec.decode(codes[i]), verseText));
+		}
+		return verses;
+	}
+
+	/**
+	 * Read the header of an image (everything up to the references).
+	 *
+	 * @param in where to read it from.
+	 * @return the header.
+	 * @throws IOException if it isn't the header of an image this version of the program can read.
+	 */
+	public static Header readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a Bible image");
+		}
+		int formatVersion = in.readInt();
+		if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+			throw new IOException("Unsupported Bible image format version " + formatVersion);
+		}
+		int verseCount = in.readInt();
+		int textLength = in.readInt();
+		if (verseCount < 0 || textLength < 0) {
+			throw new IOException("Corrupt Bible image header");
+		}
+		int length = 16;
+		byte[] version = readString(in);
+		length += 4 + padded(version.length);
+		byte[] title = readString(in);
+		length += 4 + padded(title.length);
+		Header header = new Header(new String(version, UTF8), new String(title, UTF8), verseCount, textLength, length);
+		// Every position in the image has to fit in an int.
+		if (header.getImageLength() > Integer.MAX_VALUE) {
+			throw new IOException("Corrupt Bible image header");
+		}
+		return header;
+	}
+
+	/*
+	 * Check the references of an image: they must be ones ReferenceCodec can decode, in increasing order.
+	 */
+	static void checkCodes(int[] codes) throws IOException {
+		for (int i = 0; i < codes.length; i++) {
+			if (!ReferenceCodec.isCode(codes[i]) || (i > 0 && codes[i - 1] >= codes[i])) {
+				throw new IOException("Corrupt Bible image");
+			}
+		}
+	}
+
+	/*
+	 * Check where the text of each verse starts: from 0 up to the end of the text, never going back.
+	 */
+	static void checkOffsets(IntBuffer offsets, int textLength) throws IOException {
+		int n = offsets.limit();
+		if (offsets.get(0) != 0 || offsets.get(n - 1) != textLength) {
+			throw new IOException("Corrupt Bible image");
+		}
+		for (int i = 1; i < n; i++) {
+			if (offsets.get(i - 1) > offsets.get(i)) {
+				throw new IOException("Corrupt Bible image");
+			}
+		}
+	}
+
+	/*
+	 * Read count ints, growing the array as they arrive rather than making it count long up front.
+	 */
+	private static int[] readInts(DataInputStream in, int count) throws IOException {
+		int[] ints = new int[Math.min(count, CHUNK)];
+		for (int i = 0; i < count; i++) {
+			if (i == ints.length) {
+				ints = Arrays.copyOf(ints, (int) Math.min(count, 2L * i));
+			}
+			ints[i] = in.readInt();
+		}
+		return ints;
+	}
+
+	/*
+	 * Read count bytes the same way.
+	 */
+	private static byte[] readBytes(DataInputStream in, int count) throws IOException {
+		byte[] bytes = new byte[Math.min(count, CHUNK)];
+		int read = 0;
+		while (read < count) {
+			if (read == bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(count, 2L * read));
+			}
+			in.readFully(bytes, read, bytes.length - read);
+			read = bytes.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * What the header of an image says.
+	 */
+	public static final class Header {
+		private final String	version;
+		private final String	title;
+		private final int		verseCount;
+		private final int		textLength;
+		private final int		length;
+
+		private Header(String version, String title, int verseCount, int textLength, int length) {
+			this.version = version;
+			this.title = title;
+			this.verseCount = verseCount;
+			this.textLength = textLength;
+			this.length = length;
+		}
+
+		/**
+		 * @return the version of the Bible (e.g. "ESV").
+		 */
+		public String getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return the title of the Bible.
+		 */
+		public String getTitle() {
+			return title;
+		}
+
+		/**
+		 * @return the number of verses.
+		 */
+		public int getVerseCount() {
+			return verseCount;
+		}
+
+		/**
+		 * @return the number of bytes of text.
+		 */
+		public int getTextLength() {
+			return textLength;
+		}
+
+		/**
+		 * @return the number of bytes in the header, which is where the references start.
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the number of bytes the whole image should be.
+		 */
+		public long getImageLength() {
+			return length + 4L * verseCount + 4L * (verseCount + 1) + textLength;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = (s == null ? "" : s).getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		for (int i = bytes.length; i < padded(bytes.length); i++) {
+			out.write(0);
+		}
+	}
+
+	private static byte[] readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > (1 << 20)) {
+			throw new IOException("Corrupt Bible image header");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		in.skipBytes(padded(length) - length);
+		return bytes;
+	}
+
+	private static int padded(int length) {
+		return (length + 3) & ~3;
+	}
+}
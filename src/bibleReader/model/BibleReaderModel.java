@@ -1,9 +1,14 @@
 package bibleReader.model;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,14 +21,41 @@ import java.util.regex.Pattern;
 public class BibleReaderModel implements MultiBibleModel {
 	private final TreeMap<String, Bible> bibles;
 	private final HashMap<String, Concordance> concordances;
+	// Whether word searches also find words a few letters different (see Concordance.getSimilarWords).
+	private boolean fuzzySearch;
+	// Whether searches find the other forms of words (see Concordance.stemmed), and the concordances of the stems of
+	// each version's words, made the first time they are needed.
+	private boolean matchWordForms;
+	private final Stemmer stemmer;
+	private final HashMap<String, Concordance> stems;
+	// The files the Bibles were read from, for those that were, so that their stems can be saved next to them.
+	private final HashMap<String, File> sources;
+	// Whether word searches list the best matches first (see Bm25), and the scorer.
+	private boolean rankedSearch;
+	private final Bm25 bm25 = new Bm25();
+	// One concordance of every version's words, and one of their stems, made the first time they are needed.
+	private MultiVersionConcordance allWords;
+	private MultiVersionConcordance allStems;
 
 	/**
 	 * Default constructor. You probably need to instantiate objects and do
 	 * other assorted things to set up the model.
 	 */
 	public BibleReaderModel() {
+		this(new ArchaicStemmer());
+	}
+
+	/**
+	 * Create a model that finds the forms of words with the given stemmer.
+	 * 
+	 * @param stemmer the stemmer used when searches match word forms (see setMatchWordForms).
+	 */
+	public BibleReaderModel(Stemmer stemmer) {
 		bibles = new TreeMap<String, Bible>();
 		concordances = new HashMap<String, Concordance>();
+		this.stemmer = stemmer;
+		stems = new HashMap<String, Concordance>();
+		sources = new HashMap<String, File>();
 	}
 
 	@Override
@@ -43,6 +75,22 @@ public class BibleReaderModel implements MultiBibleModel {
 		Concordance c = BibleFactory.createConcordance(bible);
 		
 		concordances.put(bible.getVersion(), c);
+		forgetIndexes(bible.getVersion());
+		sources.remove(bible.getVersion());
+	}
+
+	/**
+	 * Add a Bible that was read from a file. The Bible's concordance is saved next to the file (see ConcordanceIndex),
+	 * and the next time the same file is loaded the saved concordance is used instead of building a new one.
+	 * 
+	 * @param bible The bible you want to add to the model.
+	 * @param source The file the Bible was read from.
+	 */
+	public void addBible(Bible bible, File source) {
+		bibles.put(bible.getVersion(), bible);
+		concordances.put(bible.getVersion(), ConcordanceIndex.forSource(bible, source));
+		forgetIndexes(bible.getVersion());
+		sources.put(bible.getVersion(), source);
 	}
 
 	@Override
@@ -65,11 +113,11 @@ public class BibleReaderModel implements MultiBibleModel {
 
 	@Override
 	public ReferenceList getReferencesContaining(String words) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesContaining(words));
+			references = union(references, bibles.get(version).getReferencesContaining(words));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 	
 	// stage 12
@@ -78,121 +126,437 @@ public class BibleReaderModel implements MultiBibleModel {
 		// single word
 		if (word.split(" ").length > 1) return new ReferenceList();
 		
-		TreeSet<Reference> results = new TreeSet<Reference>();
+		if (!WildcardIndex.isPattern(word) && !fuzzySearch) {
+			// One lookup finds the word in every version.
+			MultiVersionConcordance all = getMultiVersionConcordance();
+			if (all != null) {
+				return all.getReferencesContaining(word, all.getAllVersions());
+			}
+		}
+		IntReferenceList results = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			results.addAll(concordances.get(version).getReferencesContaining(word));
+			if (WildcardIndex.isPattern(word)) {
+				results = union(results, concordanceFor(version).getReferencesMatching(word));
+			} else if (fuzzySearch) {
+				results = union(results, concordanceFor(version).getReferencesContainingSimilar(word));
+			} else {
+				results = union(results, concordanceFor(version).getReferencesContaining(word));
+			}
 		}
 		
-		return new ReferenceList(results);
+		return results;
 	}
 
 	@Override
 	public ReferenceList getReferencesContainingAllWords(String words) {
-		TreeSet<Reference> results = new TreeSet<Reference>();
+		IntReferenceList results = new IntReferenceList();
+		
+		if (WildcardIndex.isPattern(words) || fuzzySearch) {
+			// Words with wildcards (like "bless*") match any word they fit; the rest are looked up as usual, or with
+			// the words like them if this is a fuzzy search.
+			ArrayList<String> wordsList = new ArrayList<String>();
+			ArrayList<String> patterns = new ArrayList<String>();
+			for (String word : words.trim().split("\\s+")) {
+				if (WildcardIndex.isPattern(word)) {
+					patterns.add(word.toLowerCase().replaceAll("[^\\w*?]", ""));
+				} else {
+					wordsList.addAll(Concordance.extractWords(word));
+				}
+			}
+			for (String version : bibles.keySet()) {
+				Concordance concordance = concordanceFor(version);
+				PostingSet[] sets = new PostingSet[wordsList.size() + patterns.size()];
+				for (int i = 0; i < wordsList.size(); i++) {
+					String word = wordsList.get(i);
+					sets[i] = fuzzySearch ? concordance.getVersesContainingSimilar(word) : concordance.getVerses(word);
+				}
+				for (int i = 0; i < patterns.size(); i++) {
+					sets[wordsList.size() + i] = concordance.getVersesMatching(patterns.get(i));
+				}
+				results = union(results, concordance.getReferences(Concordance.and(sets)));
+			}
+			return results;
+		}
 		
 		ArrayList<String> wordsList = Concordance.extractWords(words);
+		MultiVersionConcordance all = getMultiVersionConcordance();
+		if (all != null) {
+			return all.getReferencesContainingAll(wordsList, all.getAllVersions());
+		}
 		for (String version : bibles.keySet()) {
-			results.addAll(concordances.get(version).getReferencesContainingAll(wordsList));
+			results = union(results, concordanceFor(version).getReferencesContainingAll(wordsList));
 		}
 		
-		return new ReferenceList(results);
+		return results;
+	}
+
+	/**
+	 * @return true if word searches also find words a few letters different from the ones searched for.
+	 */
+	public boolean isFuzzySearch() {
+		return fuzzySearch;
+	}
+
+	/**
+	 * Turn fuzzy search on or off. When it is on, each word of a word search (but not of a phrase) also matches the
+	 * words a few edits away from it, so misspelled words still find something.
+	 * 
+	 * @param fuzzySearch whether word searches should be fuzzy.
+	 */
+	public void setFuzzySearch(boolean fuzzySearch) {
+		this.fuzzySearch = fuzzySearch;
+	}
+
+	/**
+	 * @return true if searches also find the other forms of the words searched for.
+	 */
+	public boolean isMatchWordForms() {
+		return matchWordForms;
+	}
+
+	/**
+	 * Turn matching word forms on or off. When it is on, words and phrases match any word with the same stem (see
+	 * Stemmer), so "eat" also finds "eateth", "eaten" and "ate", and the phrase "he ate bread" finds "he eateth bread".
+	 * The stems of each version's words are indexed the first time they are needed, and saved next to the Bible's file
+	 * if it was read from one.
+	 * 
+	 * @param matchWordForms whether searches should match word forms.
+	 */
+	public void setMatchWordForms(boolean matchWordForms) {
+		this.matchWordForms = matchWordForms;
+	}
+
+	/*
+	 * The concordance to search a version with: of its stems if searches match word forms, otherwise of its words.
+	 */
+	private Concordance concordanceFor(String version) {
+		return matchWordForms ? stemsOf(version) : concordances.get(version);
+	}
+
+	/*
+	 * The concordance of the stems of a version's words.
+	 */
+	private Concordance stemsOf(String version) {
+		synchronized (stems) {
+			Concordance c = stems.get(version);
+			if (c == null) {
+				File source = sources.get(version);
+				if (source == null) {
+					c = concordances.get(version).stemmed(stemmer);
+				} else {
+					c = ConcordanceIndex.stemsForSource(concordances.get(version), source, stemmer);
+				}
+				stems.put(version, c);
+			}
+			return c;
+		}
+	}
+
+	/*
+	 * Forget the indexes made from a version's concordance, which has changed.
+	 */
+	private void forgetIndexes(String version) {
+		synchronized (stems) {
+			stems.remove(version);
+			allWords = null;
+			allStems = null;
+		}
+	}
+
+	/**
+	 * Get one concordance of all of the versions, which finds the verses with a word in any of them, or in any subset
+	 * of them, with one lookup (see MultiVersionConcordance). It is built the first time it is needed.
+	 * 
+	 * @return a concordance of every version's words, or of their stems if searches match word forms (see
+	 *         setMatchWordForms), or null if there are more versions than one concordance can hold.
+	 */
+	public MultiVersionConcordance getMultiVersionConcordance() {
+		if (bibles.size() > MultiVersionConcordance.MAX_VERSIONS) {
+			return null;
+		}
+		boolean forms = matchWordForms;
+		synchronized (stems) {
+			MultiVersionConcordance all = forms ? allStems : allWords;
+			if (all == null) {
+				HashMap<String, Concordance> byVersion = new HashMap<String, Concordance>();
+				for (String version : bibles.keySet()) {
+					byVersion.put(version, forms ? stemsOf(version) : concordances.get(version));
+				}
+				all = new MultiVersionConcordance(byVersion);
+				if (forms) {
+					allStems = all;
+				} else {
+					allWords = all;
+				}
+			}
+			return all;
+		}
+	}
+
+	/**
+	 * Find the words in any version that someone may have meant by a word, for example to suggest "righteousness" for
+	 * "rightousness".
+	 * 
+	 * @param word a single word.
+	 * @param max the largest number of suggestions to return.
+	 * @return the words close to the given one (see Concordance.getSimilarWords), closest first, and of words equally
+	 *         close, those in the most verses first.
+	 */
+	public List<String> getSuggestions(String word, int max) {
+		// Merge the versions' matches: the same word has the same distance in each, and is in the verses of each.
+		final HashMap<String, Integer> distances = new HashMap<String, Integer>();
+		final HashMap<String, Integer> frequencies = new HashMap<String, Integer>();
+		for (String version : bibles.keySet()) {
+			for (FuzzyIndex.Match match : concordances.get(version).getSimilarWords(word)) {
+				Integer frequency = frequencies.get(match.getTerm());
+				frequencies.put(match.getTerm(), match.getFrequency() + (frequency == null ? 0 : frequency));
+				distances.put(match.getTerm(), match.getDistance());
+			}
+		}
+		List<String> suggestions = new ArrayList<String>(distances.keySet());
+		Collections.sort(suggestions, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int c = distances.get(a) - distances.get(b);
+				if (c == 0) {
+					c = frequencies.get(b) - frequencies.get(a);
+				}
+				return (c == 0) ? a.compareTo(b) : c;
+			}
+		});
+		if (suggestions.size() > max) {
+			suggestions = suggestions.subList(0, max);
+		}
+		return suggestions;
 	}
 
+	/**
+	 * {@inheritDoc} A search can also combine words and phrases with AND, OR, NOT and parentheses, and be restricted to
+	 * a book or a version, like "(faith OR hope) NOT fear book:Romans" (see QueryParser). A search that isn't a
+	 * query, like "love AND", finds nothing.
+	 */
 	@Override
 	public ReferenceList getReferencesContainingAllWordsAndPhrases(String words) {
-		TreeSet<Reference> result = new TreeSet<Reference>();
-		
-		//System.out.println("Phrase:              "+words);
-		//words = words.trim().toLowerCase();
-		//System.out.println("ToLowerCase+Trimmed: "+words);
-		if (words.split("\"").length > 1) {
-			// has quotes
-			System.out.println("quoted search:"+words);
-			
-			ArrayList<TreeSet<Reference>> results = new ArrayList<TreeSet<Reference>>();
-			
-			for (String phrase : words.split("\"")) {
-				phrase.trim(); // doesnt catch some only whitespace strings
-				if (!phrase.matches("([^a-zA-Z]|\\s*)")) {
-					System.out.println("Searching for quote \""+phrase+"\"");
-					ReferenceList r = getReferencesContainingAllWords(phrase.toLowerCase());
-					
-					TreeSet<Reference> singleResult = new TreeSet<Reference>();
-					phrase = phrase.replaceAll("\"", "");
-					for (String version : bibles.keySet()) {
-						for (Verse v : getVerses(version, r)) {
-							if (v != null) {
-								String text = v.getText().toLowerCase();
-								if (text.contains(phrase) || text.contains(phrase.toLowerCase())) {
-									singleResult.add(v.getReference());
-								}
-							}
-						}
-					}
-					System.out.println("Results: "+singleResult.size());
-					
-					results.add(singleResult);
+		ReferenceList results = findAllWordsAndPhrases(words);
+		return rankedSearch ? rank(results, words) : results;
+	}
+
+	/**
+	 * @return true if word searches list the verses that match best first, rather than in canonical order.
+	 */
+	public boolean isRankedSearch() {
+		return rankedSearch;
+	}
+
+	/**
+	 * Turn ranked search on or off. When it is on, getReferencesContainingAllWordsAndPhrases finds the same verses, but
+	 * lists them in order of how well they match (see rank). That scores every verse found; getRankedResults gives the
+	 * same order, a page at a time, and only scores what it needs to.
+	 * 
+	 * @param rankedSearch whether word searches should be ranked.
+	 */
+	public void setRankedSearch(boolean rankedSearch) {
+		this.rankedSearch = rankedSearch;
+	}
+
+	/**
+	 * Put the results of a search in order of how well the verses match it, best first, scored with BM25 (see Bm25) by
+	 * the words of the search, including the words of its phrases. A verse's score is its best score in any version.
+	 * Words with wildcards, words the search excludes with NOT, and words a verse only has a misspelling of, add nothing
+	 * to the score. Verses that score the same stay in canonical order.
+	 * 
+	 * @param references the results of the search, in canonical order.
+	 * @param search the search.
+	 * @return the same references, best first.
+	 */
+	public ReferenceList rank(ReferenceList references, String search) {
+		LinkedHashSet<String> words = rankingWords(search);
+		int[] codes = new int[references.size()];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = ReferenceCodec.encode(references.get(i));
+		}
+		final double[] best = new double[codes.length];
+		int[] which = new int[codes.length];
+		int[] ordinals = new int[codes.length];
+		for (String version : bibles.keySet()) {
+			Concordance concordance = concordanceFor(version);
+			int n = 0;
+			for (int i = 0; i < codes.length; i++) {
+				int ordinal = concordance.getOrdinal(codes[i]);
+				if (ordinal >= 0) {
+					which[n] = i;
+					ordinals[n++] = ordinal;
 				}
 			}
-			
-			System.out.println("Ended up with "+results.size()+" sets of results.");
-			
-			if (results.size() == 0) return new ReferenceList();
-			if (results.size() == 1) return new ReferenceList(results.get(0));
-			
-			TreeSet<Reference> firstResult = results.get(0);
-			for (TreeSet<Reference> aResult : results) {
-				if (aResult != firstResult) {
-					
-					firstResult.retainAll(aResult);
-					System.out.println("After retainAll: "+firstResult.size());
-					
-				}
+			double[] scores = bm25.score(concordance, words, Arrays.copyOf(ordinals, n));
+			for (int j = 0; j < n; j++) {
+				best[which[j]] = Math.max(best[which[j]], scores[j]);
+			}
+		}
+		Integer[] order = new Integer[codes.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Double.compare(best[b], best[a]);
+				return (c == 0) ? a - b : c;
+			}
+		});
+		int[] ranked = new int[codes.length];
+		for (int i = 0; i < ranked.length; i++) {
+			ranked[i] = codes[order[i]];
+		}
+		return IntReferenceList.wrap(ranked, ranked.length);
+	}
+
+	/**
+	 * Search for verses with all of the words and phrases of a search, best first, finding only as many of the best as
+	 * are shown. The results are the same as those of ranking the whole search (see rank), but each version only scores
+	 * the verses that could be among the best ones shown so far (see TopKScorer), so the first page of a search for
+	 * common words is quick.
+	 * 
+	 * @param search the search.
+	 * @return the results, which find more of the verses as the window slides past the ones already found.
+	 */
+	public NavigableResults getRankedResults(final String search) {
+		final ReferenceList matches = findAllWordsAndPhrases(search);
+		final LinkedHashSet<String> words = rankingWords(search);
+		final int[] codes = new int[matches.size()];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = ReferenceCodec.encode(matches.get(i));
+		}
+		NavigableResults.Source source = new NavigableResults.Source() {
+			@Override
+			public int size() {
+				return codes.length;
 			}
-			
-			result = firstResult;
-			
-				/*
-				if (phraseResults.size() == 1) {
-					results.add(phraseResults.get(0));
-					System.out.println(phrase+" "+phraseResults.get(0)+" <- was only one.");
+
+			@Override
+			public ReferenceList getFirst(int count) {
+				return rankFirst(codes, words, count);
+			}
+		};
+		return new NavigableResults(source, search, ResultType.SEARCH);
+	}
+
+	/*
+	 * The first count of the verses with the given codes (in canonical order), ranked as rank ranks them. A verse that
+	 * is among the best count in all versions is among the best count in one of them, so only those need scores; if
+	 * fewer than count verses score above 0, every version found all of its verses that do, and the rest are the
+	 * verses that score 0, in canonical order.
+	 */
+	private ReferenceList rankFirst(final int[] codes, LinkedHashSet<String> words, int count) {
+		final HashMap<Integer, Double> best = new HashMap<Integer, Double>();
+		int[] ordinals = new int[codes.length];
+		for (String version : bibles.keySet()) {
+			Concordance concordance = concordanceFor(version);
+			int n = 0;
+			for (int code : codes) {
+				int ordinal = concordance.getOrdinal(code);
+				if (ordinal >= 0 && (n == 0 || ordinals[n - 1] != ordinal)) {
+					ordinals[n++] = ordinal;
 				}
-				else if (phraseResults.size() > 1) {
-					TreeSet<Reference> firstResult = phraseResults.get(0);
-					for (TreeSet<Reference> aResult : phraseResults) {
-						if (aResult != firstResult) {
-							firstResult.retainAll(aResult);
-						}
-					}
-					
-					ReferenceList finalResults = new ReferenceList();
-					for (String version : bibles.keySet()) {
-						for (Verse v : getVerses(version, new ReferenceList(firstResult))) {
-							if (v.getText().contains(phrase.replaceAll("\"", ""))) {
-								finalResults.add(v.getReference());
-							}
-						}
-					}
-					
-					results.add(new TreeSet<Reference>(finalResults));
+			}
+			TopKScorer.Hits hits = concordance.getTopKScorer().top(words, PostingSet.of(Arrays.copyOf(ordinals, n)),
+					count);
+			for (int i = 0; i < hits.size(); i++) {
+				int code = concordance.getCode(hits.getOrdinal(i));
+				Double score = best.get(code);
+				if (score == null || score < hits.getScore(i)) {
+					best.put(code, hits.getScore(i));
 				}
 			}
-			
-			
-			
-			*/
+		}
+		ArrayList<Integer> scored = new ArrayList<Integer>();
+		ArrayList<Integer> unscored = new ArrayList<Integer>();
+		for (int i = 0; i < codes.length; i++) {
+			(best.containsKey(codes[i]) ? scored : unscored).add(i);
+		}
+		Collections.sort(scored, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Double.compare(best.get(codes[b]), best.get(codes[a]));
+				return (c == 0) ? a - b : c;
+			}
+		});
+		int[] ranked = new int[Math.min(count, codes.length)];
+		for (int i = 0; i < ranked.length; i++) {
+			ranked[i] = codes[(i < scored.size()) ? scored.get(i) : unscored.get(i - scored.size())];
+		}
+		return IntReferenceList.wrap(ranked, ranked.length);
+	}
+
+	/*
+	 * The words a search is ranked by: its words and the words of its phrases, but not patterns, or words the verses
+	 * must not have.
+	 */
+	private static LinkedHashSet<String> rankingWords(String search) {
+		LinkedHashSet<String> words = new LinkedHashSet<String>();
+		try {
+			new QueryParser().parse(search).addWords(words);
+		} catch (IllegalArgumentException e) {
+			// It doesn't match anything, so there's nothing to rank.
+		}
+		return words;
+	}
+
+	/**
+	 * Show how a search runs in each version (see QueryPlan.explain): the order its words, phrases and restrictions
+	 * are looked up in, and how many verses each was expected to find and did.
+	 * 
+	 * @param search a search, as for getReferencesContainingAllWordsAndPhrases.
+	 * @return the plan for each version, under a line with the version's abbreviation, or what is wrong with the
+	 *         search if it can't be parsed.
+	 */
+	public String explain(String search) {
+		Query query;
+		try {
+			query = new QueryParser(fuzzySearch).parse(search);
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		StringBuilder text = new StringBuilder();
+		for (String version : bibles.keySet()) {
+			QueryPlan plan = new QueryPlan(query, concordanceFor(version), version);
+			plan.execute();
+			text.append(version).append(":\n");
+			for (String line : plan.explain().split("\n")) {
+				text.append("  ").append(line).append("\n");
+			}
+		}
+		return text.toString();
+	}
+
+	/*
+	 * The verses that match a search, in canonical order: if it is only words, the verses with all of them, otherwise
+	 * the ones that match it as a query (see QueryParser), or none if it isn't one.
+	 */
+	private ReferenceList findAllWordsAndPhrases(String words) {
+		if (!QueryParser.isPlain(words)) {
+			// Plan how to run the query in each version; the concordance checks where the words are, so there's no need
+			// to look at the text.
+			Query query;
+			try {
+				query = new QueryParser(fuzzySearch).parse(words);
+			} catch (IllegalArgumentException e) {
+				return new ReferenceList();
+			}
+			IntReferenceList results = new IntReferenceList();
+			for (String version : bibles.keySet()) {
+				results = union(results, new QueryPlan(query, concordanceFor(version), version).getReferences());
+			}
+			return results;
 		}
 		else if (words.split(" ").length == 1) {
-			System.out.println("single word search:"+words);
 			// single word
-			result.addAll(getReferencesContainingWord(words));
+			return getReferencesContainingWord(words);
 		}
 		else {
-			System.out.println("multi word search:"+words);
 			// multi worded
-			result.addAll(getReferencesContainingAllWords(words));
+			return getReferencesContainingAllWords(words);
 		}
-		return new ReferenceList(result);
 	}
 
 	public static Pattern bookPattern = Pattern
@@ -310,72 +674,104 @@ public class BibleReaderModel implements MultiBibleModel {
 			int verse) {
 		Reference r = new Reference(book, chapter, verse);
 		
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList(1);
 		for (String version : bibles.keySet()) {
 			Verse v = bibles.get(version).getVerse(r);
 			if (v != null) {
 				references.add(v.getReference());
+				break;
 			}
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(Reference startVerse,
 			Reference endVerse) {
 		
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesInclusive(startVerse, endVerse));
+			references = union(references, bibles.get(version).getReferencesInclusive(startVerse, endVerse));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getBookReferences(BookOfBible book) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesForBook(book));
+			references = union(references, bibles.get(version).getReferencesForBook(book));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getChapterReferences(BookOfBible book, int chapter) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesForChapter(book, chapter));
+			references = union(references, bibles.get(version).getReferencesForChapter(book, chapter));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getChapterReferences(BookOfBible book, int chapter1,
 			int chapter2) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesForChapters(book, chapter1, chapter2));
+			references = union(references, bibles.get(version).getReferencesForChapters(book, chapter1, chapter2));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(BookOfBible book, int chapter,
 			int verse1, int verse2) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesForPassage(book, chapter, verse1, verse2));
+			references = union(references, bibles.get(version).getReferencesForPassage(book, chapter, verse1, verse2));
 		}
-		return new ReferenceList(references);
+		return references;
 	}
 
 	@Override
 	public ReferenceList getPassageReferences(BookOfBible book, int chapter1,
 			int verse1, int chapter2, int verse2) {
-		TreeSet<Reference> references = new TreeSet<Reference>();
+		IntReferenceList references = new IntReferenceList();
 		for (String version : bibles.keySet()) {
-			references.addAll(bibles.get(version).getReferencesForPassage(book, chapter1, verse1, chapter2, verse2));
+			references = union(references, bibles.get(version).getReferencesForPassage(book, chapter1, verse1, chapter2, verse2));
+		}
+		return references;
+	}
+
+	/*
+	 * Combine the references found so far with the references from one more version. Both are in canonical order, and
+	 * so is the result, with each reference listed once.
+	 */
+	private static IntReferenceList union(IntReferenceList soFar, ReferenceList more) {
+		IntReferenceList moreCodes = IntReferenceList.copyOf(more);
+		for (int i = 1; i < moreCodes.size(); i++) {
+			if (moreCodes.getCode(i - 1) >= moreCodes.getCode(i)) {
+				// Out of order, or a reference the Bible has more than one verse for.
+				moreCodes = sortedWithoutDuplicates(moreCodes);
+				break;
+			}
+		}
+		if (soFar.isEmpty()) {
+			return moreCodes;
+		}
+		return IntReferenceList.union(soFar, moreCodes);
+	}
+
+	private static IntReferenceList sortedWithoutDuplicates(IntReferenceList references) {
+		int[] codes = references.toCodeArray();
+		Arrays.sort(codes);
+		int n = 0;
+		for (int i = 0; i < codes.length; i++) {
+			if (n == 0 || codes[n - 1] != codes[i]) {
+				codes[n++] = codes[i];
+			}
 		}
-		return new ReferenceList(references);
+		return IntReferenceList.wrap(codes, n);
 	}
 }
@@ -0,0 +1,106 @@
+package bibleReader.model;
+
+import java.util.Collection;
+
+/**
+ * Scores verses by how well they match some words, with the Okapi BM25 formula, so that the best matches can be shown
+ * first. A word adds more to a verse's score the more often it is in the verse and the fewer verses it is in, and less
+ * the longer the verse is: for each word,
+ *
+ * <pre>
+ * idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / average length))
+ * </pre>
+ *
+ * where tf is the number of times the word is in the verse and idf is log(1 + (N - n + 0.5) / (n + 0.5)) for a word in
+ * n of the N verses. k1 limits how much repeating a word counts, and b how much the length of the verse does.
+ *
+ * The counts all come from the Concordance: how often a word is in a verse from its positions, and the lengths of the
+ * verses from Concordance.getLength.
+ */
+public final class Bm25 {
+	/**
+	 * The usual value of k1.
+	 */
+	public static final double	K1	= 1.2;
+	/**
+	 * The usual value of b.
+	 */
+	public static final double	B	= 0.75;
+
+	private final double		k1;
+	private final double		b;
+
+	/**
+	 * Score with the usual values of k1 and b.
+	 */
+	public Bm25() {
+		this(K1, B);
+	}
+
+	/**
+	 * @param k1 how much repeating a word counts: 0 for not at all.
+	 * @param b how much the length of a verse counts, from 0 (not at all) to 1.
+	 */
+	public Bm25(double k1, double b) {
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	/**
+	 * @param verses the number of verses.
+	 * @param frequency the number of verses a word is in.
+	 * @return how much the word says about a verse it is in: more the rarer it is.
+	 */
+	public static double idf(int verses, int frequency) {
+		return Math.log(1 + (verses - frequency + 0.5) / (frequency + 0.5));
+	}
+
+	/**
+	 * Score verses of a concordance.
+	 *
+	 * @param concordance the concordance.
+	 * @param words the words to score them for (ignoring case). Words that aren't in the concordance add nothing.
+	 * @param ordinals the ordinals of the verses, in increasing order.
+	 * @return the score of each verse, in the same order.
+	 */
+	public double[] score(Concordance concordance, Collection<String> words, int[] ordinals) {
+		double[] scores = new double[ordinals.length];
+		TermIndex index = concordance.getTermIndex();
+		// The part of the denominator that depends on the length of each verse, worked out once for all the words.
+		double[] norms = new double[ordinals.length];
+		for (int j = 0; j < ordinals.length; j++) {
+			norms[j] = norm(concordance, ordinals[j]);
+		}
+		for (String word : words) {
+			int t = index.indexOf(concordance.termOf(word));
+			if (t < 0) {
+				continue;
+			}
+			double idf = idf(concordance.getNumberOfVerses(), index.getPostings(t).cardinality());
+			Positions positions = index.getPositions(t);
+			int i = 0;
+			for (int j = 0; j < ordinals.length && i < positions.size(); j++) {
+				i = positions.find(ordinals[j], i);
+				if (i < positions.size() && positions.getOrdinal(i) == ordinals[j]) {
+					scores[j] += score(idf, positions.getEnd(i) - positions.getStart(i), norms[j]);
+				}
+			}
+		}
+		return scores;
+	}
+
+	/*
+	 * The part of the denominator that depends on the length of a verse. TopKScorer works scores out the same way, so
+	 * that it finds exactly the same scores.
+	 */
+	double norm(Concordance concordance, int ordinal) {
+		return k1 * (1 - b + b * concordance.getLength(ordinal) / Math.max(concordance.getAverageLength(), 1));
+	}
+
+	/*
+	 * What a word adds to the score of a verse it is in tf times.
+	 */
+	double score(double idf, int tf, double norm) {
+		return idf * tf * (k1 + 1) / (tf + norm);
+	}
+}
@@ -0,0 +1,62 @@
+package bibleReader.model;
+
+import java.util.List;
+
+/**
+ * A TextStore that keeps the text of every verse back to back in one char array, with an array of offsets saying where
+ * each verse starts. The text of verse i is text[offsets[i]] through text[offsets[i+1]-1].
+ */
+final class CharArrayTextStore implements TextStore {
+	// The start of each verse's text in text. There is one extra entry at the end so offsets[i+1] always works.
+	private final int[]		offsets;
+	private final char[]	text;
+
+	/**
+	 * @param texts the text of each verse, in order.
+	 */
+	CharArrayTextStore(List<String> texts) {
+		int totalLength = 0;
+		for (String verseText : texts) {
+			totalLength += verseText.length();
+		}
+		offsets = new int[texts.size() + 1];
+		text = new char[totalLength];
+		int position = 0;
+		int i = 0;
+		for (String verseText : texts) {
+			offsets[i++] = position;
+			verseText.getChars(0, verseText.length(), text, position);
+			position += verseText.length();
+		}
+		offsets[i] = position;
+	}
+
+	@Override
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	@Override
+	public String getText(int index) {
+		return new String(text, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+
+	/*
+	 * This searches the char array directly so we don't have to make a String (and a lowercase copy of it) for every
+	 * verse.
+	 */
+	@Override
+	public boolean containsIgnoreCase(int index, char[] lowerPhrase) {
+		int last = offsets[index + 1] - lowerPhrase.length;
+		for (int start = offsets[index]; start <= last; start++) {
+			int k = 0;
+			while (k < lowerPhrase.length && Character.toLowerCase(text[start + k]) == lowerPhrase[k]) {
+				k++;
+			}
+			if (k == lowerPhrase.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
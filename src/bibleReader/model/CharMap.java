@@ -0,0 +1,103 @@
+package bibleReader.model;
+
+/**
+ * A map from strings to values that can be looked up with the characters of a key, without making a String out of
+ * them. Indexing a Bible looks up every word of every verse but adds each different word only once, so this saves a
+ * String for every word in the Bible. Keys can't be removed.
+ *
+ * @param <V> the type of the values.
+ */
+final class CharMap<V> {
+	private String[]	keys;
+	private Object[]	values;
+	private int			size;
+
+	CharMap() {
+		keys = new String[64];
+		values = new Object[64];
+	}
+
+	/**
+	 * @return the number of keys.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param chars the characters of the key, in chars[0] to chars[length-1].
+	 * @param length the length of the key.
+	 * @return the value of the key, or null if it isn't in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(char[] chars, int length) {
+		int mask = keys.length - 1;
+		for (int i = hash(chars, length) & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (matches(keys[i], chars, length)) {
+				return (V) values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Add a key that isn't in the map yet.
+	 *
+	 * @param key the key.
+	 * @param value its value.
+	 */
+	void put(String key, V value) {
+		if (2 * (size + 1) > keys.length) {
+			String[] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new String[2 * oldKeys.length];
+			values = new Object[2 * oldKeys.length];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					insert(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		insert(key, value);
+		size++;
+	}
+
+	private void insert(String key, Object value) {
+		int mask = keys.length - 1;
+		int i = spread(key.hashCode()) & mask;
+		while (keys[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	private static boolean matches(String key, char[] chars, int length) {
+		if (key.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (key.charAt(i) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * The same as String.hashCode, so that keys added as Strings are found by their characters.
+	 */
+	private static int hash(char[] chars, int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + chars[i];
+		}
+		return spread(h);
+	}
+
+	private static int spread(int h) {
+		h ^= (h >>> 16);
+		h *= 0x45d9f3b;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,442 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Bible that stores its verses in a few big arrays ("columns") instead of one object per verse. The references are
+ * packed into ints (see ReferenceCodec) and kept in canonical order, and the text is kept in a TextStore. By default
+ * that stores the text of every verse back to back in one char array; it can instead be a CompressedTextStore. The
+ * verse at index i has reference codes[i] and text textStore.getText(i).
+ *
+ * Looking up a verse is a binary search, and a passage is just a range of indices. Verse and String objects are only
+ * created when a method has to return one; passages are returned as views (see VerseListView) that make each Verse
+ * when it is asked for.
+ */
+public class ColumnarBible implements Bible {
+	private final String	version;
+	private final String	title;
+
+	// The book, chapter and verse of each verse, packed into one int by ReferenceCodec. Sorted.
+	private final int[]		codes;
+	private final TextStore	textStore;
+
+	/**
+	 * Create a new Bible with the given verses. As with TreeMapBible, the verses don't need to be in order, and if two
+	 * verses have the same reference the one that comes later in the list is kept.
+	 *
+	 * @param verses All of the verses of this version of the Bible.
+	 */
+	public ColumnarBible(VerseList verses) {
+		this(verses, null, 0);
+	}
+
+	/**
+	 * Create a new Bible with the given verses, with the text compressed by a CompressedTextStore.
+	 *
+	 * @param verses All of the verses of this version of the Bible.
+	 * @param dictionary the dictionary to encode the text with, or null to store the text uncompressed.
+	 * @param cacheSize how many decoded verses to cache (if the text is compressed).
+	 */
+	public ColumnarBible(VerseList verses, TokenDictionary dictionary, int cacheSize) {
+		version = verses.getVersion();
+		title = verses.getDescription();
+
+		// Sort by reference, using the position in the list to break ties. Packing both into a long lets us sort
+		// without creating any objects.
+		int n = verses.size();
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = ((long) ReferenceCodec.encode(verses.get(i).getReference()) << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		// Drop all but the last of any verses with the same reference.
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (i + 1 < n && (keys[i] >>> 32) == (keys[i + 1] >>> 32)) {
+				continue;
+			}
+			keys[count++] = keys[i];
+		}
+
+		codes = new int[count];
+		String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			codes[i] = (int) (keys[i] >>> 32);
+			texts[i] = verses.get((int) keys[i]).getText();
+		}
+		if (dictionary == null) {
+			textStore = new CharArrayTextStore(Arrays.asList(texts));
+		} else {
+			textStore = new CompressedTextStore(Arrays.asList(texts), dictionary, cacheSize);
+		}
+	}
+
+	/**
+	 * Create a Bible from columns that have already been built (for instance, read from a file).
+	 *
+	 * @param version the version of the Bible.
+	 * @param title the title of the Bible.
+	 * @param codes the packed reference of each verse (see ReferenceCodec). They must be in increasing order.
+	 * @param textStore the text of each verse, in the same order.
+	 */
+	protected ColumnarBible(String version, String title, int[] codes, TextStore textStore) {
+		if (codes.length != textStore.size()) {
+			throw new IllegalArgumentException("There are " + codes.length + " references but " + textStore.size()
+					+ " verses of text");
+		}
+		for (int i = 1; i < codes.length; i++) {
+			if (codes[i - 1] >= codes[i]) {
+				throw new IllegalArgumentException("The references are not in order at index " + i);
+			}
+		}
+		this.version = version;
+		this.title = title;
+		this.codes = codes;
+		this.textStore = textStore;
+	}
+
+	/**
+	 * @return where the text of this Bible is kept.
+	 */
+	public TextStore getTextStore() {
+		return textStore;
+	}
+
+	@Override
+	public int getNumberOfVerses() {
+		return codes.length;
+	}
+
+	@Override
+	public VerseList getAllVerses() {
+		return versesBetween(0, codes.length, title);
+	}
+
+	@Override
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public boolean isValid(Reference ref) {
+		return indexOf(ref) >= 0;
+	}
+
+	@Override
+	public String getVerseText(Reference r) {
+		int i = indexOf(r);
+		return (i >= 0) ? textAt(i) : null;
+	}
+
+	@Override
+	public Verse getVerse(Reference r) {
+		int i = indexOf(r);
+		return (i >= 0) ? verseAt(i) : null;
+	}
+
+	@Override
+	public Verse getVerse(BookOfBible book, int chapter, int verse) {
+		return getVerse(new Reference(book, chapter, verse));
+	}
+
+	@Override
+	public VerseList getVersesContaining(String phrase) {
+		VerseList result = new VerseList(version, phrase);
+		if (phrase == null || phrase.equals("")) {
+			return result;
+		}
+		char[] lowerPhrase = phrase.toLowerCase().toCharArray();
+		for (int i = 0; i < codes.length; i++) {
+			if (textStore.containsIgnoreCase(i, lowerPhrase)) {
+				result.add(verseAt(i));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public ReferenceList getReferencesContaining(String phrase) {
+		IntReferenceList result = new IntReferenceList();
+		if (phrase == null || phrase.equals("")) {
+			return result;
+		}
+		char[] lowerPhrase = phrase.toLowerCase().toCharArray();
+		for (int i = 0; i < codes.length; i++) {
+			if (textStore.containsIgnoreCase(i, lowerPhrase)) {
+				result.addCode(codes[i]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public VerseList getVerses(ReferenceList references) {
+		VerseList result = new VerseList(version, "Arbitrary list of Verses");
+		for (Reference r : references) {
+			result.add(getVerse(r));
+		}
+		return result;
+	}
+
+	@Override
+	public int getLastVerseNumber(BookOfBible book, int chapter) {
+		if (book == null) {
+			return 0;
+		}
+		int end = lowerBound(book, chapter + 1, 1);
+		if (end == 0 || compareAt(end - 1, book, chapter, 1) < 0) {
+			// No verses in that chapter.
+			return 0;
+		}
+		return ReferenceCodec.getVerse(codes[end - 1]);
+	}
+
+	@Override
+	public int getLastChapterNumber(BookOfBible book) {
+		if (book == null) {
+			return 0;
+		}
+		int end = lowerBound(BookOfBible.nextBook(book), 1, 1);
+		if (end == 0 || ReferenceCodec.getBook(codes[end - 1]) != book) {
+			return 0;
+		}
+		return ReferenceCodec.getChapter(codes[end - 1]);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Passage getters that return ReferenceLists.
+
+	@Override
+	public ReferenceList getReferencesInclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new IntReferenceList();
+		}
+		return referencesBetween(lowerBound(firstVerse), upperBound(lastVerse));
+	}
+
+	@Override
+	public ReferenceList getReferencesExclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new IntReferenceList();
+		}
+		return referencesBetween(lowerBound(firstVerse), lowerBound(lastVerse));
+	}
+
+	@Override
+	public ReferenceList getReferencesForBook(BookOfBible book) {
+		if (book == null) {
+			return new IntReferenceList();
+		}
+		return referencesBetween(lowerBound(book, 1, 1), lowerBound(BookOfBible.nextBook(book), 1, 1));
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapter(BookOfBible book, int chapter) {
+		return getReferencesForChapters(book, chapter, chapter);
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapters(BookOfBible book, int chapter1, int chapter2) {
+		if (book == null || chapter1 > chapter2) {
+			return new IntReferenceList();
+		}
+		return referencesBetween(lowerBound(book, chapter1, 1), lowerBound(book, chapter2 + 1, 1));
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		return getReferencesForPassage(book, chapter, verse1, chapter, verse2);
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		if (book == null) {
+			return new IntReferenceList();
+		}
+		return getReferencesInclusive(new Reference(book, chapter1, verse1), new Reference(book, chapter2, verse2));
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Passage getters that return VerseLists.
+
+	@Override
+	public VerseList getVersesInclusive(Reference firstVerse, Reference lastVerse) {
+		String description = firstVerse + "-" + lastVerse;
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(lowerBound(firstVerse), upperBound(lastVerse), description);
+	}
+
+	@Override
+	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
+		String description = firstVerse + "-" + lastVerse + " excluding the final one";
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(lowerBound(firstVerse), lowerBound(lastVerse), description);
+	}
+
+	@Override
+	public VerseList getBook(BookOfBible book) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return versesBetween(lowerBound(book, 1, 1), lowerBound(BookOfBible.nextBook(book), 1, 1), book.toString());
+	}
+
+	@Override
+	public VerseList getChapter(BookOfBible book, int chapter) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return versesBetween(lowerBound(book, chapter, 1), lowerBound(book, chapter + 1, 1), book + " " + chapter);
+	}
+
+	@Override
+	public VerseList getChapters(BookOfBible book, int chapter1, int chapter2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		String description = book + " " + chapter1 + "-" + chapter2;
+		if (chapter1 > chapter2) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(lowerBound(book, chapter1, 1), lowerBound(book, chapter2 + 1, 1), description);
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return passage(book, chapter, verse1, chapter, verse2, book + " " + chapter + ":" + verse1 + "-" + verse2);
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return passage(book, chapter1, verse1, chapter2, verse2, book + " " + chapter1 + ":" + verse1 + "-"
+				+ chapter2 + ":" + verse2);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Private helpers.
+
+	private VerseList passage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2,
+			String description) {
+		Reference first = new Reference(book, chapter1, verse1);
+		Reference last = new Reference(book, chapter2, verse2);
+		if (first.compareTo(last) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(lowerBound(first), upperBound(last), description);
+	}
+
+	private String textAt(int i) {
+		return textStore.getText(i);
+	}
+
+	private Verse verseAt(int i) {
+		return new Verse(ReferenceCodec.decode(codes[i]), textAt(i));
+	}
+
+	/*
+	 * A view of the verses from index from up to, but not including, to. Each Verse is made when it is asked for.
+	 */
+	private VerseList versesBetween(final int from, int to, String description) {
+		final int size = Math.max(to - from, 0);
+		List<Verse> range = new AbstractList<Verse>() {
+			@Override
+			public Verse get(int index) {
+				if (index < 0 || index >= size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+				return verseAt(from + index);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+		return new VerseListView(version, description, range);
+	}
+
+	private ReferenceList referencesBetween(int from, int to) {
+		if (from >= to) {
+			return new IntReferenceList();
+		}
+		return IntReferenceList.wrap(Arrays.copyOfRange(codes, from, to), to - from);
+	}
+
+	/*
+	 * Returns the index of the verse with the given reference, or -1 if it isn't in this Bible.
+	 */
+	private int indexOf(Reference r) {
+		if (r == null || !ReferenceCodec.canEncode(r.getBookOfBible(), r.getChapter(), r.getVerse())) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(codes, ReferenceCodec.encode(r));
+		return (i >= 0) ? i : -1;
+	}
+
+	private int lowerBound(Reference r) {
+		return lowerBound(r.getBookOfBible(), r.getChapter(), r.getVerse());
+	}
+
+	/*
+	 * Returns the index of the first verse that comes after r, or the number of verses if there isn't one.
+	 */
+	private int upperBound(Reference r) {
+		int i = lowerBound(r);
+		if (i < codes.length && compareAt(i, r.getBookOfBible(), r.getChapter(), r.getVerse()) == 0) {
+			i++;
+		}
+		return i;
+	}
+
+	/*
+	 * Returns the index of the first verse at or after "book chapter:verse", or the number of verses if there isn't
+	 * one. This works even if the chapter or verse is too big (or negative) to be packed into an int.
+	 */
+	private int lowerBound(BookOfBible book, int chapter, int verse) {
+		int low = 0;
+		int high = codes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareAt(mid, book, chapter, verse) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Compares the reference of verse i to "book chapter:verse" in the same way Reference.compareTo does.
+	 */
+	private int compareAt(int i, BookOfBible book, int chapter, int verse) {
+		int code = codes[i];
+		int diff = ReferenceCodec.getBook(code).ordinal() - book.ordinal();
+		if (diff != 0) {
+			return diff;
+		}
+		diff = ReferenceCodec.getChapter(code) - chapter;
+		if (diff != 0) {
+			return diff;
+		}
+		return ReferenceCodec.getVerse(code) - verse;
+	}
+}
@@ -0,0 +1,153 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TextStore that keeps verse text dictionary-encoded. The text is split into tokens (words, and the runs of
+ * punctuation and space between them), each token is replaced by its id in a TokenDictionary, and the ids are packed
+ * into a byte array, seven bits to a byte, so the common tokens take one byte and almost all of the rest take two. The
+ * single space between two words is so common that it isn't stored at all: when two words are next to each other the
+ * space is put back when the verse is decoded.
+ *
+ * A verse is only decoded when its text is asked for. An optional cache keeps the most recently decoded verses, since
+ * the same chapter tends to be asked for several times in a row.
+ */
+public final class CompressedTextStore implements TextStore {
+	/**
+	 * The number of decoded verses BibleFactory's compressed Bibles cache.
+	 */
+	public static final int			DEFAULT_CACHE_SIZE	= 256;
+
+	private final TokenDictionary	dictionary;
+	// The encoded verses, back to back. Verse i is data[offsets[i]] through data[offsets[i+1]-1].
+	private final byte[]			data;
+	private final int[]				offsets;
+	// Recently decoded verses by index, or null if there is no cache.
+	private final Map<Integer, String>	cache;
+
+	/**
+	 * Encode the given verse text.
+	 *
+	 * @param texts the text of each verse, in order.
+	 * @param dictionary the dictionary to use. It can be shared with other stores.
+	 * @param cacheSize how many decoded verses to keep. 0 means don't cache.
+	 */
+	public CompressedTextStore(List<String> texts, TokenDictionary dictionary, final int cacheSize) {
+		this.dictionary = dictionary;
+		offsets = new int[texts.size() + 1];
+		byte[] bytes = new byte[Math.max(16, texts.size() * 16)];
+		int position = 0;
+		int i = 0;
+		for (String text : texts) {
+			offsets[i++] = position;
+			int length = text.length();
+			int start = 0;
+			boolean lastWasWord = false;
+			while (start < length) {
+				boolean word = TokenDictionary.isWordChar(text.charAt(start));
+				int end = start + 1;
+				while (end < length && TokenDictionary.isWordChar(text.charAt(end)) == word) {
+					end++;
+				}
+				if (!word && lastWasWord && end == start + 1 && text.charAt(start) == ' ' && end < length) {
+					// A single space between two words. Decoding puts it back.
+					start = end;
+					lastWasWord = false;
+					continue;
+				}
+				int id = dictionary.idOf(text.substring(start, end));
+				if (position + 5 > bytes.length) {
+					bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+				}
+				while (id >= 0x80) {
+					bytes[position++] = (byte) (id | 0x80);
+					id >>>= 7;
+				}
+				bytes[position++] = (byte) id;
+				lastWasWord = word;
+				start = end;
+			}
+		}
+		offsets[i] = position;
+		data = Arrays.copyOf(bytes, position);
+
+		if (cacheSize > 0) {
+			cache = Collections.synchronizedMap(new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+				private static final long	serialVersionUID	= 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+					return size() > cacheSize;
+				}
+			});
+		} else {
+			cache = null;
+		}
+	}
+
+	@Override
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	@Override
+	public String getText(int index) {
+		if (cache != null) {
+			String text = cache.get(index);
+			if (text != null) {
+				return text;
+			}
+		}
+		String text = decode(index);
+		if (cache != null) {
+			cache.put(index, text);
+		}
+		return text;
+	}
+
+	@Override
+	public boolean containsIgnoreCase(int index, char[] lowerPhrase) {
+		return containsIgnoreCase(getText(index), lowerPhrase);
+	}
+
+	/*
+	 * Is the lowercase phrase in text, ignoring case? This doesn't make a lowercase copy of the text.
+	 */
+	static boolean containsIgnoreCase(String text, char[] lowerPhrase) {
+		int last = text.length() - lowerPhrase.length;
+		for (int start = 0; start <= last; start++) {
+			int k = 0;
+			while (k < lowerPhrase.length && Character.toLowerCase(text.charAt(start + k)) == lowerPhrase[k]) {
+				k++;
+			}
+			if (k == lowerPhrase.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of bytes the encoded text takes (not counting the dictionary).
+	 */
+	public int getEncodedSize() {
+		return data.length;
+	}
+
+	/**
+	 * @return the dictionary this store uses.
+	 */
+	public TokenDictionary getDictionary() {
+		return dictionary;
+	}
+
+	private String decode(int index) {
+		StringBuilder text = new StringBuilder(4 * (offsets[index + 1] - offsets[index]));
+		dictionary.decode(data, offsets[index], offsets[index + 1], text);
+		return text.toString();
+	}
+}
@@ -2,46 +2,266 @@ package bibleReader.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.TreeSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Concordance is a class which implements a concordance for a Bible. In other words, it allows the easy lookup of all
  * references which contain a given word.
  * 
+ * Each verse is numbered by its position in the Bible (its ordinal), and each word maps to the set of ordinals of the
+ * verses that contain it (see PostingSet, which stores rare words as sorted arrays and common ones as bitmaps). The
+ * concordance is not changed after it is built, so it can be shared between threads.
+ * 
+ * A concordance can also be of the stems of the words (see stemmed and Stemmer), so that a search for one form of a
+ * word finds the others: "eat" finds "eateth", "eaten" and "ate". Every word searched for in it is stemmed first.
+ * 
  * @author Chuck Cusack, March 2013 (Provided the interface)
  * @author Matt, Karl, March 2013 (Provided the implementation details)
  */
 public class Concordance {
-	private Hashtable<String, HashSet<Reference>> index;
+	private final TermIndex				index;
+	// The packed reference (see ReferenceCodec) of the verse with each ordinal.
+	private final int[]					codes;
+	// The number of words in the verse with each ordinal, and the average, for ranking verses (see Bm25).
+	private final int[]					lengths;
+	private final double				averageLength;
+	// What the words were reduced to before they were indexed, or null if they are indexed as they are.
+	private final Stemmer				stemmer;
+	// Made the first time someone searches with a wildcard, or for words like a misspelled one.
+	private WildcardIndex				wildcards;
+	private FuzzyIndex					fuzzy;
+	private TopKScorer					topK;
+
+	private static final int			PROCESSORS	= Runtime.getRuntime().availableProcessors();
+	private static ExecutorService		sharedExecutor;
 	
 	/**
-	 * Construct a concordance for the given Bible.
+	 * Construct a concordance for the given Bible. On a machine with more than one processor the verses are indexed in
+	 * parallel on a shared ForkJoinPool.
 	 */
 	public Concordance(Bible bible) {
-		double debugTime = System.currentTimeMillis();
-		
-		System.out.println((System.currentTimeMillis()-debugTime)+"started index on "+bible.getVersion());
-		index = new Hashtable<String, HashSet<Reference>>();
-		for (Verse v : bible.getAllVerses()) {
-			//System.out.println((System.currentTimeMillis()-debugTime)+""+v);
-			for (String word : extractWords(v.getText())) {
-				if (!word.equals("")) {
-					word = word.toLowerCase();
-					HashSet<Reference> sortedSet = index.get(word);
-					if (sortedSet != null) {
-						sortedSet.add(v.getReference());
-					}
-					else {
-						sortedSet = new HashSet<Reference>();
-						sortedSet.add(v.getReference());
-					}
-					index.put(word, sortedSet);
+		this(bible, sharedExecutor());
+	}
+
+	/**
+	 * Construct a concordance for the given Bible, indexing the verses on the given threads. The verses are split into
+	 * shards of whole books, each shard is indexed on its own, and the shards' posting lists are joined in order, so
+	 * the result is exactly the same as indexing the verses one at a time.
+	 * 
+	 * @param bible the Bible.
+	 * @param executor the threads to use, or null to do everything on the calling thread.
+	 */
+	public Concordance(Bible bible, ExecutorService executor) {
+		List<Verse> verses = inCanonicalOrder(bible.getAllVerses());
+
+		// Number the verses. Two verses with the same reference share an ordinal.
+		int[] ordinals = new int[verses.size()];
+		int[] ordinalCodes = new int[verses.size()];
+		int ordinal = -1;
+		for (int i = 0; i < ordinals.length; i++) {
+			int code = ReferenceCodec.encode(verses.get(i).getReference());
+			if (ordinal < 0 || ordinalCodes[ordinal] != code) {
+				ordinalCodes[++ordinal] = code;
+			}
+			ordinals[i] = ordinal;
+		}
+		codes = Arrays.copyOf(ordinalCodes, ordinal + 1);
+		stemmer = null;
+
+		List<Shard> shards = split(verses, ordinals, (executor == null) ? 1 : 4 * PROCESSORS);
+		if (executor == null || shards.size() == 1) {
+			for (Shard shard : shards) {
+				shard.call();
+			}
+		} else {
+			runAll(executor, shards);
+		}
+
+		// Each shard covers later verses than the one before it, so joining their lists in order keeps them sorted. The
+		// shards number their separators separately, so they are renumbered as they are joined, in order of first
+		// appearance, which is the order indexing the verses one at a time would give them.
+		HashMap<String, Postings> postings = new HashMap<String, Postings>();
+		HashMap<String, Integer> separatorIds = new HashMap<String, Integer>();
+		List<String> separators = new ArrayList<String>();
+		lengths = new int[codes.length];
+		for (Shard shard : shards) {
+			for (int i = 0; i < shard.lengths.length; i++) {
+				lengths[shard.firstOrdinal + i] += shard.lengths[i];
+			}
+			int[] renumber = new int[shard.separators.size()];
+			for (int i = 0; i < renumber.length; i++) {
+				renumber[i] = idOf(shard.separators.get(i), separatorIds, separators);
+			}
+			for (Map.Entry<String, Postings> e : shard.postings.entrySet()) {
+				Postings p = postings.get(e.getKey());
+				if (p == null) {
+					p = new Postings();
+					postings.put(e.getKey(), p);
 				}
+				p.addAll(e.getValue(), renumber);
+			}
+		}
+		HashMap<String, PostingSet> sets = new HashMap<String, PostingSet>(postings.size() * 4 / 3 + 1);
+		HashMap<String, Positions> positions = new HashMap<String, Positions>(postings.size() * 4 / 3 + 1);
+		for (Map.Entry<String, Postings> e : postings.entrySet()) {
+			sets.put(e.getKey(), PostingSet.of(e.getValue().getOrdinals()));
+			positions.put(e.getKey(), e.getValue().getPositions());
+		}
+		index = new SortedTermIndex(sets, positions, separators.toArray(new String[separators.size()]));
+		averageLength = average(lengths);
+	}
+
+	/**
+	 * Create a concordance from an index that has already been built (for example, one read from a file).
+	 * 
+	 * @param codes the packed reference (see ReferenceCodec) of the verse with each ordinal, in increasing order.
+	 * @param index the words and the ordinals of the verses each one is in.
+	 */
+	protected Concordance(int[] codes, TermIndex index) {
+		this(codes, null, index, null);
+	}
+
+	/**
+	 * Create a concordance, possibly of stems, from an index that has already been built.
+	 * 
+	 * @param codes the packed reference (see ReferenceCodec) of the verse with each ordinal, in increasing order.
+	 * @param lengths the number of words in the verse with each ordinal, or null to count them from the index.
+	 * @param index the words or stems and the ordinals of the verses each one is in.
+	 * @param stemmer the stemmer that made the stems, or null if the index is of words.
+	 */
+	protected Concordance(int[] codes, int[] lengths, TermIndex index, Stemmer stemmer) {
+		this.codes = codes;
+		this.index = index;
+		this.stemmer = stemmer;
+		this.lengths = (lengths == null) ? lengthsOf(codes.length, index) : lengths;
+		averageLength = average(this.lengths);
+	}
+
+	/*
+	 * Count the words in each verse from where the words are.
+	 */
+	private static int[] lengthsOf(int verses, TermIndex index) {
+		int[] lengths = new int[verses];
+		for (int t = 0; t < index.size(); t++) {
+			Positions positions = index.getPositions(t);
+			for (int i = 0; i < positions.size(); i++) {
+				lengths[positions.getOrdinal(i)] += positions.getEnd(i) - positions.getStart(i);
+			}
+		}
+		return lengths;
+	}
+
+	private static double average(int[] values) {
+		long total = 0;
+		for (int value : values) {
+			total += value;
+		}
+		return (values.length == 0) ? 0 : (double) total / values.length;
+	}
+
+	/**
+	 * Build a concordance of the stems of this concordance's words, from this concordance's index rather than from the
+	 * verses. The verses and positions of a stem are those of all of the words with that stem, so phrases can be found
+	 * in it too: "he ate bread" finds "he eateth bread".
+	 * 
+	 * @param stemmer the stemmer to use.
+	 * @return the concordance of stems.
+	 * @throws IllegalStateException if this is already a concordance of stems.
+	 */
+	public Concordance stemmed(Stemmer stemmer) {
+		if (this.stemmer != null) {
+			throw new IllegalStateException("Already stemmed with " + this.stemmer.getName());
+		}
+		String[] words = index.getTerms(0, index.size());
+		HashMap<String, List<Integer>> forms = new HashMap<String, List<Integer>>();
+		for (int i = 0; i < words.length; i++) {
+			String stem = stemmer.stem(words[i]);
+			List<Integer> list = forms.get(stem);
+			if (list == null) {
+				list = new ArrayList<Integer>(1);
+				forms.put(stem, list);
 			}
+			list.add(i);
+		}
+		HashMap<String, PostingSet> sets = new HashMap<String, PostingSet>(forms.size() * 4 / 3 + 1);
+		HashMap<String, Positions> positions = new HashMap<String, Positions>(forms.size() * 4 / 3 + 1);
+		for (Map.Entry<String, List<Integer>> e : forms.entrySet()) {
+			List<Integer> list = e.getValue();
+			PostingSet[] postings = new PostingSet[list.size()];
+			Positions[] where = new Positions[list.size()];
+			for (int j = 0; j < postings.length; j++) {
+				postings[j] = index.getPostings(list.get(j));
+				where[j] = index.getPositions(list.get(j));
+			}
+			sets.put(e.getKey(), or(postings));
+			positions.put(e.getKey(), Positions.merge(where));
+		}
+		String[] separators = new String[index.getSeparatorCount()];
+		for (int i = 0; i < separators.length; i++) {
+			separators[i] = index.getSeparator(i);
 		}
-		System.out.println((System.currentTimeMillis()-debugTime)+"finished index on "+bible.getVersion());
+		return new Concordance(codes, lengths, new SortedTermIndex(sets, positions, separators), stemmer);
+	}
+
+	/**
+	 * @return the stemmer the words of this concordance were reduced with, or null if they weren't.
+	 */
+	public Stemmer getStemmer() {
+		return stemmer;
+	}
+
+	/**
+	 * @return the words in this concordance and the verses each one is in.
+	 */
+	public TermIndex getTermIndex() {
+		return index;
+	}
+
+	/**
+	 * @param ordinal the ordinal of a verse.
+	 * @return the number of words in it.
+	 */
+	public int getLength(int ordinal) {
+		return lengths[ordinal];
+	}
+
+	/**
+	 * @return the average number of words in a verse.
+	 */
+	public double getAverageLength() {
+		return averageLength;
+	}
+
+	/**
+	 * @param code the packed reference of a verse (see ReferenceCodec).
+	 * @return its ordinal, or a negative number if it isn't in this concordance.
+	 */
+	public int getOrdinal(int code) {
+		return Arrays.binarySearch(codes, code);
+	}
+
+	/**
+	 * @return the number of verses in the Bible this concordance was created from.
+	 */
+	public int getNumberOfVerses() {
+		return codes.length;
+	}
+
+	/**
+	 * @param ordinal the ordinal of a verse.
+	 * @return the packed reference (see ReferenceCodec) of the verse.
+	 */
+	public int getCode(int ordinal) {
+		return codes[ordinal];
 	}
 
 	/**
@@ -53,12 +273,7 @@ public class Concordance {
 	 *         contain the word.
 	 */
 	public ReferenceList getReferencesContaining(String word) {
-		word = word.toLowerCase();
-		if (!index.containsKey(word)) {
-			return new ReferenceList();
-		}
-		HashSet<Reference> h = index.get(word);
-		return new ReferenceList(h);
+		return getReferences(getVerses(word));
 	}
 
 	/**
@@ -70,40 +285,776 @@ public class Concordance {
 	 *         empty list if
 	 */
 	public ReferenceList getReferencesContainingAll(ArrayList<String> words) {
-		ArrayList<TreeSet<Reference>> results = new ArrayList<TreeSet<Reference>>();
-		for (String word : words) {
-			word = word.toLowerCase();
-			
-			TreeSet<Reference> result = new TreeSet<Reference>();	
-			
-			if (!index.containsKey(word)) return new ReferenceList();
-			
-			result.addAll(index.get(word));
-			results.add(result);
-		}
-		
-		if (results.size() == 0) return new ReferenceList();
-		if (results.size() == 1) return new ReferenceList(results.get(0));
-		
-		TreeSet<Reference> firstResult = results.get(0);
-		for (TreeSet<Reference> result : results) {
-			if (result != results.get(0)) {
-				firstResult.retainAll(result);
-			}
-		}
-		
-		return new ReferenceList(firstResult);
+		PostingSet[] sets = new PostingSet[words.size()];
+		for (int i = 0; i < sets.length; i++) {
+			sets[i] = getVerses(words.get(i));
+		}
+		return getReferences(and(sets));
+	}
+
+	/**
+	 * Return the verses that contain a word, as a set of ordinals. Sets from the same concordance can be combined with
+	 * PostingSet's and, or and andNot, and the result turned into references with getReferences.
+	 * 
+	 * @param word a single word (ignoring case).
+	 * @return the ordinals of the verses containing the word, or an empty set if there are none.
+	 */
+	public PostingSet getVerses(String word) {
+		int i = index.indexOf(termOf(word));
+		return (i < 0) ? PostingSet.EMPTY : index.getPostings(i);
+	}
+
+	/**
+	 * @param book a book of the Bible.
+	 * @return the ordinals of the verses of this concordance in the book. Ordinals are in canonical order, so they are
+	 *         consecutive.
+	 */
+	public PostingSet getVersesIn(BookOfBible book) {
+		int from = Arrays.binarySearch(codes, ReferenceCodec.encode(book, 0, 0));
+		int to = Arrays.binarySearch(codes,
+				ReferenceCodec.encode(book, ReferenceCodec.MAX_CHAPTER, ReferenceCodec.MAX_VERSE) + 1);
+		return PostingSet.range((from < 0) ? -from - 1 : from, (to < 0) ? -to - 1 : to);
+	}
+
+	/**
+	 * Return the list of references to verses that contain a word that matches a pattern, where * matches any number of
+	 * characters and ? matches one (see WildcardIndex). For example, "bless*" finds the verses with "bless",
+	 * "blessed", "blessing", and so on. In a concordance of stems, the pattern is matched against the stems.
+	 * 
+	 * @param pattern a single word with wildcards (ignoring case).
+	 * @return the references of the verses with a word that matches the pattern.
+	 */
+	public ReferenceList getReferencesMatching(String pattern) {
+		return getReferences(getVersesMatching(pattern));
+	}
+
+	/**
+	 * Return the verses that contain a word that matches a pattern. See getReferencesMatching.
+	 * 
+	 * @param pattern a single word with wildcards (ignoring case).
+	 * @return the ordinals of the verses with a word that matches the pattern.
+	 */
+	public PostingSet getVersesMatching(String pattern) {
+		int[] matching = getWildcardIndex().find(pattern.toLowerCase());
+		PostingSet[] sets = new PostingSet[matching.length];
+		for (int i = 0; i < matching.length; i++) {
+			sets[i] = index.getPostings(matching[i]);
+		}
+		return or(sets);
+	}
+
+	/**
+	 * @return the index used to find the words that match a pattern.
+	 */
+	public synchronized WildcardIndex getWildcardIndex() {
+		if (wildcards == null) {
+			wildcards = new WildcardIndex(index);
+		}
+		return wildcards;
+	}
+
+	/**
+	 * Find the words that are a few edits away from a word (see FuzzyIndex.maxDistanceFor), such as the words someone
+	 * may have meant when they misspelled one.
+	 * 
+	 * @param word a single word (ignoring case).
+	 * @return the words close to it, including the word itself if it is in the concordance, closest and most common
+	 *         first.
+	 */
+	public List<FuzzyIndex.Match> getSimilarWords(String word) {
+		String term = termOf(word);
+		return getFuzzyIndex().find(term, FuzzyIndex.maxDistanceFor(term));
+	}
+
+	/**
+	 * Return the list of references to verses that contain a word close to the given one (see getSimilarWords), so that
+	 * "rightousness" finds the verses with "righteousness".
+	 * 
+	 * @param word a single word (ignoring case).
+	 * @return the references of the verses with a word close to it.
+	 */
+	public ReferenceList getReferencesContainingSimilar(String word) {
+		return getReferences(getVersesContainingSimilar(word));
+	}
+
+	/**
+	 * Return the verses that contain a word close to the given one. See getReferencesContainingSimilar.
+	 * 
+	 * @param word a single word (ignoring case).
+	 * @return the ordinals of the verses with a word close to it.
+	 */
+	public PostingSet getVersesContainingSimilar(String word) {
+		List<FuzzyIndex.Match> matches = getSimilarWords(word);
+		PostingSet[] sets = new PostingSet[matches.size()];
+		for (int i = 0; i < sets.length; i++) {
+			sets[i] = index.getPostings(matches.get(i).getIndex());
+		}
+		return or(sets);
+	}
+
+	/**
+	 * @return the index used to find the words close to a word.
+	 */
+	public synchronized FuzzyIndex getFuzzyIndex() {
+		if (fuzzy == null) {
+			fuzzy = new FuzzyIndex(index);
+		}
+		return fuzzy;
+	}
+
+	/**
+	 * @return the scorer used to find the verses that match some words best (see Bm25), with the usual values of k1 and
+	 *         b.
+	 */
+	public synchronized TopKScorer getTopKScorer() {
+		if (topK == null) {
+			topK = new TopKScorer(this, new Bm25());
+		}
+		return topK;
+	}
+
+	/**
+	 * @param word a word (in any case) someone searched for.
+	 * @return what it is indexed as: the word in lowercase, or its stem if this is a concordance of stems.
+	 */
+	protected String termOf(String word) {
+		String lower = word.toLowerCase();
+		return (stemmer == null) ? lower : stemmer.stem(lower);
+	}
+
+	/**
+	 * Unite sets of verses, in pairs, so that each verse is copied about log(sets.length) times rather than once for
+	 * every set after the one it is in.
+	 * 
+	 * @param sets sets of verse ordinals from this concordance. The array is not changed.
+	 * @return the verses in any of the sets, or an empty set if there are no sets.
+	 */
+	public static PostingSet or(PostingSet... sets) {
+		if (sets.length == 0) {
+			return PostingSet.EMPTY;
+		}
+		PostingSet[] level = sets.clone();
+		int n = level.length;
+		while (n > 1) {
+			for (int i = 0; i < n / 2; i++) {
+				level[i] = level[2 * i].or(level[2 * i + 1]);
+			}
+			if (n % 2 == 1) {
+				level[n / 2] = level[n - 1];
+			}
+			n = (n + 1) / 2;
+		}
+		return level[0];
+	}
+
+	/**
+	 * Intersect sets of verses, starting with the smallest so that the intermediate results stay small.
+	 * 
+	 * @param sets sets of verse ordinals from this concordance. The array is not changed.
+	 * @return the verses in all of the sets, or an empty set if there are no sets.
+	 */
+	public static PostingSet and(PostingSet... sets) {
+		if (sets.length == 0) {
+			return PostingSet.EMPTY;
+		}
+		PostingSet[] bySize = sets.clone();
+		Arrays.sort(bySize, new Comparator<PostingSet>() {
+			@Override
+			public int compare(PostingSet a, PostingSet b) {
+				return a.cardinality() - b.cardinality();
+			}
+		});
+		PostingSet result = bySize[0];
+		for (int i = 1; i < bySize.length && !result.isEmpty(); i++) {
+			result = result.and(bySize[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Turn a set of verse ordinals into the references of the verses. Ordinals are in canonical order, so the
+	 * references are too.
+	 * 
+	 * @param verses ordinals from this concordance (e.g. from getVerses).
+	 * @return the references of those verses.
+	 */
+	public ReferenceList getReferences(PostingSet verses) {
+		int[] result = verses.toArray();
+		for (int i = 0; i < result.length; i++) {
+			result[i] = codes[result[i]];
+		}
+		return IntReferenceList.wrap(result, result.length);
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @return where the word is in each verse it is in, or Positions.EMPTY if it isn't in any.
+	 */
+	public Positions getPositions(String word) {
+		int i = index.indexOf(termOf(word));
+		return (i < 0) ? Positions.EMPTY : index.getPositions(i);
+	}
+
+	/**
+	 * Return the references of the verses that contain a phrase: its words, one after the other, with the same text
+	 * between them as in the phrase (ignoring case). Any text before the first word of the phrase must come just before
+	 * the first word in the verse, and any text after the last word must come just after it. So the phrase "who are
+	 * you, my son?" matches the verse "Who are you, my son?" but not "who are you my son". Words must match whole
+	 * words, so "son" doesn't match "sons".
+	 * 
+	 * This only uses the index. The verses themselves aren't looked at.
+	 * 
+	 * @param phrase the phrase.
+	 * @return the references of the verses that contain it, in canonical order. If the phrase has no words, the list
+	 *         is empty.
+	 */
+	public ReferenceList getReferencesContainingPhrase(String phrase) {
+		return getReferences(getVersesContainingPhrase(phrase));
+	}
+
+	/**
+	 * Find the verses that contain a phrase. See getReferencesContainingPhrase.
+	 * 
+	 * @param phrase the phrase.
+	 * @return the ordinals of the verses that contain it.
+	 */
+	public PostingSet getVersesContainingPhrase(String phrase) {
+		return getVersesContainingPhrase(phrase, null);
+	}
+
+	/**
+	 * Find the verses of a set that contain a phrase. Only the verses in the set are checked, so if something else
+	 * already narrowed a search down to a few verses, checking the phrase is quick.
+	 * 
+	 * @param phrase the phrase.
+	 * @param within the ordinals of the verses to check, or null to check every verse.
+	 * @return the ordinals of the verses in within that contain the phrase.
+	 */
+	public PostingSet getVersesContainingPhrase(String phrase, PostingSet within) {
+		Phrase parsed = new Phrase(phrase);
+		List<String> words = parsed.words;
+		int k = words.size();
+		if (k == 0) {
+			return PostingSet.EMPTY;
+		}
+		String[] separators = parsed.getSeparators();
+		for (String separator : separators) {
+			if (separator == null) {
+				return PostingSet.EMPTY;
+			}
+		}
+		// The separators between the words must be exactly the same, so we only need their ids.
+		int[] between = new int[k];
+		for (int j = 1; j < k; j++) {
+			between[j] = index.indexOfSeparator(separators[j]);
+			if (between[j] < 0) {
+				return PostingSet.EMPTY;
+			}
+		}
+		PostingSet[] sets = new PostingSet[k];
+		Positions[] positions = new Positions[k];
+		for (int j = 0; j < k; j++) {
+			int t = index.indexOf(termOf(words.get(j)));
+			if (t < 0) {
+				return PostingSet.EMPTY;
+			}
+			sets[j] = index.getPostings(t);
+			positions[j] = index.getPositions(t);
+		}
+
+		// Every candidate contains all of the words; keep the ones where they are in the right places.
+		PostingSet all = and(sets);
+		int[] candidates = ((within == null) ? all : all.and(within)).toArray();
+		int[] found = new int[k];
+		int n = 0;
+		for (int ordinal : candidates) {
+			for (int j = 0; j < k; j++) {
+				found[j] = positions[j].find(ordinal, found[j]);
+			}
+			if (containsPhrase(positions, found, between, separators[0], separators[k])) {
+				candidates[n++] = ordinal;
+			}
+		}
+		return PostingSet.of(Arrays.copyOf(candidates, n));
+	}
+
+	/**
+	 * Find the verses where one word is near another, by merging where they are in each verse: "grace" within 5 words
+	 * of "faith" is in a verse if "grace" is at some position p and "faith" at a position from p - 5 to p + 5. The
+	 * words can also be allowed to be in consecutive verses of the same book, counting the words between them in both
+	 * verses; then both verses are found.
+	 * 
+	 * @param first where the first word is (see getPositions). Several words can be merged into one (see
+	 *            Positions.merge).
+	 * @param second where the second word is.
+	 * @param distance the most words apart they can be: 1 for next to each other.
+	 * @param ordered whether the second word has to come after the first.
+	 * @param acrossVerses whether the words can be in consecutive verses.
+	 * @param within the ordinals of the verses to find, or null to find any.
+	 * @return the ordinals of the verses in within where the words are near each other.
+	 */
+	public PostingSet getVersesNear(Positions first, Positions second, int distance, boolean ordered,
+			boolean acrossVerses, PostingSet within) {
+		int[] found = new int[16];
+		int n = 0;
+		int same = 0;
+		int next = 0;
+		int previous = 0;
+		for (int i = 0; i < first.size(); i++) {
+			int ordinal = first.getOrdinal(i);
+			if (within != null && !within.contains(ordinal)
+					&& !(acrossVerses && (within.contains(ordinal - 1) || within.contains(ordinal + 1)))) {
+				continue;
+			}
+			// This verse can add up to 5: itself, and itself and a neighbour for each side.
+			if (n + 5 > found.length) {
+				found = Arrays.copyOf(found, 2 * found.length);
+			}
+			same = second.find(ordinal, same);
+			if (same < second.size() && second.getOrdinal(same) == ordinal
+					&& isNear(first, i, 0, second, same, 0, distance, ordered)) {
+				found[n++] = ordinal;
+			}
+			if (!acrossVerses) {
+				continue;
+			}
+			// The second word in the next verse, counting from the end of this one.
+			next = second.find(ordinal + 1, next);
+			if (next < second.size() && second.getOrdinal(next) == ordinal + 1 && sameBook(ordinal, ordinal + 1)
+					&& isNear(first, i, 0, second, next, lengths[ordinal], distance, ordered)) {
+				found[n++] = ordinal;
+				found[n++] = ordinal + 1;
+			}
+			// The second word in the verse before, if it may come first.
+			previous = second.find(ordinal - 1, previous);
+			if (!ordered && ordinal > 0 && previous < second.size() && second.getOrdinal(previous) == ordinal - 1
+					&& sameBook(ordinal - 1, ordinal)
+					&& isNear(first, i, lengths[ordinal - 1], second, previous, 0, distance, false)) {
+				found[n++] = ordinal - 1;
+				found[n++] = ordinal;
+			}
+		}
+		// Verses spanned by two matches are found twice, and not always in order.
+		Arrays.sort(found, 0, n);
+		int unique = 0;
+		for (int i = 0; i < n; i++) {
+			if (unique == 0 || found[unique - 1] != found[i]) {
+				found[unique++] = found[i];
+			}
+		}
+		PostingSet result = PostingSet.of(Arrays.copyOf(found, unique));
+		return (within == null) ? result : result.and(within);
+	}
+
+	/*
+	 * Is an occurrence of the first word (in verse i of first, its positions moved on by firstOffset) near one of the
+	 * second (in verse j of second, moved on by secondOffset)? Both lists of positions are in order, so this walks
+	 * along them together.
+	 */
+	private static boolean isNear(Positions first, int i, int firstOffset, Positions second, int j, int secondOffset,
+			int distance, boolean ordered) {
+		int o = second.getStart(j);
+		int end = second.getEnd(j);
+		for (int f = first.getStart(i); f < first.getEnd(i); f++) {
+			int p = first.getPosition(f) + firstOffset;
+			// In longs, since the distance can be as big as an int can be.
+			long from = (long) p - (ordered ? 0 : distance);
+			long to = (long) p + distance;
+			// Skip the occurrences of the second word too far before this one; they are too far before the rest too.
+			while (o < end && second.getPosition(o) + secondOffset < from) {
+				o++;
+			}
+			for (int q = o; q < end && second.getPosition(q) + secondOffset <= to; q++) {
+				// The same word at the same position is only one occurrence.
+				if (second.getPosition(q) + secondOffset != p) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean sameBook(int ordinal, int other) {
+		return ReferenceCodec.getBook(codes[ordinal]) == ReferenceCodec.getBook(codes[other]);
+	}
+
+	/*
+	 * Is the phrase in the verse at index found[j] of each positions[j]?
+	 */
+	private boolean containsPhrase(Positions[] positions, int[] found, int[] between, String leading, String trailing) {
+		int k = positions.length;
+		Positions first = positions[0];
+		for (int o = first.getStart(found[0]); o < first.getEnd(found[0]); o++) {
+			if (!endsWith(first.getSeparatorBefore(o), leading)) {
+				continue;
+			}
+			int p = first.getPosition(o);
+			int last = o;
+			for (int j = 1; j < k && last >= 0; j++) {
+				last = positions[j].findPosition(found[j], p + j);
+				if (last >= 0 && positions[j].getSeparatorBefore(last) != between[j]) {
+					last = -1;
+				}
+			}
+			if (last >= 0 && startsWith(positions[k - 1].getSeparatorAfter(last), trailing)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean endsWith(int separator, String suffix) {
+		if (separator == Positions.UNKNOWN_SEPARATOR) {
+			return suffix.length() == 0;
+		}
+		return index.getSeparator(separator).endsWith(suffix);
+	}
+
+	private boolean startsWith(int separator, String prefix) {
+		if (separator == Positions.UNKNOWN_SEPARATOR) {
+			return prefix.length() == 0;
+		}
+		return index.getSeparator(separator).startsWith(prefix);
+	}
+
+	/*
+	 * Every Bible implementation returns its verses in order, but the ArrayListBible only does so if it can, so check.
+	 */
+	private static List<Verse> inCanonicalOrder(List<Verse> verses) {
+		for (int i = 1; i < verses.size(); i++) {
+			if (verses.get(i - 1).getReference().compareTo(verses.get(i).getReference()) > 0) {
+				List<Verse> sorted = new ArrayList<Verse>(verses);
+				Collections.sort(sorted, new Comparator<Verse>() {
+					@Override
+					public int compare(Verse a, Verse b) {
+						return a.getReference().compareTo(b.getReference());
+					}
+				});
+				return sorted;
+			}
+		}
+		return verses;
+	}
+
+	/*
+	 * Split the verses into about the given number of shards of whole books, of roughly equal numbers of verses.
+	 */
+	private static List<Shard> split(List<Verse> verses, int[] ordinals, int count) {
+		List<Shard> shards = new ArrayList<Shard>();
+		int target = Math.max(1, verses.size() / count);
+		int start = 0;
+		for (int i = 1; i <= verses.size(); i++) {
+			boolean bookEnds = i == verses.size()
+					|| verses.get(i).getReference().getBookOfBible() != verses.get(i - 1).getReference()
+							.getBookOfBible();
+			if (bookEnds && (i - start >= target || i == verses.size())) {
+				shards.add(new Shard(verses.subList(start, i), ordinals, start));
+				start = i;
+			}
+		}
+		return shards;
+	}
+
+	/*
+	 * Run the shards on the executor and wait for all of them. If one fails, its exception is thrown here.
+	 */
+	private static void runAll(ExecutorService executor, List<Shard> shards) {
+		List<Future<Shard>> futures = new ArrayList<Future<Shard>>();
+		try {
+			for (Shard shard : shards) {
+				futures.add(executor.submit(shard));
+			}
+			for (Future<Shard> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while building a concordance", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Future<Shard> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/*
+	 * A ForkJoinPool with a thread per processor, shared by every Concordance that isn't given an executor, or null if
+	 * there is only one processor. Its threads are daemons, so it doesn't keep the program running.
+	 */
+	private static synchronized ExecutorService sharedExecutor() {
+		if (sharedExecutor == null && PROCESSORS > 1) {
+			sharedExecutor = new ForkJoinPool(PROCESSORS);
+		}
+		return sharedExecutor;
+	}
+
+	/*
+	 * The id of a separator, giving it the next id if it doesn't have one yet. Past the largest id that fits in
+	 * Positions, separators are UNKNOWN_SEPARATOR.
+	 */
+	private static int idOf(String separator, HashMap<String, Integer> ids, List<String> separators) {
+		if (separator == null) {
+			return Positions.UNKNOWN_SEPARATOR;
+		}
+		Integer id = ids.get(separator);
+		if (id == null) {
+			if (separators.size() >= Positions.UNKNOWN_SEPARATOR) {
+				return Positions.UNKNOWN_SEPARATOR;
+			}
+			id = separators.size();
+			ids.put(separator, id);
+			separators.add(separator);
+		}
+		return id;
+	}
+
+	/**
+	 * Find the text around the words of some text: before the first word, between each pair of words, and after the
+	 * last word. Phrases are matched by comparing these as well as the words, so that "baptized, immediately" doesn't
+	 * match "baptized immediately".
+	 * 
+	 * @param text some text (a verse or a phrase).
+	 * @return one more separator than extractWords finds words, lowercased. The separators either side of a word that
+	 *         extractWords joined together by removing something from the middle of it (as with "a,b" or
+	 *         "x&amp;#8212;y") are null, since there's no one place the word is in the text.
+	 */
+	public static String[] separatorsOf(String text) {
+		return new Phrase(text).getSeparators();
+	}
+
+	/*
+	 * The lowercased text from one index to another. Separators are lowercased a character at a time, here and in
+	 * Shard.separatorId, so that they are the same whichever way they were found.
+	 */
+	private static String lowerCase(String text, int from, int to) {
+		char[] chars = new char[to - from];
+		for (int i = from; i < to; i++) {
+			chars[i - from] = Character.toLowerCase(text.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	/*
+	 * The words of a phrase, and the separators around them.
+	 */
+	private static class Phrase implements Tokenizer.Handler {
+		private final String			text;
+		final ArrayList<String>			words		= new ArrayList<String>();
+		private final ArrayList<String>	separators	= new ArrayList<String>();
+		private int						previousEnd;
+		private boolean					previousJoined;
+
+		Phrase(String text) {
+			this.text = text;
+			new Tokenizer().tokenize(text, this);
+			separators.add(previousJoined ? null : lowerCase(text, previousEnd, text.length()));
+		}
+
+		@Override
+		public void word(char[] chars, int length, int start, int end, boolean joined) {
+			words.add(new String(chars, 0, length));
+			separators.add((joined || previousJoined) ? null : lowerCase(text, previousEnd, start));
+			previousEnd = end;
+			previousJoined = joined;
+		}
+
+		String[] getSeparators() {
+			return separators.toArray(new String[separators.size()]);
+		}
+	}
+
+	/*
+	 * Some consecutive verses, and the posting lists of the words in them.
+	 */
+	private static class Shard implements Callable<Shard>, Tokenizer.Handler {
+		private final List<Verse>		verses;
+		private final int[]				ordinals;
+		private final int				start;
+		HashMap<String, Postings>		postings;
+		// The separators, by the ids the shard gave them.
+		List<String>					separators;
+		// The number of words in each verse, from the shard's first ordinal on.
+		int								firstOrdinal;
+		int[]							lengths;
+
+		// While indexing, the words and separators by their characters, so that each is only made into a String once.
+		private CharMap<Postings>		terms;
+		private CharMap<Integer>		separatorIds;
+		private char[]					separatorChars;
+		// The verse being indexed, and the word before the one being indexed, which is added once the separator after
+		// it is known.
+		private String					text;
+		private int						ordinal;
+		private int						position;
+		private Postings				previous;
+		private int						previousPosition;
+		private int						previousBefore;
+		private int						previousEnd;
+		private boolean					previousJoined;
+
+		Shard(List<Verse> verses, int[] ordinals, int start) {
+			this.verses = verses;
+			this.ordinals = ordinals;
+			this.start = start;
+		}
+
+		@Override
+		public Shard call() {
+			// Verses are visited in order, so each posting list is built already sorted.
+			postings = new HashMap<String, Postings>();
+			separators = new ArrayList<String>();
+			terms = new CharMap<Postings>();
+			separatorIds = new CharMap<Integer>();
+			separatorChars = new char[16];
+			Tokenizer tokenizer = new Tokenizer();
+			firstOrdinal = verses.isEmpty() ? 0 : ordinals[start];
+			lengths = new int[verses.isEmpty() ? 0 : ordinals[start + verses.size() - 1] - firstOrdinal + 1];
+			int previousOrdinal = -1;
+			for (int i = 0; i < verses.size(); i++) {
+				ordinal = ordinals[start + i];
+				if (ordinal != previousOrdinal) {
+					position = 0;
+				} else {
+					// Another verse with the same reference. Its words come after the other verse's, with a gap so
+					// that no phrase spans the two.
+					position++;
+				}
+				previousOrdinal = ordinal;
+				text = verses.get(i).getText();
+				previousEnd = 0;
+				previousJoined = false;
+				tokenizer.tokenize(text, this);
+				if (previous != null) {
+					int after = separatorId(previousEnd, text.length(), previousJoined);
+					previous.add(ordinal, previousPosition, Positions.pack(previousBefore, after));
+					previous = null;
+				}
+			}
+			terms = null;
+			separatorIds = null;
+			text = null;
+			return this;
+		}
+
+		@Override
+		public void word(char[] chars, int length, int from, int to, boolean joined) {
+			int before = separatorId(previousEnd, from, joined || previousJoined);
+			if (previous != null) {
+				previous.add(ordinal, previousPosition, Positions.pack(previousBefore, before));
+			}
+			Postings p = terms.get(chars, length);
+			if (p == null) {
+				String word = new String(chars, 0, length);
+				p = new Postings();
+				terms.put(word, p);
+				postings.put(word, p);
+			}
+			previous = p;
+			lengths[ordinal - firstOrdinal]++;
+			previousPosition = position++;
+			previousBefore = before;
+			previousEnd = to;
+			previousJoined = joined;
+		}
+
+		/*
+		 * The id of the separator from one index to another in the text (see lowerCase), or UNKNOWN_SEPARATOR.
+		 */
+		private int separatorId(int from, int to, boolean unknown) {
+			if (unknown) {
+				return Positions.UNKNOWN_SEPARATOR;
+			}
+			int length = to - from;
+			if (length > separatorChars.length) {
+				separatorChars = new char[Math.max(length, 2 * separatorChars.length)];
+			}
+			for (int i = 0; i < length; i++) {
+				separatorChars[i] = Character.toLowerCase(text.charAt(from + i));
+			}
+			Integer id = separatorIds.get(separatorChars, length);
+			if (id == null) {
+				if (separators.size() >= Positions.UNKNOWN_SEPARATOR) {
+					return Positions.UNKNOWN_SEPARATOR;
+				}
+				id = separators.size();
+				String separator = new String(separatorChars, 0, length);
+				separatorIds.put(separator, id);
+				separators.add(separator);
+			}
+			return id;
+		}
+	}
+
+	/*
+	 * A posting list, and the positions of the word in each verse, while it is being built.
+	 */
+	private static class Postings {
+		private int[]	ordinals	= new int[4];
+		private int[]	starts		= new int[5];
+		private int		size;
+		// Two ints per occurrence, as in Positions.
+		private int[]	occurrences	= new int[8];
+		private int		occurrenceCount;
+
+		void add(int ordinal, int position, int separators) {
+			if (size == 0 || ordinals[size - 1] != ordinal) {
+				if (size == ordinals.length) {
+					ordinals = Arrays.copyOf(ordinals, size * 2);
+					starts = Arrays.copyOf(starts, size * 2 + 1);
+				}
+				ordinals[size] = ordinal;
+				starts[size] = occurrenceCount;
+				size++;
+			}
+			if (2 * occurrenceCount == occurrences.length) {
+				occurrences = Arrays.copyOf(occurrences, occurrences.length * 2);
+			}
+			occurrences[2 * occurrenceCount] = position;
+			occurrences[2 * occurrenceCount + 1] = separators;
+			occurrenceCount++;
+		}
+
+		/*
+		 * Add the occurrences of other, which are all in later verses, renumbering their separators.
+		 */
+		void addAll(Postings other, int[] renumber) {
+			for (int i = 0; i < other.size; i++) {
+				int end = (i + 1 < other.size) ? other.starts[i + 1] : other.occurrenceCount;
+				for (int o = other.starts[i]; o < end; o++) {
+					int separators = other.occurrences[2 * o + 1];
+					int before = renumber(separators >>> 16, renumber);
+					int after = renumber(separators & 0xFFFF, renumber);
+					add(other.ordinals[i], other.occurrences[2 * o], Positions.pack(before, after));
+				}
+			}
+		}
+
+		private static int renumber(int id, int[] renumber) {
+			return (id == Positions.UNKNOWN_SEPARATOR) ? id : renumber[id];
+		}
+
+		int[] getOrdinals() {
+			return Arrays.copyOf(ordinals, size);
+		}
+
+		Positions getPositions() {
+			int[] ends = Arrays.copyOf(starts, size + 1);
+			ends[size] = occurrenceCount;
+			return new Positions(getOrdinals(), ends, Arrays.copyOf(occurrences, 2 * occurrenceCount));
+		}
 	}
 	
 	public static ArrayList<String> extractWords(String text) {
-		text = text.toLowerCase();
-		// Removes...
-		text = text.replaceAll("(<sup>[,\\w]*?</sup>|'s|`s|&#\\w*;)", "");
-		// Removes...
-		text = text.replaceAll(",","");
-		String[] words = text.split("\\W+");
-		ArrayList<String> toReturn = new ArrayList<String>(Arrays.asList(words));
-		toReturn.remove("");
-		return toReturn;
+		// Lowercases, removes footnote markers, possessives, character references and commas, and splits what's left
+		// into words (see Tokenizer).
+		return new Tokenizer().words(text);
 	}
 }
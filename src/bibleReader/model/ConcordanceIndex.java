@@ -0,0 +1,491 @@
+package bibleReader.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The file a Concordance is saved in, so that it doesn't have to be rebuilt every time a Bible is loaded. The index of
+ * a Bible read from "kjv.atv" is kept next to it, in "kjv.atv.cidx", and is opened with MappedConcordance, which maps
+ * the file into memory and only decodes the verses of a word when they are asked for.
+ *
+ * The file records the length and CRC32 checksum of the file the Bible was read from. forSource only uses an index if
+ * they still match, and otherwise builds a new concordance and saves it in place of the old one. It also records the
+ * CRC32 checksum of everything after the header, so that an index that has been damaged since it was written is
+ * rebuilt too, rather than giving wrong answers (or failing) when a word is looked up. The stems of the
+ * words (see Concordance.stemmed) are saved the same way, in a file named after the stemmer: "kjv.atv.archaic1.cidx".
+ *
+ * All numbers are big-endian, and the layout is:
+ *
+ * <pre>
+ * magic number ("BCON")
+ * format version
+ * length of the source file (a long)
+ * CRC32 of the source file
+ * CRC32 of the rest of the index, from the references to the end
+ * number of verses (n)
+ * number of words (t)
+ * number of separators (s)
+ * number of bytes of words
+ * number of bytes of separators
+ * number of bytes of postings
+ * number of bytes of positions
+ * the reference of each verse, packed by ReferenceCodec, in increasing order (n ints)
+ * the number of words in each verse (n ints)
+ * where each word starts in the words, and where the words end (t+1 ints)
+ * where each separator starts in the separators, and where they end (s+1 ints)
+ * where the postings of each word start in the postings, and where they end (t+1 ints)
+ * where the positions of each word start in the positions, and where they end (t+1 ints)
+ * the words, in sorted order, back to back, in UTF-8, padded with zeros to a multiple of 4 bytes
+ * the separators, by id, the same way
+ * the postings of each word: the number of verses, the first ordinal, then the difference between each ordinal and
+ * the one before it
+ * the positions of each word: for each verse in its postings, the number of occurrences, then for each occurrence the
+ * difference between its position and the one before it (or the position, for the first), the id of the separator
+ * before it and the id of the separator after it
+ * </pre>
+ *
+ * The postings and positions are variable-length ints (7 bits per byte, low bits first, high bit set if more follow).
+ *
+ * The words come from Concordance.extractWords, so if the way words are extracted changes, FORMAT_VERSION must change
+ * too, so that old indexes are rebuilt.
+ */
+public final class ConcordanceIndex {
+	/**
+	 * The first four bytes of every index: "BCON".
+	 */
+	public static final int		MAGIC			= 0x42434F4E;
+
+	/**
+	 * The version of the layout that write produces. Indexes with any other version are rebuilt.
+	 */
+	public static final int		FORMAT_VERSION	= 5;
+
+	/**
+	 * Added to the name of the source file to get the name of its index.
+	 */
+	public static final String	EXTENSION		= ".cidx";
+
+	/*
+	 * Not meant to be instantiated.
+	 */
+	private ConcordanceIndex() {
+	}
+
+	/**
+	 * @param source the file a Bible was read from.
+	 * @return the file its index is kept in.
+	 */
+	public static File indexFileFor(File source) {
+		return new File(source.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Get a concordance for a Bible that was read from a file. If there is an up-to-date index next to the file it is
+	 * opened; otherwise a new concordance is built and saved there for next time. If the index can't be saved (for
+	 * example, the directory is read-only), the new concordance is still returned.
+	 *
+	 * @param bible the Bible that was read from source.
+	 * @param source the file it was read from.
+	 * @return a concordance for the Bible.
+	 */
+	public static Concordance forSource(Bible bible, File source) {
+		File indexFile = indexFileFor(source);
+		long length;
+		int checksum;
+		try {
+			length = source.length();
+			checksum = checksum(source);
+		} catch (IOException e) {
+			// We can't tell whether an index is up to date, so don't use or write one.
+			return new Concordance(bible);
+		}
+		Concordance concordance = openIfCurrent(indexFile, length, checksum, null);
+		if (concordance == null) {
+			concordance = new Concordance(bible);
+			save(concordance, length, checksum, indexFile);
+		}
+		return concordance;
+	}
+
+	/**
+	 * @param source the file a Bible was read from.
+	 * @param stemmer a stemmer.
+	 * @return the file the stems of its words are kept in.
+	 */
+	public static File stemIndexFileFor(File source, Stemmer stemmer) {
+		return new File(source.getPath() + "." + stemmer.getName() + EXTENSION);
+	}
+
+	/**
+	 * Get a concordance of the stems of the words of a Bible that was read from a file, the way forSource gets one of
+	 * its words: if there is an up-to-date index of the stems next to the file it is opened, and otherwise the stems
+	 * are worked out from the concordance of words and saved there for next time.
+	 *
+	 * @param words a concordance of the words of the Bible that was read from source (e.g. from forSource).
+	 * @param source the file it was read from.
+	 * @param stemmer the stemmer to use.
+	 * @return a concordance of the stems of the words.
+	 */
+	public static Concordance stemsForSource(Concordance words, File source, Stemmer stemmer) {
+		File indexFile = stemIndexFileFor(source, stemmer);
+		long length;
+		int checksum;
+		try {
+			if (words instanceof MappedConcordance) {
+				// It was checked against the source when it was opened.
+				length = ((MappedConcordance) words).getSourceLength();
+				checksum = ((MappedConcordance) words).getSourceChecksum();
+			} else {
+				length = source.length();
+				checksum = checksum(source);
+			}
+		} catch (IOException e) {
+			return words.stemmed(stemmer);
+		}
+		Concordance stems = openIfCurrent(indexFile, length, checksum, stemmer);
+		if (stems == null) {
+			stems = words.stemmed(stemmer);
+			save(stems, length, checksum, indexFile);
+		}
+		return stems;
+	}
+
+	/*
+	 * Open an index if it exists and was made from a source file with this length and checksum, or return null.
+	 */
+	private static Concordance openIfCurrent(File indexFile, long length, int checksum, Stemmer stemmer) {
+		if (indexFile.isFile()) {
+			try {
+				MappedConcordance mapped = new MappedConcordance(indexFile, stemmer);
+				if (mapped.getSourceLength() == length && mapped.getSourceChecksum() == checksum) {
+					return mapped;
+				}
+			} catch (IOException e) {
+				// An old or damaged index; build a new one.
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Save a concordance for next time, if we can.
+	 */
+	private static void save(Concordance concordance, long length, int checksum, File indexFile) {
+		try {
+			// Write to a temporary file and rename it, so that a reader never sees half an index.
+			File temp = new File(indexFile.getPath() + ".tmp");
+			write(concordance, length, checksum, temp);
+			indexFile.delete();
+			if (!temp.renameTo(indexFile)) {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			System.out.println("Could not save the concordance index " + indexFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Compute the CRC32 checksum of a file.
+	 *
+	 * @param file the file.
+	 * @return its checksum.
+	 * @throws IOException if the file can't be read.
+	 */
+	public static int checksum(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Write a concordance to a file.
+	 *
+	 * @param concordance the concordance.
+	 * @param sourceLength the length of the file the Bible was read from.
+	 * @param sourceChecksum the CRC32 checksum of that file.
+	 * @param file the file to write the index to.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static void write(Concordance concordance, long sourceLength, int sourceChecksum, File file)
+			throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			write(concordance, sourceLength, sourceChecksum, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a concordance to a stream. The stream is flushed but not closed.
+	 *
+	 * @param concordance the concordance.
+	 * @param sourceLength the length of the file the Bible was read from.
+	 * @param sourceChecksum the CRC32 checksum of that file.
+	 * @param stream where to write the index.
+	 * @throws IOException if there is a problem writing.
+	 */
+	public static void write(Concordance concordance, long sourceLength, int sourceChecksum, OutputStream stream)
+			throws IOException {
+		TermIndex terms = concordance.getTermIndex();
+		int t = terms.size();
+		int[] wordOffsets = new int[t + 1];
+		int[] postingOffsets = new int[t + 1];
+		int[] positionOffsets = new int[t + 1];
+		ByteArrayOutputStream words = new ByteArrayOutputStream();
+		ByteArrayOutputStream postings = new ByteArrayOutputStream();
+		ByteArrayOutputStream positions = new ByteArrayOutputStream();
+		for (int i = 0; i < t; i++) {
+			wordOffsets[i] = words.size();
+			postingOffsets[i] = postings.size();
+			positionOffsets[i] = positions.size();
+			words.write(terms.getTerm(i).getBytes(BibleImage.UTF8));
+			int[] ordinals = terms.getPostings(i).toArray();
+			writeVarInt(postings, ordinals.length);
+			int previous = 0;
+			for (int ordinal : ordinals) {
+				writeVarInt(postings, ordinal - previous);
+				previous = ordinal;
+			}
+			Positions p = terms.getPositions(i);
+			for (int v = 0; v < p.size(); v++) {
+				writeVarInt(positions, p.getEnd(v) - p.getStart(v));
+				int previousPosition = 0;
+				for (int o = p.getStart(v); o < p.getEnd(v); o++) {
+					writeVarInt(positions, p.getPosition(o) - previousPosition);
+					writeVarInt(positions, p.getSeparatorBefore(o));
+					writeVarInt(positions, p.getSeparatorAfter(o));
+					previousPosition = p.getPosition(o);
+				}
+			}
+		}
+		wordOffsets[t] = words.size();
+		postingOffsets[t] = postings.size();
+		positionOffsets[t] = positions.size();
+		pad(words);
+
+		int s = terms.getSeparatorCount();
+		int[] separatorOffsets = new int[s + 1];
+		ByteArrayOutputStream separators = new ByteArrayOutputStream();
+		for (int i = 0; i < s; i++) {
+			separatorOffsets[i] = separators.size();
+			separators.write(terms.getSeparator(i).getBytes(BibleImage.UTF8));
+		}
+		separatorOffsets[s] = separators.size();
+		pad(separators);
+
+		// The checksum of the body goes in the header, so the body has to be put together first.
+		int n = concordance.getNumberOfVerses();
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+		CheckedOutputStream checked = new CheckedOutputStream(bodyBytes, new CRC32());
+		DataOutputStream body = new DataOutputStream(checked);
+		for (int i = 0; i < n; i++) {
+			body.writeInt(concordance.getCode(i));
+		}
+		for (int i = 0; i < n; i++) {
+			body.writeInt(concordance.getLength(i));
+		}
+		writeInts(body, wordOffsets);
+		writeInts(body, separatorOffsets);
+		writeInts(body, postingOffsets);
+		writeInts(body, positionOffsets);
+		words.writeTo(body);
+		separators.writeTo(body);
+		postings.writeTo(body);
+		positions.writeTo(body);
+		body.flush();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(sourceLength);
+		out.writeInt(sourceChecksum);
+		out.writeInt((int) checked.getChecksum().getValue());
+		out.writeInt(n);
+		out.writeInt(t);
+		out.writeInt(s);
+		out.writeInt(words.size());
+		out.writeInt(separators.size());
+		out.writeInt(postings.size());
+		out.writeInt(positions.size());
+		bodyBytes.writeTo(out);
+		out.flush();
+	}
+
+	/**
+	 * Read the header of an index (everything up to the references).
+	 *
+	 * @param in where to read it from.
+	 * @return the header.
+	 * @throws IOException if it isn't the header of an index this version of the program can read.
+	 */
+	public static Header readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a concordance index");
+		}
+		int formatVersion = in.readInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported concordance index format version " + formatVersion);
+		}
+		Header header = new Header();
+		header.sourceLength = in.readLong();
+		header.sourceChecksum = in.readInt();
+		header.checksum = in.readInt();
+		header.verseCount = in.readInt();
+		header.termCount = in.readInt();
+		header.separatorCount = in.readInt();
+		header.wordsLength = in.readInt();
+		header.separatorsLength = in.readInt();
+		header.postingsLength = in.readInt();
+		header.positionsLength = in.readInt();
+		if (header.verseCount < 0 || header.termCount < 0 || header.separatorCount < 0 || header.wordsLength < 0
+				|| header.separatorsLength < 0 || header.postingsLength < 0 || header.positionsLength < 0
+				|| header.wordsLength % 4 != 0 || header.separatorsLength % 4 != 0) {
+			throw new IOException("Corrupt concordance index header");
+		}
+		return header;
+	}
+
+	/**
+	 * What the header of an index says.
+	 */
+	public static final class Header {
+		private long	sourceLength;
+		private int		sourceChecksum;
+		private int		checksum;
+		private int		verseCount;
+		private int		termCount;
+		private int		separatorCount;
+		private int		wordsLength;
+		private int		separatorsLength;
+		private int		postingsLength;
+		private int		positionsLength;
+
+		private Header() {
+		}
+
+		/**
+		 * @return the length of the file the Bible was read from.
+		 */
+		public long getSourceLength() {
+			return sourceLength;
+		}
+
+		/**
+		 * @return the CRC32 checksum of the file the Bible was read from.
+		 */
+		public int getSourceChecksum() {
+			return sourceChecksum;
+		}
+
+		/**
+		 * @return the CRC32 checksum of the rest of the index, from the references to the end.
+		 */
+		public int getChecksum() {
+			return checksum;
+		}
+
+		/**
+		 * @return the number of verses.
+		 */
+		public int getVerseCount() {
+			return verseCount;
+		}
+
+		/**
+		 * @return the number of words.
+		 */
+		public int getTermCount() {
+			return termCount;
+		}
+
+		/**
+		 * @return the number of separators.
+		 */
+		public int getSeparatorCount() {
+			return separatorCount;
+		}
+
+		/**
+		 * @return the number of bytes of words, including the padding.
+		 */
+		public int getWordsLength() {
+			return wordsLength;
+		}
+
+		/**
+		 * @return the number of bytes of separators, including the padding.
+		 */
+		public int getSeparatorsLength() {
+			return separatorsLength;
+		}
+
+		/**
+		 * @return the number of bytes of postings.
+		 */
+		public int getPostingsLength() {
+			return postingsLength;
+		}
+
+		/**
+		 * @return the number of bytes of positions.
+		 */
+		public int getPositionsLength() {
+			return positionsLength;
+		}
+
+		/**
+		 * @return the number of bytes in the header, which is where the references start.
+		 */
+		public int getLength() {
+			return 52;
+		}
+
+		/**
+		 * @return the number of bytes the whole index should be.
+		 */
+		public long getIndexLength() {
+			return getLength() + 8L * verseCount + 12L * (termCount + 1) + 4L * (separatorCount + 1) + wordsLength
+					+ separatorsLength + postingsLength + positionsLength;
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void pad(ByteArrayOutputStream out) {
+		while (out.size() % 4 != 0) {
+			out.write(0);
+		}
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+}
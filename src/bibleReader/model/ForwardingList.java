@@ -0,0 +1,48 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list that just passes get, set, add, remove and size on to another list. AbstractList builds its iterators and
+ * subList out of those five methods, so wrapping a list in one of these gives it iterators and sub-lists that go
+ * through its own methods rather than straight to ArrayList's array. VerseListView and ReferenceListView use it.
+ *
+ * @param <E> the type of the elements.
+ */
+final class ForwardingList<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E>	target;
+
+	ForwardingList(List<E> target) {
+		this.target = target;
+	}
+
+	@Override
+	public E get(int index) {
+		return target.get(index);
+	}
+
+	@Override
+	public E set(int index, E element) {
+		return target.set(index, element);
+	}
+
+	@Override
+	public void add(int index, E element) {
+		target.add(index, element);
+		modCount++;
+	}
+
+	@Override
+	public E remove(int index) {
+		E old = target.remove(index);
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public int size() {
+		return target.size();
+	}
+}
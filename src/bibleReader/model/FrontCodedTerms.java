@@ -0,0 +1,169 @@
+package bibleReader.model;
+
+/**
+ * A sorted list of words, front coded: words are kept in blocks of BLOCK_SIZE, and each word after the first in a block
+ * is stored as the number of characters it shares with the word before it and the characters after those. Sorted
+ * words share long prefixes ("bless", "blessed", "blesses", "blesseth", ...), so this takes a fraction of the memory of
+ * a String for every word.
+ *
+ * A word is found by binary search on the first words of the blocks, then a scan of one block. Runs of words are
+ * decoded in order, each from the one before it (see get(int, int)).
+ */
+final class FrontCodedTerms {
+	/**
+	 * The number of words in a block. Bigger blocks take less memory and longer to search.
+	 */
+	static final int	BLOCK_SIZE	= 16;
+
+	private final int	size;
+	// For each word: the length of the prefix it shares with the word before it in its block, the length of the rest
+	// of it, then the rest of it.
+	private final char[]	data;
+	// Where each block starts in data.
+	private final int[]		blockStarts;
+	// The length of the longest word, so that decoding needs only one buffer.
+	private final int		maxLength;
+
+	/**
+	 * @param terms the words, sorted and without duplicates. Each must be shorter than 65536 characters.
+	 */
+	FrontCodedTerms(String[] terms) {
+		size = terms.length;
+		blockStarts = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		int length = 0;
+		int longest = 0;
+		for (int i = 0; i < size; i++) {
+			String term = terms[i];
+			if (term.length() > Character.MAX_VALUE) {
+				throw new IllegalArgumentException("Word too long: " + term.length() + " characters");
+			}
+			int shared = (i % BLOCK_SIZE == 0) ? 0 : sharedPrefix(terms[i - 1], term);
+			length += 2 + term.length() - shared;
+			longest = Math.max(longest, term.length());
+		}
+		maxLength = longest;
+		data = new char[length];
+		int p = 0;
+		for (int i = 0; i < size; i++) {
+			String term = terms[i];
+			if (i % BLOCK_SIZE == 0) {
+				blockStarts[i / BLOCK_SIZE] = p;
+			}
+			int shared = (i % BLOCK_SIZE == 0) ? 0 : sharedPrefix(terms[i - 1], term);
+			data[p++] = (char) shared;
+			data[p++] = (char) (term.length() - shared);
+			term.getChars(shared, term.length(), data, p);
+			p += term.length() - shared;
+		}
+	}
+
+	/**
+	 * @return the number of words.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param index the index of a word.
+	 * @return the word.
+	 */
+	String get(int index) {
+		return get(index, index + 1)[0];
+	}
+
+	/**
+	 * Decode a run of words.
+	 *
+	 * @param from the index of the first word.
+	 * @param to one more than the index of the last word.
+	 * @return the words.
+	 */
+	String[] get(int from, int to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("Words " + from + " to " + to + " of " + size);
+		}
+		String[] result = new String[to - from];
+		if (from == to) {
+			return result;
+		}
+		char[] word = new char[maxLength];
+		int length = 0;
+		int p = blockStarts[from / BLOCK_SIZE];
+		for (int i = from - from % BLOCK_SIZE; i < to; i++) {
+			int shared = data[p++];
+			int rest = data[p++];
+			System.arraycopy(data, p, word, shared, rest);
+			p += rest;
+			length = shared + rest;
+			if (i >= from) {
+				result[i - from] = new String(word, 0, length);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find a word.
+	 *
+	 * @param term the word.
+	 * @return its index, or (-(insertion point) - 1) if it isn't in the list, as with Arrays.binarySearch.
+	 */
+	int indexOf(String term) {
+		// The last block whose first word is at most term.
+		int low = 0;
+		int high = blockStarts.length - 1;
+		int block = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compareFirst(mid, term);
+			if (c == 0) {
+				return mid * BLOCK_SIZE;
+			} else if (c < 0) {
+				block = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (block < 0) {
+			return -1;
+		}
+		int from = block * BLOCK_SIZE;
+		String[] words = get(from, Math.min(from + BLOCK_SIZE, size));
+		for (int i = 1; i < words.length; i++) {
+			int c = words[i].compareTo(term);
+			if (c == 0) {
+				return from + i;
+			} else if (c > 0) {
+				return -(from + i) - 1;
+			}
+		}
+		return -(from + words.length) - 1;
+	}
+
+	/*
+	 * Compare the first word of a block with a word, as String.compareTo would, without decoding it.
+	 */
+	private int compareFirst(int block, String term) {
+		int p = blockStarts[block] + 1;
+		int length = data[p++];
+		int n = Math.min(length, term.length());
+		for (int i = 0; i < n; i++) {
+			int c = data[p + i] - term.charAt(i);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return length - term.length();
+	}
+
+	private static int sharedPrefix(String a, String b) {
+		int n = Math.min(Math.min(a.length(), b.length()), Character.MAX_VALUE);
+		int i = 0;
+		while (i < n && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+}
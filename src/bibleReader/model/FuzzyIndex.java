@@ -0,0 +1,244 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the words of a TermIndex within a few edits (insertions, deletions or substitutions of one character) of a
+ * word, so that "rightousness" finds "righteousness".
+ *
+ * The query is turned into a Levenshtein automaton, simulated a row of the edit distance table at a time: reading a
+ * character of a word takes the automaton from the row for the word's prefix to the row for the prefix with that
+ * character added. The automaton is run over the sorted words, which share their prefixes with their neighbours the
+ * way the paths of a trie do, so each word only reads the characters after the prefix it shares with the word before
+ * it. Only the entries of a row near its diagonal can be within the allowed distance, so reading a character takes time
+ * proportional to the distance, not to the length of the query. As soon as every entry of a row is more than the
+ * allowed distance, no word with that prefix can match, and the search skips all of them.
+ */
+public final class FuzzyIndex {
+	// Words are read this many at a time (see TermIndex.getTerms).
+	private static final int	CHUNK	= 64;
+
+	private final TermIndex		terms;
+
+	/**
+	 * A word that is close to the query.
+	 */
+	public static final class Match {
+		private final String	term;
+		private final int		index;
+		private final int		distance;
+		private final int		frequency;
+
+		Match(String term, int index, int distance, int frequency) {
+			this.term = term;
+			this.index = index;
+			this.distance = distance;
+			this.frequency = frequency;
+		}
+
+		/**
+		 * @return the word.
+		 */
+		public String getTerm() {
+			return term;
+		}
+
+		/**
+		 * @return the index of the word in the TermIndex.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the number of edits between the word and the query.
+		 */
+		public int getDistance() {
+			return distance;
+		}
+
+		/**
+		 * @return the number of verses the word is in.
+		 */
+		public int getFrequency() {
+			return frequency;
+		}
+
+		@Override
+		public String toString() {
+			return term + " (" + distance + ", " + frequency + ")";
+		}
+	}
+
+	/**
+	 * Orders matches by distance, closest first, then by frequency, most common first, then alphabetically.
+	 */
+	public static final Comparator<Match>	BEST_FIRST	= new Comparator<Match>() {
+		@Override
+		public int compare(Match a, Match b) {
+			if (a.distance != b.distance) {
+				return a.distance - b.distance;
+			}
+			if (a.frequency != b.frequency) {
+				return b.frequency - a.frequency;
+			}
+			return a.term.compareTo(b.term);
+		}
+	};
+
+	/**
+	 * @param terms the words to search.
+	 */
+	public FuzzyIndex(TermIndex terms) {
+		this.terms = terms;
+	}
+
+	/**
+	 * The number of edits to allow for a word of a given length: none for very short words, which are one edit away
+	 * from too many others, one for words of up to five characters, and two for longer ones.
+	 *
+	 * @param word the word.
+	 * @return the number of edits to allow.
+	 */
+	public static int maxDistanceFor(String word) {
+		if (word.length() <= 2) {
+			return 0;
+		}
+		return (word.length() <= 5) ? 1 : 2;
+	}
+
+	/**
+	 * Find the words within a number of edits of a word.
+	 *
+	 * @param query the word, in lowercase.
+	 * @param maxDistance the largest number of edits allowed.
+	 * @return the words, best first (see BEST_FIRST).
+	 */
+	public List<Match> find(String query, int maxDistance) {
+		int m = query.length();
+		ArrayList<Match> matches = new ArrayList<Match>();
+		// rows[d] is the row of the automaton after reading the first d characters of the current word: rows[d][j] is
+		// the distance between those characters and the first j of the query.
+		int[][] rows = new int[16][];
+		rows[0] = new int[m + 1];
+		for (int j = 0; j <= m; j++) {
+			rows[0][j] = Math.min(j, maxDistance + 1);
+		}
+		// How many characters of the previous word have rows in rows.
+		int valid = 0;
+		String previous = "";
+		String[] chunk = new String[0];
+		int chunkStart = 0;
+		int size = terms.size();
+		int i = 0;
+		while (i < size) {
+			if (i < chunkStart || i >= chunkStart + chunk.length) {
+				chunkStart = i;
+				chunk = terms.getTerms(i, Math.min(i + CHUNK, size));
+			}
+			String term = chunk[i - chunkStart];
+			int d = sharedPrefix(previous, term, valid);
+			int dead = -1;
+			for (; d < term.length(); d++) {
+				if (d + 1 == rows.length) {
+					int[][] bigger = new int[2 * rows.length][];
+					System.arraycopy(rows, 0, bigger, 0, rows.length);
+					rows = bigger;
+				}
+				if (step(rows, d, term.charAt(d), query, maxDistance) > maxDistance) {
+					dead = d + 1;
+					break;
+				}
+			}
+			previous = term;
+			if (dead >= 0) {
+				// Nothing that starts with these characters can match. Usually only a few words do, so look for the
+				// next one that doesn't in the words already read before searching for it.
+				valid = dead - 1;
+				i++;
+				while (i < chunkStart + chunk.length && sharedPrefix(term, chunk[i - chunkStart], dead) == dead) {
+					i++;
+				}
+				if (i == chunkStart + chunk.length && i < size) {
+					i = skipPrefix(term.substring(0, dead), i);
+				}
+				continue;
+			}
+			valid = term.length();
+			int distance = (Math.abs(term.length() - m) <= maxDistance) ? rows[term.length()][m] : maxDistance + 1;
+			if (distance <= maxDistance) {
+				matches.add(new Match(term, i, distance, terms.getPostings(i).cardinality()));
+			}
+			i++;
+		}
+		Collections.sort(matches, BEST_FIRST);
+		return matches;
+	}
+
+	/*
+	 * Read the character c from the row for d characters, making the row for d + 1. Returns the smallest entry of the
+	 * new row, which is the fewest edits any word with this prefix could be from the query.
+	 *
+	 * Only the entries within k of the diagonal can be k or less, so only they are worked out; the ones just outside
+	 * them are set to k + 1 for the next row to read, and the rest are never read.
+	 */
+	private static int step(int[][] rows, int d, char c, String query, int k) {
+		int m = query.length();
+		int[] from = rows[d];
+		int[] to = rows[d + 1];
+		if (to == null || to.length != m + 1) {
+			to = new int[m + 1];
+			rows[d + 1] = to;
+		}
+		int row = d + 1;
+		int low = Math.max(1, row - k);
+		int high = Math.min(m, row + k);
+		to[low - 1] = (low == 1) ? Math.min(row, k + 1) : k + 1;
+		int min = to[low - 1];
+		for (int j = low; j <= high; j++) {
+			int cost = (query.charAt(j - 1) == c) ? 0 : 1;
+			int best = from[j - 1] + cost;
+			if (from[j] + 1 < best) {
+				best = from[j] + 1;
+			}
+			if (to[j - 1] + 1 < best) {
+				best = to[j - 1] + 1;
+			}
+			if (best > k + 1) {
+				best = k + 1;
+			}
+			to[j] = best;
+			if (best < min) {
+				min = best;
+			}
+		}
+		if (high < m) {
+			to[high + 1] = k + 1;
+		}
+		return min;
+	}
+
+	/*
+	 * The index of the first word at or after i that doesn't start with prefix.
+	 */
+	private int skipPrefix(String prefix, int i) {
+		char last = prefix.charAt(prefix.length() - 1);
+		if (last == Character.MAX_VALUE) {
+			return i;
+		}
+		int next = terms.indexOf(prefix.substring(0, prefix.length() - 1) + (char) (last + 1));
+		return Math.max(i, (next < 0) ? -next - 1 : next);
+	}
+
+	private static int sharedPrefix(String a, String b, int limit) {
+		int n = Math.min(limit, Math.min(a.length(), b.length()));
+		int i = 0;
+		while (i < n && a.charAt(i) == b.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+}
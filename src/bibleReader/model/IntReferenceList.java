@@ -0,0 +1,757 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A ReferenceList that stores its references as packed ints (see ReferenceCodec) instead of as objects. It is still a
+ * ReferenceList, so it can be passed anywhere a ReferenceList is expected. The Reference objects are only looked up
+ * (from the shared pool, see Reference.of) when somebody asks for them.
+ *
+ * The storage inherited from ArrayList is never used, so every ArrayList method that touches it is overridden here,
+ * including the ones streams and lambdas go through (forEach, removeIf, replaceAll, sort and spliterator).
+ *
+ * Every reference added must be one that ReferenceCodec can encode.
+ */
+public class IntReferenceList extends ReferenceList {
+	private static final int	DEFAULT_CAPACITY	= 10;
+	private static final int[]	EMPTY				= new int[0];
+
+	private int[]				codes;
+	private int					size;
+
+	public IntReferenceList() {
+		codes = EMPTY;
+	}
+
+	public IntReferenceList(int initialSize) {
+		if (initialSize < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialSize);
+		}
+		codes = new int[initialSize];
+	}
+
+	public IntReferenceList(Collection<? extends Reference> list) {
+		if (list instanceof IntReferenceList) {
+			IntReferenceList other = (IntReferenceList) list;
+			codes = Arrays.copyOf(other.codes, other.size);
+			size = other.size;
+		} else {
+			codes = new int[list.size()];
+			for (Reference r : list) {
+				codes[size++] = ReferenceCodec.encode(r);
+			}
+		}
+	}
+
+	/**
+	 * Create a list containing a copy of the given packed references.
+	 *
+	 * @param codes packed references (see ReferenceCodec).
+	 */
+	public IntReferenceList(int[] codes) {
+		this.codes = codes.clone();
+		this.size = codes.length;
+	}
+
+	/**
+	 * Create a list that uses the given array as its storage, without copying it. The caller must not change the array
+	 * afterwards.
+	 *
+	 * @param codes packed references (see ReferenceCodec).
+	 * @param size the number of elements of codes that are in use.
+	 * @return a list containing codes[0] through codes[size-1].
+	 */
+	public static IntReferenceList wrap(int[] codes, int size) {
+		if (size < 0 || size > codes.length) {
+			throw new IllegalArgumentException("Illegal size: " + size);
+		}
+		IntReferenceList list = new IntReferenceList();
+		list.codes = codes;
+		list.size = size;
+		return list;
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Primitive accessors.
+
+	/**
+	 * @param index the index of the desired element.
+	 * @return the packed form of the reference at the given index.
+	 */
+	public int getCode(int index) {
+		checkIndex(index);
+		return codes[index];
+	}
+
+	/**
+	 * Append a packed reference to the end of the list.
+	 *
+	 * @param code the packed reference.
+	 */
+	public void addCode(int code) {
+		ensureCapacity(size + 1);
+		codes[size++] = code;
+		modCount++;
+	}
+
+	/**
+	 * Append codes[from] through codes[to-1] to the end of the list.
+	 *
+	 * @param source the packed references.
+	 * @param from the first index to copy.
+	 * @param to one past the last index to copy.
+	 */
+	public void addCodes(int[] source, int from, int to) {
+		int n = to - from;
+		ensureCapacity(size + n);
+		System.arraycopy(source, from, codes, size, n);
+		size += n;
+		modCount++;
+	}
+
+	/**
+	 * @return a new array containing the packed references in this list, in order.
+	 */
+	public int[] toCodeArray() {
+		return Arrays.copyOf(codes, size);
+	}
+
+	/**
+	 * Copy the packed references from fromIndex up to (but not including) toIndex into a new IntReferenceList. Use this
+	 * instead of subList when you want a copy, since it doesn't look up any Reference objects.
+	 *
+	 * @param fromIndex the first index to copy.
+	 * @param toIndex one past the last index to copy.
+	 * @return a new list with the given range of this list.
+	 */
+	public IntReferenceList copyOfRange(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+		return wrap(Arrays.copyOfRange(codes, fromIndex, toIndex), toIndex - fromIndex);
+	}
+
+	/**
+	 * Find a packed reference in a list that is in canonical order.
+	 *
+	 * @param code the packed reference to look for.
+	 * @return the index of code if it is in the list. Otherwise, (-(insertion point) - 1), as in Arrays.binarySearch.
+	 */
+	public int binarySearch(int code) {
+		return Arrays.binarySearch(codes, 0, size, code);
+	}
+
+	/**
+	 * Merge two lists that are in canonical order and have no duplicates.
+	 *
+	 * @return a list, in canonical order, of the references that are in either list, each listed once.
+	 */
+	public static IntReferenceList union(IntReferenceList a, IntReferenceList b) {
+		int[] result = new int[a.size + b.size];
+		int i = 0, j = 0, n = 0;
+		while (i < a.size && j < b.size) {
+			int x = a.codes[i];
+			int y = b.codes[j];
+			if (x < y) {
+				result[n++] = x;
+				i++;
+			} else if (y < x) {
+				result[n++] = y;
+				j++;
+			} else {
+				result[n++] = x;
+				i++;
+				j++;
+			}
+		}
+		while (i < a.size) {
+			result[n++] = a.codes[i++];
+		}
+		while (j < b.size) {
+			result[n++] = b.codes[j++];
+		}
+		return wrap(result, n);
+	}
+
+	/**
+	 * Intersect two lists that are in canonical order and have no duplicates.
+	 *
+	 * @return a list, in canonical order, of the references that are in both lists.
+	 */
+	public static IntReferenceList intersection(IntReferenceList a, IntReferenceList b) {
+		int[] result = new int[Math.min(a.size, b.size)];
+		int i = 0, j = 0, n = 0;
+		while (i < a.size && j < b.size) {
+			int x = a.codes[i];
+			int y = b.codes[j];
+			if (x < y) {
+				i++;
+			} else if (y < x) {
+				j++;
+			} else {
+				result[n++] = x;
+				i++;
+				j++;
+			}
+		}
+		return wrap(result, n);
+	}
+
+	/**
+	 * Copy any list of references into an IntReferenceList. If it already is one, the ints are copied directly.
+	 *
+	 * @param list the references.
+	 * @return a new IntReferenceList with the same references in the same order.
+	 */
+	public static IntReferenceList copyOf(Collection<? extends Reference> list) {
+		return new IntReferenceList(list);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// The ArrayList methods.
+
+	@Override
+	public void trimToSize() {
+		modCount++;
+		if (size < codes.length) {
+			codes = Arrays.copyOf(codes, size);
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > codes.length) {
+			int newCapacity = Math.max(Math.max(DEFAULT_CAPACITY, minCapacity), codes.length + (codes.length >> 1));
+			codes = Arrays.copyOf(codes, newCapacity);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		int code = codeOf(o);
+		if (code >= 0) {
+			for (int i = 0; i < size; i++) {
+				if (codes[i] == code) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		int code = codeOf(o);
+		if (code >= 0) {
+			for (int i = size - 1; i >= 0; i--) {
+				if (codes[i] == code) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public Object clone() {
+		return new IntReferenceList(this);
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] result = new Object[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = ReferenceCodec.decode(codes[i]);
+		}
+		return result;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] a) {
+		if (a.length < size) {
+			a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		}
+		for (int i = 0; i < size; i++) {
+			a[i] = (T) ReferenceCodec.decode(codes[i]);
+		}
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+
+	@Override
+	public Reference get(int index) {
+		checkIndex(index);
+		return ReferenceCodec.decode(codes[index]);
+	}
+
+	@Override
+	public Reference set(int index, Reference element) {
+		checkIndex(index);
+		Reference old = ReferenceCodec.decode(codes[index]);
+		codes[index] = ReferenceCodec.encode(element);
+		return old;
+	}
+
+	@Override
+	public boolean add(Reference e) {
+		addCode(ReferenceCodec.encode(e));
+		return true;
+	}
+
+	@Override
+	public void add(int index, Reference element) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int code = ReferenceCodec.encode(element);
+		ensureCapacity(size + 1);
+		System.arraycopy(codes, index, codes, index + 1, size - index);
+		codes[index] = code;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public Reference remove(int index) {
+		checkIndex(index);
+		Reference old = ReferenceCodec.decode(codes[index]);
+		removeRange(index, index + 1);
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+		removeRange(index, index + 1);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		size = 0;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Reference> c) {
+		return addAll(size, c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Reference> c) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int[] added;
+		int n;
+		if (c instanceof IntReferenceList) {
+			IntReferenceList other = (IntReferenceList) c;
+			added = other.codes;
+			n = other.size;
+		} else {
+			added = new int[c.size()];
+			n = 0;
+			for (Reference r : c) {
+				added[n++] = ReferenceCodec.encode(r);
+			}
+		}
+		ensureCapacity(size + n);
+		System.arraycopy(codes, index, codes, index + n, size - index);
+		System.arraycopy(added, 0, codes, index, n);
+		size += n;
+		modCount++;
+		return n != 0;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+		System.arraycopy(codes, toIndex, codes, fromIndex, size - toIndex);
+		size -= toIndex - fromIndex;
+		modCount++;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return filter(c, false);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return filter(c, true);
+	}
+
+	@Override
+	public Iterator<Reference> iterator() {
+		return new Itr(0);
+	}
+
+	@Override
+	public ListIterator<Reference> listIterator() {
+		return new Itr(0);
+	}
+
+	@Override
+	public ListIterator<Reference> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return new Itr(index);
+	}
+
+	@Override
+	public List<Reference> subList(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+		return new SubList(fromIndex, toIndex);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Reference> action) {
+		Objects.requireNonNull(action);
+		int expectedModCount = modCount;
+		for (int i = 0; i < size && modCount == expectedModCount; i++) {
+			action.accept(ReferenceCodec.decode(codes[i]));
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Reference> filter) {
+		Objects.requireNonNull(filter);
+		// Test them all first, so the list is unchanged if the filter throws.
+		boolean[] remove = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			remove[i] = filter.test(ReferenceCodec.decode(codes[i]));
+		}
+		int n = 0;
+		for (int i = 0; i < remove.length; i++) {
+			if (!remove[i]) {
+				codes[n++] = codes[i];
+			}
+		}
+		boolean changed = n != size;
+		if (changed) {
+			size = n;
+			modCount++;
+		}
+		return changed;
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<Reference> operator) {
+		Objects.requireNonNull(operator);
+		for (int i = 0; i < size; i++) {
+			codes[i] = ReferenceCodec.encode(operator.apply(ReferenceCodec.decode(codes[i])));
+		}
+		modCount++;
+	}
+
+	@Override
+	public Spliterator<Reference> spliterator() {
+		return Spliterators.spliterator(this, Spliterator.ORDERED);
+	}
+
+	/**
+	 * Sort the list. If comparator is null, the references are put in canonical order without looking up any
+	 * Reference objects.
+	 *
+	 * @param comparator the comparator to use, or null for canonical order.
+	 */
+	@Override
+	public void sort(Comparator<? super Reference> comparator) {
+		if (comparator == null) {
+			Arrays.sort(codes, 0, size);
+		} else {
+			Reference[] refs = toArray(new Reference[size]);
+			Arrays.sort(refs, comparator);
+			for (int i = 0; i < size; i++) {
+				codes[i] = ReferenceCodec.encode(refs[i]);
+			}
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (o instanceof IntReferenceList) {
+			IntReferenceList other = (IntReferenceList) o;
+			if (other.size != size) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (codes[i] != other.codes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (!(o instanceof List)) {
+			return false;
+		}
+		List<?> other = (List<?>) o;
+		if (other.size() != size) {
+			return false;
+		}
+		int i = 0;
+		for (Object element : other) {
+			if (codeOf(element) != codes[i++]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		// Has to match the hashCode of any other List with the same References.
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + ReferenceCodec.decode(codes[i]).hashCode();
+		}
+		return hash;
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Private helpers.
+
+	/*
+	 * Returns the packed form of o, or -1 if o isn't a Reference that can be packed (and so can't be in the list).
+	 */
+	private static int codeOf(Object o) {
+		if (o instanceof Reference) {
+			Reference r = (Reference) o;
+			if (ReferenceCodec.canEncode(r.getBookOfBible(), r.getChapter(), r.getVerse())) {
+				return ReferenceCodec.encode(r);
+			}
+		}
+		return -1;
+	}
+
+	private boolean filter(Collection<?> c, boolean keepIfContained) {
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (c.contains(ReferenceCodec.decode(codes[i])) == keepIfContained) {
+				codes[n++] = codes[i];
+			}
+		}
+		boolean changed = n != size;
+		if (changed) {
+			size = n;
+			modCount++;
+		}
+		return changed;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void checkRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: "
+					+ size);
+		}
+	}
+
+	/*
+	 * The iterator. Like ArrayList's, it fails fast if the list is changed other than through the iterator.
+	 */
+	private class Itr implements ListIterator<Reference> {
+		private int	cursor;
+		private int	lastReturned		= -1;
+		private int	expectedModCount	= modCount;
+
+		Itr(int index) {
+			cursor = index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < size;
+		}
+
+		@Override
+		public Reference next() {
+			checkForComodification();
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = cursor++;
+			return ReferenceCodec.decode(codes[lastReturned]);
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+
+		@Override
+		public Reference previous() {
+			checkForComodification();
+			if (cursor <= 0) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = --cursor;
+			return ReferenceCodec.decode(codes[lastReturned]);
+		}
+
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			IntReferenceList.this.removeRange(lastReturned, lastReturned + 1);
+			cursor = lastReturned;
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(Reference e) {
+			if (lastReturned < 0) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			IntReferenceList.this.set(lastReturned, e);
+		}
+
+		@Override
+		public void add(Reference e) {
+			checkForComodification();
+			IntReferenceList.this.add(cursor++, e);
+			lastReturned = -1;
+			expectedModCount = modCount;
+		}
+
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/*
+	 * A view of part of the list, as returned by subList. AbstractList fills in everything but these methods.
+	 */
+	private class SubList extends AbstractList<Reference> implements RandomAccess {
+		private final int	offset;
+		private int			subSize;
+		private int			expectedModCount	= IntReferenceList.this.modCount;
+
+		SubList(int fromIndex, int toIndex) {
+			offset = fromIndex;
+			subSize = toIndex - fromIndex;
+		}
+
+		@Override
+		public Reference get(int index) {
+			checkIndex(index, subSize);
+			return IntReferenceList.this.get(offset + index);
+		}
+
+		@Override
+		public Reference set(int index, Reference element) {
+			checkIndex(index, subSize);
+			return IntReferenceList.this.set(offset + index, element);
+		}
+
+		@Override
+		public int size() {
+			checkForComodification();
+			return subSize;
+		}
+
+		@Override
+		public void add(int index, Reference element) {
+			checkIndex(index, subSize + 1);
+			IntReferenceList.this.add(offset + index, element);
+			expectedModCount = IntReferenceList.this.modCount;
+			subSize++;
+			modCount++;
+		}
+
+		@Override
+		public Reference remove(int index) {
+			checkIndex(index, subSize);
+			Reference old = IntReferenceList.this.remove(offset + index);
+			expectedModCount = IntReferenceList.this.modCount;
+			subSize--;
+			modCount++;
+			return old;
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			checkForComodification();
+			IntReferenceList.this.removeRange(offset + fromIndex, offset + toIndex);
+			expectedModCount = IntReferenceList.this.modCount;
+			subSize -= toIndex - fromIndex;
+			modCount++;
+		}
+
+		private void checkIndex(int index, int limit) {
+			checkForComodification();
+			if (index < 0 || index >= limit) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + subSize);
+			}
+		}
+
+		private void checkForComodification() {
+			if (IntReferenceList.this.modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package bibleReader.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A Bible whose text stays in its image file (see BibleImage) instead of being read into memory. The file is mapped
+ * with FileChannel.map, so opening it only reads the header and the references, and the text of a verse is decoded
+ * straight from the mapping when it is asked for. The operating system shares the mapped pages, so several programs
+ * with the same version open only need one copy of it in memory.
+ *
+ * Apart from where the text is kept, this is a ColumnarBible.
+ */
+public class MappedBible extends ColumnarBible {
+	private final File	file;
+
+	/**
+	 * Open a Bible image.
+	 *
+	 * @param file the image file, as written by BibleImage.write.
+	 * @throws IOException if the file can't be read or isn't a valid image.
+	 */
+	public MappedBible(File file) throws IOException {
+		this(file, open(file));
+	}
+
+	private MappedBible(File file, Contents contents) {
+		super(contents.header.getVersion(), contents.header.getTitle(), contents.codes, contents.text);
+		this.file = file;
+	}
+
+	/**
+	 * @return the image file this Bible was opened from.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/*
+	 * Map the file and read the header and references. The mapping stays valid after the file is closed.
+	 */
+	private static Contents open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			BibleImage.Header header = BibleImage.readHeader(raf);
+			long length = raf.length();
+			if (length != header.getImageLength()) {
+				throw new IOException(file + " should be " + header.getImageLength() + " bytes but is " + length);
+			}
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+			int n = header.getVerseCount();
+			int codesStart = header.getLength();
+			int offsetsStart = codesStart + 4 * n;
+			int textStart = offsetsStart + 4 * (n + 1);
+
+			// The references are read into an array, since every lookup uses them. The text offsets and the text stay
+			// in the mapping.
+			int[] codes = new int[n];
+			slice(map, codesStart, 4 * n).asIntBuffer().get(codes);
+			IntBuffer offsets = slice(map, offsetsStart, 4 * (n + 1)).asIntBuffer();
+			ByteBuffer text = slice(map, textStart, header.getTextLength());
+			// Check everything a verse is looked up by now, so that a bad image fails here rather than on some verse.
+			try {
+				BibleImage.checkCodes(codes);
+				BibleImage.checkOffsets(offsets, header.getTextLength());
+			} catch (IOException e) {
+				throw new IOException(file + " is not a valid Bible image");
+			}
+
+			Contents contents = new Contents();
+			contents.header = header;
+			contents.codes = codes;
+			contents.text = new MappedTextStore(offsets, text);
+			return contents;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int length) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(start);
+		copy.limit(start + length);
+		return copy.slice();
+	}
+
+	/*
+	 * What open read from the file.
+	 */
+	private static class Contents {
+		BibleImage.Header	header;
+		int[]				codes;
+		TextStore			text;
+	}
+
+	/*
+	 * The UTF-8 text of the verses, in the mapping.
+	 */
+	private static class MappedTextStore implements TextStore {
+		private final IntBuffer		offsets;
+		private final ByteBuffer	text;
+
+		MappedTextStore(IntBuffer offsets, ByteBuffer text) {
+			this.offsets = offsets;
+			this.text = text;
+		}
+
+		@Override
+		public int size() {
+			return offsets.limit() - 1;
+		}
+
+		@Override
+		public String getText(int index) {
+			int start = offsets.get(index);
+			int end = offsets.get(index + 1);
+			byte[] bytes = new byte[end - start];
+			// Use a duplicate so that threads reading different verses don't move each other's position.
+			ByteBuffer verse = text.duplicate();
+			verse.position(start);
+			verse.get(bytes);
+			return new String(bytes, BibleImage.UTF8);
+		}
+
+		@Override
+		public boolean containsIgnoreCase(int index, char[] lowerPhrase) {
+			return CompressedTextStore.containsIgnoreCase(getText(index), lowerPhrase);
+		}
+	}
+}
@@ -0,0 +1,347 @@
+package bibleReader.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * A Concordance whose words and postings stay in its index file (see ConcordanceIndex) instead of being read into
+ * memory. Opening one checks the file against the checksum in its header and reads the references of the verses; a
+ * word is found by binary search in the mapped words, and its verses and positions are decoded from the mapping when
+ * they are asked for. So loading a Bible with a saved index costs little more than reading the file once, and the
+ * memory used doesn't grow with the number of versions, since the operating system only keeps the pages that are being
+ * used.
+ *
+ * Apart from where the index is kept, this is a Concordance.
+ */
+public class MappedConcordance extends Concordance {
+	private final File		file;
+	private final long		sourceLength;
+	private final int		sourceChecksum;
+
+	/**
+	 * Open a concordance index.
+	 *
+	 * @param file the index file, as written by ConcordanceIndex.write.
+	 * @throws IOException if the file can't be read or isn't a valid index.
+	 */
+	public MappedConcordance(File file) throws IOException {
+		this(file, null);
+	}
+
+	/**
+	 * Open the index of the stems of a concordance's words (see Concordance.stemmed).
+	 *
+	 * @param file the index file, as written by ConcordanceIndex.write.
+	 * @param stemmer the stemmer the stems were made with, or null if the index is of words.
+	 * @throws IOException if the file can't be read or isn't a valid index.
+	 */
+	public MappedConcordance(File file, Stemmer stemmer) throws IOException {
+		this(file, open(file), stemmer);
+	}
+
+	private MappedConcordance(File file, Contents contents, Stemmer stemmer) {
+		super(contents.codes, contents.lengths, contents.terms, stemmer);
+		this.file = file;
+		this.sourceLength = contents.header.getSourceLength();
+		this.sourceChecksum = contents.header.getSourceChecksum();
+	}
+
+	/**
+	 * @return the index file this concordance was opened from.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the length of the file the Bible was read from, when the index was written.
+	 */
+	public long getSourceLength() {
+		return sourceLength;
+	}
+
+	/**
+	 * @return the CRC32 checksum of the file the Bible was read from, when the index was written.
+	 */
+	public int getSourceChecksum() {
+		return sourceChecksum;
+	}
+
+	/*
+	 * Map the file and read the header and references. The mapping stays valid after the file is closed.
+	 */
+	private static Contents open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			ConcordanceIndex.Header header = ConcordanceIndex.readHeader(raf);
+			long length = raf.length();
+			if (length != header.getIndexLength()) {
+				throw new IOException(file + " should be " + header.getIndexLength() + " bytes but is " + length);
+			}
+			MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+			// The words, postings and positions are only decoded when they are used, so check them all now.
+			CRC32 crc = new CRC32();
+			crc.update(slice(map, header.getLength(), (int) length - header.getLength()));
+			if ((int) crc.getValue() != header.getChecksum()) {
+				throw new IOException(file + " is damaged");
+			}
+
+			int n = header.getVerseCount();
+			int t = header.getTermCount();
+			int s = header.getSeparatorCount();
+			int codesStart = header.getLength();
+			int lengthsStart = codesStart + 4 * n;
+			int wordOffsetsStart = lengthsStart + 4 * n;
+			int separatorOffsetsStart = wordOffsetsStart + 4 * (t + 1);
+			int postingOffsetsStart = separatorOffsetsStart + 4 * (s + 1);
+			int positionOffsetsStart = postingOffsetsStart + 4 * (t + 1);
+			int wordsStart = positionOffsetsStart + 4 * (t + 1);
+			int separatorsStart = wordsStart + header.getWordsLength();
+			int postingsStart = separatorsStart + header.getSeparatorsLength();
+			int positionsStart = postingsStart + header.getPostingsLength();
+
+			int[] codes = new int[n];
+			slice(map, codesStart, 4 * n).asIntBuffer().get(codes);
+			for (int i = 1; i < n; i++) {
+				if (codes[i - 1] >= codes[i]) {
+					throw new IOException(file + " is not a valid concordance index");
+				}
+			}
+			int[] lengths = new int[n];
+			slice(map, lengthsStart, 4 * n).asIntBuffer().get(lengths);
+			IntBuffer wordOffsets = slice(map, wordOffsetsStart, 4 * (t + 1)).asIntBuffer();
+			IntBuffer separatorOffsets = slice(map, separatorOffsetsStart, 4 * (s + 1)).asIntBuffer();
+			IntBuffer postingOffsets = slice(map, postingOffsetsStart, 4 * (t + 1)).asIntBuffer();
+			IntBuffer positionOffsets = slice(map, positionOffsetsStart, 4 * (t + 1)).asIntBuffer();
+			if (wordOffsets.get(t) > header.getWordsLength() || separatorOffsets.get(s) > header.getSeparatorsLength()
+					|| postingOffsets.get(t) != header.getPostingsLength()
+					|| positionOffsets.get(t) != header.getPositionsLength()) {
+				throw new IOException(file + " is not a valid concordance index");
+			}
+
+			// There are only a few hundred separators, so read them now rather than searching the mapping for them.
+			String[] separators = new String[s];
+			ByteBuffer separatorBytes = slice(map, separatorsStart, header.getSeparatorsLength());
+			for (int i = 0; i < s; i++) {
+				int start = separatorOffsets.get(i);
+				int end = separatorOffsets.get(i + 1);
+				if (start > end || end > header.getSeparatorsLength()) {
+					throw new IOException(file + " is not a valid concordance index");
+				}
+				byte[] bytes = new byte[end - start];
+				separatorBytes.position(start);
+				separatorBytes.get(bytes);
+				separators[i] = new String(bytes, BibleImage.UTF8);
+			}
+
+			Contents contents = new Contents();
+			contents.header = header;
+			contents.codes = codes;
+			contents.lengths = lengths;
+			contents.terms = new MappedTermIndex(wordOffsets, slice(map, wordsStart, header.getWordsLength()),
+					postingOffsets, slice(map, postingsStart, header.getPostingsLength()), positionOffsets,
+					slice(map, positionsStart, header.getPositionsLength()), separators, n);
+			return contents;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int length) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(start);
+		copy.limit(start + length);
+		return copy.slice();
+	}
+
+	/*
+	 * What open read from the file.
+	 */
+	private static class Contents {
+		ConcordanceIndex.Header	header;
+		int[]					codes;
+		int[]					lengths;
+		TermIndex				terms;
+	}
+
+	/*
+	 * The words, postings and positions, in the mapping.
+	 */
+	private static class MappedTermIndex implements TermIndex {
+		private final IntBuffer					wordOffsets;
+		private final ByteBuffer				words;
+		private final IntBuffer					postingOffsets;
+		private final ByteBuffer				postings;
+		private final IntBuffer					positionOffsets;
+		private final ByteBuffer				positions;
+		private final String[]					separators;
+		private final HashMap<String, Integer>	separatorIds;
+		private final int						verseCount;
+
+		MappedTermIndex(IntBuffer wordOffsets, ByteBuffer words, IntBuffer postingOffsets, ByteBuffer postings,
+				IntBuffer positionOffsets, ByteBuffer positions, String[] separators, int verseCount) {
+			this.wordOffsets = wordOffsets;
+			this.words = words;
+			this.postingOffsets = postingOffsets;
+			this.postings = postings;
+			this.positionOffsets = positionOffsets;
+			this.positions = positions;
+			this.separators = separators;
+			this.verseCount = verseCount;
+			separatorIds = new HashMap<String, Integer>();
+			for (int i = 0; i < separators.length; i++) {
+				separatorIds.put(separators[i], i);
+			}
+		}
+
+		@Override
+		public int size() {
+			return wordOffsets.limit() - 1;
+		}
+
+		@Override
+		public String getTerm(int index) {
+			int start = wordOffsets.get(index);
+			byte[] bytes = new byte[wordOffsets.get(index + 1) - start];
+			// Use a duplicate so that threads reading different words don't move each other's position.
+			ByteBuffer word = words.duplicate();
+			word.position(start);
+			word.get(bytes);
+			return new String(bytes, BibleImage.UTF8);
+		}
+
+		@Override
+		public String[] getTerms(int from, int to) {
+			String[] result = new String[to - from];
+			for (int i = from; i < to; i++) {
+				result[i - from] = getTerm(i);
+			}
+			return result;
+		}
+
+		@Override
+		public int indexOf(String term) {
+			int low = 0;
+			int high = size() - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int c = getTerm(mid).compareTo(term);
+				if (c < 0) {
+					low = mid + 1;
+				} else if (c > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		@Override
+		public PostingSet getPostings(int index) {
+			return PostingSet.of(readOrdinals(index));
+		}
+
+		@Override
+		public Positions getPositions(int index) {
+			int[] ordinals = readOrdinals(index);
+			int position = positionOffsets.get(index);
+			int end = positionOffsets.get(index + 1);
+			int[] starts = new int[ordinals.length + 1];
+			int[] occurrences = new int[16];
+			int size = 0;
+			int[] result = new int[1];
+			for (int v = 0; v < ordinals.length; v++) {
+				starts[v] = size / 2;
+				position = readVarInt(positions, position, result);
+				int count = result[0];
+				if (count <= 0 || position > end) {
+					throw new IllegalStateException("Corrupt concordance index");
+				}
+				if (size + 2 * count > occurrences.length) {
+					occurrences = Arrays.copyOf(occurrences, Math.max(2 * occurrences.length, size + 2 * count));
+				}
+				int p = 0;
+				for (int o = 0; o < count; o++) {
+					position = readVarInt(positions, position, result);
+					p += result[0];
+					occurrences[size++] = p;
+					position = readVarInt(positions, position, result);
+					int before = result[0];
+					position = readVarInt(positions, position, result);
+					occurrences[size++] = Positions.pack(before, result[0]);
+				}
+			}
+			if (position != end) {
+				throw new IllegalStateException("Corrupt concordance index");
+			}
+			starts[ordinals.length] = size / 2;
+			return new Positions(ordinals, starts, Arrays.copyOf(occurrences, size));
+		}
+
+		@Override
+		public int getSeparatorCount() {
+			return separators.length;
+		}
+
+		@Override
+		public String getSeparator(int id) {
+			return separators[id];
+		}
+
+		@Override
+		public int indexOfSeparator(String separator) {
+			Integer id = separatorIds.get(separator);
+			return id == null ? -1 : id;
+		}
+
+		/*
+		 * Decode the ordinals of the verses a word is in.
+		 */
+		private int[] readOrdinals(int index) {
+			int position = postingOffsets.get(index);
+			int end = postingOffsets.get(index + 1);
+			int[] result = new int[1];
+			position = readVarInt(postings, position, result);
+			int count = result[0];
+			if (count < 0 || count > verseCount) {
+				throw new IllegalStateException("Corrupt concordance index");
+			}
+			int[] ordinals = new int[count];
+			int ordinal = 0;
+			for (int i = 0; i < count; i++) {
+				position = readVarInt(postings, position, result);
+				ordinal += result[0];
+				if (ordinal >= verseCount || position > end) {
+					throw new IllegalStateException("Corrupt concordance index");
+				}
+				ordinals[i] = ordinal;
+			}
+			return ordinals;
+		}
+
+		/*
+		 * Read a variable-length int starting at position into value[0], and return the position after it.
+		 */
+		private static int readVarInt(ByteBuffer buffer, int position, int[] value) {
+			int v = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get(position++);
+				v |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			value[0] = v;
+			return position;
+		}
+	}
+}
@@ -0,0 +1,416 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One concordance for several versions of the Bible. The verses of all of the versions are numbered together, in
+ * canonical order, and each word has one list of the verses it is in, in any version, with a bitmask of the versions
+ * it is in that verse in. So a search of every version, or of any subset of them, is one lookup and one scan of one
+ * list, rather than a lookup in each version's Concordance and a merge of the results.
+ *
+ * It is built from the versions' concordances, which must all be of words, or all of stems made with the same stemmer
+ * (see Concordance.stemmed). Like them, it is not changed after it is built, so it can be shared between threads.
+ */
+public final class MultiVersionConcordance {
+	/**
+	 * The most versions one concordance can hold: one for each bit of a mask.
+	 */
+	public static final int			MAX_VERSIONS	= 64;
+
+	private final String[]			versions;
+	private final Stemmer			stemmer;
+	// The packed reference (see ReferenceCodec) of the verse with each ordinal, in any version.
+	private final int[]				codes;
+	private final FrontCodedTerms	terms;
+	// The verses of word t are ordinals[starts[t]] to ordinals[starts[t + 1] - 1], and masks has the versions it is
+	// in each of them in (bit v for versions[v]).
+	private final int[]				starts;
+	private final int[]				ordinals;
+	private final long[]			masks;
+
+	/**
+	 * Build a concordance of several versions.
+	 *
+	 * @param concordances the concordance of each version, by version.
+	 * @throws IllegalArgumentException if there are more than MAX_VERSIONS versions, or the concordances weren't all
+	 *             stemmed the same way.
+	 */
+	public MultiVersionConcordance(Map<String, ? extends Concordance> concordances) {
+		int k = concordances.size();
+		if (k > MAX_VERSIONS) {
+			throw new IllegalArgumentException(k + " versions; at most " + MAX_VERSIONS + " are allowed");
+		}
+		versions = concordances.keySet().toArray(new String[k]);
+		Arrays.sort(versions);
+		Concordance[] sources = new Concordance[k];
+		for (int v = 0; v < k; v++) {
+			sources[v] = concordances.get(versions[v]);
+		}
+		stemmer = (k == 0) ? null : sources[0].getStemmer();
+		for (Concordance source : sources) {
+			Stemmer other = source.getStemmer();
+			if ((stemmer == null) ? other != null : other == null || !stemmer.getName().equals(other.getName())) {
+				throw new IllegalArgumentException("The concordances weren't all stemmed the same way");
+			}
+		}
+
+		// Number every verse of every version, and work out what each version's ordinals become.
+		int[][] localCodes = new int[k][];
+		int total = 0;
+		for (int v = 0; v < k; v++) {
+			localCodes[v] = new int[sources[v].getNumberOfVerses()];
+			for (int i = 0; i < localCodes[v].length; i++) {
+				localCodes[v][i] = sources[v].getCode(i);
+			}
+			total += localCodes[v].length;
+		}
+		int[] all = new int[total];
+		int n = 0;
+		for (int[] c : localCodes) {
+			System.arraycopy(c, 0, all, n, c.length);
+			n += c.length;
+		}
+		Arrays.sort(all);
+		n = 0;
+		for (int i = 0; i < all.length; i++) {
+			if (n == 0 || all[n - 1] != all[i]) {
+				all[n++] = all[i];
+			}
+		}
+		codes = Arrays.copyOf(all, n);
+		int[][] toGlobal = new int[k][];
+		for (int v = 0; v < k; v++) {
+			// Both lists are sorted, so each version's verses are found in one pass.
+			toGlobal[v] = new int[localCodes[v].length];
+			int g = 0;
+			for (int i = 0; i < localCodes[v].length; i++) {
+				while (codes[g] != localCodes[v][i]) {
+					g++;
+				}
+				toGlobal[v][i] = g;
+			}
+		}
+
+		// Find which versions have each word.
+		HashMap<String, List<int[]>> where = new HashMap<String, List<int[]>>();
+		for (int v = 0; v < k; v++) {
+			TermIndex index = sources[v].getTermIndex();
+			String[] words = index.getTerms(0, index.size());
+			for (int t = 0; t < words.length; t++) {
+				List<int[]> list = where.get(words[t]);
+				if (list == null) {
+					list = new ArrayList<int[]>(k);
+					where.put(words[t], list);
+				}
+				list.add(new int[] { v, t });
+			}
+		}
+		String[] sorted = where.keySet().toArray(new String[where.size()]);
+		Arrays.sort(sorted);
+		terms = new FrontCodedTerms(sorted);
+
+		// Merge each word's verses from each version, one version at a time.
+		starts = new int[sorted.length + 1];
+		int[] allOrdinals = new int[1024];
+		long[] allMasks = new long[1024];
+		int size = 0;
+		int[] merged = new int[0];
+		long[] mergedMasks = new long[0];
+		for (int t = 0; t < sorted.length; t++) {
+			starts[t] = size;
+			int m = 0;
+			for (int[] found : where.get(sorted[t])) {
+				int v = found[0];
+				int[] local = sources[v].getTermIndex().getPostings(found[1]).toArray();
+				if (merged.length < m + local.length) {
+					merged = Arrays.copyOf(merged, 2 * (m + local.length));
+					mergedMasks = Arrays.copyOf(mergedMasks, merged.length);
+				}
+				m = mergeInto(merged, mergedMasks, m, local, toGlobal[v], 1L << v);
+			}
+			if (allOrdinals.length < size + m) {
+				allOrdinals = Arrays.copyOf(allOrdinals, Math.max(2 * allOrdinals.length, size + m));
+				allMasks = Arrays.copyOf(allMasks, allOrdinals.length);
+			}
+			System.arraycopy(merged, 0, allOrdinals, size, m);
+			System.arraycopy(mergedMasks, 0, allMasks, size, m);
+			size += m;
+		}
+		starts[sorted.length] = size;
+		ordinals = Arrays.copyOf(allOrdinals, size);
+		masks = Arrays.copyOf(allMasks, size);
+	}
+
+	/*
+	 * Merge the verses of a word in one version (with ordinals local, turned into global ones by toGlobal) into the
+	 * first m verses of ordinals, which has room for them. Returns the new number of verses.
+	 */
+	private static int mergeInto(int[] ordinals, long[] masks, int m, int[] local, int[] toGlobal, long bit) {
+		int common = 0;
+		for (int a = 0, b = 0; a < m && b < local.length;) {
+			int g = toGlobal[local[b]];
+			if (ordinals[a] == g) {
+				common++;
+				a++;
+				b++;
+			} else if (ordinals[a] < g) {
+				a++;
+			} else {
+				b++;
+			}
+		}
+		// Merge from the back, so that nothing is overwritten before it is read. Once the version's verses run out, the
+		// rest are already in place.
+		int i = m - 1;
+		int j = local.length - 1;
+		int out = m + local.length - common - 1;
+		int size = out + 1;
+		while (j >= 0) {
+			int g = toGlobal[local[j]];
+			if (i >= 0 && ordinals[i] > g) {
+				ordinals[out] = ordinals[i];
+				masks[out--] = masks[i--];
+			} else if (i >= 0 && ordinals[i] == g) {
+				ordinals[out] = g;
+				masks[out--] = masks[i--] | bit;
+				j--;
+			} else {
+				ordinals[out] = g;
+				masks[out--] = bit;
+				j--;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the versions, in alphabetical order. Version v is bit v of a mask.
+	 */
+	public String[] getVersions() {
+		return versions.clone();
+	}
+
+	/**
+	 * @param versions the names of some versions. Versions that aren't in this concordance are ignored.
+	 * @return the mask that selects them.
+	 */
+	public long getVersionMask(String... versions) {
+		long mask = 0;
+		for (String version : versions) {
+			int v = Arrays.binarySearch(this.versions, version);
+			if (v >= 0) {
+				mask |= 1L << v;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * @return the mask that selects every version.
+	 */
+	public long getAllVersions() {
+		return (versions.length == MAX_VERSIONS) ? -1L : (1L << versions.length) - 1;
+	}
+
+	/**
+	 * @return the stemmer the words of the versions were reduced with, or null if they weren't.
+	 */
+	public Stemmer getStemmer() {
+		return stemmer;
+	}
+
+	/**
+	 * @return the number of different verses in all of the versions.
+	 */
+	public int getNumberOfVerses() {
+		return codes.length;
+	}
+
+	/**
+	 * @return the number of different words in all of the versions.
+	 */
+	public int getNumberOfWords() {
+		return terms.size();
+	}
+
+	/**
+	 * Return the verses that contain a word in any of some versions.
+	 *
+	 * @param word a single word (ignoring case).
+	 * @param versions the versions to search (see getVersionMask).
+	 * @return the ordinals of the verses, as numbered by this concordance.
+	 */
+	public PostingSet getVerses(String word, long versions) {
+		int t = terms.indexOf(termOf(word));
+		if (t < 0) {
+			return PostingSet.EMPTY;
+		}
+		int from = starts[t];
+		int to = starts[t + 1];
+		if ((versions & getAllVersions()) == getAllVersions()) {
+			return PostingSet.of(Arrays.copyOfRange(ordinals, from, to));
+		}
+		int[] result = new int[to - from];
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			if ((masks[i] & versions) != 0) {
+				result[n++] = ordinals[i];
+			}
+		}
+		return PostingSet.of(Arrays.copyOf(result, n));
+	}
+
+	/**
+	 * Return the verses that contain all of the words in one of some versions. As when each version is searched on its
+	 * own, a verse that has some of the words in one version and the rest in another doesn't count.
+	 *
+	 * @param words single words (ignoring case).
+	 * @param versions the versions to search (see getVersionMask).
+	 * @return the ordinals of the verses, as numbered by this concordance. If there are no words, the set is empty.
+	 */
+	public PostingSet getVersesContainingAll(List<String> words, long versions) {
+		if (words.isEmpty()) {
+			return PostingSet.EMPTY;
+		}
+		int[] found = new int[words.size()];
+		for (int i = 0; i < found.length; i++) {
+			found[i] = terms.indexOf(termOf(words.get(i)));
+			if (found[i] < 0) {
+				return PostingSet.EMPTY;
+			}
+		}
+		// Start with the rarest word, so that the candidates stay few.
+		int rarest = found[0];
+		for (int t : found) {
+			if (starts[t + 1] - starts[t] < starts[rarest + 1] - starts[rarest]) {
+				rarest = t;
+			}
+		}
+		int n = starts[rarest + 1] - starts[rarest];
+		int[] result = Arrays.copyOfRange(ordinals, starts[rarest], starts[rarest + 1]);
+		long[] resultMasks = Arrays.copyOfRange(masks, starts[rarest], starts[rarest + 1]);
+		for (int i = 0; i < n; i++) {
+			resultMasks[i] &= versions;
+		}
+		for (int t : found) {
+			if (t != rarest) {
+				n = intersect(result, resultMasks, n, starts[t], starts[t + 1]);
+			}
+		}
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (resultMasks[i] != 0) {
+				result[m++] = result[i];
+			}
+		}
+		return PostingSet.of(Arrays.copyOf(result, m));
+	}
+
+	/*
+	 * Keep the first n verses of result that are also in ordinals[from] to ordinals[to - 1], and-ing their masks.
+	 * Verses left with no versions are dropped. Returns how many are left.
+	 */
+	private int intersect(int[] result, long[] resultMasks, int n, int from, int to) {
+		int m = 0;
+		int j = from;
+		for (int i = 0; i < n && j < to; i++) {
+			j = advance(result[i], j, to);
+			if (j < to && ordinals[j] == result[i]) {
+				long mask = resultMasks[i] & masks[j];
+				if (mask != 0) {
+					result[m] = result[i];
+					resultMasks[m++] = mask;
+				}
+			}
+		}
+		return m;
+	}
+
+	/*
+	 * The first index from from that has an ordinal at least ordinal, found by galloping, since the list being
+	 * searched is usually much longer than the candidates.
+	 */
+	private int advance(int ordinal, int from, int to) {
+		int step = 1;
+		int low = from;
+		int high = from;
+		while (high < to && ordinals[high] < ordinal) {
+			low = high + 1;
+			high = from + step;
+			step *= 2;
+		}
+		high = Math.min(high, to);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ordinals[mid] < ordinal) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @param versions the versions to search (see getVersionMask).
+	 * @return the references of the verses that contain the word in any of them, in canonical order.
+	 */
+	public ReferenceList getReferencesContaining(String word, long versions) {
+		return getReferences(getVerses(word, versions));
+	}
+
+	/**
+	 * @param words single words (ignoring case).
+	 * @param versions the versions to search (see getVersionMask).
+	 * @return the references of the verses that contain all of the words in one of them, in canonical order.
+	 */
+	public ReferenceList getReferencesContainingAll(List<String> words, long versions) {
+		return getReferences(getVersesContainingAll(words, versions));
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @param ordinal the ordinal of a verse.
+	 * @return the mask of the versions that have the word in the verse.
+	 */
+	public long getVersionsContaining(String word, int ordinal) {
+		int t = terms.indexOf(termOf(word));
+		if (t < 0) {
+			return 0;
+		}
+		int i = Arrays.binarySearch(ordinals, starts[t], starts[t + 1], ordinal);
+		return (i < 0) ? 0 : masks[i];
+	}
+
+	/**
+	 * Turn a set of verse ordinals into the references of the verses.
+	 *
+	 * @param verses ordinals from this concordance.
+	 * @return the references of those verses, in canonical order.
+	 */
+	public ReferenceList getReferences(PostingSet verses) {
+		int[] result = verses.toArray();
+		for (int i = 0; i < result.length; i++) {
+			result[i] = codes[result[i]];
+		}
+		return IntReferenceList.wrap(result, result.length);
+	}
+
+	/**
+	 * @param ordinal the ordinal of a verse.
+	 * @return the packed reference of the verse (see ReferenceCodec).
+	 */
+	public int getCode(int ordinal) {
+		return codes[ordinal];
+	}
+
+	private String termOf(String word) {
+		String lower = word.toLowerCase();
+		return (stemmer == null) ? lower : stemmer.stem(lower);
+	}
+}
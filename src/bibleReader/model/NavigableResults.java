@@ -6,11 +6,18 @@ package bibleReader.model;
  * are not well-documented, but if you spend a little time studying the class, it should be fairly straightforward to see
  * how to use it.
  * 
+ * The results can also come from a Source, which finds them best first, a few at a time: the first pages are shown as
+ * soon as they are found, and more are only found when the window slides past them.
+ * 
  * @author Chuck Cusack.
  */
 public class NavigableResults {
 
-	private ReferenceList		results;
+	private IntReferenceList	results;
+	// Where the results come from, if they are found a few at a time; null if they were all given at once.
+	private final Source		source;
+	// The number of results, which may be more than have been found.
+	private final int			total;
 	private String				queryPhrase;
 	private ResultType			type				= ResultType.NONE;
 
@@ -19,8 +26,40 @@ public class NavigableResults {
 	private int					windowStartIndex	= 0;
 	private int					windowEndIndex		= DEFAULT_WINDOW_SIZE;
 
+	/**
+	 * Finds results in order, best first, as they are needed.
+	 */
+	public interface Source {
+		/**
+		 * @return the number of results.
+		 */
+		int size();
+
+		/**
+		 * @param count the number of results wanted, at most size().
+		 * @return the first count results.
+		 */
+		ReferenceList getFirst(int count);
+	}
+
 	public NavigableResults(ReferenceList references, String queryPhrase, ResultType type) {
-		results = new ReferenceList(references);
+		results = IntReferenceList.copyOf(references);
+		source = null;
+		total = results.size();
+		this.queryPhrase = queryPhrase;
+		this.type = type;
+		setWindowStart(0);
+	}
+
+	/**
+	 * @param source where to find the results. Only those on the first page are found now.
+	 * @param queryPhrase the search.
+	 * @param type the type of the search.
+	 */
+	public NavigableResults(Source source, String queryPhrase, ResultType type) {
+		this.source = source;
+		total = source.size();
+		results = IntReferenceList.copyOf(source.getFirst(Math.min(windowSize, total)));
 		this.queryPhrase = queryPhrase;
 		this.type = type;
 		setWindowStart(0);
@@ -43,7 +82,7 @@ public class NavigableResults {
 	}
 
 	public int size() {
-		return results.size();
+		return total;
 	}
 
 	public int getNumberPages() {
@@ -65,8 +104,8 @@ public class NavigableResults {
 	 * Slide the window to the end.
 	 */
 	public void toEnd() {
-		int newIndex = (results.size() / windowSize) * windowSize;
-		if (results.size() % windowSize == 0) {
+		int newIndex = (size() / windowSize) * windowSize;
+		if (size() % windowSize == 0) {
 			newIndex--;
 		}
 		setWindowStart(newIndex);
@@ -86,7 +125,7 @@ public class NavigableResults {
 	}
 
 	public boolean hasNextResults() {
-		return (windowStartIndex + windowSize < results.size());
+		return (windowStartIndex + windowSize < size());
 	}
 
 	public boolean hasPreviousResults() {
@@ -99,7 +138,7 @@ public class NavigableResults {
 	 * @return a ReferenceList containing the currently "viewable" results.
 	 */
 	public ReferenceList currentResults() {
-		return new ReferenceList(results.subList(windowStartIndex, windowEndIndex));
+		return results.copyOfRange(windowStartIndex, windowEndIndex);
 	}
 
 	/**
@@ -148,16 +187,27 @@ public class NavigableResults {
 	 * the final window doesn't always have the full number of results.
 	 */
 	private void setWindowStart(int start) {
-		if (results.size() == 0) {
+		if (size() == 0) {
 			windowStartIndex = 0;
 			windowEndIndex = 0;
 		}
-		if (start >= 0 && start < results.size()) {
+		if (start >= 0 && start < size()) {
 			windowStartIndex = start;
 			windowEndIndex = windowStartIndex + windowSize;
-			if (windowEndIndex > results.size()) {
-				windowEndIndex = results.size();
+			if (windowEndIndex > size()) {
+				windowEndIndex = size();
 			}
+			find(windowEndIndex);
+		}
+	}
+
+	/*
+	 * Make sure the first end results have been found. Finding them again from the start each time would make paging
+	 * through all of them quadratic, so at least twice as many as before are found.
+	 */
+	private void find(int end) {
+		if (source != null && results.size() < end) {
+			results = IntReferenceList.copyOf(source.getFirst(Math.min(total, Math.max(2 * results.size(), end))));
 		}
 	}
 
@@ -0,0 +1,236 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+
+/**
+ * Where a word occurs in the verses that contain it: for each verse (by ordinal, in increasing order), the position of
+ * each occurrence in the verse's list of words (0 for the first word), and the text between the occurrence and the
+ * words either side of it. The text between words is stored as the id of a separator (see TermIndex.getSeparator),
+ * since the same few (" ", ", ", ". ", ...) make up nearly all of it.
+ *
+ * This is what lets the Concordance find phrases: "son of man" is in a verse if "son" is at some position p, "of" at
+ * p+1 and "man" at p+2, with the same text between them as in the phrase.
+ */
+public final class Positions {
+	/**
+	 * The separator id used when the text between two words isn't known (because a word couldn't be found in the text
+	 * it came from, or there were too many different separators to number). It never matches anything.
+	 */
+	public static final int		UNKNOWN_SEPARATOR	= 0xFFFF;
+
+	/**
+	 * No word.
+	 */
+	public static final Positions	EMPTY				= new Positions(new int[0], new int[1], new int[0]);
+
+	private final int[]			ordinals;
+	private final int[]			starts;
+	// Two ints per occurrence: its position, then (separator before << 16) | separator after.
+	private final int[]			occurrences;
+
+	/**
+	 * @param ordinals the ordinals of the verses the word is in, in increasing order.
+	 * @param starts where the occurrences of each verse start, and where they end (ordinals.length + 1 values).
+	 * @param occurrences for each occurrence, its position then its packed separators (see pack). The occurrences of a
+	 *            verse are in increasing order of position.
+	 */
+	public Positions(int[] ordinals, int[] starts, int[] occurrences) {
+		if (starts.length != ordinals.length + 1 || starts[ordinals.length] * 2 != occurrences.length) {
+			throw new IllegalArgumentException("Inconsistent positions");
+		}
+		this.ordinals = ordinals;
+		this.starts = starts;
+		this.occurrences = occurrences;
+	}
+
+	/**
+	 * Pack the separators either side of an occurrence into one int.
+	 *
+	 * @param before the id of the separator before the occurrence.
+	 * @param after the id of the separator after it.
+	 * @return the packed separators.
+	 */
+	public static int pack(int before, int after) {
+		return (before << 16) | after;
+	}
+
+	/**
+	 * Merge the positions of several words, as if they were one word: for example, the forms of a word that have the
+	 * same stem. The words must be from the same verses, so that no two are at the same position in a verse.
+	 *
+	 * @param lists the positions of the words.
+	 * @return where any of them occur.
+	 */
+	public static Positions merge(Positions... lists) {
+		if (lists.length == 1) {
+			return lists[0];
+		}
+		int verses = 0;
+		int total = 0;
+		for (Positions list : lists) {
+			verses += list.size();
+			total += list.occurrences.length;
+		}
+		int[] ordinals = new int[verses];
+		int[] starts = new int[verses + 1];
+		int[] occurrences = new int[total];
+		int[] next = new int[lists.length];
+		int n = 0;
+		int o = 0;
+		while (true) {
+			// The smallest ordinal any list has left.
+			int ordinal = Integer.MAX_VALUE;
+			for (int i = 0; i < lists.length; i++) {
+				if (next[i] < lists[i].size()) {
+					ordinal = Math.min(ordinal, lists[i].ordinals[next[i]]);
+				}
+			}
+			if (ordinal == Integer.MAX_VALUE) {
+				break;
+			}
+			ordinals[n] = ordinal;
+			starts[n] = o / 2;
+			int from = o;
+			for (int i = 0; i < lists.length; i++) {
+				Positions list = lists[i];
+				if (next[i] < list.size() && list.ordinals[next[i]] == ordinal) {
+					int length = 2 * (list.getEnd(next[i]) - list.getStart(next[i]));
+					System.arraycopy(list.occurrences, 2 * list.getStart(next[i]), occurrences, o, length);
+					o += length;
+					next[i]++;
+				}
+			}
+			sortByPosition(occurrences, from, o);
+			n++;
+		}
+		starts[n] = o / 2;
+		return new Positions(Arrays.copyOf(ordinals, n), Arrays.copyOf(starts, n + 1), occurrences);
+	}
+
+	/*
+	 * Sort the occurrences (pairs of ints) from from to to by position. There are only ever a few in a verse.
+	 */
+	private static void sortByPosition(int[] occurrences, int from, int to) {
+		for (int i = from + 2; i < to; i += 2) {
+			int position = occurrences[i];
+			int separators = occurrences[i + 1];
+			int j = i - 2;
+			while (j >= from && occurrences[j] > position) {
+				occurrences[j + 2] = occurrences[j];
+				occurrences[j + 3] = occurrences[j + 1];
+				j -= 2;
+			}
+			occurrences[j + 2] = position;
+			occurrences[j + 3] = separators;
+		}
+	}
+
+	/**
+	 * @return the number of verses the word is in.
+	 */
+	public int size() {
+		return ordinals.length;
+	}
+
+	/**
+	 * @param i the index of a verse in this list.
+	 * @return its ordinal.
+	 */
+	public int getOrdinal(int i) {
+		return ordinals[i];
+	}
+
+	/**
+	 * Find a verse, starting the search at a given index. Looking up verses in increasing order, each time from where
+	 * the last one was found, gallops through the list (see PostingLists.gallop).
+	 *
+	 * @param ordinal the ordinal of the verse.
+	 * @param from where to start looking.
+	 * @return the first index at or after from whose ordinal is at least ordinal, or size() if there is none.
+	 */
+	public int find(int ordinal, int from) {
+		return PostingLists.gallop(ordinals, from, ordinal);
+	}
+
+	/**
+	 * @param i the index of a verse in this list.
+	 * @return the index of its first occurrence.
+	 */
+	public int getStart(int i) {
+		return starts[i];
+	}
+
+	/**
+	 * @param i the index of a verse in this list.
+	 * @return one more than the index of its last occurrence.
+	 */
+	public int getEnd(int i) {
+		return starts[i + 1];
+	}
+
+	/**
+	 * @param occurrence the index of an occurrence.
+	 * @return its position in its verse.
+	 */
+	public int getPosition(int occurrence) {
+		return occurrences[2 * occurrence];
+	}
+
+	/**
+	 * @param occurrence the index of an occurrence.
+	 * @return the id of the separator before it.
+	 */
+	public int getSeparatorBefore(int occurrence) {
+		return occurrences[2 * occurrence + 1] >>> 16;
+	}
+
+	/**
+	 * @param occurrence the index of an occurrence.
+	 * @return the id of the separator after it.
+	 */
+	public int getSeparatorAfter(int occurrence) {
+		return occurrences[2 * occurrence + 1] & 0xFFFF;
+	}
+
+	/**
+	 * Find an occurrence in a verse by position.
+	 *
+	 * @param i the index of a verse in this list.
+	 * @param position a position.
+	 * @return the index of the occurrence at that position in the verse, or -1 if the word isn't there.
+	 */
+	public int findPosition(int i, int position) {
+		int low = starts[i];
+		int high = starts[i + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int p = occurrences[2 * mid];
+			if (p < position) {
+				low = mid + 1;
+			} else if (p > position) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof Positions)) {
+			return false;
+		}
+		Positions other = (Positions) o;
+		return Arrays.equals(ordinals, other.ordinals) && Arrays.equals(starts, other.starts)
+				&& Arrays.equals(occurrences, other.occurrences);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(ordinals) + Arrays.hashCode(occurrences);
+	}
+}
@@ -0,0 +1,109 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Operations on posting lists: sorted arrays of distinct non-negative ints (in the Concordance, the ordinals of the
+ * verses a word occurs in). Keeping them as plain int arrays means they take 4 bytes per entry, and intersecting them
+ * needs no objects beyond the result.
+ */
+public final class PostingLists {
+	private static final int[]	EMPTY	= new int[0];
+
+	private PostingLists() {
+		// Only static methods.
+	}
+
+	/**
+	 * Intersect any number of posting lists. The lists are intersected from the shortest to the longest, so the
+	 * intermediate result is never longer than the rarest list, and each step gallops through the longer list (see
+	 * intersect) instead of walking it.
+	 *
+	 * @param lists the posting lists. They are not changed, and the array itself is not reordered.
+	 * @return a new array with the values that are in every list, in increasing order. If there are no lists the result
+	 *         is empty.
+	 */
+	public static int[] intersectAll(int[][] lists) {
+		if (lists.length == 0) {
+			return EMPTY;
+		}
+		int[][] bySize = lists.clone();
+		Arrays.sort(bySize, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return a.length - b.length;
+			}
+		});
+		int[] result = bySize[0].clone();
+		int size = result.length;
+		for (int i = 1; i < bySize.length && size > 0; i++) {
+			size = intersect(result, size, bySize[i], result);
+		}
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Intersect a short posting list with a (usually much longer) one. For each value of the short list we gallop
+	 * forward in the long list, doubling the step until we pass the value and then binary searching the last step.
+	 * Finding a value d places further on takes about 2 log d comparisons, so the whole intersection takes
+	 * O(m log(n/m)) comparisons rather than the O(m+n) of a merge, which matters when a rare word is combined with a
+	 * common one.
+	 *
+	 * @param small the first list. Only the first smallSize values are used.
+	 * @param smallSize how many values of small to use.
+	 * @param large the second list.
+	 * @param result where to put the values that are in both. This may be small itself, since a value is only written
+	 *            after it has been read.
+	 * @return the number of values written to result.
+	 */
+	public static int intersect(int[] small, int smallSize, int[] large, int[] result) {
+		int n = 0;
+		int low = 0;
+		for (int i = 0; i < smallSize && low < large.length; i++) {
+			int value = small[i];
+			low = gallop(large, low, value);
+			if (low < large.length && large[low] == value) {
+				result[n++] = value;
+				low++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Find the first index at or after from whose value is at least value.
+	 *
+	 * @param list a posting list.
+	 * @param from where to start looking.
+	 * @param value the value to look for.
+	 * @return the first index i &gt;= from with list[i] &gt;= value, or list.length if there is none.
+	 */
+	public static int gallop(int[] list, int from, int value) {
+		if (from >= list.length || list[from] >= value) {
+			return from;
+		}
+		// list[low] < value throughout.
+		int low = from;
+		int step = 1;
+		int high = from + step;
+		while (high < list.length && list[high] < value) {
+			low = high;
+			step <<= 1;
+			high = low + step;
+		}
+		if (high > list.length) {
+			high = list.length;
+		}
+		// Now list[low] < value and (high == list.length or list[high] >= value).
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+			if (list[mid] < value) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+		return high;
+	}
+}
@@ -0,0 +1,687 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of non-negative ints (in the Concordance, the ordinals of the verses a word occurs in) stored the
+ * way Roaring bitmaps store them. The values are split into chunks of 65536 by their high 16 bits, and each chunk is
+ * kept in whichever of three containers is smallest for it:
+ * <ul>
+ * <li>a sorted array of the low 16 bits, for sparse chunks (2 bytes per value);</li>
+ * <li>a bitmap of all 65536 values (8 KB), for dense chunks, so that a word in most verses costs 1 bit per verse;</li>
+ * <li>a list of runs (start and length), for chunks that are mostly consecutive values, such as all of the verses of a
+ * book or a passage.</li>
+ * </ul>
+ * and, or and andNot work container by container. Two bitmaps are combined 64 values at a time, and a sparse array is
+ * combined with anything by looking up each of its values, so intersecting a rare word with a common one costs about
+ * as much as the rare word.
+ *
+ * A Bible has about 31,000 verses, so a concordance's sets have a single chunk, but nothing here depends on that.
+ */
+public final class PostingSet {
+	/**
+	 * The set with nothing in it.
+	 */
+	public static final PostingSet	EMPTY			= new PostingSet(new char[0], new Container[0], 0);
+
+	// An array container never holds more than this many values; past it a bitmap is smaller.
+	private static final int		ARRAY_MAX		= 4096;
+	private static final int		BITMAP_WORDS	= 1 << 10;
+	private static final int		BITMAP_BYTES	= BITMAP_WORDS * 8;
+
+	private final char[]			keys;
+	private final Container[]		containers;
+	private final int				cardinality;
+
+	private PostingSet(char[] keys, Container[] containers, int size) {
+		this.keys = keys;
+		this.containers = containers;
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			n += containers[i].cardinality();
+		}
+		this.cardinality = n;
+	}
+
+	/**
+	 * Make a set from sorted values.
+	 *
+	 * @param values the values, in increasing order, with no duplicates. The array is not kept.
+	 * @return a set containing the values.
+	 * @throws IllegalArgumentException if a value is negative or the values are not in increasing order.
+	 */
+	public static PostingSet of(int[] values) {
+		Builder builder = new Builder();
+		int i = 0;
+		while (i < values.length) {
+			int high = highOf(values[i]);
+			int end = i;
+			while (end < values.length && highOf(values[end]) == high) {
+				end++;
+			}
+			char[] lows = new char[end - i];
+			for (int j = i; j < end; j++) {
+				if (values[j] < 0 || (j > 0 && values[j] <= values[j - 1])) {
+					throw new IllegalArgumentException("Values must be non-negative and increasing");
+				}
+				lows[j - i] = (char) values[j];
+			}
+			builder.add(high, fromArray(lows, lows.length));
+			i = end;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Make a set of consecutive values. This is stored as runs, so it is small however big the range is.
+	 *
+	 * @param from the first value.
+	 * @param to one more than the last value.
+	 * @return a set containing from, from+1, ..., to-1 (empty if to &lt;= from).
+	 * @throws IllegalArgumentException if from is negative.
+	 */
+	public static PostingSet range(int from, int to) {
+		if (from < 0) {
+			throw new IllegalArgumentException("Values must be non-negative");
+		}
+		Builder builder = new Builder();
+		int start = from;
+		while (start < to) {
+			int high = highOf(start);
+			// The end of this chunk, or of the range if that comes first. (long, since the chunk end may overflow.)
+			int end = (int) Math.min(to, ((long) high + 1) << 16);
+			char[] starts = { (char) start };
+			char[] lengths = { (char) (end - start - 1) };
+			builder.add(high, new RunContainer(starts, lengths, 1));
+			start = end;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the number of values in the set.
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * @return true if the set is empty.
+	 */
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * @param value a value.
+	 * @return true if value is in the set.
+	 */
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		int i = Arrays.binarySearch(keys, (char) highOf(value));
+		return i >= 0 && containers[i].contains((char) value);
+	}
+
+	/**
+	 * @return the values in the set, in increasing order.
+	 */
+	public int[] toArray() {
+		int[] values = new int[cardinality];
+		int n = 0;
+		for (int i = 0; i < keys.length; i++) {
+			n = containers[i].fill(values, n, keys[i] << 16);
+		}
+		return values;
+	}
+
+	/**
+	 * @param other another set.
+	 * @return a new set of the values in both this set and other.
+	 */
+	public PostingSet and(PostingSet other) {
+		Builder builder = new Builder();
+		int i = 0, j = 0;
+		while (i < keys.length && j < other.keys.length) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				builder.add(keys[i], containers[i].and(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param other another set.
+	 * @return a new set of the values in this set, in other, or in both.
+	 */
+	public PostingSet or(PostingSet other) {
+		Builder builder = new Builder();
+		int i = 0, j = 0;
+		while (i < keys.length || j < other.keys.length) {
+			if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+				builder.add(keys[i], containers[i]);
+				i++;
+			} else if (i == keys.length || keys[i] > other.keys[j]) {
+				builder.add(other.keys[j], other.containers[j]);
+				j++;
+			} else {
+				builder.add(keys[i], containers[i].or(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param other another set.
+	 * @return a new set of the values in this set that are not in other.
+	 */
+	public PostingSet andNot(PostingSet other) {
+		Builder builder = new Builder();
+		int j = 0;
+		for (int i = 0; i < keys.length; i++) {
+			while (j < other.keys.length && other.keys[j] < keys[i]) {
+				j++;
+			}
+			if (j < other.keys.length && other.keys[j] == keys[i]) {
+				builder.add(keys[i], containers[i].andNot(other.containers[j]));
+			} else {
+				builder.add(keys[i], containers[i]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the number of bytes the values take up (not counting object overhead), which is what the choice of
+	 *         containers tries to keep small.
+	 */
+	public int getSizeInBytes() {
+		int bytes = 2 * keys.length;
+		for (Container c : containers) {
+			bytes += c.sizeInBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return how many containers of each kind the set uses, as {arrays, bitmaps, runs}.
+	 */
+	public int[] getContainerCounts() {
+		int[] counts = new int[3];
+		for (Container c : containers) {
+			if (c instanceof ArrayContainer) {
+				counts[0]++;
+			} else if (c instanceof BitmapContainer) {
+				counts[1]++;
+			} else {
+				counts[2]++;
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof PostingSet)) {
+			return false;
+		}
+		PostingSet other = (PostingSet) o;
+		return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	private static int highOf(int value) {
+		return value >>> 16;
+	}
+
+	/*
+	 * Collects the non-empty containers of a new set, in key order.
+	 */
+	private static class Builder {
+		private char[]		keys		= new char[1];
+		private Container[]	containers	= new Container[1];
+		private int			size;
+
+		void add(int key, Container container) {
+			if (container == null) {
+				return;
+			}
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				containers = Arrays.copyOf(containers, size * 2);
+			}
+			keys[size] = (char) key;
+			containers[size] = container;
+			size++;
+		}
+
+		PostingSet build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			return new PostingSet(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), size);
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Containers. Each holds the low 16 bits of the values in one chunk. The operations return null for an empty
+	// result, and otherwise whichever kind of container is smallest for the result.
+
+	private abstract static class Container {
+		abstract int cardinality();
+
+		abstract boolean contains(char value);
+
+		/*
+		 * Write the values, with high added, into out starting at position pos. Returns the position after the last.
+		 */
+		abstract int fill(int[] out, int pos, int high);
+
+		abstract long[] toWords();
+
+		abstract int sizeInBytes();
+
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return ((ArrayContainer) other).filter(this, true);
+			}
+			return fromWords(andWords(toWords(), other.toWords()));
+		}
+
+		Container or(Container other) {
+			return fromWords(orWords(toWords(), other.toWords()));
+		}
+
+		Container andNot(Container other) {
+			return fromWords(andNotWords(toWords(), other.toWords()));
+		}
+	}
+
+	/*
+	 * A sorted array of values.
+	 */
+	private static final class ArrayContainer extends Container {
+		final char[]	values;
+		final int		size;
+
+		ArrayContainer(char[] values, int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		int cardinality() {
+			return size;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, size, value) >= 0;
+		}
+
+		@Override
+		int fill(int[] out, int pos, int high) {
+			for (int i = 0; i < size; i++) {
+				out[pos++] = high | values[i];
+			}
+			return pos;
+		}
+
+		@Override
+		long[] toWords() {
+			long[] words = new long[BITMAP_WORDS];
+			for (int i = 0; i < size; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return words;
+		}
+
+		@Override
+		int sizeInBytes() {
+			return 2 * size;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer that = (ArrayContainer) other;
+				return (size <= that.size) ? intersect(this, that) : intersect(that, this);
+			}
+			return filter(other, true);
+		}
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof ArrayContainer) {
+				ArrayContainer that = (ArrayContainer) other;
+				char[] result = new char[size + that.size];
+				int i = 0, j = 0, n = 0;
+				while (i < size && j < that.size) {
+					char x = values[i];
+					char y = that.values[j];
+					if (x < y) {
+						result[n++] = x;
+						i++;
+					} else if (y < x) {
+						result[n++] = y;
+						j++;
+					} else {
+						result[n++] = x;
+						i++;
+						j++;
+					}
+				}
+				while (i < size) {
+					result[n++] = values[i++];
+				}
+				while (j < that.size) {
+					result[n++] = that.values[j++];
+				}
+				return fromArray(result, n);
+			}
+			return super.or(other);
+		}
+
+		@Override
+		Container andNot(Container other) {
+			return filter(other, false);
+		}
+
+		/*
+		 * The values of this array that are (keep == true) or aren't (keep == false) in other.
+		 */
+		Container filter(Container other, boolean keep) {
+			char[] result = new char[size];
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				if (other.contains(values[i]) == keep) {
+					result[n++] = values[i];
+				}
+			}
+			return fromArray(result, n);
+		}
+
+		/*
+		 * Intersect a small array with a larger one by galloping through the larger one (see PostingLists.intersect).
+		 */
+		private static Container intersect(ArrayContainer small, ArrayContainer large) {
+			char[] result = new char[small.size];
+			int n = 0;
+			int low = 0;
+			for (int i = 0; i < small.size && low < large.size; i++) {
+				char value = small.values[i];
+				low = gallop(large.values, large.size, low, value);
+				if (low < large.size && large.values[low] == value) {
+					result[n++] = value;
+					low++;
+				}
+			}
+			return fromArray(result, n);
+		}
+
+		private static int gallop(char[] list, int size, int from, char value) {
+			if (from >= size || list[from] >= value) {
+				return from;
+			}
+			int low = from;
+			int step = 1;
+			int high = from + step;
+			while (high < size && list[high] < value) {
+				low = high;
+				step <<= 1;
+				high = low + step;
+			}
+			if (high > size) {
+				high = size;
+			}
+			while (high - low > 1) {
+				int mid = (low + high) >>> 1;
+				if (list[mid] < value) {
+					low = mid;
+				} else {
+					high = mid;
+				}
+			}
+			return high;
+		}
+	}
+
+	/*
+	 * One bit for each of the 65536 values.
+	 */
+	private static final class BitmapContainer extends Container {
+		final long[]	words;
+		final int		cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		int fill(int[] out, int pos, int high) {
+			for (int w = 0; w < words.length; w++) {
+				long word = words[w];
+				while (word != 0) {
+					out[pos++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return pos;
+		}
+
+		@Override
+		long[] toWords() {
+			// The operations don't change the words they are given.
+			return words;
+		}
+
+		@Override
+		int sizeInBytes() {
+			return BITMAP_BYTES;
+		}
+	}
+
+	/*
+	 * Runs of consecutive values. Each run is stored as its start and its length minus one, so that a run of all 65536
+	 * values fits in a char.
+	 */
+	private static final class RunContainer extends Container {
+		final char[]	starts;
+		final char[]	lengths;
+		final int		runs;
+
+		RunContainer(char[] starts, char[] lengths, int runs) {
+			this.starts = starts;
+			this.lengths = lengths;
+			this.runs = runs;
+		}
+
+		@Override
+		int cardinality() {
+			int n = 0;
+			for (int i = 0; i < runs; i++) {
+				n += lengths[i] + 1;
+			}
+			return n;
+		}
+
+		@Override
+		boolean contains(char value) {
+			int i = Arrays.binarySearch(starts, 0, runs, value);
+			if (i >= 0) {
+				return true;
+			}
+			// The run starting before value, if any.
+			i = -i - 2;
+			return i >= 0 && value - starts[i] <= lengths[i];
+		}
+
+		@Override
+		int fill(int[] out, int pos, int high) {
+			for (int i = 0; i < runs; i++) {
+				int start = high | starts[i];
+				for (int k = 0; k <= lengths[i]; k++) {
+					out[pos++] = start + k;
+				}
+			}
+			return pos;
+		}
+
+		@Override
+		long[] toWords() {
+			long[] words = new long[BITMAP_WORDS];
+			for (int i = 0; i < runs; i++) {
+				setRange(words, starts[i], starts[i] + lengths[i] + 1);
+			}
+			return words;
+		}
+
+		@Override
+		int sizeInBytes() {
+			return 4 * runs;
+		}
+
+		private static void setRange(long[] words, int from, int to) {
+			int first = from >>> 6;
+			int last = (to - 1) >>> 6;
+			long firstMask = -1L << from;
+			long lastMask = -1L >>> -to;
+			if (first == last) {
+				words[first] |= firstMask & lastMask;
+				return;
+			}
+			words[first] |= firstMask;
+			for (int w = first + 1; w < last; w++) {
+				words[w] = -1L;
+			}
+			words[last] |= lastMask;
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Choosing a container for a result.
+
+	/*
+	 * The best container for sorted values, or null if there are none.
+	 */
+	private static Container fromArray(char[] values, int size) {
+		if (size == 0) {
+			return null;
+		}
+		int runs = 1;
+		for (int i = 1; i < size; i++) {
+			if (values[i] != values[i - 1] + 1) {
+				runs++;
+			}
+		}
+		if (4 * runs < Math.min(2 * size, BITMAP_BYTES)) {
+			char[] starts = new char[runs];
+			char[] lengths = new char[runs];
+			int r = 0;
+			starts[0] = values[0];
+			for (int i = 1; i < size; i++) {
+				if (values[i] != values[i - 1] + 1) {
+					lengths[r] = (char) (values[i - 1] - starts[r]);
+					starts[++r] = values[i];
+				}
+			}
+			lengths[r] = (char) (values[size - 1] - starts[r]);
+			return new RunContainer(starts, lengths, runs);
+		}
+		if (size > ARRAY_MAX) {
+			long[] words = new long[BITMAP_WORDS];
+			for (int i = 0; i < size; i++) {
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return new BitmapContainer(words, size);
+		}
+		return new ArrayContainer(values, size);
+	}
+
+	/*
+	 * The best container for the values in a bitmap, or null if it is empty.
+	 */
+	private static Container fromWords(long[] words) {
+		int cardinality = 0;
+		int runs = 0;
+		long previousTop = 0;
+		for (long word : words) {
+			cardinality += Long.bitCount(word);
+			// A run starts wherever a bit is set and the bit below it (which is in the previous word for bit 0) isn't.
+			runs += Long.bitCount(word & ~((word << 1) | previousTop));
+			previousTop = word >>> 63;
+		}
+		if (cardinality == 0) {
+			return null;
+		}
+		if (4 * runs < Math.min(2 * cardinality, BITMAP_BYTES) || cardinality <= ARRAY_MAX) {
+			char[] values = new char[cardinality];
+			int n = 0;
+			for (int w = 0; w < words.length; w++) {
+				long word = words[w];
+				while (word != 0) {
+					values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return fromArray(values, n);
+		}
+		return new BitmapContainer(words, cardinality);
+	}
+
+	private static long[] andWords(long[] a, long[] b) {
+		long[] result = new long[BITMAP_WORDS];
+		for (int i = 0; i < BITMAP_WORDS; i++) {
+			result[i] = a[i] & b[i];
+		}
+		return result;
+	}
+
+	private static long[] orWords(long[] a, long[] b) {
+		long[] result = new long[BITMAP_WORDS];
+		for (int i = 0; i < BITMAP_WORDS; i++) {
+			result[i] = a[i] | b[i];
+		}
+		return result;
+	}
+
+	private static long[] andNotWords(long[] a, long[] b) {
+		long[] result = new long[BITMAP_WORDS];
+		for (int i = 0; i < BITMAP_WORDS; i++) {
+			result[i] = a[i] & ~b[i];
+		}
+		return result;
+	}
+}
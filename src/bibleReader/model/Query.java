@@ -0,0 +1,682 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A search, as a tree of operators on the posting lists of a Concordance: words, patterns, phrases, words near each
+ * other, books and versions, combined with AND, OR and NOT. A Query doesn't depend on a concordance; a QueryPlan decides how to run one on a
+ * particular concordance, using the sizes of its posting lists, and runs it. QueryParser makes them from what is typed
+ * in the search box.
+ */
+public abstract class Query {
+	Query() {
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @return a query for the verses that contain it.
+	 */
+	public static Query term(String word) {
+		return new Term(word);
+	}
+
+	/**
+	 * @param pattern a single word with wildcards (see WildcardIndex).
+	 * @return a query for the verses with a word that matches it.
+	 */
+	public static Query pattern(String pattern) {
+		return new Pattern(pattern);
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @return a query for the verses with a word a few edits from it (see FuzzyIndex).
+	 */
+	public static Query similar(String word) {
+		return new Similar(word);
+	}
+
+	/**
+	 * @param phrase a phrase (see Concordance.getReferencesContainingPhrase).
+	 * @return a query for the verses that contain it.
+	 */
+	public static Query phrase(String phrase) {
+		return new Phrase(phrase);
+	}
+
+	/**
+	 * @param queries some queries.
+	 * @return a query for the verses that match all of them. If there are none, it matches nothing.
+	 */
+	public static Query and(List<Query> queries) {
+		return new And(queries);
+	}
+
+	/**
+	 * Make a query for the verses where one word is near another (see Concordance.getVersesNear).
+	 * 
+	 * @param first a word, pattern or similar words (see term, pattern and similar).
+	 * @param second another.
+	 * @param distance the most words apart they can be: 1 for next to each other.
+	 * @param ordered whether the second has to come after the first.
+	 * @param acrossVerses whether they can be in consecutive verses, in which case both verses match.
+	 * @return the query.
+	 * @throws IllegalArgumentException if first or second isn't a word, pattern or similar words, or distance is less
+	 *             than 1.
+	 */
+	public static Query near(Query first, Query second, int distance, boolean ordered, boolean acrossVerses) {
+		if (!(first instanceof WordQuery) || !(second instanceof WordQuery)) {
+			throw new IllegalArgumentException("Only words can be near each other: " + first + ", " + second);
+		}
+		if (distance < 1) {
+			throw new IllegalArgumentException("Words can't be " + distance + " apart");
+		}
+		return new Near((WordQuery) first, (WordQuery) second, distance, ordered, acrossVerses);
+	}
+
+	/**
+	 * @param queries some queries.
+	 * @return a query for the verses that match any of them. If there are none, it matches nothing.
+	 */
+	public static Query or(List<Query> queries) {
+		return new Or(queries);
+	}
+
+	/**
+	 * @param query a query.
+	 * @return a query for the verses that don't match it.
+	 */
+	public static Query not(Query query) {
+		return new Not(query);
+	}
+
+	/**
+	 * @param book a book of the Bible.
+	 * @return a query for the verses in it.
+	 */
+	public static Query book(BookOfBible book) {
+		return new Book(book);
+	}
+
+	/**
+	 * @param version the abbreviation of a version (ignoring case).
+	 * @return a query for every verse of that version, and none of any other.
+	 */
+	public static Query version(String version) {
+		return new Version(version);
+	}
+
+	/*
+	 * How many verses of the plan's concordance this could match, at most, worked out from the sizes of posting lists
+	 * without combining them. The plans of the children have already been made.
+	 */
+	abstract int estimate(QueryPlan.Node node);
+
+	/*
+	 * Whether running this means looking at where the words are in each verse, which takes much longer per verse than
+	 * combining posting lists.
+	 */
+	boolean readsPositions() {
+		return false;
+	}
+
+	/*
+	 * The queries this one combines.
+	 */
+	List<Query> getChildren() {
+		return Collections.emptyList();
+	}
+
+	/*
+	 * Put the plans of the children in the order they should run in.
+	 */
+	void order(List<QueryPlan.Node> children) {
+	}
+
+	/*
+	 * Find the verses of within that match, or of every verse if within is null. The plans of the children are in node,
+	 * in the order they should run in.
+	 */
+	abstract PostingSet evaluate(QueryPlan.Node node, PostingSet within);
+
+	/*
+	 * Whether this only removes verses from the ones the others of an AND find.
+	 */
+	boolean isNegation() {
+		return false;
+	}
+
+	/*
+	 * Add the words a verse that matches this could be scored by (see Bm25): those of its words and phrases, but not
+	 * of its patterns or of what it excludes.
+	 */
+	void addWords(Collection<String> words) {
+		for (Query query : getChildren()) {
+			query.addWords(words);
+		}
+	}
+
+	/*
+	 * What this part of the query is called in a plan (see QueryPlan.explain).
+	 */
+	String label() {
+		return toString();
+	}
+
+	/**
+	 * @return the query, the way it would be searched for.
+	 */
+	@Override
+	public abstract String toString();
+
+	/*
+	 * The verses of a set that are also in within, if there is one.
+	 */
+	static PostingSet restrict(PostingSet verses, PostingSet within) {
+		return (within == null) ? verses : verses.and(within);
+	}
+
+	/*
+	 * The verses of within, or every verse of the concordance if within is null.
+	 */
+	static PostingSet all(Concordance concordance, PostingSet within) {
+		return (within == null) ? PostingSet.range(0, concordance.getNumberOfVerses()) : within;
+	}
+
+	/*
+	 * Queries joined with an operator, with parentheses around the ones that join others.
+	 */
+	private static String join(List<Query> queries, String operator) {
+		StringBuilder text = new StringBuilder();
+		for (Query query : queries) {
+			if (text.length() > 0) {
+				text.append(" ").append(operator).append(" ");
+			}
+			text.append(parenthesized(query));
+		}
+		return text.toString();
+	}
+
+	private static String parenthesized(Query query) {
+		return (query.getChildren().size() > 1) ? "(" + query + ")" : query.toString();
+	}
+
+	/*
+	 * One word, or words that could be any one of several, so that it has positions.
+	 */
+	private abstract static class WordQuery extends Query {
+		/*
+		 * Where the word is in each verse of a concordance.
+		 */
+		abstract Positions getPositions(Concordance concordance);
+	}
+
+	private static final class Term extends WordQuery {
+		private final String	word;
+
+		Term(String word) {
+			this.word = word;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			return node.getConcordance().getVerses(word).cardinality();
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return restrict(node.getConcordance().getVerses(word), within);
+		}
+
+		@Override
+		void addWords(Collection<String> words) {
+			words.add(word);
+		}
+
+		@Override
+		Positions getPositions(Concordance concordance) {
+			return concordance.getPositions(word);
+		}
+
+		@Override
+		public String toString() {
+			return word;
+		}
+	}
+
+	private static final class Pattern extends WordQuery {
+		private final String	pattern;
+
+		Pattern(String pattern) {
+			this.pattern = pattern;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			// The words that match may be in the same verses, so this is only a bound.
+			Concordance concordance = node.getConcordance();
+			TermIndex index = concordance.getTermIndex();
+			long total = 0;
+			for (int t : concordance.getWildcardIndex().find(pattern.toLowerCase())) {
+				total += index.getPostings(t).cardinality();
+			}
+			return (int) Math.min(total, concordance.getNumberOfVerses());
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return restrict(node.getConcordance().getVersesMatching(pattern), within);
+		}
+
+		@Override
+		Positions getPositions(Concordance concordance) {
+			int[] matching = concordance.getWildcardIndex().find(pattern.toLowerCase());
+			Positions[] positions = new Positions[matching.length];
+			for (int i = 0; i < matching.length; i++) {
+				positions[i] = concordance.getTermIndex().getPositions(matching[i]);
+			}
+			return (positions.length == 0) ? Positions.EMPTY : Positions.merge(positions);
+		}
+
+		@Override
+		public String toString() {
+			return pattern;
+		}
+	}
+
+	private static final class Similar extends WordQuery {
+		private final String	word;
+
+		Similar(String word) {
+			this.word = word;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			Concordance concordance = node.getConcordance();
+			long total = 0;
+			for (FuzzyIndex.Match match : concordance.getSimilarWords(word)) {
+				total += match.getFrequency();
+			}
+			return (int) Math.min(total, concordance.getNumberOfVerses());
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return restrict(node.getConcordance().getVersesContainingSimilar(word), within);
+		}
+
+		@Override
+		void addWords(Collection<String> words) {
+			words.add(word);
+		}
+
+		@Override
+		Positions getPositions(Concordance concordance) {
+			List<FuzzyIndex.Match> matches = concordance.getSimilarWords(word);
+			Positions[] positions = new Positions[matches.size()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = concordance.getTermIndex().getPositions(matches.get(i).getIndex());
+			}
+			return (positions.length == 0) ? Positions.EMPTY : Positions.merge(positions);
+		}
+
+		@Override
+		public String toString() {
+			return word + "~";
+		}
+	}
+
+	private static final class Phrase extends Query {
+		private final String	phrase;
+
+		Phrase(String phrase) {
+			this.phrase = phrase;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			// Every verse with the phrase has its rarest word.
+			Concordance concordance = node.getConcordance();
+			ArrayList<String> words = Concordance.extractWords(phrase);
+			int estimate = words.isEmpty() ? 0 : concordance.getNumberOfVerses();
+			for (String word : words) {
+				estimate = Math.min(estimate, concordance.getVerses(word).cardinality());
+			}
+			return estimate;
+		}
+
+		@Override
+		boolean readsPositions() {
+			return true;
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return node.getConcordance().getVersesContainingPhrase(phrase, within);
+		}
+
+		@Override
+		void addWords(Collection<String> words) {
+			words.addAll(Concordance.extractWords(phrase));
+		}
+
+		@Override
+		public String toString() {
+			return "\"" + phrase + "\"";
+		}
+	}
+
+	private static final class Near extends Query {
+		private final WordQuery	first;
+		private final WordQuery	second;
+		private final int		distance;
+		private final boolean	ordered;
+		private final boolean	acrossVerses;
+
+		Near(WordQuery first, WordQuery second, int distance, boolean ordered, boolean acrossVerses) {
+			this.first = first;
+			this.second = second;
+			this.distance = distance;
+			this.ordered = ordered;
+			this.acrossVerses = acrossVerses;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			// The two words aren't planned on their own, since only their positions are read.
+			QueryPlan.Node firstNode = new QueryPlan.Node(first, node.getConcordance(), node.getVersion());
+			QueryPlan.Node secondNode = new QueryPlan.Node(second, node.getConcordance(), node.getVersion());
+			int estimate = Math.min(firstNode.getEstimate(), secondNode.getEstimate());
+			// A match across two verses finds them both.
+			return acrossVerses ? Math.min(2 * estimate, node.getConcordance().getNumberOfVerses()) : estimate;
+		}
+
+		@Override
+		boolean readsPositions() {
+			return true;
+		}
+
+		@Override
+		void addWords(Collection<String> words) {
+			first.addWords(words);
+			second.addWords(words);
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			Concordance concordance = node.getConcordance();
+			return concordance.getVersesNear(first.getPositions(concordance), second.getPositions(concordance),
+					distance, ordered, acrossVerses, within);
+		}
+
+		@Override
+		public String toString() {
+			return first + (ordered ? " PRE/" : " NEAR/") + distance + (acrossVerses ? "+ " : " ") + second;
+		}
+	}
+
+	private static final class And extends Query {
+		private final List<Query>	queries;
+
+		And(List<Query> queries) {
+			this.queries = new ArrayList<Query>(queries);
+		}
+
+		@Override
+		List<Query> getChildren() {
+			return queries;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			if (node.getChildren().isEmpty()) {
+				return 0;
+			}
+			int estimate = Integer.MAX_VALUE;
+			for (QueryPlan.Node child : node.getChildren()) {
+				estimate = Math.min(estimate, child.getEstimate());
+			}
+			return estimate;
+		}
+
+		@Override
+		boolean readsPositions() {
+			return anyReadsPositions(queries);
+		}
+
+		/*
+		 * Any that can't match anything first, since then nothing else needs to run. Then the ones that only combine
+		 * posting lists, since each one only has to look at the verses the ones before it found: the rarest first, so
+		 * that there are as few of those as possible, and then the ones that remove verses.
+		 */
+		@Override
+		void order(List<QueryPlan.Node> children) {
+			Collections.sort(children, new Comparator<QueryPlan.Node>() {
+				@Override
+				public int compare(QueryPlan.Node a, QueryPlan.Node b) {
+					if ((a.getEstimate() == 0) != (b.getEstimate() == 0)) {
+						return (a.getEstimate() == 0) ? -1 : 1;
+					}
+					boolean aReads = a.getQuery().readsPositions();
+					if (aReads != b.getQuery().readsPositions()) {
+						return aReads ? 1 : -1;
+					}
+					boolean aRemoves = a.getQuery().isNegation();
+					if (aRemoves != b.getQuery().isNegation()) {
+						return aRemoves ? 1 : -1;
+					}
+					return a.getEstimate() - b.getEstimate();
+				}
+			});
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			if (node.getChildren().isEmpty()) {
+				return PostingSet.EMPTY;
+			}
+			PostingSet result = within;
+			for (QueryPlan.Node child : node.getChildren()) {
+				if (result != null && result.isEmpty()) {
+					// Nothing can match all of them, so the rest aren't run.
+					break;
+				}
+				result = child.execute(result);
+			}
+			return result;
+		}
+
+		@Override
+		String label() {
+			return "AND";
+		}
+
+		@Override
+		public String toString() {
+			return join(queries, "AND");
+		}
+	}
+
+	private static final class Or extends Query {
+		private final List<Query>	queries;
+
+		Or(List<Query> queries) {
+			this.queries = new ArrayList<Query>(queries);
+		}
+
+		@Override
+		List<Query> getChildren() {
+			return queries;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			long total = 0;
+			for (QueryPlan.Node child : node.getChildren()) {
+				total += child.getEstimate();
+			}
+			return (int) Math.min(total, node.getConcordance().getNumberOfVerses());
+		}
+
+		@Override
+		boolean readsPositions() {
+			return anyReadsPositions(queries);
+		}
+
+		/*
+		 * The ones that only combine posting lists first, so that the ones that check where words are have fewer
+		 * verses left to check.
+		 */
+		@Override
+		void order(List<QueryPlan.Node> children) {
+			Collections.sort(children, new Comparator<QueryPlan.Node>() {
+				@Override
+				public int compare(QueryPlan.Node a, QueryPlan.Node b) {
+					boolean aReads = a.getQuery().readsPositions();
+					return (aReads == b.getQuery().readsPositions()) ? 0 : (aReads ? 1 : -1);
+				}
+			});
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			PostingSet result = PostingSet.EMPTY;
+			for (QueryPlan.Node child : node.getChildren()) {
+				if (child.getQuery().readsPositions() && !result.isEmpty()) {
+					// The verses already found don't need checking again.
+					result = result.or(child.execute(all(node.getConcordance(), within).andNot(result)));
+				} else {
+					result = result.or(child.execute(within));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		String label() {
+			return "OR";
+		}
+
+		@Override
+		public String toString() {
+			return join(queries, "OR");
+		}
+	}
+
+	private static final class Not extends Query {
+		private final Query	query;
+
+		Not(Query query) {
+			this.query = query;
+		}
+
+		@Override
+		List<Query> getChildren() {
+			return Collections.singletonList(query);
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			// Only a guess, since the estimate of what it excludes is only a bound.
+			return node.getConcordance().getNumberOfVerses() - node.getChildren().get(0).getEstimate();
+		}
+
+		@Override
+		boolean readsPositions() {
+			return query.readsPositions();
+		}
+
+		@Override
+		boolean isNegation() {
+			return true;
+		}
+
+		@Override
+		void addWords(Collection<String> words) {
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			PostingSet excluded = node.getChildren().get(0).execute(within);
+			return all(node.getConcordance(), within).andNot(excluded);
+		}
+
+		@Override
+		String label() {
+			return "NOT";
+		}
+
+		@Override
+		public String toString() {
+			return "NOT " + parenthesized(query);
+		}
+	}
+
+	private static final class Book extends Query {
+		private final BookOfBible	book;
+
+		Book(BookOfBible book) {
+			this.book = book;
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			return node.getConcordance().getVersesIn(book).cardinality();
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return restrict(node.getConcordance().getVersesIn(book), within);
+		}
+
+		@Override
+		public String toString() {
+			String name = book.toString();
+			return "book:" + ((name.indexOf(' ') >= 0) ? "\"" + name + "\"" : name);
+		}
+	}
+
+	private static final class Version extends Query {
+		private final String	version;
+
+		Version(String version) {
+			this.version = version;
+		}
+
+		/*
+		 * Whether the plan's concordance is of this version.
+		 */
+		private boolean matches(QueryPlan.Node node) {
+			return version.equalsIgnoreCase(node.getVersion());
+		}
+
+		@Override
+		int estimate(QueryPlan.Node node) {
+			return matches(node) ? node.getConcordance().getNumberOfVerses() : 0;
+		}
+
+		@Override
+		PostingSet evaluate(QueryPlan.Node node, PostingSet within) {
+			return matches(node) ? all(node.getConcordance(), within) : PostingSet.EMPTY;
+		}
+
+		@Override
+		public String toString() {
+			return "version:" + version;
+		}
+	}
+
+	private static boolean anyReadsPositions(List<Query> queries) {
+		for (Query query : queries) {
+			if (query.readsPositions()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
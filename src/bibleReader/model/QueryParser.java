@@ -0,0 +1,299 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns what is typed in the search box into a Query:
+ *
+ * <pre>
+ * query   = and ("OR" and)*
+ * and     = not (["AND"] not)*
+ * not     = "NOT" not | near
+ * near    = primary [("NEAR/" n | "PRE/" n) ["+"] primary]
+ * primary = "(" query ")" | '"' phrase '"' | "book:" name | "version:" abbreviation | word
+ * </pre>
+ *
+ * So words next to each other must all be in a verse, as they always have been, and "(faith OR hope) NOT fear
+ * book:Romans" finds the verses of Romans with "faith" or "hope" but not "fear". AND, OR and NOT are only operators in
+ * capitals, so "faith and love" still finds verses with all three words. A word with * or ? in it is a pattern (see
+ * WildcardIndex). A book's name can be any of its abbreviations (see BookOfBible.getBookOfBible), and quoted if it has
+ * a space in it: book:"1 John". The closing quote of the last phrase may be left off.
+ *
+ * "grace NEAR/5 faith" finds the verses with "grace" within 5 words of "faith", before or after it, and "grace PRE/5
+ * faith" the ones where "grace" comes first. With a + after the number, like "grace NEAR/5+ faith", the words can also
+ * be at the end of one verse and the start of the next, and both verses are found. NEAR and PRE only work on words
+ * (which may have wildcards).
+ */
+public final class QueryParser {
+	private static final String		BOOK	= "book:";
+	private static final String		VERSION	= "version:";
+	// NEAR/n or PRE/n, with a + if the words may be in consecutive verses.
+	private static final Pattern	NEAR	= Pattern.compile("(NEAR|PRE)/(\\d+)(\\+?)");
+
+	private enum Kind {
+		WORD, PHRASE, BOOK, VERSION, AND, OR, NOT, NEAR, LEFT, RIGHT
+	}
+
+	private static final class Token {
+		final Kind		kind;
+		final String	text;
+
+		Token(Kind kind, String text) {
+			this.kind = kind;
+			this.text = text;
+		}
+	}
+
+	private final boolean	fuzzy;
+	// The search being parsed, and the next of its tokens to read.
+	private List<Token>		tokens;
+	private int				next;
+
+	/**
+	 * Make a parser for searches where each word only matches itself.
+	 */
+	public QueryParser() {
+		this(false);
+	}
+
+	/**
+	 * @param fuzzy whether each word (but not the words of a phrase) also matches the words a few edits away from it.
+	 */
+	public QueryParser(boolean fuzzy) {
+		this.fuzzy = fuzzy;
+	}
+
+	/**
+	 * Is a search only words, so that it doesn't need parsing: no phrases, parentheses, operators or restrictions?
+	 *
+	 * @param search a search.
+	 * @return true if it is only words (which may have wildcards).
+	 */
+	public static boolean isPlain(String search) {
+		for (Token token : tokenize(search)) {
+			if (token.kind != Kind.WORD) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse a search.
+	 *
+	 * @param search the search.
+	 * @return the query. A search with no words matches nothing.
+	 * @throws IllegalArgumentException if the search isn't a query: if it has an operator with nothing to work on, a
+	 *             parenthesis without its match, or a book that doesn't exist.
+	 */
+	public synchronized Query parse(String search) {
+		tokens = tokenize(search);
+		next = 0;
+		Query query = parseOr();
+		if (next < tokens.size()) {
+			throw new IllegalArgumentException("Unexpected " + describe(tokens.get(next)) + " in " + search);
+		}
+		return (query == null) ? Query.and(new ArrayList<Query>()) : query;
+	}
+
+	/*
+	 * query = and ("OR" and)*. Returns null if there is nothing to search for.
+	 */
+	private Query parseOr() {
+		List<Query> queries = new ArrayList<Query>();
+		addIfAny(queries, parseAnd());
+		while (at(Kind.OR)) {
+			next++;
+			Query query = parseAnd();
+			if (query == null) {
+				throw new IllegalArgumentException("OR needs something to search for after it");
+			}
+			queries.add(query);
+		}
+		return combine(queries, false);
+	}
+
+	/*
+	 * and = not (["AND"] not)*
+	 */
+	private Query parseAnd() {
+		List<Query> queries = new ArrayList<Query>();
+		while (next < tokens.size() && !at(Kind.OR) && !at(Kind.RIGHT)) {
+			if (at(Kind.AND)) {
+				next++;
+				if (queries.isEmpty() || next == tokens.size() || at(Kind.OR) || at(Kind.RIGHT)) {
+					throw new IllegalArgumentException("AND needs something to search for on each side");
+				}
+			}
+			addIfAny(queries, parseNot());
+		}
+		return combine(queries, true);
+	}
+
+	/*
+	 * not = "NOT" not | near
+	 */
+	private Query parseNot() {
+		if (at(Kind.NOT)) {
+			next++;
+			Query query = (next < tokens.size() && !at(Kind.OR) && !at(Kind.RIGHT) && !at(Kind.AND)) ? parseNot()
+					: null;
+			if (query == null) {
+				throw new IllegalArgumentException("NOT needs something to search for after it");
+			}
+			return Query.not(query);
+		}
+		return parseNear();
+	}
+
+	/*
+	 * near = primary [("NEAR/" n | "PRE/" n) ["+"] primary]
+	 */
+	private Query parseNear() {
+		Query first = parsePrimary();
+		if (!at(Kind.NEAR)) {
+			return first;
+		}
+		Matcher m = NEAR.matcher(tokens.get(next++).text);
+		m.matches();
+		Query second = (next < tokens.size()) ? parsePrimary() : null;
+		if (first == null || second == null) {
+			throw new IllegalArgumentException(m.group(1) + " needs a word on each side");
+		}
+		int distance;
+		try {
+			distance = Integer.parseInt(m.group(2));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Words can't be " + m.group(2) + " apart");
+		}
+		return Query.near(first, second, distance, m.group(1).equals("PRE"), m.group(3).length() > 0);
+	}
+
+	/*
+	 * primary = "(" query ")" | phrase | book | version | word. Returns null for a word with no letters or digits.
+	 */
+	private Query parsePrimary() {
+		Token token = tokens.get(next++);
+		switch (token.kind) {
+		case LEFT:
+			Query query = parseOr();
+			if (!at(Kind.RIGHT)) {
+				throw new IllegalArgumentException("Missing )");
+			}
+			next++;
+			return query;
+		case PHRASE:
+			return Concordance.extractWords(token.text).isEmpty() ? null : Query.phrase(token.text.toLowerCase());
+		case BOOK:
+			BookOfBible book = BookOfBible.getBookOfBible(token.text);
+			if (book == null) {
+				throw new IllegalArgumentException("No book called " + token.text);
+			}
+			return Query.book(book);
+		case VERSION:
+			return Query.version(token.text);
+		case WORD:
+			return word(token.text);
+		default:
+			throw new IllegalArgumentException("Unexpected " + describe(token));
+		}
+	}
+
+	/*
+	 * A word as a query: a pattern if it has wildcards, otherwise the words in it (usually one).
+	 */
+	private Query word(String word) {
+		if (WildcardIndex.isPattern(word)) {
+			return Query.pattern(word.toLowerCase().replaceAll("[^\\w*?]", ""));
+		}
+		List<Query> queries = new ArrayList<Query>();
+		for (String w : Concordance.extractWords(word)) {
+			queries.add(fuzzy ? Query.similar(w) : Query.term(w));
+		}
+		return combine(queries, true);
+	}
+
+	private boolean at(Kind kind) {
+		return next < tokens.size() && tokens.get(next).kind == kind;
+	}
+
+	private static void addIfAny(List<Query> queries, Query query) {
+		if (query != null) {
+			queries.add(query);
+		}
+	}
+
+	private static Query combine(List<Query> queries, boolean and) {
+		if (queries.isEmpty()) {
+			return null;
+		}
+		if (queries.size() == 1) {
+			return queries.get(0);
+		}
+		return and ? Query.and(queries) : Query.or(queries);
+	}
+
+	private static String describe(Token token) {
+		return (token.kind == Kind.WORD || token.kind == Kind.PHRASE) ? "\"" + token.text + "\"" : token.kind
+				.toString();
+	}
+
+	/*
+	 * Split a search into words, phrases, restrictions, operators and parentheses.
+	 */
+	private static List<Token> tokenize(String search) {
+		List<Token> tokens = new ArrayList<Token>();
+		int n = search.length();
+		int i = 0;
+		while (i < n) {
+			char c = search.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '(' || c == ')') {
+				tokens.add(new Token((c == '(') ? Kind.LEFT : Kind.RIGHT, String.valueOf(c)));
+				i++;
+			} else if (c == '"') {
+				int end = closingQuote(search, i);
+				tokens.add(new Token(Kind.PHRASE, search.substring(i + 1, end)));
+				i = end + 1;
+			} else {
+				int end = i;
+				while (end < n && !Character.isWhitespace(search.charAt(end)) && "()\"".indexOf(search.charAt(end)) < 0) {
+					end++;
+				}
+				String word = search.substring(i, end);
+				String lower = word.toLowerCase();
+				Kind field = lower.startsWith(BOOK) ? Kind.BOOK : lower.startsWith(VERSION) ? Kind.VERSION : null;
+				if (field != null) {
+					String value = word.substring((field == Kind.BOOK) ? BOOK.length() : VERSION.length());
+					if (value.length() == 0 && end < n && search.charAt(end) == '"') {
+						// A quoted name, like book:"1 John".
+						int close = closingQuote(search, end);
+						value = search.substring(end + 1, close);
+						end = close + 1;
+					}
+					tokens.add(new Token(field, value.trim()));
+				} else if (word.equals("AND") || word.equals("OR") || word.equals("NOT")) {
+					tokens.add(new Token(Kind.valueOf(word), word));
+				} else if (NEAR.matcher(word).matches()) {
+					tokens.add(new Token(Kind.NEAR, word));
+				} else {
+					tokens.add(new Token(Kind.WORD, word));
+				}
+				i = Math.min(end, n);
+			}
+		}
+		return tokens;
+	}
+
+	/*
+	 * The index of the quote that closes the one at i, or the end of the search if there isn't one.
+	 */
+	private static int closingQuote(String search, int i) {
+		int end = search.indexOf('"', i + 1);
+		return (end < 0) ? search.length() : end;
+	}
+}
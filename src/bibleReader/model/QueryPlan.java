@@ -0,0 +1,180 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How to run a Query on a Concordance, and what happened when it was. The plan is made from the sizes of the posting
+ * lists of the query's words, which say how many verses each part of the query could match. The parts of an AND run
+ * one at a time, each only looking at the verses the ones before it found: first the ones that only combine posting
+ * lists, rarest first, and then the ones that check where words are, like phrases, so that they check as few verses as
+ * possible. As soon as no verses are left, the rest are skipped. The parts of an OR run the same way, and the ones
+ * that check where words are only check the verses the ones before them didn't find; a NOT only checks the verses
+ * found so far.
+ *
+ * explain() shows the plan, with how many verses each part was expected to match and how many it did, to show why a
+ * search is slow.
+ */
+public final class QueryPlan {
+	private final Query			query;
+	private final Concordance	concordance;
+	private final Node			root;
+
+	/**
+	 * A part of the query, and what happened when it ran.
+	 */
+	static final class Node {
+		private final Query			query;
+		private final Concordance	concordance;
+		private final String		version;
+		private final List<Node>	children;
+		private final int			estimate;
+		// The number of verses it found the last time it ran, or -1 if it didn't.
+		private int					found	= -1;
+
+		Node(Query query, Concordance concordance, String version) {
+			this.query = query;
+			this.concordance = concordance;
+			this.version = version;
+			List<Node> nodes = new ArrayList<Node>();
+			for (Query child : query.getChildren()) {
+				nodes.add(new Node(child, concordance, version));
+			}
+			query.order(nodes);
+			children = Collections.unmodifiableList(nodes);
+			estimate = query.estimate(this);
+		}
+
+		Query getQuery() {
+			return query;
+		}
+
+		Concordance getConcordance() {
+			return concordance;
+		}
+
+		/*
+		 * The version the concordance is of, or null if it isn't known.
+		 */
+		String getVersion() {
+			return version;
+		}
+
+		/*
+		 * The plans of the parts of the query, in the order they run in.
+		 */
+		List<Node> getChildren() {
+			return children;
+		}
+
+		int getEstimate() {
+			return estimate;
+		}
+
+		/*
+		 * Run this part of the query on the verses of within (all of them if it is null), and remember how many it
+		 * found.
+		 */
+		PostingSet execute(PostingSet within) {
+			PostingSet result = query.evaluate(this, within);
+			found = result.cardinality();
+			return result;
+		}
+
+		private void reset() {
+			found = -1;
+			for (Node child : children) {
+				child.reset();
+			}
+		}
+
+		private void explain(StringBuilder text, String indent) {
+			text.append(indent).append(query.label());
+			text.append(" (estimated ").append(estimate);
+			text.append((found < 0) ? ", skipped" : ", found " + found).append(")\n");
+			for (Node child : children) {
+				child.explain(text, indent + "  ");
+			}
+		}
+	}
+
+	/**
+	 * Plan how to run a query. Making the plan only looks at the sizes of posting lists; the query doesn't run until
+	 * execute is called. The version of the concordance isn't known, so a query for a version (see Query.version)
+	 * matches nothing.
+	 *
+	 * @param query the query.
+	 * @param concordance the concordance to run it on.
+	 */
+	public QueryPlan(Query query, Concordance concordance) {
+		this(query, concordance, null);
+	}
+
+	/**
+	 * Plan how to run a query. Making the plan only looks at the sizes of posting lists; the query doesn't run until
+	 * execute is called.
+	 *
+	 * @param query the query.
+	 * @param concordance the concordance to run it on.
+	 * @param version the abbreviation of the version the concordance is of, which queries for a version are checked
+	 *            against.
+	 */
+	public QueryPlan(Query query, Concordance concordance, String version) {
+		this.query = query;
+		this.concordance = concordance;
+		root = new Node(query, concordance, version);
+	}
+
+	/**
+	 * @return the query.
+	 */
+	public Query getQuery() {
+		return query;
+	}
+
+	/**
+	 * @return the most verses the query is expected to find.
+	 */
+	public int getEstimate() {
+		return root.getEstimate();
+	}
+
+	/**
+	 * Run the query.
+	 *
+	 * @return the ordinals of the verses that match it.
+	 */
+	public PostingSet execute() {
+		root.reset();
+		return root.execute(null);
+	}
+
+	/**
+	 * Run the query.
+	 *
+	 * @return the references of the verses that match it, in canonical order.
+	 */
+	public ReferenceList getReferences() {
+		return concordance.getReferences(execute());
+	}
+
+	/**
+	 * Show the plan: a line for each part of the query, with the parts of an AND, OR or NOT indented under it in the
+	 * order they run in. Each line has the number of verses that part was expected to match, and the number it found the last time
+	 * the query ran, or "skipped" if it didn't run because the parts before it found nothing (or the query hasn't run).
+	 * A part of an AND only looks at the verses the parts before it found, so it finds no more of them than they did.
+	 *
+	 * @return the plan, one line per part.
+	 */
+	public String explain() {
+		StringBuilder text = new StringBuilder();
+		root.explain(text, "");
+		return text.toString();
+	}
+
+	@Override
+	public String toString() {
+		return explain();
+	}
+}
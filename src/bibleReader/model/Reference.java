@@ -1,14 +1,23 @@
 package bibleReader.model;
 
+import java.util.Arrays;
+
 /**
  * A simple class that stores the book, chapter number, and verse number.
  * 
  * @author Charles Cusack, implemented February 2, 2013.
  */
 public class Reference implements Comparable<Reference> {
-	private BookOfBible	book;
-	private int			chapter;
-	private int			verse;
+	private final BookOfBible	book;
+	private final int			chapter;
+	private final int			verse;
+
+	/*
+	 * The shared pool used by of(...). It is indexed by book ordinal, then chapter, then verse, and the arrays are grown
+	 * as needed. Lookups don't lock. That is safe because slots only ever go from null to a Reference (whose fields are
+	 * final), and if a lookup sees null it falls back to intern(...), which checks again while holding the lock.
+	 */
+	private static final Reference[][][]	pool	= new Reference[BookOfBible.values().length][][];
 
 	/**
 	 * @param book
@@ -21,6 +30,59 @@ public class Reference implements Comparable<Reference> {
 		this.verse = verse;
 	}
 
+	/**
+	 * Return the shared Reference for "book chapter:verse". Every call with the same arguments returns the same object,
+	 * no matter which version of the Bible asked for it, so a Bible with 31,000 verses only needs 31,000 References no
+	 * matter how many versions are loaded. Use this for references to verses that actually exist. For temporary
+	 * references (e.g. the end point of a range that might not be in the Bible), just use the constructor so the pool
+	 * doesn't fill up with junk.
+	 * 
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @param verse the verse
+	 * @return the shared Reference, or a new (unshared) one if the reference can't be packed by ReferenceCodec.
+	 */
+	public static Reference of(BookOfBible book, int chapter, int verse) {
+		if (!ReferenceCodec.canEncode(book, chapter, verse)) {
+			return new Reference(book, chapter, verse);
+		}
+		Reference[][] chapters = pool[book.ordinal()];
+		if (chapters != null && chapter < chapters.length) {
+			Reference[] verses = chapters[chapter];
+			if (verses != null && verse < verses.length) {
+				Reference ref = verses[verse];
+				if (ref != null) {
+					return ref;
+				}
+			}
+		}
+		return intern(book, chapter, verse);
+	}
+
+	/*
+	 * The slow path of of(...). Grows the pool if needed and creates the Reference if it isn't there yet.
+	 */
+	private static synchronized Reference intern(BookOfBible book, int chapter, int verse) {
+		Reference[][] chapters = pool[book.ordinal()];
+		if (chapters == null || chapter >= chapters.length) {
+			chapters = (chapters == null) ? new Reference[chapter + 1][] : Arrays.copyOf(chapters,
+					Math.max(chapter + 1, 2 * chapters.length));
+			pool[book.ordinal()] = chapters;
+		}
+		Reference[] verses = chapters[chapter];
+		if (verses == null || verse >= verses.length) {
+			verses = (verses == null) ? new Reference[verse + 1] : Arrays.copyOf(verses,
+					Math.max(verse + 1, 2 * verses.length));
+			chapters[chapter] = verses;
+		}
+		Reference ref = verses[verse];
+		if (ref == null) {
+			ref = new Reference(book, chapter, verse);
+			verses[verse] = ref;
+		}
+		return ref;
+	}
+
 	public String getBook() {
 		return book.toString();
 	}
@@ -47,6 +109,9 @@ public class Reference implements Comparable<Reference> {
 
 	@Override
 	public boolean equals(Object other) {
+		if (other == this) {
+			return true;
+		}
 		if (other instanceof Reference) {
 			Reference ref = (Reference) other;
 			return (book == ref.book && chapter == ref.chapter && verse == ref.verse);
@@ -56,7 +121,9 @@ public class Reference implements Comparable<Reference> {
 
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		// Same layout as ReferenceCodec, but this works for references that can't be packed, too.
+		int ord = (book == null) ? -1 : book.ordinal();
+		return (ord << 24) ^ (chapter << 12) ^ verse;
 	}
 
 //	@Override
@@ -76,6 +143,9 @@ public class Reference implements Comparable<Reference> {
 //	}
 	@Override
 	public int compareTo(Reference otherRef) {
+		if (otherRef == this) {
+			return 0;
+		}
 		int diffBook = book.compareTo(otherRef.book);
 		if (diffBook != 0) {
 			return diffBook;
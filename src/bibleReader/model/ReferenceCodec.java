@@ -0,0 +1,107 @@
+package bibleReader.model;
+
+/**
+ * Packs a book, chapter, and verse into a single int (and unpacks it again). The packed value has the book's ordinal in
+ * the high bits, then the chapter, then the verse, so comparing two packed values with &lt; and &gt; gives the same
+ * answer as comparing the References with compareTo. This lets us store and sort references as plain ints.
+ *
+ * Chapters and verses must be between 0 and MAX_CHAPTER/MAX_VERSE. Nothing in the Bible comes close (Psalm 119 has
+ * 176 verses), but callers that build references from user input should check canEncode first.
+ */
+public final class ReferenceCodec {
+	private static final int			VERSE_BITS		= 12;
+	private static final int			CHAPTER_BITS	= 12;
+	private static final int			CHAPTER_SHIFT	= VERSE_BITS;
+	private static final int			BOOK_SHIFT		= VERSE_BITS + CHAPTER_BITS;
+
+	/**
+	 * The largest chapter number that can be packed.
+	 */
+	public static final int				MAX_CHAPTER		= (1 << CHAPTER_BITS) - 1;
+
+	/**
+	 * The largest verse number that can be packed.
+	 */
+	public static final int				MAX_VERSE		= (1 << VERSE_BITS) - 1;
+
+	// values() makes a copy every time it is called, so we keep one around.
+	private static final BookOfBible[]	BOOKS			= BookOfBible.values();
+
+	private ReferenceCodec() {
+		// Only static methods.
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @param verse the verse
+	 * @return true if and only if the given book, chapter and verse fit in a packed int.
+	 */
+	public static boolean canEncode(BookOfBible book, int chapter, int verse) {
+		return book != null && chapter >= 0 && chapter <= MAX_CHAPTER && verse >= 0 && verse <= MAX_VERSE;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @param verse the verse
+	 * @return the packed form of "book chapter:verse".
+	 * @throws IllegalArgumentException if the reference can't be packed (see canEncode).
+	 */
+	public static int encode(BookOfBible book, int chapter, int verse) {
+		if (!canEncode(book, chapter, verse)) {
+			throw new IllegalArgumentException("Can't encode " + book + " " + chapter + ":" + verse);
+		}
+		return (book.ordinal() << BOOK_SHIFT) | (chapter << CHAPTER_SHIFT) | verse;
+	}
+
+	/**
+	 * @param ref the reference to pack.
+	 * @return the packed form of ref.
+	 * @throws IllegalArgumentException if the reference can't be packed (see canEncode).
+	 */
+	public static int encode(Reference ref) {
+		return encode(ref.getBookOfBible(), ref.getChapter(), ref.getVerse());
+	}
+
+	/**
+	 * @param code an int that may be a packed reference, e.g. one read from a file.
+	 * @return true if it is one, so that it can be decoded. Its chapter and verse are always in range; its book may not
+	 *         be.
+	 */
+	public static boolean isCode(int code) {
+		return (code >>> BOOK_SHIFT) < BOOKS.length;
+	}
+
+	/**
+	 * @param code a packed reference.
+	 * @return the book of the packed reference.
+	 */
+	public static BookOfBible getBook(int code) {
+		return BOOKS[code >>> BOOK_SHIFT];
+	}
+
+	/**
+	 * @param code a packed reference.
+	 * @return the chapter of the packed reference.
+	 */
+	public static int getChapter(int code) {
+		return (code >>> CHAPTER_SHIFT) & MAX_CHAPTER;
+	}
+
+	/**
+	 * @param code a packed reference.
+	 * @return the verse of the packed reference.
+	 */
+	public static int getVerse(int code) {
+		return code & MAX_VERSE;
+	}
+
+	/**
+	 * @param code a packed reference.
+	 * @return the (shared) Reference object for the packed reference.
+	 */
+	public static Reference decode(int code) {
+		return Reference.of(getBook(code), getChapter(code), getVerse(code));
+	}
+}
@@ -0,0 +1,286 @@
+package bibleReader.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A ReferenceList that is a view of references a Bible already has, rather than a copy of them. It works like
+ * VerseListView: it is never written through, and the first time it is changed it copies the references into its own
+ * storage and becomes an ordinary ReferenceList.
+ *
+ * The backing list must not change while the view is using it.
+ */
+public class ReferenceListView extends ReferenceList {
+	// The references being viewed, or null once they have been copied.
+	private List<Reference>	backing;
+
+	/**
+	 * Create a view of the given references.
+	 *
+	 * @param references the references. The view never changes this list, and it must not change while the view is
+	 *            in use.
+	 */
+	public ReferenceListView(List<Reference> references) {
+		backing = references;
+	}
+
+	/**
+	 * Create a view of the references of the given verses. The references are looked up as they are asked for.
+	 *
+	 * @param verses the verses. They must not change while the view is in use.
+	 * @return a view of their references.
+	 */
+	public static ReferenceListView referencesOf(List<? extends Verse> verses) {
+		return new ReferenceListView(new ReferencesOfVerses(verses));
+	}
+
+	/**
+	 * @return true if this is still a view, false if the references have been copied.
+	 */
+	public boolean isView() {
+		return backing != null;
+	}
+
+	/*
+	 * Copy the references into the ArrayList storage so it can be changed.
+	 */
+	private void copy() {
+		if (backing != null) {
+			List<Reference> references = backing;
+			backing = null;
+			super.addAll(references);
+		}
+	}
+
+	@Override
+	public void trimToSize() {
+		if (backing == null) {
+			super.trimToSize();
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if (backing == null) {
+			super.ensureCapacity(minCapacity);
+		}
+	}
+
+	@Override
+	public int size() {
+		return (backing != null) ? backing.size() : super.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (backing != null) ? backing.isEmpty() : super.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return (backing != null) ? backing.contains(o) : super.contains(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return (backing != null) ? backing.indexOf(o) : super.indexOf(o);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return (backing != null) ? backing.lastIndexOf(o) : super.lastIndexOf(o);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return (backing != null) ? backing.toArray() : super.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return (backing != null) ? backing.toArray(a) : super.toArray(a);
+	}
+
+	@Override
+	public Reference get(int index) {
+		return (backing != null) ? backing.get(index) : super.get(index);
+	}
+
+	@Override
+	public Reference set(int index, Reference element) {
+		copy();
+		return super.set(index, element);
+	}
+
+	@Override
+	public boolean add(Reference e) {
+		copy();
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, Reference element) {
+		copy();
+		super.add(index, element);
+	}
+
+	@Override
+	public Reference remove(int index) {
+		copy();
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		copy();
+		return super.remove(o);
+	}
+
+	@Override
+	public void clear() {
+		backing = null;
+		super.clear();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Reference> c) {
+		copy();
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Reference> c) {
+		copy();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		copy();
+		super.removeRange(fromIndex, toIndex);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		copy();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		copy();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public Iterator<Reference> iterator() {
+		return (backing != null) ? new ForwardingList<Reference>(this).iterator() : super.iterator();
+	}
+
+	@Override
+	public ListIterator<Reference> listIterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Reference> listIterator(int index) {
+		return (backing != null) ? new ForwardingList<Reference>(this).listIterator(index) : super.listIterator(index);
+	}
+
+	@Override
+	public List<Reference> subList(int fromIndex, int toIndex) {
+		return (backing != null) ? new ForwardingList<Reference>(this).subList(fromIndex, toIndex) : super.subList(
+				fromIndex, toIndex);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Reference> action) {
+		if (backing != null) {
+			backing.forEach(action);
+		} else {
+			super.forEach(action);
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Reference> filter) {
+		copy();
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<Reference> operator) {
+		copy();
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public Spliterator<Reference> spliterator() {
+		return (backing != null) ? Spliterators.spliterator(this, Spliterator.ORDERED) : super.spliterator();
+	}
+
+	/**
+	 * Sort the references.
+	 *
+	 * @param comparator the comparator to use, or null to use canonical order.
+	 */
+	@Override
+	public void sort(Comparator<? super Reference> comparator) {
+		copy();
+		Reference[] references = super.toArray(new Reference[super.size()]);
+		if (comparator == null) {
+			Arrays.sort(references);
+		} else {
+			Arrays.sort(references, comparator);
+		}
+		for (int i = 0; i < references.length; i++) {
+			super.set(i, references[i]);
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		return (backing != null) ? backing.equals(o) : super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return (backing != null) ? backing.hashCode() : super.hashCode();
+	}
+
+	/*
+	 * The references of a list of verses, looked up as they are asked for.
+	 */
+	private static class ReferencesOfVerses extends AbstractList<Reference> implements RandomAccess {
+		private final List<? extends Verse>	verses;
+
+		ReferencesOfVerses(List<? extends Verse> verses) {
+			this.verses = verses;
+		}
+
+		@Override
+		public Reference get(int index) {
+			return verses.get(index).getReference();
+		}
+
+		@Override
+		public int size() {
+			return verses.size();
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A concordance of a version of the Bible that can be changed while it is being searched. A Concordance can't be
+ * changed, so changing one verse of it means building it again, which takes seconds for a whole Bible. This one is made
+ * of segments instead: each batch of verses added (a whole Bible, a corrected edition, or a few corrected verses)
+ * becomes a new segment with a Concordance of just those verses, and the older copies of those verses are marked
+ * deleted in the segments they are in. Removing verses only marks them deleted. A search searches every segment,
+ * skips the deleted verses, and unites the results.
+ *
+ * So that searches don't slow down as segments pile up, the smallest segments, and those that are mostly deleted, are
+ * merged into one in the background (see setMaxSegments). Changes and merges replace the list of segments rather than
+ * changing it, so a search never waits for either: it uses the segments as they were when it started.
+ */
+public final class SegmentedConcordance {
+	/**
+	 * The most segments there are before the smallest are merged, unless setMaxSegments is used.
+	 */
+	public static final int			DEFAULT_MAX_SEGMENTS	= 8;
+
+	// The smallest number of segments merged at a time, so that merges aren't done one segment at a time.
+	private static final int		MERGE_FACTOR			= 4;
+
+	private static ExecutorService	sharedMerger;
+
+	private final String			version;
+	private final ExecutorService	merger;
+	private int						maxSegments				= DEFAULT_MAX_SEGMENTS;
+	// The segments, never changed once set: changes make a new list.
+	private volatile List<Segment>	segments				= Collections.emptyList();
+	private long					nextId;
+	private boolean					merging;
+
+	/**
+	 * A concordance of some verses, and which of them have since been deleted.
+	 */
+	private static final class Segment {
+		private final long			id;
+		// The verses, in canonical order, so that verse i has ordinal i in the concordance.
+		private final List<Verse>	verses;
+		private final int[]			codes;
+		private final Concordance	concordance;
+		private final PostingSet	deleted;
+
+		Segment(long id, List<Verse> verses, Concordance concordance, PostingSet deleted) {
+			this.id = id;
+			this.verses = verses;
+			this.concordance = concordance;
+			this.deleted = deleted;
+			codes = new int[verses.size()];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = concordance.getCode(i);
+			}
+		}
+
+		private Segment(Segment segment, PostingSet deleted) {
+			id = segment.id;
+			verses = segment.verses;
+			codes = segment.codes;
+			concordance = segment.concordance;
+			this.deleted = deleted;
+		}
+
+		/*
+		 * This segment with the verses with the given codes deleted too, or this segment if it has none of them.
+		 */
+		Segment without(int[] removed) {
+			int[] found = new int[removed.length];
+			int n = 0;
+			for (int code : removed) {
+				int i = Arrays.binarySearch(codes, code);
+				if (i >= 0 && !deleted.contains(i)) {
+					found[n++] = i;
+				}
+			}
+			if (n == 0) {
+				return this;
+			}
+			Arrays.sort(found, 0, n);
+			// The same verse may be removed more than once.
+			int m = 1;
+			for (int i = 1; i < n; i++) {
+				if (found[i] != found[m - 1]) {
+					found[m++] = found[i];
+				}
+			}
+			return new Segment(this, deleted.or(PostingSet.of(Arrays.copyOf(found, m))));
+		}
+
+		int live() {
+			return codes.length - deleted.cardinality();
+		}
+
+		/*
+		 * The references of the verses in a set that haven't been deleted.
+		 */
+		IntReferenceList references(PostingSet verses) {
+			int[] result = verses.andNot(deleted).toArray();
+			for (int i = 0; i < result.length; i++) {
+				result[i] = codes[result[i]];
+			}
+			return IntReferenceList.wrap(result, result.length);
+		}
+	}
+
+	/**
+	 * Create an empty concordance for a version, whose segments are merged on a shared background thread.
+	 *
+	 * @param version the version.
+	 */
+	public SegmentedConcordance(String version) {
+		this(version, sharedMerger());
+	}
+
+	/**
+	 * Create an empty concordance for a version.
+	 *
+	 * @param version the version.
+	 * @param merger the threads to merge segments on, or null to merge them on the thread that made the change.
+	 */
+	public SegmentedConcordance(String version, ExecutorService merger) {
+		this.version = version;
+		this.merger = merger;
+	}
+
+	/**
+	 * @return the version this is a concordance of.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Set how many segments there can be before the smallest are merged.
+	 *
+	 * @param maxSegments the most segments to keep; at least 1.
+	 */
+	public synchronized void setMaxSegments(int maxSegments) {
+		if (maxSegments < 1) {
+			throw new IllegalArgumentException("At least one segment is needed: " + maxSegments);
+		}
+		this.maxSegments = maxSegments;
+		scheduleMerge();
+	}
+
+	/**
+	 * Add verses, replacing any verses already in the concordance with the same references. They become a new segment,
+	 * and are searched as soon as this returns.
+	 *
+	 * @param verses the verses. If two have the same reference, the last one is used.
+	 */
+	public void add(Collection<Verse> verses) {
+		if (verses.isEmpty()) {
+			return;
+		}
+		TreeMap<Reference, Verse> byReference = new TreeMap<Reference, Verse>();
+		for (Verse verse : verses) {
+			byReference.put(verse.getReference(), verse);
+		}
+		List<Verse> sorted = new ArrayList<Verse>(byReference.values());
+		// Index the verses before taking the lock, so that other changes don't wait for it.
+		Concordance concordance = new Concordance(new ArrayListBible(new VerseList(version, "", sorted)));
+		int[] codes = new int[sorted.size()];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = concordance.getCode(i);
+		}
+		synchronized (this) {
+			List<Segment> changed = without(segments, codes);
+			changed.add(new Segment(nextId++, sorted, concordance, PostingSet.EMPTY));
+			segments = Collections.unmodifiableList(changed);
+			scheduleMerge();
+		}
+	}
+
+	/**
+	 * Add the verses of a Bible, replacing the verses already in the concordance with the same references.
+	 *
+	 * @param bible the Bible.
+	 */
+	public void add(Bible bible) {
+		add(bible.getAllVerses());
+	}
+
+	/**
+	 * Remove verses.
+	 *
+	 * @param references the references of the verses. References that aren't in the concordance are ignored.
+	 */
+	public void remove(Collection<Reference> references) {
+		int[] codes = new int[references.size()];
+		int n = 0;
+		for (Reference reference : references) {
+			codes[n++] = ReferenceCodec.encode(reference);
+		}
+		synchronized (this) {
+			segments = Collections.unmodifiableList(without(segments, codes));
+			scheduleMerge();
+		}
+	}
+
+	/*
+	 * The segments, with the verses with the given codes deleted.
+	 */
+	private static List<Segment> without(List<Segment> segments, int[] codes) {
+		List<Segment> changed = new ArrayList<Segment>(segments.size() + 1);
+		for (Segment segment : segments) {
+			changed.add(segment.without(codes));
+		}
+		return changed;
+	}
+
+	/**
+	 * @return the number of segments.
+	 */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return the number of verses that haven't been deleted.
+	 */
+	public int getNumberOfVerses() {
+		int count = 0;
+		for (Segment segment : segments) {
+			count += segment.live();
+		}
+		return count;
+	}
+
+	/**
+	 * @param word a single word (ignoring case).
+	 * @return the references of the verses that contain it, in canonical order.
+	 */
+	public ReferenceList getReferencesContaining(String word) {
+		IntReferenceList result = new IntReferenceList();
+		for (Segment segment : segments) {
+			result = IntReferenceList.union(result, segment.references(segment.concordance.getVerses(word)));
+		}
+		return result;
+	}
+
+	/**
+	 * @param words single words (ignoring case).
+	 * @return the references of the verses that contain all of them, in canonical order.
+	 */
+	public ReferenceList getReferencesContainingAll(List<String> words) {
+		IntReferenceList result = new IntReferenceList();
+		for (Segment segment : segments) {
+			PostingSet[] sets = new PostingSet[words.size()];
+			for (int i = 0; i < sets.length; i++) {
+				sets[i] = segment.concordance.getVerses(words.get(i));
+			}
+			result = IntReferenceList.union(result, segment.references(Concordance.and(sets)));
+		}
+		return result;
+	}
+
+	/**
+	 * @param phrase a phrase (see Concordance.getReferencesContainingPhrase).
+	 * @return the references of the verses that contain it, in canonical order.
+	 */
+	public ReferenceList getReferencesContainingPhrase(String phrase) {
+		IntReferenceList result = new IntReferenceList();
+		for (Segment segment : segments) {
+			result = IntReferenceList.union(result,
+					segment.references(segment.concordance.getVersesContainingPhrase(phrase)));
+		}
+		return result;
+	}
+
+	/**
+	 * @param pattern a single word with wildcards (see Concordance.getReferencesMatching).
+	 * @return the references of the verses with a word that matches it, in canonical order.
+	 */
+	public ReferenceList getReferencesMatching(String pattern) {
+		IntReferenceList result = new IntReferenceList();
+		for (Segment segment : segments) {
+			result = IntReferenceList.union(result, segment.references(segment.concordance.getVersesMatching(pattern)));
+		}
+		return result;
+	}
+
+	/**
+	 * Wait until no merge is running or waiting to run.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public synchronized void awaitMerges() throws InterruptedException {
+		while (merging) {
+			wait();
+		}
+	}
+
+	/*
+	 * If the segments need merging and no merge is running, start one. Segments with nothing left in them are dropped
+	 * straight away. Called with the lock held.
+	 */
+	private void scheduleMerge() {
+		if (merging) {
+			return;
+		}
+		List<Segment> kept = new ArrayList<Segment>(segments.size());
+		for (Segment segment : segments) {
+			if (segment.live() > 0) {
+				kept.add(segment);
+			}
+		}
+		if (kept.size() < segments.size()) {
+			segments = Collections.unmodifiableList(kept);
+		}
+		final List<Segment> chosen = chooseMerge(kept);
+		if (chosen.isEmpty()) {
+			return;
+		}
+		merging = true;
+		Runnable merge = new Runnable() {
+			@Override
+			public void run() {
+				merge(chosen);
+			}
+		};
+		if (merger == null) {
+			merge.run();
+		} else {
+			merger.execute(merge);
+		}
+	}
+
+	/*
+	 * The segments to merge: any that are more than half deleted, and, if there are too many segments, the smallest,
+	 * at least MERGE_FACTOR of them. Empty if nothing needs merging.
+	 */
+	private List<Segment> chooseMerge(List<Segment> segments) {
+		List<Segment> chosen = new ArrayList<Segment>();
+		List<Segment> rest = new ArrayList<Segment>();
+		for (Segment segment : segments) {
+			if (2 * segment.live() < segment.codes.length) {
+				chosen.add(segment);
+			} else {
+				rest.add(segment);
+			}
+		}
+		int left = rest.size() + (chosen.isEmpty() ? 0 : 1);
+		if (left > maxSegments) {
+			Collections.sort(rest, new Comparator<Segment>() {
+				@Override
+				public int compare(Segment a, Segment b) {
+					return a.live() - b.live();
+				}
+			});
+			int count = Math.min(rest.size(), Math.max(MERGE_FACTOR, left - maxSegments + 1));
+			chosen.addAll(rest.subList(0, count));
+		}
+		// Merging one segment that has nothing deleted would change nothing.
+		if (chosen.size() == 1 && chosen.get(0).live() == chosen.get(0).codes.length) {
+			chosen.clear();
+		}
+		return chosen;
+	}
+
+	/*
+	 * Merge segments into one, indexing their verses again without the deleted ones, then replace them with it. Verses
+	 * deleted from them while this was running are deleted from the new segment.
+	 */
+	private void merge(List<Segment> chosen) {
+		boolean done = false;
+		try {
+			List<Verse> verses = new ArrayList<Verse>();
+			for (Segment segment : chosen) {
+				for (int i = 0; i < segment.verses.size(); i++) {
+					if (!segment.deleted.contains(i)) {
+						verses.add(segment.verses.get(i));
+					}
+				}
+			}
+			List<Verse> sorted = new ArrayList<Verse>(verses);
+			Collections.sort(sorted, new Comparator<Verse>() {
+				@Override
+				public int compare(Verse a, Verse b) {
+					return a.getReference().compareTo(b.getReference());
+				}
+			});
+			Concordance concordance = new Concordance(new ArrayListBible(new VerseList(version, "", sorted)));
+			synchronized (this) {
+				List<Segment> changed = new ArrayList<Segment>(segments.size());
+				Segment merged = new Segment(nextId++, sorted, concordance, PostingSet.EMPTY);
+				for (Segment segment : segments) {
+					Segment before = find(chosen, segment.id);
+					if (before == null) {
+						changed.add(segment);
+					} else {
+						int[] since = segment.deleted.andNot(before.deleted).toArray();
+						for (int i = 0; i < since.length; i++) {
+							since[i] = segment.codes[since[i]];
+						}
+						merged = merged.without(since);
+					}
+				}
+				changed.add(merged);
+				segments = Collections.unmodifiableList(changed);
+			}
+			done = true;
+		} catch (RuntimeException e) {
+			System.out.println("Could not merge the segments of " + version + ": " + e.getMessage());
+		} finally {
+			synchronized (this) {
+				merging = false;
+				notifyAll();
+				// If the merge failed, don't try it again until something changes.
+				if (done) {
+					scheduleMerge();
+				}
+			}
+		}
+	}
+
+	private static Segment find(List<Segment> segments, long id) {
+		for (Segment segment : segments) {
+			if (segment.id == id) {
+				return segment;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * One daemon thread, shared by every SegmentedConcordance, so that merges don't compete with searches for the
+	 * processors.
+	 */
+	private static synchronized ExecutorService sharedMerger() {
+		if (sharedMerger == null) {
+			sharedMerger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Concordance merger");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		return sharedMerger;
+	}
+}
@@ -0,0 +1,307 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A Bible that keeps its verses in one array, sorted in canonical order. Its Versification says where every book and
+ * chapter starts, so looking up a verse or the bounds of a passage takes constant time (or a binary search within a
+ * chapter when the chapter is missing some verses), and a passage is just a range of the array. Passages are returned
+ * as views of that range (see VerseListView), so nothing is copied unless the caller changes the list.
+ *
+ * It uses less memory than TreeMapBible, since there is no tree node for each verse.
+ */
+public class SortedArrayBible implements Bible {
+	private final String		version;
+	private final String		title;
+
+	// The verses, in canonical order, with no two having the same reference.
+	private final List<Verse>	theVerses;
+	private final Versification	versification;
+
+	/**
+	 * Create a new Bible with the given verses. As with TreeMapBible, the verses don't need to be in order, and if two
+	 * verses have the same reference the one that comes later in the list is kept.
+	 *
+	 * @param verses All of the verses of this version of the Bible. Chapter and verse numbers can't be negative.
+	 */
+	public SortedArrayBible(VerseList verses) {
+		version = verses.getVersion();
+		title = verses.getDescription();
+
+		// The sort is stable, so verses with the same reference stay in the order they were given.
+		Verse[] sorted = verses.toArray(new Verse[verses.size()]);
+		Arrays.sort(sorted, new Comparator<Verse>() {
+			@Override
+			public int compare(Verse v1, Verse v2) {
+				return v1.getReference().compareTo(v2.getReference());
+			}
+		});
+
+		// Drop all but the last of any verses with the same reference.
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i + 1 < sorted.length && sorted[i].getReference().equals(sorted[i + 1].getReference())) {
+				continue;
+			}
+			sorted[count++] = sorted[i];
+		}
+		theVerses = Arrays.asList((count == sorted.length) ? sorted : Arrays.copyOf(sorted, count));
+
+		Versification.Builder builder = new Versification.Builder(theVerses.size());
+		for (Verse v : theVerses) {
+			builder.add(v.getReference());
+		}
+		versification = builder.build();
+	}
+
+	/**
+	 * @return the Versification of this Bible.
+	 */
+	public Versification getVersification() {
+		return versification;
+	}
+
+	@Override
+	public int getNumberOfVerses() {
+		return theVerses.size();
+	}
+
+	@Override
+	public VerseList getAllVerses() {
+		return versesBetween(0, theVerses.size(), title);
+	}
+
+	@Override
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public boolean isValid(Reference ref) {
+		return versification.getOrdinal(ref) >= 0;
+	}
+
+	@Override
+	public String getVerseText(Reference r) {
+		int i = versification.getOrdinal(r);
+		return (i >= 0) ? theVerses.get(i).getText() : null;
+	}
+
+	@Override
+	public Verse getVerse(Reference r) {
+		int i = versification.getOrdinal(r);
+		return (i >= 0) ? theVerses.get(i) : null;
+	}
+
+	@Override
+	public Verse getVerse(BookOfBible book, int chapter, int verse) {
+		int i = versification.getOrdinal(book, chapter, verse);
+		return (i >= 0) ? theVerses.get(i) : null;
+	}
+
+	@Override
+	public VerseList getVersesContaining(String phrase) {
+		VerseList result = new VerseList(version, phrase);
+		if (phrase == null || phrase.equals("")) {
+			return result;
+		}
+		phrase = phrase.toLowerCase();
+		for (Verse v : theVerses) {
+			if (v.getText().toLowerCase().contains(phrase)) {
+				result.add(v);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public ReferenceList getReferencesContaining(String phrase) {
+		ReferenceList result = new ReferenceList();
+		if (phrase == null || phrase.equals("")) {
+			return result;
+		}
+		phrase = phrase.toLowerCase();
+		for (Verse v : theVerses) {
+			if (v.getText().toLowerCase().contains(phrase)) {
+				result.add(v.getReference());
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public VerseList getVerses(ReferenceList references) {
+		VerseList result = new VerseList(version, "Arbitrary list of Verses");
+		result.ensureCapacity(references.size());
+		for (Reference r : references) {
+			result.add(getVerse(r));
+		}
+		return result;
+	}
+
+	@Override
+	public int getLastVerseNumber(BookOfBible book, int chapter) {
+		if (book == null) {
+			return 0;
+		}
+		return versification.getLastVerseNumber(book, chapter);
+	}
+
+	@Override
+	public int getLastChapterNumber(BookOfBible book) {
+		return versification.getLastChapterNumber(book);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Passage getters that return ReferenceLists.
+
+	@Override
+	public ReferenceList getReferencesInclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new ReferenceList();
+		}
+		return referencesBetween(versification.lowerBound(firstVerse), versification.upperBound(lastVerse));
+	}
+
+	@Override
+	public ReferenceList getReferencesExclusive(Reference firstVerse, Reference lastVerse) {
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new ReferenceList();
+		}
+		return referencesBetween(versification.lowerBound(firstVerse), versification.lowerBound(lastVerse));
+	}
+
+	@Override
+	public ReferenceList getReferencesForBook(BookOfBible book) {
+		if (book == null) {
+			return new ReferenceList();
+		}
+		return referencesBetween(versification.getBookStart(book), versification.getBookEnd(book));
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapter(BookOfBible book, int chapter) {
+		return getReferencesForChapters(book, chapter, chapter);
+	}
+
+	@Override
+	public ReferenceList getReferencesForChapters(BookOfBible book, int chapter1, int chapter2) {
+		if (book == null || chapter1 > chapter2) {
+			return new ReferenceList();
+		}
+		return referencesBetween(versification.getChapterStart(book, chapter1),
+				versification.getChapterEnd(book, chapter2));
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		return getReferencesForPassage(book, chapter, verse1, chapter, verse2);
+	}
+
+	@Override
+	public ReferenceList getReferencesForPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		if (book == null) {
+			return new ReferenceList();
+		}
+		return getReferencesInclusive(new Reference(book, chapter1, verse1), new Reference(book, chapter2, verse2));
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Passage getters that return VerseLists.
+
+	@Override
+	public VerseList getVersesInclusive(Reference firstVerse, Reference lastVerse) {
+		String description = firstVerse + "-" + lastVerse;
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(versification.lowerBound(firstVerse), versification.upperBound(lastVerse), description);
+	}
+
+	@Override
+	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
+		String description = firstVerse + "-" + lastVerse + " excluding the final one";
+		if (firstVerse.compareTo(lastVerse) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(versification.lowerBound(firstVerse), versification.lowerBound(lastVerse), description);
+	}
+
+	@Override
+	public VerseList getBook(BookOfBible book) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return versesBetween(versification.getBookStart(book), versification.getBookEnd(book), book.toString());
+	}
+
+	@Override
+	public VerseList getChapter(BookOfBible book, int chapter) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return versesBetween(versification.getChapterStart(book, chapter), versification.getChapterEnd(book, chapter),
+				book + " " + chapter);
+	}
+
+	@Override
+	public VerseList getChapters(BookOfBible book, int chapter1, int chapter2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		String description = book + " " + chapter1 + "-" + chapter2;
+		if (chapter1 > chapter2) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(versification.getChapterStart(book, chapter1), versification.getChapterEnd(book, chapter2),
+				description);
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter, int verse1, int verse2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return passage(book, chapter, verse1, chapter, verse2, book + " " + chapter + ":" + verse1 + "-" + verse2);
+	}
+
+	@Override
+	public VerseList getPassage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2) {
+		if (book == null) {
+			return new VerseList(version, "");
+		}
+		return passage(book, chapter1, verse1, chapter2, verse2, book + " " + chapter1 + ":" + verse1 + "-"
+				+ chapter2 + ":" + verse2);
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	// Private helpers.
+
+	private VerseList passage(BookOfBible book, int chapter1, int verse1, int chapter2, int verse2,
+			String description) {
+		Reference first = new Reference(book, chapter1, verse1);
+		Reference last = new Reference(book, chapter2, verse2);
+		if (first.compareTo(last) > 0) {
+			return new VerseList(version, description);
+		}
+		return versesBetween(versification.lowerBound(first), versification.upperBound(last), description);
+	}
+
+	/*
+	 * The verses at indices from up to, but not including, to. This is a view of the list, so nothing is copied.
+	 */
+	private VerseList versesBetween(int from, int to, String description) {
+		return new VerseListView(version, description, theVerses.subList(from, Math.max(from, to)));
+	}
+
+	private ReferenceList referencesBetween(int from, int to) {
+		return ReferenceListView.referencesOf(theVerses.subList(from, Math.max(from, to)));
+	}
+}
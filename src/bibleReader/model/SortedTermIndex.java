@@ -0,0 +1,85 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A TermIndex kept in memory: the words front coded in sorted order (see FrontCodedTerms), and their postings and
+ * positions in parallel arrays.
+ */
+final class SortedTermIndex implements TermIndex {
+	private final FrontCodedTerms			terms;
+	private final PostingSet[]				postings;
+	private final Positions[]				positions;
+	private final String[]					separators;
+	private final HashMap<String, Integer>	separatorIds;
+
+	/**
+	 * @param postings the verses each word is in.
+	 * @param positions where each word is in those verses. It must have the same words as postings.
+	 * @param separators the text between words, by id.
+	 */
+	SortedTermIndex(Map<String, PostingSet> postings, Map<String, Positions> positions, String[] separators) {
+		String[] sorted = postings.keySet().toArray(new String[postings.size()]);
+		Arrays.sort(sorted);
+		terms = new FrontCodedTerms(sorted);
+		this.postings = new PostingSet[sorted.length];
+		this.positions = new Positions[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			this.postings[i] = postings.get(sorted[i]);
+			this.positions[i] = positions.get(sorted[i]);
+		}
+		this.separators = separators;
+		separatorIds = new HashMap<String, Integer>(separators.length * 4 / 3 + 1);
+		for (int i = 0; i < separators.length; i++) {
+			separatorIds.put(separators[i], i);
+		}
+	}
+
+	@Override
+	public int size() {
+		return terms.size();
+	}
+
+	@Override
+	public String getTerm(int index) {
+		return terms.get(index);
+	}
+
+	@Override
+	public String[] getTerms(int from, int to) {
+		return terms.get(from, to);
+	}
+
+	@Override
+	public int indexOf(String term) {
+		return terms.indexOf(term);
+	}
+
+	@Override
+	public PostingSet getPostings(int index) {
+		return postings[index];
+	}
+
+	@Override
+	public Positions getPositions(int index) {
+		return positions[index];
+	}
+
+	@Override
+	public int getSeparatorCount() {
+		return separators.length;
+	}
+
+	@Override
+	public String getSeparator(int id) {
+		return separators[id];
+	}
+
+	@Override
+	public int indexOfSeparator(String separator) {
+		Integer id = separatorIds.get(separator);
+		return (id == null) ? -1 : id;
+	}
+}
@@ -0,0 +1,20 @@
+package bibleReader.model;
+
+/**
+ * Reduces the forms of a word to one stem, so that a search for one form can find them all: "eat", "eateth", "eaten"
+ * and "ate" all have the stem "eat". The stems of a Concordance's words are indexed by Concordance.stemmed.
+ */
+public interface Stemmer {
+
+	/**
+	 * @param word a word, in lowercase.
+	 * @return its stem. Forms of the same word should have the same stem, but the stem doesn't have to be a word.
+	 */
+	public String stem(String word);
+
+	/**
+	 * @return a name for the stemmer's rules, used to name the files its stems are saved in (see ConcordanceIndex). It
+	 *         must change whenever the rules do, so that stems made with the old rules aren't used.
+	 */
+	public String getName();
+}
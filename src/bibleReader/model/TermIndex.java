@@ -0,0 +1,69 @@
+package bibleReader.model;
+
+/**
+ * The words of a Concordance, in sorted order, the verses each one is in, and where in them. Concordance looks words up
+ * in one of these, so the index can be kept in memory (SortedTermIndex) or read from a file as it is needed
+ * (MappedConcordance) without changing the Concordance.
+ */
+public interface TermIndex {
+
+	/**
+	 * @return the number of words.
+	 */
+	public int size();
+
+	/**
+	 * @param index the index of a word, between 0 and size()-1.
+	 * @return the word. Words are in the order of String.compareTo.
+	 */
+	public String getTerm(int index);
+
+	/**
+	 * Get a run of words. Words next to each other can be decoded faster together than one at a time, so this is the
+	 * way to go through many of them.
+	 *
+	 * @param from the index of the first word.
+	 * @param to one more than the index of the last word.
+	 * @return the words from from to to-1, in order.
+	 */
+	public String[] getTerms(int from, int to);
+
+	/**
+	 * Find a word.
+	 *
+	 * @param term the word, in lowercase.
+	 * @return the index of the word if it is in the index, and otherwise (-(insertion point) - 1), as with
+	 *         Arrays.binarySearch.
+	 */
+	public int indexOf(String term);
+
+	/**
+	 * @param index the index of a word.
+	 * @return the ordinals of the verses that contain the word.
+	 */
+	public PostingSet getPostings(int index);
+
+	/**
+	 * @param index the index of a word.
+	 * @return where the word occurs in each verse it is in.
+	 */
+	public Positions getPositions(int index);
+
+	/**
+	 * @return the number of different separators (the text between words; see Positions).
+	 */
+	public int getSeparatorCount();
+
+	/**
+	 * @param id the id of a separator, less than getSeparatorCount().
+	 * @return the separator: the lowercased text between two words, or before the first or after the last word of a
+	 *         verse.
+	 */
+	public String getSeparator(int id);
+
+	/**
+	 * @param separator some text.
+	 * @return its id as a separator, or -1 if it never occurs between words.
+	 */
+	public int indexOfSeparator(String separator);
+}
@@ -0,0 +1,29 @@
+package bibleReader.model;
+
+/**
+ * Holds the text of the verses of a Bible, by index. ColumnarBible keeps its references in one array and asks one of
+ * these for the text, so how the text is stored (plain characters, compressed, ...) can change without changing the
+ * Bible.
+ */
+public interface TextStore {
+
+	/**
+	 * @return the number of verses whose text is stored.
+	 */
+	public int size();
+
+	/**
+	 * @param index the index of a verse.
+	 * @return the text of that verse.
+	 */
+	public String getText(int index);
+
+	/**
+	 * Is the phrase in the text of a verse, ignoring case?
+	 *
+	 * @param index the index of a verse.
+	 * @param lowerPhrase the phrase, already converted to lowercase.
+	 * @return true if the text of the verse contains the phrase, ignoring case.
+	 */
+	public boolean containsIgnoreCase(int index, char[] lowerPhrase);
+}
@@ -0,0 +1,132 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A dictionary of the words (and the bits of punctuation and space between them) that verse text is made of. Each
+ * different token gets a small int id, in the order they are first seen, so the common ones (which show up in the first
+ * few verses) get the smallest ids. CompressedTextStore stores verses as lists of these ids.
+ *
+ * One dictionary can be shared by any number of versions, so a word that is in all of them is only stored once. Use
+ * getShared() for the one BibleFactory uses. Ids are never removed, and it is safe to use from more than one thread:
+ * adding a token takes a lock, but looking tokens up (and so decoding verses in every version at once) doesn't.
+ */
+public final class TokenDictionary {
+	private static final TokenDictionary	SHARED	= new TokenDictionary();
+
+	// Only used while holding the lock.
+	private final HashMap<String, Integer>	ids		= new HashMap<String, Integer>();
+	// The tokens so far, for reading without the lock. It is replaced each time a token is added.
+	private volatile Table					table	= new Table(new String[1024], new boolean[1024], 0);
+
+	/*
+	 * The tokens with ids below size. The arrays can be longer, and idOf fills in the entries past size before it
+	 * publishes a Table that includes them, but the entries below size never change.
+	 */
+	private static final class Table {
+		final String[]	tokens;
+		final boolean[]	isWord;
+		final int		size;
+
+		Table(String[] tokens, boolean[] isWord, int size) {
+			this.tokens = tokens;
+			this.isWord = isWord;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * @return the dictionary shared by all of the compressed Bibles that BibleFactory makes.
+	 */
+	public static TokenDictionary getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * Is c part of a word (as opposed to punctuation or space)? Apostrophes count, so "LORD's" is one token.
+	 *
+	 * @param c a character
+	 * @return true if c can be part of a word token.
+	 */
+	public static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '\'' || c == '\u2019';
+	}
+
+	/**
+	 * Get the id of a token, adding it to the dictionary if it isn't already there.
+	 *
+	 * @param token a word, or a run of characters that aren't part of a word.
+	 * @return the id of the token.
+	 */
+	public synchronized int idOf(String token) {
+		Integer id = ids.get(token);
+		if (id != null) {
+			return id;
+		}
+		Table t = table;
+		int size = t.size;
+		String[] tokens = t.tokens;
+		boolean[] isWord = t.isWord;
+		if (size == tokens.length) {
+			tokens = Arrays.copyOf(tokens, 2 * size);
+			isWord = Arrays.copyOf(isWord, 2 * size);
+		}
+		tokens[size] = token;
+		isWord[size] = token.length() > 0 && isWordChar(token.charAt(0));
+		ids.put(token, size);
+		table = new Table(tokens, isWord, size + 1);
+		return size;
+	}
+
+	/**
+	 * @param id the id of a token.
+	 * @return the token.
+	 */
+	public String getToken(int id) {
+		return table.tokens[id];
+	}
+
+	/**
+	 * @param id the id of a token.
+	 * @return true if the token is a word, false if it is punctuation or space.
+	 */
+	public boolean isWord(int id) {
+		return table.isWord[id];
+	}
+
+	/**
+	 * @return the number of different tokens.
+	 */
+	public int size() {
+		return table.size;
+	}
+
+	/*
+	 * Decode a list of ids (see CompressedTextStore) onto the end of a StringBuilder, without taking the lock.
+	 */
+	void decode(byte[] data, int from, int to, StringBuilder out) {
+		Table t = table;
+		String[] tokens = t.tokens;
+		boolean[] isWord = t.isWord;
+		boolean lastWasWord = false;
+		int i = from;
+		while (i < to) {
+			int id = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[i++];
+				id |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			boolean word = isWord[id];
+			if (word && lastWasWord) {
+				// Two words in a row means there was a single space between them.
+				out.append(' ');
+			}
+			out.append(tokens[id]);
+			lastWasWord = word;
+		}
+	}
+}
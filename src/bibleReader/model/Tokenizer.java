@@ -0,0 +1,192 @@
+package bibleReader.model;
+
+import java.util.ArrayList;
+
+/**
+ * Splits text into words in one pass, without regular expressions and without making any objects per word. The words
+ * are exactly the ones Concordance.extractWords has always found:
+ *
+ * <pre>
+ * the text is lowercased
+ * footnote markers (&lt;sup&gt;...&lt;/sup&gt;), possessives ('s and `s) and character references (&amp;#8212;) are removed
+ * commas are removed
+ * the words are the longest runs of letters, digits and underscores that are left
+ * </pre>
+ *
+ * Since removing something joins what was either side of it ("god's" is "god", but "a,b" is "ab"), each word is passed
+ * to the Handler with where it starts and ends in the text and whether it was joined together from pieces. Everything
+ * else in the text between two words is the separator the positional index keeps (see Positions).
+ *
+ * A Tokenizer keeps the current word in a buffer that it reuses, so one shouldn't be shared between threads.
+ */
+public final class Tokenizer {
+	/**
+	 * Receives the words of some text, in order.
+	 */
+	public interface Handler {
+		/**
+		 * Called for each word.
+		 *
+		 * @param chars the word, lowercased, in chars[0] to chars[length-1]. The array is reused for the next word.
+		 * @param length the length of the word.
+		 * @param start the index in the text of the word's first character.
+		 * @param end one more than the index in the text of the word's last character.
+		 * @param joined true if something was removed from between start and end, so that the text there isn't just
+		 *            the word.
+		 */
+		public void word(char[] chars, int length, int start, int end, boolean joined);
+	}
+
+	private char[]	buffer	= new char[32];
+
+	/**
+	 * Find the words in some text.
+	 *
+	 * @param text the text.
+	 * @param handler what to pass the words to.
+	 */
+	public void tokenize(CharSequence text, Handler handler) {
+		int n = text.length();
+		int length = 0;
+		int start = 0;
+		int end = 0;
+		boolean joined = false;
+		int i = 0;
+		while (i < n) {
+			char c = lower(text.charAt(i));
+			int skip = 0;
+			if (c == '<') {
+				skip = footnoteLength(text, i);
+			} else if (c == '\'' || c == '`') {
+				skip = (i + 1 < n && lower(text.charAt(i + 1)) == 's') ? 2 : 0;
+			} else if (c == '&') {
+				skip = referenceLength(text, i);
+			} else if (c == ',') {
+				skip = 1;
+			}
+			if (skip > 0) {
+				// Removed, so the characters either side of it are next to each other.
+				i += skip;
+				continue;
+			}
+			if (isWordChar(c)) {
+				if (length == 0) {
+					start = i;
+					joined = false;
+				} else if (end != i) {
+					joined = true;
+				}
+				if (length == buffer.length) {
+					char[] bigger = new char[2 * length];
+					System.arraycopy(buffer, 0, bigger, 0, length);
+					buffer = bigger;
+				}
+				buffer[length++] = c;
+				end = i + 1;
+				if (text.charAt(i) == '\u0130') {
+					// Lowercases to "i" and a combining dot, which isn't part of a word.
+					handler.word(buffer, length, start, end, joined);
+					length = 0;
+				}
+			} else if (length > 0) {
+				handler.word(buffer, length, start, end, joined);
+				length = 0;
+			}
+			i++;
+		}
+		if (length > 0) {
+			handler.word(buffer, length, start, end, joined);
+		}
+	}
+
+	/**
+	 * Find the words in some text.
+	 *
+	 * @param text the text.
+	 * @return its words, in order.
+	 */
+	public ArrayList<String> words(CharSequence text) {
+		final ArrayList<String> words = new ArrayList<String>();
+		tokenize(text, new Handler() {
+			@Override
+			public void word(char[] chars, int length, int start, int end, boolean joined) {
+				words.add(new String(chars, 0, length));
+			}
+		});
+		return words;
+	}
+
+	/*
+	 * If a footnote marker (<sup> then letters, digits, underscores and commas, then </sup>) starts at i, its length.
+	 * Otherwise 0.
+	 */
+	private static int footnoteLength(CharSequence text, int i) {
+		if (!startsWith(text, i, "<sup>")) {
+			return 0;
+		}
+		int j = i + 5;
+		while (j < text.length()) {
+			char c = text.charAt(j);
+			if (c == '\u0130' || !(c == ',' || isWordChar(lower(c)))) {
+				break;
+			}
+			j++;
+		}
+		return startsWith(text, j, "</sup>") ? j + 6 - i : 0;
+	}
+
+	/*
+	 * If a character reference (&# then letters, digits and underscores, then ;) starts at i, its length. Otherwise 0.
+	 */
+	private static int referenceLength(CharSequence text, int i) {
+		if (!startsWith(text, i, "&#")) {
+			return 0;
+		}
+		int j = i + 2;
+		while (j < text.length()) {
+			char c = text.charAt(j);
+			if (c == '\u0130' || !isWordChar(lower(c))) {
+				break;
+			}
+			j++;
+		}
+		return (j < text.length() && text.charAt(j) == ';') ? j + 1 - i : 0;
+	}
+
+	/*
+	 * Whether the text has the given lowercase ASCII at i, ignoring case.
+	 */
+	private static boolean startsWith(CharSequence text, int i, String ascii) {
+		if (i + ascii.length() > text.length()) {
+			return false;
+		}
+		for (int k = 0; k < ascii.length(); k++) {
+			if (lower(text.charAt(i + k)) != ascii.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Only ASCII can be part of a word, so only ASCII letters (and the two other characters that lowercase to them)
+	 * need lowercasing.
+	 */
+	private static char lower(char c) {
+		if (c < 0x80) {
+			return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+		}
+		if (c == '\u0130') {
+			return 'i';
+		}
+		if (c == '\u212A') {
+			// The Kelvin sign.
+			return 'k';
+		}
+		return c;
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+	}
+}
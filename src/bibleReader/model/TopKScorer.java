@@ -0,0 +1,240 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the k verses of a Concordance that score best for some words (see Bm25), without scoring every verse that has
+ * one of them. It uses WAND: each word has an upper bound, the most it adds to any verse's score. The verses are
+ * visited in order with a cursor on each word's posting list, and a verse is only scored if the bounds of the words at
+ * or before it add up to more than the score of the k'th best verse found so far. Every cursor before that point skips
+ * straight past the verses it can't be. Once the k best verses score well, the verses with only common words (whose
+ * bounds are low) are skipped in bulk, so a search for "love faith" reads the lists but scores few of their verses.
+ *
+ * The scores are exactly those of Bm25.score, and verses that score the same are in canonical order, so the result is
+ * the first k verses of ranking every verse.
+ */
+public final class TopKScorer {
+	private final Concordance				concordance;
+	private final Bm25						bm25;
+	// The upper bound of each word, by its index in the TermIndex, worked out the first time it is needed.
+	private final HashMap<Integer, Double>	maxScores	= new HashMap<Integer, Double>();
+
+	/**
+	 * The best verses, best first.
+	 */
+	public static final class Hits {
+		private final int[]		ordinals;
+		private final double[]	scores;
+		private final int		scored;
+
+		Hits(int[] ordinals, double[] scores, int scored) {
+			this.ordinals = ordinals;
+			this.scores = scores;
+			this.scored = scored;
+		}
+
+		/**
+		 * @return the number of verses found.
+		 */
+		public int size() {
+			return ordinals.length;
+		}
+
+		/**
+		 * @param i the rank of a verse, from 0.
+		 * @return its ordinal.
+		 */
+		public int getOrdinal(int i) {
+			return ordinals[i];
+		}
+
+		/**
+		 * @param i the rank of a verse, from 0.
+		 * @return its score.
+		 */
+		public double getScore(int i) {
+			return scores[i];
+		}
+
+		/**
+		 * @return how many verses were scored to find these.
+		 */
+		public int getScoredCount() {
+			return scored;
+		}
+	}
+
+	/*
+	 * A word's posting list, and where the search is in it.
+	 */
+	private static final class Cursor {
+		final int[]		ordinals;
+		final Positions	positions;
+		final double	idf;
+		final double	maxScore;
+		int				at;
+
+		Cursor(int[] ordinals, Positions positions, double idf, double maxScore) {
+			this.ordinals = ordinals;
+			this.positions = positions;
+			this.idf = idf;
+			this.maxScore = maxScore;
+		}
+
+		int ordinal() {
+			return (at < ordinals.length) ? ordinals[at] : Integer.MAX_VALUE;
+		}
+
+		int tf() {
+			return positions.getEnd(at) - positions.getStart(at);
+		}
+	}
+
+	/**
+	 * @param concordance the concordance to search.
+	 * @param bm25 how to score verses.
+	 */
+	public TopKScorer(Concordance concordance, Bm25 bm25) {
+		this.concordance = concordance;
+		this.bm25 = bm25;
+	}
+
+	/**
+	 * Find the verses that score best for some words.
+	 *
+	 * @param words the words (ignoring case). A verse with any of them may be found; words that aren't in the
+	 *            concordance add nothing.
+	 * @param filter if not null, only verses in this set are found.
+	 * @param k the most verses to find.
+	 * @return the best k verses with a score above 0, best first; of those that score the same, the first in
+	 *         canonical order first.
+	 */
+	public Hits top(Collection<String> words, PostingSet filter, int k) {
+		TermIndex index = concordance.getTermIndex();
+		Cursor[] byWord = new Cursor[words.size()];
+		int n = 0;
+		for (String word : words) {
+			int t = index.indexOf(concordance.termOf(word));
+			if (t >= 0) {
+				PostingSet postings = index.getPostings(t);
+				double idf = Bm25.idf(concordance.getNumberOfVerses(), postings.cardinality());
+				Positions positions = index.getPositions(t);
+				byWord[n++] = new Cursor(postings.toArray(), positions, idf, maxScore(t, idf, positions));
+			}
+		}
+		byWord = Arrays.copyOf(byWord, n);
+		if (k <= 0 || n == 0) {
+			return new Hits(new int[0], new double[0], 0);
+		}
+
+		// The best verses so far, worst first: lowest score, then latest in canonical order.
+		PriorityQueue<double[]> best = new PriorityQueue<double[]>(k + 1, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] a, double[] b) {
+				int c = Double.compare(a[0], b[0]);
+				return (c != 0) ? c : Double.compare(b[1], a[1]);
+			}
+		});
+		Cursor[] sorted = byWord.clone();
+		int scored = 0;
+		while (true) {
+			sortByOrdinal(sorted);
+			// The score a verse has to beat: verses are visited in canonical order, so one that only ties the k'th
+			// best comes after it.
+			double threshold = (best.size() < k) ? 0 : best.peek()[0];
+			// The first cursor at which the bounds of the words so far could beat it.
+			double bound = 0;
+			int pivot = -1;
+			for (int i = 0; i < sorted.length && sorted[i].ordinal() != Integer.MAX_VALUE; i++) {
+				bound += sorted[i].maxScore;
+				if (bound > threshold) {
+					pivot = i;
+					break;
+				}
+			}
+			if (pivot < 0) {
+				break;
+			}
+			int ordinal = sorted[pivot].ordinal();
+			if (sorted[0].ordinal() == ordinal) {
+				// Every word that could make the verse good enough is at it, so score it, in the order the words were
+				// given so that the score is exactly the one Bm25.score gives.
+				if (filter == null || filter.contains(ordinal)) {
+					double norm = bm25.norm(concordance, ordinal);
+					double score = 0;
+					for (Cursor cursor : byWord) {
+						if (cursor.ordinal() == ordinal) {
+							score += bm25.score(cursor.idf, cursor.tf(), norm);
+						}
+					}
+					scored++;
+					if (best.size() < k) {
+						best.add(new double[] { score, ordinal });
+					} else if (score > best.peek()[0]) {
+						best.poll();
+						best.add(new double[] { score, ordinal });
+					}
+				}
+				for (Cursor cursor : sorted) {
+					if (cursor.ordinal() == ordinal) {
+						cursor.at++;
+					}
+				}
+			} else {
+				// No verse before the pivot's can beat the threshold, so skip them.
+				for (int i = 0; i < pivot; i++) {
+					sorted[i].at = PostingLists.gallop(sorted[i].ordinals, sorted[i].at, ordinal);
+				}
+			}
+		}
+
+		int size = best.size();
+		int[] ordinals = new int[size];
+		double[] scores = new double[size];
+		for (int i = size - 1; i >= 0; i--) {
+			double[] hit = best.poll();
+			scores[i] = hit[0];
+			ordinals[i] = (int) hit[1];
+		}
+		return new Hits(ordinals, scores, scored);
+	}
+
+	/*
+	 * The most a word adds to the score of any verse it is in, made a little bigger so that adding the bounds in a
+	 * different order from the scores can't make them too small.
+	 */
+	private double maxScore(int t, double idf, Positions positions) {
+		synchronized (maxScores) {
+			Double max = maxScores.get(t);
+			if (max == null) {
+				double m = 0;
+				for (int i = 0; i < positions.size(); i++) {
+					int tf = positions.getEnd(i) - positions.getStart(i);
+					m = Math.max(m, bm25.score(idf, tf, bm25.norm(concordance, positions.getOrdinal(i))));
+				}
+				max = m * (1 + 1e-9);
+				maxScores.put(t, max);
+			}
+			return max;
+		}
+	}
+
+	/*
+	 * There are only a few words, so sort them by insertion; they are nearly sorted already.
+	 */
+	private static void sortByOrdinal(Cursor[] cursors) {
+		for (int i = 1; i < cursors.length; i++) {
+			Cursor cursor = cursors[i];
+			int j = i - 1;
+			while (j >= 0 && cursors[j].ordinal() > cursor.ordinal()) {
+				cursors[j + 1] = cursors[j];
+				j--;
+			}
+			cursors[j + 1] = cursor;
+		}
+	}
+}
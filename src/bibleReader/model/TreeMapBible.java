@@ -1,8 +1,8 @@
 package bibleReader.model;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
@@ -18,6 +18,11 @@ public class TreeMapBible implements Bible {
 	private String						title;
 	private TreeMap<Reference, Verse>	theVerses;
 
+	// The verses in order, so a passage is just a range of this list. The versification says where each book and
+	// chapter starts.
+	private List<Verse>					ordered;
+	private Versification				versification;
+
 	/**
 	 * Create a new Bible with the given verses.
 	 *
@@ -31,6 +36,19 @@ public class TreeMapBible implements Bible {
 		for (Verse v : verses) {
 			this.theVerses.put(v.getReference(), v);
 		}
+		this.ordered = Arrays.asList(theVerses.values().toArray(new Verse[theVerses.size()]));
+		Versification.Builder builder = new Versification.Builder(ordered.size());
+		for (Verse v : ordered) {
+			builder.add(v.getReference());
+		}
+		this.versification = builder.build();
+	}
+
+	/**
+	 * @return the Versification of this Bible.
+	 */
+	public Versification getVersification() {
+		return versification;
 	}
 
 	@Override
@@ -40,7 +58,7 @@ public class TreeMapBible implements Bible {
 
 	@Override
 	public VerseList getAllVerses() {
-		return new VerseList(this.version,this.title,this.theVerses.values());
+		return new VerseListView(this.version, this.title, this.ordered);
 	}
 
 	@Override
@@ -118,16 +136,15 @@ public class TreeMapBible implements Bible {
 
 	@Override
 	public int getLastVerseNumber(BookOfBible book, int chapter) {
-		Reference r1 = new Reference(book, chapter, 1);
-		return getVersesExclusive(r1, new Reference(book, chapter+1, 1)).size();
+		if (book == null) {
+			return 0;
+		}
+		return versification.getLastVerseNumber(book, chapter);
 	}
 
 	@Override
 	public int getLastChapterNumber(BookOfBible book) {
-		// get all verses from book (could use references also. minor point.)
-		VerseList v = getVersesExclusive(new Reference(book, 1, 1), new Reference(BookOfBible.nextBook(book), 1, 1));
-		Verse r = v.get(v.size()-1);
-		return r.getReference().getChapter();
+		return versification.getLastChapterNumber(book);
 	}
 
 	@Override
@@ -137,29 +154,14 @@ public class TreeMapBible implements Bible {
 
 	@Override
 	public ReferenceList getReferencesExclusive(Reference firstVerse, Reference lastVerse) {
-		// Implementation copied and changed from Charles Cusack's implementation.
-		
 		// Make sure the references are in the correct order. If not, return empty reference list.
 		if (firstVerse.compareTo(lastVerse) > 0) {
 			return new ReferenceList();
 		}
-		// Return the portion of the TreeMap that contains the verses between
-		// the first and the last, not including the last.
-		SortedMap<Reference, Verse> s = theVerses.subMap(firstVerse, lastVerse);
-
-		// Get the entries from the map so we can iterate through them.
-		Set<Map.Entry<Reference, Verse>> mySet = s.entrySet();
-
-		// We will store the resulting verses here. We copy the version from
-		// this Bible and set the description to be the passage that was searched for.
-		ReferenceList someReferences = new ReferenceList();
-
-		// Iterate through the set and put the verses in the VerseList.
-		for (Map.Entry<Reference, Verse> element : mySet) {
-			Reference aRef = element.getKey();
-			someReferences.add(aRef);
-		}
-		return someReferences;
+		// The verses between the first and the last, not including the last.
+		int from = versification.lowerBound(firstVerse);
+		int to = versification.lowerBound(lastVerse);
+		return ReferenceListView.referencesOf(ordered.subList(from, Math.max(from, to)));
 	}
 
 	@Override
@@ -215,31 +217,16 @@ public class TreeMapBible implements Bible {
 
 	@Override
 	public VerseList getVersesExclusive(Reference firstVerse, Reference lastVerse) {
-		// Implementation of this method provided by Chuck Cusack.
-		// This is provided so you have an example to help you get started
-		// with the other methods.
-
 		// Make sure the references are in the correct order. If not, return empty verse list.
 		if (firstVerse.compareTo(lastVerse) > 0) {
 			return new VerseList(getVersion(), firstVerse + "-" + lastVerse);
 		}
-		// Return the portion of the TreeMap that contains the verses between
-		// the first and the last, not including the last.
-		SortedMap<Reference, Verse> s = theVerses.subMap(firstVerse, lastVerse);
-
-		// Get the entries from the map so we can iterate through them.
-		Set<Map.Entry<Reference, Verse>> mySet = s.entrySet();
-
-		// We will store the resulting verses here. We copy the version from
-		// this Bible and set the description to be the passage that was searched for.
-		VerseList someVerses = new VerseList(getVersion(), firstVerse + "-" + lastVerse);
-
-		// Iterate through the set and put the verses in the VerseList.
-		for (Map.Entry<Reference, Verse> element : mySet) {
-			Verse aVerse = element.getValue();
-			someVerses.add(aVerse);
-		}
-		return someVerses;
+		// The versification tells us where the verses between the first and the last (not including the last) are, so
+		// we can return a view of that part of the list instead of walking the TreeMap and copying.
+		int from = versification.lowerBound(firstVerse);
+		int to = versification.lowerBound(lastVerse);
+		List<Verse> range = ordered.subList(from, Math.max(from, to));
+		return new VerseListView(getVersion(), firstVerse + "-" + lastVerse, range);
 	}
 
 	@Override
@@ -29,7 +29,7 @@ public class Verse implements Comparable<Verse> {
 	 * @param text The text of the verse
 	 */
 	public Verse(BookOfBible book, int chapter, int verse, String text) {
-		reference = new Reference(book, chapter, verse);
+		reference = Reference.of(book, chapter, verse);
 		this.text = text;
 	}
 
@@ -0,0 +1,259 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A VerseList that is a view of verses a Bible already has, rather than a copy of them. A Bible can return one of these
+ * for a book or a passage without copying anything, and if the backing list works the verses out as they are asked for
+ * (as ColumnarBible's does) nothing is done until somebody looks at them.
+ *
+ * The view is never written through. The first time it is changed (add, set, remove, sort, ...) it copies the verses
+ * into its own storage and from then on it is an ordinary VerseList. So a caller can treat it as its own list, and only
+ * pays for the copy if it actually changes it.
+ *
+ * The backing list must not change while the view is using it.
+ */
+public class VerseListView extends VerseList {
+	// The verses being viewed, or null once they have been copied.
+	private List<Verse>	backing;
+
+	/**
+	 * Create a view of the given verses.
+	 *
+	 * @param version the version of the verses.
+	 * @param description a description of the verses.
+	 * @param verses the verses. The view never changes this list, and it must not change while the view is in use.
+	 */
+	public VerseListView(String version, String description, List<Verse> verses) {
+		super(version, description);
+		backing = verses;
+	}
+
+	/**
+	 * @return true if this is still a view, false if the verses have been copied.
+	 */
+	public boolean isView() {
+		return backing != null;
+	}
+
+	/*
+	 * Copy the verses into the ArrayList storage so it can be changed.
+	 */
+	private void copy() {
+		if (backing != null) {
+			List<Verse> verses = backing;
+			backing = null;
+			super.addAll(verses);
+		}
+	}
+
+	@Override
+	public void trimToSize() {
+		if (backing == null) {
+			super.trimToSize();
+		}
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if (backing == null) {
+			super.ensureCapacity(minCapacity);
+		}
+	}
+
+	@Override
+	public int size() {
+		return (backing != null) ? backing.size() : super.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (backing != null) ? backing.isEmpty() : super.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return (backing != null) ? backing.contains(o) : super.contains(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return (backing != null) ? backing.indexOf(o) : super.indexOf(o);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return (backing != null) ? backing.lastIndexOf(o) : super.lastIndexOf(o);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return (backing != null) ? backing.toArray() : super.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return (backing != null) ? backing.toArray(a) : super.toArray(a);
+	}
+
+	@Override
+	public Verse get(int index) {
+		return (backing != null) ? backing.get(index) : super.get(index);
+	}
+
+	@Override
+	public Verse set(int index, Verse element) {
+		copy();
+		return super.set(index, element);
+	}
+
+	@Override
+	public boolean add(Verse e) {
+		copy();
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, Verse element) {
+		copy();
+		super.add(index, element);
+	}
+
+	@Override
+	public Verse remove(int index) {
+		copy();
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		copy();
+		return super.remove(o);
+	}
+
+	@Override
+	public void clear() {
+		backing = null;
+		super.clear();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Verse> c) {
+		copy();
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Verse> c) {
+		copy();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		copy();
+		super.removeRange(fromIndex, toIndex);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		copy();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		copy();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public Iterator<Verse> iterator() {
+		return (backing != null) ? new ForwardingList<Verse>(this).iterator() : super.iterator();
+	}
+
+	@Override
+	public ListIterator<Verse> listIterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Verse> listIterator(int index) {
+		return (backing != null) ? new ForwardingList<Verse>(this).listIterator(index) : super.listIterator(index);
+	}
+
+	@Override
+	public List<Verse> subList(int fromIndex, int toIndex) {
+		return (backing != null) ? new ForwardingList<Verse>(this).subList(fromIndex, toIndex) : super.subList(
+				fromIndex, toIndex);
+	}
+
+	@Override
+	public void forEach(Consumer<? super Verse> action) {
+		if (backing != null) {
+			backing.forEach(action);
+		} else {
+			super.forEach(action);
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Verse> filter) {
+		copy();
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<Verse> operator) {
+		copy();
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public Spliterator<Verse> spliterator() {
+		return (backing != null) ? Spliterators.spliterator(this, Spliterator.ORDERED) : super.spliterator();
+	}
+
+	/**
+	 * Sort the verses.
+	 *
+	 * @param comparator the comparator to use, or null to use the natural order of Verses.
+	 */
+	@Override
+	public void sort(Comparator<? super Verse> comparator) {
+		copy();
+		Verse[] verses = super.toArray(new Verse[super.size()]);
+		if (comparator == null) {
+			Arrays.sort(verses);
+		} else {
+			Arrays.sort(verses, comparator);
+		}
+		for (int i = 0; i < verses.length; i++) {
+			super.set(i, verses[i]);
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		return (backing != null) ? backing.equals(o) : super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return (backing != null) ? backing.hashCode() : super.hashCode();
+	}
+}
@@ -0,0 +1,371 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+
+/**
+ * A table of how a particular Bible is divided into books, chapters and verses. It is built once, when the Bible is
+ * loaded, and then answers questions like "how many verses are in Psalm 119?" or "where does John 3 start?" in constant
+ * time, without looking at the verses themselves.
+ *
+ * The verses of the Bible are numbered 0, 1, 2, ... in canonical order. We call that number the verse's
+ * <i>ordinal</i>. Methods that return an ordinal or a range of ordinals let a Bible that keeps its verses in an array
+ * (or an ArrayList) go straight to the right place.
+ *
+ * Versions don't all contain the same verses (e.g. the ESV leaves out some verses that the KJV has), so the verse
+ * numbers within a chapter can have gaps. Where they don't, looking up a verse is just arithmetic. Where they do, it is
+ * a binary search within the chapter.
+ */
+public final class Versification {
+	private static final int	NUMBER_OF_BOOKS	= BookOfBible.values().length;
+
+	private final int			size;
+
+	// bookStarts[b] is the ordinal of the first verse whose book has ordinal >= b. There is an extra entry at the end
+	// so bookStarts[b+1] always works.
+	private final int[]			bookStarts;
+
+	// chapterStarts[b][c] is the ordinal of the first verse of book b whose chapter is >= c. The last entry is the end
+	// of the book. It is null if the book has no verses.
+	private final int[][]		chapterStarts;
+
+	// The verse number of each verse, by ordinal.
+	private final int[]			verseNumbers;
+
+	/*
+	 * Use the Builder.
+	 */
+	private Versification(int size, int[] bookStarts, int[][] chapterStarts, int[] verseNumbers) {
+		this.size = size;
+		this.bookStarts = bookStarts;
+		this.chapterStarts = chapterStarts;
+		this.verseNumbers = verseNumbers;
+	}
+
+	/**
+	 * Build a Versification from packed references (see ReferenceCodec) that are in canonical order.
+	 *
+	 * @param codes the packed references of every verse of the Bible, in order.
+	 * @return the Versification for those verses.
+	 */
+	public static Versification fromCodes(int[] codes) {
+		Builder builder = new Builder(codes.length);
+		for (int code : codes) {
+			builder.add(ReferenceCodec.getBook(code), ReferenceCodec.getChapter(code), ReferenceCodec.getVerse(code));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the number of verses.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @return the number of the last chapter of the book, or 0 if there are no verses from the book.
+	 */
+	public int getLastChapterNumber(BookOfBible book) {
+		if (book == null || chapterStarts[book.ordinal()] == null) {
+			return 0;
+		}
+		return chapterStarts[book.ordinal()].length - 2;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @return the number of chapters of the book that have at least one verse.
+	 */
+	public int getChapterCount(BookOfBible book) {
+		if (book == null || chapterStarts[book.ordinal()] == null) {
+			return 0;
+		}
+		int[] starts = chapterStarts[book.ordinal()];
+		int count = 0;
+		for (int c = 0; c + 1 < starts.length; c++) {
+			if (starts[c + 1] > starts[c]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @return the number of verses in the given chapter, or 0 if there are none.
+	 */
+	public int getVerseCount(BookOfBible book, int chapter) {
+		return getChapterEnd(book, chapter) - getChapterStart(book, chapter);
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @return the number of the last verse of the given chapter, or 0 if there are no verses in the chapter.
+	 */
+	public int getLastVerseNumber(BookOfBible book, int chapter) {
+		int start = getChapterStart(book, chapter);
+		int end = getChapterEnd(book, chapter);
+		return (end > start) ? verseNumbers[end - 1] : 0;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @return the ordinal of the first verse of the given chapter, or -1 if there are no verses in the chapter.
+	 */
+	public int getFirstOrdinal(BookOfBible book, int chapter) {
+		int start = getChapterStart(book, chapter);
+		return (getChapterEnd(book, chapter) > start) ? start : -1;
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @return the ordinal of the first verse of the book, or where it would be if the book has no verses.
+	 */
+	public int getBookStart(BookOfBible book) {
+		return bookStarts[book.ordinal()];
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @return one more than the ordinal of the last verse of the book (so the book is getBookStart(book) up to but not
+	 *         including getBookEnd(book)).
+	 */
+	public int getBookEnd(BookOfBible book) {
+		return bookStarts[book.ordinal() + 1];
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @return the ordinal of the first verse of the given chapter, or where it would be if the chapter has no verses.
+	 */
+	public int getChapterStart(BookOfBible book, int chapter) {
+		int[] starts = chapterStarts[book.ordinal()];
+		if (starts == null) {
+			return bookStarts[book.ordinal()];
+		}
+		if (chapter <= 0) {
+			return starts[0];
+		}
+		if (chapter >= starts.length) {
+			return starts[starts.length - 1];
+		}
+		return starts[chapter];
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @return one more than the ordinal of the last verse of the given chapter (so the chapter is getChapterStart up to
+	 *         but not including getChapterEnd).
+	 */
+	public int getChapterEnd(BookOfBible book, int chapter) {
+		if (chapter < 0) {
+			return getChapterStart(book, 0);
+		}
+		if (chapter == Integer.MAX_VALUE) {
+			return getBookEnd(book);
+		}
+		return getChapterStart(book, chapter + 1);
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @param verse the verse
+	 * @return the ordinal of "book chapter:verse", or -1 if it isn't in the Bible.
+	 */
+	public int getOrdinal(BookOfBible book, int chapter, int verse) {
+		if (book == null) {
+			return -1;
+		}
+		int i = lowerBound(book, chapter, verse);
+		if (i < getChapterEnd(book, chapter) && i >= getChapterStart(book, chapter) && verseNumbers[i] == verse) {
+			return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param r a reference
+	 * @return the ordinal of r, or -1 if it isn't in the Bible.
+	 */
+	public int getOrdinal(Reference r) {
+		if (r == null) {
+			return -1;
+		}
+		return getOrdinal(r.getBookOfBible(), r.getChapter(), r.getVerse());
+	}
+
+	/**
+	 * @param book the book of the Bible
+	 * @param chapter the chapter
+	 * @param verse the verse
+	 * @return the ordinal of the first verse that is at or after "book chapter:verse", or size() if there isn't one.
+	 *         This works whether or not the reference is actually in the Bible.
+	 */
+	public int lowerBound(BookOfBible book, int chapter, int verse) {
+		int[] starts = chapterStarts[book.ordinal()];
+		if (starts == null || chapter < 0) {
+			return getChapterStart(book, chapter);
+		}
+		if (chapter >= starts.length - 1) {
+			return getBookEnd(book);
+		}
+		int start = starts[chapter];
+		int end = starts[chapter + 1];
+		if (start == end) {
+			return start;
+		}
+		int first = verseNumbers[start];
+		int last = verseNumbers[end - 1];
+		if (verse <= first) {
+			return start;
+		}
+		if (verse > last) {
+			return end;
+		}
+		if (last - first == end - start - 1) {
+			// It looks like there are no gaps, so we can just count. But a duplicate verse number can hide a gap (1, 1,
+			// 3), so only trust the count if it lands on the first verse with that number.
+			int i = start + (verse - first);
+			if (verseNumbers[i] == verse && (i == start || verseNumbers[i - 1] < verse)) {
+				return i;
+			}
+		}
+		int i = Arrays.binarySearch(verseNumbers, start, end, verse);
+		if (i < 0) {
+			return -i - 1;
+		}
+		// With duplicate verse numbers the binary search might not find the first one.
+		while (i > start && verseNumbers[i - 1] == verse) {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * @param r a reference
+	 * @return the ordinal of the first verse that is at or after r, or size() if there isn't one.
+	 */
+	public int lowerBound(Reference r) {
+		return lowerBound(r.getBookOfBible(), r.getChapter(), r.getVerse());
+	}
+
+	/**
+	 * @param r a reference
+	 * @return the ordinal of the first verse that is after r, or size() if there isn't one.
+	 */
+	public int upperBound(Reference r) {
+		if (r.getVerse() == Integer.MAX_VALUE) {
+			return getChapterEnd(r.getBookOfBible(), r.getChapter());
+		}
+		return lowerBound(r.getBookOfBible(), r.getChapter(), r.getVerse() + 1);
+	}
+
+	/**
+	 * Builds a Versification from the references of a Bible, which must be added in canonical order. Chapter and
+	 * verse numbers can't be negative.
+	 */
+	public static class Builder {
+		private int[]	books;
+		private int[]	chapters;
+		private int[]	verses;
+		private int		count;
+
+		public Builder() {
+			this(1024);
+		}
+
+		/**
+		 * @param expectedSize roughly how many verses will be added.
+		 */
+		public Builder(int expectedSize) {
+			int capacity = Math.max(expectedSize, 16);
+			books = new int[capacity];
+			chapters = new int[capacity];
+			verses = new int[capacity];
+		}
+
+		/**
+		 * Add the next verse.
+		 *
+		 * @param book the book of the Bible
+		 * @param chapter the chapter
+		 * @param verse the verse
+		 * @throws IllegalArgumentException if the verse comes before the one added last, or the chapter or verse is
+		 *             negative.
+		 */
+		public void add(BookOfBible book, int chapter, int verse) {
+			if (book == null || chapter < 0 || verse < 0) {
+				throw new IllegalArgumentException("Bad reference: " + book + " " + chapter + ":" + verse);
+			}
+			if (count > 0) {
+				int diff = books[count - 1] - book.ordinal();
+				if (diff == 0) {
+					diff = chapters[count - 1] - chapter;
+				}
+				if (diff == 0) {
+					diff = verses[count - 1] - verse;
+				}
+				if (diff > 0) {
+					throw new IllegalArgumentException("Out of order: " + book + " " + chapter + ":" + verse);
+				}
+			}
+			if (count == books.length) {
+				int capacity = 2 * count;
+				books = Arrays.copyOf(books, capacity);
+				chapters = Arrays.copyOf(chapters, capacity);
+				verses = Arrays.copyOf(verses, capacity);
+			}
+			books[count] = book.ordinal();
+			chapters[count] = chapter;
+			verses[count] = verse;
+			count++;
+		}
+
+		/**
+		 * Add the next verse.
+		 *
+		 * @param r the reference of the verse.
+		 */
+		public void add(Reference r) {
+			add(r.getBookOfBible(), r.getChapter(), r.getVerse());
+		}
+
+		/**
+		 * @return the Versification for the verses that were added.
+		 */
+		public Versification build() {
+			int[] bookStarts = new int[NUMBER_OF_BOOKS + 1];
+			int[][] chapterStarts = new int[NUMBER_OF_BOOKS][];
+			int i = 0;
+			for (int b = 0; b < NUMBER_OF_BOOKS; b++) {
+				bookStarts[b] = i;
+				int bookStart = i;
+				while (i < count && books[i] == b) {
+					i++;
+				}
+				if (i > bookStart) {
+					// The chapters of this book are chapters[bookStart] through chapters[i-1].
+					int lastChapter = chapters[i - 1];
+					int[] starts = new int[lastChapter + 2];
+					int j = bookStart;
+					for (int c = 0; c <= lastChapter + 1; c++) {
+						while (j < i && chapters[j] < c) {
+							j++;
+						}
+						starts[c] = j;
+					}
+					chapterStarts[b] = starts;
+				}
+			}
+			bookStarts[NUMBER_OF_BOOKS] = count;
+			return new Versification(count, bookStarts, chapterStarts, Arrays.copyOf(verses, count));
+		}
+	}
+}
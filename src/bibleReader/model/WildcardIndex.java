@@ -0,0 +1,265 @@
+package bibleReader.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Finds the words of a TermIndex that match a pattern, where * matches any number of characters and ? matches exactly
+ * one, so that "bless*" finds "bless", "blessed", "blessing", ... and "*eth" finds "cometh", "goeth", ....
+ *
+ * A pattern with one * at the end is a prefix, and the words with a prefix are next to each other in the sorted words,
+ * so they are found with two binary searches. Every other pattern uses a permuterm dictionary: every rotation of every
+ * word with an end marker added ("god" gives "god$", "od$g", "d$go" and "$god"), sorted. Rotating a pattern so that
+ * its wildcards come last turns it into a prefix of those rotations: "*eth" becomes "eth$", "b*ss" becomes "ss$b". The
+ * words whose rotations start with that are the candidates, and the ones that match the middle of the pattern are the
+ * result. The permuterm dictionary is built the first time it is needed.
+ */
+public final class WildcardIndex {
+	/**
+	 * Matches any number of characters, including none.
+	 */
+	public static final char	ANY			= '*';
+	/**
+	 * Matches exactly one character.
+	 */
+	public static final char	ONE			= '?';
+
+	// Marks the end of a word in a rotation. It is less than any character in a word, so rotations sort as if it were
+	// the end of the string.
+	private static final char	END			= '\u0000';
+
+	private final TermIndex		terms;
+	// The rotations, sorted: the index of the word, and where in the word the rotation starts (its length being the
+	// rotation that starts with END).
+	private int[]				rotationTerms;
+	private char[]				rotationStarts;
+
+	/**
+	 * @param terms the words to search.
+	 */
+	public WildcardIndex(TermIndex terms) {
+		this.terms = terms;
+	}
+
+	/**
+	 * @param word a word someone searched for.
+	 * @return true if it has a wildcard in it.
+	 */
+	public static boolean isPattern(String word) {
+		return word.indexOf(ANY) >= 0 || word.indexOf(ONE) >= 0;
+	}
+
+	/**
+	 * Find the words that match a pattern.
+	 *
+	 * @param pattern the pattern, in lowercase. Without wildcards it only matches itself.
+	 * @return the indexes of the matching words, in increasing order.
+	 */
+	public int[] find(String pattern) {
+		int first = firstWildcard(pattern);
+		if (first < 0) {
+			int i = terms.indexOf(pattern);
+			return (i < 0) ? new int[0] : new int[] { i };
+		}
+		if (first == pattern.length() - 1 && pattern.charAt(first) == ANY) {
+			int[] range = prefixRange(pattern.substring(0, first));
+			int[] result = new int[range[1] - range[0]];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = range[0] + i;
+			}
+			return result;
+		}
+
+		int last = lastWildcard(pattern);
+		String key = pattern.substring(last + 1) + END + pattern.substring(0, first);
+		buildRotations();
+		int from = firstRotationAtLeast(key, false);
+		int to = firstRotationAtLeast(key, true);
+		int[] candidates = new int[to - from];
+		for (int i = from; i < to; i++) {
+			candidates[i - from] = rotationTerms[i];
+		}
+		// A word has only one rotation that starts with the end of the pattern followed by END, so there are no
+		// duplicates.
+		Arrays.sort(candidates);
+		int n = 0;
+		boolean middle = last > first || pattern.charAt(first) == ONE;
+		for (int t : candidates) {
+			if (!middle || matches(pattern, terms.getTerm(t))) {
+				candidates[n++] = t;
+			}
+		}
+		return Arrays.copyOf(candidates, n);
+	}
+
+	/**
+	 * Find the words that start with a prefix.
+	 *
+	 * @param prefix the prefix, in lowercase.
+	 * @return the index of the first word that starts with it, and one more than the index of the last. They are equal
+	 *         if there are none.
+	 */
+	public int[] prefixRange(String prefix) {
+		int from = insertionPoint(terms.indexOf(prefix));
+		int to = terms.size();
+		// The first word after all of the words with the prefix is at or after the prefix with its last character
+		// increased, unless that character can't be increased.
+		int end = prefix.length() - 1;
+		while (end >= 0 && prefix.charAt(end) == Character.MAX_VALUE) {
+			end--;
+		}
+		if (end >= 0) {
+			String after = prefix.substring(0, end) + (char) (prefix.charAt(end) + 1);
+			to = insertionPoint(terms.indexOf(after));
+		}
+		return new int[] { from, to };
+	}
+
+	/**
+	 * Check whether a word matches a pattern.
+	 *
+	 * @param pattern the pattern.
+	 * @param word the word.
+	 * @return true if it matches.
+	 */
+	public static boolean matches(String pattern, String word) {
+		int p = 0;
+		int w = 0;
+		// Where the last * was, and where in the word it has been matched up to, to go back to if what follows fails.
+		int star = -1;
+		int starMatch = 0;
+		while (w < word.length()) {
+			if (p < pattern.length() && (pattern.charAt(p) == ONE || pattern.charAt(p) == word.charAt(w))) {
+				p++;
+				w++;
+			} else if (p < pattern.length() && pattern.charAt(p) == ANY) {
+				star = p++;
+				starMatch = w;
+			} else if (star >= 0) {
+				p = star + 1;
+				w = ++starMatch;
+			} else {
+				return false;
+			}
+		}
+		while (p < pattern.length() && pattern.charAt(p) == ANY) {
+			p++;
+		}
+		return p == pattern.length();
+	}
+
+	private static int insertionPoint(int index) {
+		return (index < 0) ? -index - 1 : index;
+	}
+
+	private static int firstWildcard(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if (pattern.charAt(i) == ANY || pattern.charAt(i) == ONE) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastWildcard(String pattern) {
+		for (int i = pattern.length() - 1; i >= 0; i--) {
+			if (pattern.charAt(i) == ANY || pattern.charAt(i) == ONE) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * The index of the first rotation that is at least key, or, if pastPrefix, the first that is greater than key and
+	 * doesn't start with it.
+	 */
+	private int firstRotationAtLeast(String key, boolean pastPrefix) {
+		int low = 0;
+		int high = rotationTerms.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int c = compare(terms.getTerm(rotationTerms[mid]), rotationStarts[mid], key);
+			if (c < 0 || (pastPrefix && c == 0)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Compare the rotation of a word that starts at start with a key, as String.compareTo would, except that a
+	 * rotation that starts with the key compares equal to it.
+	 */
+	private static int compare(String word, int start, String key) {
+		int length = word.length() + 1;
+		int n = Math.min(length, key.length());
+		for (int i = 0; i < n; i++) {
+			int c = rotationChar(word, start, i) - key.charAt(i);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return (length < key.length()) ? -1 : 0;
+	}
+
+	/*
+	 * The i'th character of the rotation of word$ that starts at start.
+	 */
+	private static char rotationChar(String word, int start, int i) {
+		int j = (start + i) % (word.length() + 1);
+		return (j == word.length()) ? END : word.charAt(j);
+	}
+
+	/*
+	 * Build the permuterm dictionary if it hasn't been built yet.
+	 */
+	private synchronized void buildRotations() {
+		if (rotationTerms != null) {
+			return;
+		}
+		final String[] words = terms.getTerms(0, terms.size());
+		int count = 0;
+		for (String word : words) {
+			count += word.length() + 1;
+		}
+		Integer[] order = new Integer[count];
+		final int[] termOf = new int[count];
+		final char[] startOf = new char[count];
+		int r = 0;
+		for (int t = 0; t < words.length; t++) {
+			for (int start = 0; start <= words[t].length(); start++) {
+				termOf[r] = t;
+				startOf[r] = (char) start;
+				order[r] = r;
+				r++;
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				String x = words[termOf[a]];
+				String y = words[termOf[b]];
+				int n = Math.min(x.length(), y.length()) + 1;
+				for (int i = 0; i < n; i++) {
+					int c = rotationChar(x, startOf[a], i) - rotationChar(y, startOf[b], i);
+					if (c != 0) {
+						return c;
+					}
+				}
+				// One is the start of the other, so the shorter comes first, as with String.compareTo.
+				return x.length() - y.length();
+			}
+		});
+		int[] sortedTerms = new int[count];
+		char[] sortedStarts = new char[count];
+		for (int i = 0; i < count; i++) {
+			sortedTerms[i] = termOf[order[i]];
+			sortedStarts[i] = startOf[order[i]];
+		}
+		rotationStarts = sortedStarts;
+		rotationTerms = sortedTerms;
+	}
+}
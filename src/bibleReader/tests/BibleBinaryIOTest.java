@@ -0,0 +1,107 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.Bible;
+import bibleReader.model.BibleImage;
+import bibleReader.model.MappedBible;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests reading and writing Bibles in the binary .bbin format with BibleIO.
+ */
+public class BibleBinaryIOTest {
+	private VerseList	atv;
+	private File		binary;
+
+	@Before
+	public void setUp() throws Exception {
+		atv = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		binary = File.createTempFile("test", BibleImage.EXTENSION);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		binary.delete();
+	}
+
+	@Test
+	public void testRoundTripAgainstATV() throws Exception {
+		assertNotNull(atv);
+		Bible expected = new TreeMapBible(atv);
+		BibleIO.writeBibleBinary(binary, expected);
+
+		VerseList read = BibleIO.readBible(binary);
+		assertNotNull(read);
+		assertEquals(atv.getVersion(), read.getVersion());
+		assertEquals(atv.getDescription(), read.getDescription());
+		assertEquals(expected.getAllVerses(), read);
+
+		// Reading the file and mapping it give the same Bible.
+		MappedBible mapped = new MappedBible(binary);
+		assertEquals(read, mapped.getAllVerses());
+
+	}
+
+	@Test
+	public void testBadFiles() throws Exception {
+		FileOutputStream out = new FileOutputStream(binary);
+		out.write("ESV: English Standard Version\n".getBytes("UTF-8"));
+		out.close();
+		assertNull(BibleIO.readBible(binary));
+
+		// A truncated image.
+		BibleIO.writeBibleBinary(binary, new TreeMapBible(atv));
+		RandomAccessFile raf = new RandomAccessFile(binary, "rw");
+		raf.setLength(raf.length() / 2);
+		raf.close();
+		assertNull(BibleIO.readBible(binary));
+
+		assertNull(BibleIO.readBible(new File("noSuchFile.bbin")));
+	}
+
+	@Test
+	public void testCorruptImages() throws Exception {
+		Bible bible = new TreeMapBible(atv);
+		BibleIO.writeBibleBinary(binary, bible);
+		int n = bible.getNumberOfVerses();
+		RandomAccessFile raf = new RandomAccessFile(binary, "r");
+		int codesStart = BibleImage.readHeader(raf).getLength();
+		raf.close();
+		int offsetsStart = codesStart + 4 * n;
+
+		// A reference with a book that doesn't exist.
+		assertNull(readCorrupted(bible, codesStart + 4 * 5, 0x7F000001));
+		// References out of order.
+		assertNull(readCorrupted(bible, codesStart + 4 * 5, 0));
+		// A verse whose text starts after the next one's.
+		assertNull(readCorrupted(bible, offsetsStart + 4 * 10, Integer.MAX_VALUE));
+		// Far more verses than the file has room for, and so many the image couldn't exist.
+		assertNull(readCorrupted(bible, 8, 100000000));
+		assertNull(readCorrupted(bible, 8, Integer.MAX_VALUE));
+	}
+
+	/*
+	 * Write the Bible, put value at position in the file, and read it back.
+	 */
+	private VerseList readCorrupted(Bible bible, int position, int value) throws Exception {
+		BibleIO.writeBibleBinary(binary, bible);
+		RandomAccessFile raf = new RandomAccessFile(binary, "rw");
+		raf.seek(position);
+		raf.writeInt(value);
+		raf.close();
+		return BibleIO.readBible(binary);
+	}
+}
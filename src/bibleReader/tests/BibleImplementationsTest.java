@@ -0,0 +1,192 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.Bible;
+import bibleReader.model.BibleFactory;
+import bibleReader.model.BibleFactory.BibleType;
+import bibleReader.model.BibleImage;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.MappedBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Checks that the other Bible implementations give the same answers as TreeMapBible on a small sample Bible.
+ */
+public class BibleImplementationsTest {
+	private static final BookOfBible[]	BOOKS	= { BookOfBible.Genesis, BookOfBible.Ruth, BookOfBible.John,
+			BookOfBible.Jude, BookOfBible.Revelation };
+
+	// The implementations being checked.
+	private static final BibleType[]	TYPES	= { BibleType.COLUMNAR, BibleType.SORTED_ARRAY,
+			BibleType.COMPRESSED };
+
+	private VerseList					sampleVerses;
+	private Bible						expected;
+	private ArrayList<Bible>			others;
+	private File						image;
+
+	@Before
+	public void setUp() throws Exception {
+		sampleVerses = new VerseList("TST", "A test Bible");
+		addVerses(BookOfBible.Genesis, 1, 1, 5);
+		addVerses(BookOfBible.Genesis, 2, 1, 3);
+		addVerses(BookOfBible.Genesis, 3, 1, 4);
+		addVerses(BookOfBible.Ruth, 1, 1, 3);
+		addVerses(BookOfBible.John, 3, 1, 18);
+		addVerses(BookOfBible.Jude, 1, 1, 4);
+		addVerses(BookOfBible.Revelation, 22, 19, 21);
+		sampleVerses.add(new Verse(BookOfBible.John, 3, 16, "For God so loved the world, that he gave his only Son."));
+
+		expected = new TreeMapBible(copy(sampleVerses));
+		others = new ArrayList<Bible>();
+		for (BibleType type : TYPES) {
+			others.add(BibleFactory.createBible(copy(sampleVerses), type));
+		}
+
+		// MappedBible is made from an image file rather than a list of verses.
+		image = File.createTempFile("sample", BibleImage.EXTENSION);
+		BibleImage.write(expected, image);
+		others.add(new MappedBible(image));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		others = null;
+		image.delete();
+	}
+
+	@Test
+	public void testBasics() {
+		for (Bible bible : others) {
+			assertEquals(expected.getNumberOfVerses(), bible.getNumberOfVerses());
+			assertEquals("TST", bible.getVersion());
+			assertEquals("A test Bible", bible.getTitle());
+			assertEquals(expected.getAllVerses(), bible.getAllVerses());
+		}
+	}
+
+	@Test
+	public void testStreams() {
+		for (Bible bible : others) {
+			assertEquals(expected.getNumberOfVerses(), bible.getAllVerses().stream().count());
+			assertEquals(expected.getReferencesForBook(BookOfBible.John).size(), bible.getReferencesForBook(
+					BookOfBible.John).stream().count());
+			assertEquals(expected.getBook(BookOfBible.Genesis).size(), bible.getBook(BookOfBible.Genesis).stream()
+					.count());
+		}
+	}
+
+	@Test
+	public void testLookups() {
+		Reference[] refs = { new Reference(BookOfBible.Genesis, 1, 1), new Reference(BookOfBible.John, 3, 16),
+				new Reference(BookOfBible.Revelation, 22, 21), new Reference(BookOfBible.Genesis, 1, 6),
+				new Reference(BookOfBible.Exodus, 1, 1), new Reference(BookOfBible.Dummy, 1, 1) };
+		for (Bible bible : others) {
+			for (Reference r : refs) {
+				assertEquals(expected.isValid(r), bible.isValid(r));
+				assertEquals(expected.getVerse(r), bible.getVerse(r));
+				assertEquals(expected.getVerse(r.getBookOfBible(), r.getChapter(), r.getVerse()),
+						bible.getVerse(r.getBookOfBible(), r.getChapter(), r.getVerse()));
+			}
+			// The later of two verses with the same reference wins.
+			assertEquals("For God so loved the world, that he gave his only Son.",
+					bible.getVerseText(new Reference(BookOfBible.John, 3, 16)));
+			ReferenceList list = new ReferenceList();
+			for (Reference r : refs) {
+				list.add(r);
+			}
+			assertEquals(expected.getVerses(list), bible.getVerses(list));
+		}
+	}
+
+	@Test
+	public void testSearches() {
+		String[] phrases = { "verse", "GOD SO", "3:1", "nothing like this", "." };
+		for (Bible bible : others) {
+			for (String phrase : phrases) {
+				assertEquals(expected.getVersesContaining(phrase), bible.getVersesContaining(phrase));
+				assertEquals(expected.getReferencesContaining(phrase), bible.getReferencesContaining(phrase));
+			}
+		}
+	}
+
+	@Test
+	public void testChapterAndVerseNumbers() {
+		for (Bible bible : others) {
+			assertEquals(3, bible.getLastChapterNumber(BookOfBible.Genesis));
+			assertEquals(5, bible.getLastVerseNumber(BookOfBible.Genesis, 1));
+			assertEquals(4, bible.getLastVerseNumber(BookOfBible.Genesis, 3));
+			assertEquals(1, bible.getLastChapterNumber(BookOfBible.Jude));
+			assertEquals(21, bible.getLastVerseNumber(BookOfBible.Revelation, 22));
+		}
+	}
+
+	@Test
+	public void testPassages() {
+		Reference gen1_3 = new Reference(BookOfBible.Genesis, 1, 3);
+		Reference gen3_2 = new Reference(BookOfBible.Genesis, 3, 2);
+		Reference john3_5 = new Reference(BookOfBible.John, 3, 5);
+		for (Bible bible : others) {
+			for (BookOfBible book : BOOKS) {
+				assertEquals(expected.getBook(book), bible.getBook(book));
+				assertEquals(expected.getReferencesForBook(book), bible.getReferencesForBook(book));
+				assertEquals(expected.getChapter(book, 1), bible.getChapter(book, 1));
+				assertEquals(expected.getReferencesForChapter(book, 1), bible.getReferencesForChapter(book, 1));
+				assertEquals(expected.getChapters(book, 1, 2), bible.getChapters(book, 1, 2));
+				assertEquals(expected.getReferencesForChapters(book, 1, 2), bible.getReferencesForChapters(book, 1, 2));
+				assertEquals(expected.getPassage(book, 1, 2, 4), bible.getPassage(book, 1, 2, 4));
+				assertEquals(expected.getReferencesForPassage(book, 1, 2, 4),
+						bible.getReferencesForPassage(book, 1, 2, 4));
+			}
+			assertEquals(expected.getPassage(BookOfBible.Genesis, 1, 4, 3, 2),
+					bible.getPassage(BookOfBible.Genesis, 1, 4, 3, 2));
+			assertEquals(expected.getReferencesForPassage(BookOfBible.Genesis, 1, 4, 3, 2),
+					bible.getReferencesForPassage(BookOfBible.Genesis, 1, 4, 3, 2));
+			assertEquals(expected.getVersesInclusive(gen1_3, gen3_2), bible.getVersesInclusive(gen1_3, gen3_2));
+			assertEquals(expected.getReferencesInclusive(gen1_3, gen3_2),
+					bible.getReferencesInclusive(gen1_3, gen3_2));
+			assertEquals(expected.getVersesExclusive(gen3_2, john3_5), bible.getVersesExclusive(gen3_2, john3_5));
+			assertEquals(expected.getReferencesExclusive(gen3_2, john3_5),
+					bible.getReferencesExclusive(gen3_2, john3_5));
+
+			// Backwards ranges are empty.
+			assertEquals(0, bible.getVersesInclusive(gen3_2, gen1_3).size());
+			assertEquals(0, bible.getReferencesForChapters(BookOfBible.Genesis, 3, 1).size());
+			assertEquals(0, bible.getPassage(BookOfBible.Genesis, 1, 4, 2).size());
+		}
+	}
+
+	@Test
+	public void testMissingVerses() {
+		for (Bible bible : others) {
+			assertNull(bible.getVerse(new Reference(BookOfBible.Ruth, 2, 1)));
+			assertEquals(0, bible.getChapter(BookOfBible.Ruth, 2).size());
+			assertEquals(0, bible.getBook(BookOfBible.Exodus).size());
+			assertEquals(0, bible.getReferencesForBook(null).size());
+		}
+	}
+
+	private void addVerses(BookOfBible book, int chapter, int firstVerse, int lastVerse) {
+		for (int verse = firstVerse; verse <= lastVerse; verse++) {
+			sampleVerses.add(new Verse(book, chapter, verse, "This is verse " + chapter + ":" + verse + " of " + book
+					+ "."));
+		}
+	}
+
+	private static VerseList copy(VerseList verses) {
+		return new VerseList(verses.getVersion(), verses.getDescription(), new ArrayList<Verse>(verses));
+	}
+}
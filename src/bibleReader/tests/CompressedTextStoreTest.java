@@ -0,0 +1,87 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import bibleReader.model.CompressedTextStore;
+import bibleReader.model.TokenDictionary;
+
+/**
+ * Tests for the dictionary-encoded verse text store.
+ */
+public class CompressedTextStoreTest {
+	private static final List<String>	TEXTS	= Arrays.asList(
+			"In the beginning, God created the heavens and the earth.", "", " leading space", "trailing space ",
+			"two  spaces", "And God said, \"Let there be light,\" and there was light.",
+			"the LORD's house; the Lord\u2019s servant", "42:7 - 3x", ".");
+
+	@Test
+	public void testRoundTrip() {
+		CompressedTextStore store = new CompressedTextStore(TEXTS, new TokenDictionary(), 0);
+		assertEquals(TEXTS.size(), store.size());
+		for (int i = 0; i < TEXTS.size(); i++) {
+			assertEquals(TEXTS.get(i), store.getText(i));
+		}
+	}
+
+	@Test
+	public void testCacheDoesNotChangeResults() {
+		CompressedTextStore store = new CompressedTextStore(TEXTS, new TokenDictionary(), 2);
+		for (int pass = 0; pass < 3; pass++) {
+			for (int i = 0; i < TEXTS.size(); i++) {
+				assertEquals(TEXTS.get(i), store.getText(i));
+			}
+		}
+	}
+
+	@Test
+	public void testSharedDictionary() {
+		TokenDictionary dictionary = new TokenDictionary();
+		new CompressedTextStore(TEXTS.subList(0, 1), dictionary, 0);
+		int size = dictionary.size();
+		CompressedTextStore second = new CompressedTextStore(Arrays.asList("the earth and the heavens."), dictionary, 0);
+		// Every token of the second text was already in the dictionary.
+		assertEquals(size, dictionary.size());
+		assertEquals("the earth and the heavens.", second.getText(0));
+		// One byte per token, and no bytes for the spaces.
+		assertEquals(6, second.getEncodedSize());
+	}
+
+	@Test
+	public void testContainsIgnoreCase() {
+		CompressedTextStore store = new CompressedTextStore(TEXTS, new TokenDictionary(), 0);
+		assertTrue(store.containsIgnoreCase(0, "god created".toCharArray()));
+		assertTrue(store.containsIgnoreCase(6, "lord's".toCharArray()));
+		assertFalse(store.containsIgnoreCase(0, "god  created".toCharArray()));
+		assertFalse(store.containsIgnoreCase(1, "a".toCharArray()));
+	}
+
+	@Test
+	public void testDecodeWhileDictionaryGrows() throws InterruptedException {
+		final TokenDictionary dictionary = new TokenDictionary();
+		final CompressedTextStore store = new CompressedTextStore(TEXTS, dictionary, 0);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				// Enough new tokens to grow the arrays several times.
+				for (int i = 0; i < 20000; i++) {
+					dictionary.idOf("word" + i);
+				}
+			}
+		};
+		writer.start();
+		while (writer.isAlive()) {
+			for (int i = 0; i < TEXTS.size(); i++) {
+				assertEquals(TEXTS.get(i), store.getText(i));
+			}
+		}
+		writer.join();
+		assertEquals("word19999", dictionary.getToken(dictionary.idOf("word19999")));
+	}
+}
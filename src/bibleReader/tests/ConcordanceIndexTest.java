@@ -0,0 +1,150 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.ConcordanceIndex;
+import bibleReader.model.MappedConcordance;
+import bibleReader.model.Reference;
+import bibleReader.model.TermIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for saving concordances next to the Bibles they index.
+ */
+public class ConcordanceIndexTest {
+	private File	source;
+	private File	index;
+
+	@Before
+	public void setUp() throws Exception {
+		source = File.createTempFile("test", ".atv");
+		index = ConcordanceIndex.indexFileFor(source);
+		writeSource("In the beginning God created the heavens and the earth.");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		source.delete();
+		index.delete();
+	}
+
+	@Test
+	public void testSavedAndReused() throws Exception {
+		assertFalse(index.exists());
+		Concordance built = forSource();
+		assertFalse(built instanceof MappedConcordance);
+		assertTrue(index.isFile());
+
+		Concordance saved = forSource();
+		assertTrue(saved instanceof MappedConcordance);
+		assertSameConcordance(built, saved);
+		assertEquals(Arrays.asList(new Reference(BookOfBible.Genesis, 1, 1), new Reference(BookOfBible.John, 1, 1)),
+				saved.getReferencesContaining("Beginning"));
+		assertEquals(Arrays.asList(new Reference(BookOfBible.John, 1, 1)),
+				saved.getReferencesContainingAll(new ArrayList<String>(Arrays.asList("word", "god"))));
+		assertEquals(0, saved.getReferencesContaining("zebra").size());
+	}
+
+	@Test
+	public void testStaleIndexIsRebuilt() throws Exception {
+		forSource();
+		long written = index.length();
+
+		// Same length, different text.
+		writeSource("In the beginning God created the heavens and the EARTH.");
+		Concordance rebuilt = forSource();
+		assertFalse(rebuilt instanceof MappedConcordance);
+
+		writeSource("In the beginning God created the heavens and the earth. And the earth was without form.");
+		rebuilt = forSource();
+		assertFalse(rebuilt instanceof MappedConcordance);
+		assertTrue(index.length() > written);
+		assertEquals(1, rebuilt.getReferencesContaining("form").size());
+
+		MappedConcordance mapped = (MappedConcordance) forSource();
+		assertEquals(ConcordanceIndex.checksum(source), mapped.getSourceChecksum());
+		assertEquals(1, mapped.getReferencesContaining("form").size());
+	}
+
+	@Test
+	public void testDamagedIndexIsRebuilt() throws Exception {
+		forSource();
+		RandomAccessFile raf = new RandomAccessFile(index, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+		Concordance rebuilt = forSource();
+		assertFalse(rebuilt instanceof MappedConcordance);
+		assertTrue(forSource() instanceof MappedConcordance);
+
+		// The positions are at the end, and are only decoded when they are asked for.
+		raf = new RandomAccessFile(index, "rw");
+		raf.seek(raf.length() - 1);
+		int last = raf.read();
+		raf.seek(raf.length() - 1);
+		raf.write(last ^ 0x40);
+		raf.close();
+		rebuilt = forSource();
+		assertFalse(rebuilt instanceof MappedConcordance);
+		assertTrue(forSource() instanceof MappedConcordance);
+	}
+
+	@Test
+	public void testWholeBible() throws Exception {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Bible bible = new TreeMapBible(verses);
+		Concordance built = new Concordance(bible);
+		ConcordanceIndex.write(built, 0, 0, index);
+		assertSameConcordance(built, new MappedConcordance(index));
+	}
+
+	private static void assertSameConcordance(Concordance expected, Concordance actual) {
+		assertEquals(expected.getNumberOfVerses(), actual.getNumberOfVerses());
+		TermIndex e = expected.getTermIndex();
+		TermIndex a = actual.getTermIndex();
+		assertEquals(e.size(), a.size());
+		for (int i = 0; i < e.size(); i++) {
+			assertEquals(e.getTerm(i), a.getTerm(i));
+			assertEquals(i, a.indexOf(e.getTerm(i)));
+			assertEquals(e.getPostings(i), a.getPostings(i));
+			assertEquals(e.getPositions(i), a.getPositions(i));
+		}
+		assertEquals(e.getSeparatorCount(), a.getSeparatorCount());
+		for (int i = 0; i < e.getSeparatorCount(); i++) {
+			assertEquals(e.getSeparator(i), a.getSeparator(i));
+			assertEquals(i, a.indexOfSeparator(e.getSeparator(i)));
+		}
+		assertEquals(e.indexOf("zzzz"), a.indexOf("zzzz"));
+		assertEquals(e.indexOf(""), a.indexOf(""));
+	}
+
+	private void writeSource(String genesis) throws Exception {
+		FileWriter out = new FileWriter(source);
+		out.write("TST: A test Bible\n");
+		out.write("Gen@1:1@" + genesis + "\n");
+		out.write("John@1:1@In the beginning was the Word, and the Word was with God, and the Word was God.\n");
+		out.close();
+	}
+
+	private Concordance forSource() {
+		return ConcordanceIndex.forSource(new TreeMapBible(BibleIO.readBible(source)), source);
+	}
+}
@@ -0,0 +1,170 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.FuzzyIndex;
+import bibleReader.model.Reference;
+import bibleReader.model.TermIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for finding the words close to a misspelled one.
+ */
+public class FuzzyIndexTest {
+	private static final Reference	ROM_3_10	= new Reference(BookOfBible.Romans, 3, 10);
+	private static final Reference	DAN_1_1		= new Reference(BookOfBible.Daniel, 1, 1);
+	private static final Reference	MAT_5_6		= new Reference(BookOfBible.Matthew, 5, 6);
+
+	@Test
+	public void testSameAsComparingEveryWord() {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Concordance concordance = new Concordance(new TreeMapBible(verses));
+		TermIndex terms = concordance.getTermIndex();
+		String[] all = terms.getTerms(0, terms.size());
+		FuzzyIndex fuzzy = concordance.getFuzzyIndex();
+
+		List<String> queries = new ArrayList<String>(Arrays.asList("john", "jhon", "jon", "", "x", "psalms", "zzzzzz",
+				"1", "12", "123"));
+		// Words from the dictionary with an edit or two made to them.
+		Random random = new Random(7);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder word = new StringBuilder(all[random.nextInt(all.length)]);
+			for (int edits = random.nextInt(3); edits > 0; edits--) {
+				int at = random.nextInt(word.length() + 1);
+				char c = (char) ('a' + random.nextInt(26));
+				switch (random.nextInt(3)) {
+				case 0:
+					word.insert(at, c);
+					break;
+				case 1:
+					if (at < word.length()) {
+						word.deleteCharAt(at);
+					}
+					break;
+				default:
+					if (at < word.length()) {
+						word.setCharAt(at, c);
+					}
+				}
+			}
+			queries.add(word.toString());
+		}
+
+		for (String query : queries) {
+			for (int k = 0; k <= 2; k++) {
+				TreeSet<String> expected = new TreeSet<String>();
+				for (String term : all) {
+					if (distance(query, term) <= k) {
+						expected.add(term);
+					}
+				}
+				TreeSet<String> found = new TreeSet<String>();
+				for (FuzzyIndex.Match match : fuzzy.find(query, k)) {
+					assertEquals(distance(query, match.getTerm()), match.getDistance());
+					assertEquals(match.getTerm(), terms.getTerm(match.getIndex()));
+					found.add(match.getTerm());
+				}
+				assertEquals(query + " " + k, expected, found);
+			}
+		}
+	}
+
+	@Test
+	public void testRanking() {
+		Concordance concordance = new Concordance(new ArrayListBible(sample()));
+		List<FuzzyIndex.Match> matches = concordance.getSimilarWords("Rightousness");
+		assertEquals("righteousness", matches.get(0).getTerm());
+		assertEquals(1, matches.get(0).getDistance());
+
+		// Equally close, so the one in more verses comes first.
+		matches = concordance.getSimilarWords("thw");
+		assertEquals(Arrays.asList("the", "thy"), terms(matches));
+		assertTrue(matches.get(0).getFrequency() > matches.get(1).getFrequency());
+
+		assertEquals(Arrays.asList(DAN_1_1), concordance.getReferencesContainingSimilar("Nebuchadnezer"));
+		assertEquals(0, concordance.getReferencesContaining("Nebuchadnezer").size());
+		// Short words must be exact.
+		assertEquals(0, concordance.getSimilarWords("ta").size());
+	}
+
+	@Test
+	public void testModel() {
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(sample()));
+		assertFalse(model.isFuzzySearch());
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("rightousness").size());
+
+		model.setFuzzySearch(true);
+		assertEquals(Arrays.asList(MAT_5_6), model.getReferencesContainingAllWordsAndPhrases("rightousness"));
+		assertEquals(Arrays.asList(ROM_3_10), model.getReferencesContainingAllWordsAndPhrases("rightous"));
+		assertEquals(Arrays.asList(MAT_5_6), model.getReferencesContainingAllWordsAndPhrases("hungr rightousness"));
+		// Phrases are still exact.
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("\"none rightous\"").size());
+		assertEquals(Arrays.asList("the", "thy"), model.getSuggestions("thw", 5));
+		assertEquals(Arrays.asList("the"), model.getSuggestions("thw", 1));
+
+		// Another version with "thy" in more verses than the first has "the".
+		VerseList other = new VerseList("OTH", "Other");
+		other.add(new Verse(DAN_1_1, "Thy kingdom"));
+		other.add(new Verse(ROM_3_10, "Thy will"));
+		other.add(new Verse(MAT_5_6, "Thy name"));
+		model.addBible(new ArrayListBible(other));
+		assertEquals(Arrays.asList("thy", "the"), model.getSuggestions("thw", 5));
+	}
+
+	private static VerseList sample() {
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(DAN_1_1, "In the third year of the reign of Jehoiakim king of Judah, Nebuchadnezzar king "
+				+ "of Babylon came to Jerusalem and besieged it."));
+		verses.add(new Verse(ROM_3_10, "As it is written: None is righteous, no, not one."));
+		verses.add(new Verse(MAT_5_6, "Blessed are those who hunger and thirst for righteousness, for they shall be "
+				+ "satisfied. Thy will be done on the earth."));
+		return verses;
+	}
+
+	private static List<String> terms(List<FuzzyIndex.Match> matches) {
+		List<String> terms = new ArrayList<String>();
+		for (FuzzyIndex.Match match : matches) {
+			terms.add(match.getTerm());
+		}
+		return terms;
+	}
+
+	/*
+	 * The Levenshtein distance between two words.
+	 */
+	private static int distance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+				} else {
+					int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+					d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
@@ -0,0 +1,183 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.IntReferenceList;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceCodec;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for the int-backed ReferenceList.
+ */
+public class IntReferenceListTest {
+	private Reference	gen1_1;
+	private Reference	gen1_2;
+	private Reference	john3_16;
+	private Reference	rev22_21;
+
+	@Before
+	public void setUp() throws Exception {
+		gen1_1 = new Reference(BookOfBible.Genesis, 1, 1);
+		gen1_2 = new Reference(BookOfBible.Genesis, 1, 2);
+		john3_16 = new Reference(BookOfBible.John, 3, 16);
+		rev22_21 = new Reference(BookOfBible.Revelation, 22, 21);
+	}
+
+	@Test
+	public void testBehavesLikeAReferenceList() {
+		IntReferenceList list = new IntReferenceList();
+		assertTrue(list.isEmpty());
+		list.add(john3_16);
+		list.add(gen1_1);
+		list.add(1, rev22_21);
+		assertEquals(3, list.size());
+		assertEquals(john3_16, list.get(0));
+		assertEquals(rev22_21, list.get(1));
+		assertEquals(gen1_1, list.get(2));
+		assertTrue(list.contains(gen1_1));
+		assertFalse(list.contains(gen1_2));
+		assertEquals(2, list.indexOf(gen1_1));
+
+		// It should be equal to an ordinary ReferenceList with the same references, and vice versa.
+		ReferenceList plain = new ReferenceList(list);
+		assertEquals(plain, list);
+		assertEquals(list, plain);
+		assertEquals(plain.hashCode(), list.hashCode());
+
+		list.remove(rev22_21);
+		assertEquals(2, list.size());
+		assertEquals(gen1_1, list.get(1));
+
+		Iterator<Reference> it = list.iterator();
+		it.next();
+		it.remove();
+		assertEquals(1, list.size());
+		assertEquals(gen1_1, list.get(0));
+
+		list.clear();
+		assertTrue(list.isEmpty());
+	}
+
+	@Test
+	public void testCopiesAndSubLists() {
+		IntReferenceList list = new IntReferenceList();
+		list.add(gen1_1);
+		list.add(gen1_2);
+		list.add(john3_16);
+		list.add(rev22_21);
+
+		List<Reference> sub = list.subList(1, 3);
+		assertEquals(2, sub.size());
+		assertEquals(gen1_2, sub.get(0));
+		assertEquals(john3_16, sub.get(1));
+		assertEquals(sub, new ReferenceList(sub));
+		assertEquals(sub, list.copyOfRange(1, 3));
+
+		// Copying from an ordinary collection and back.
+		ArrayList<Reference> arrayList = new ArrayList<Reference>(list);
+		assertEquals(list, new IntReferenceList(arrayList));
+		assertEquals(list, new ArrayList<Reference>(new TreeSet<Reference>(list)));
+	}
+
+	@Test
+	public void testPrimitiveAccessors() {
+		int[] codes = { ReferenceCodec.encode(gen1_1), ReferenceCodec.encode(john3_16) };
+		IntReferenceList list = IntReferenceList.wrap(codes, 2);
+		assertEquals(gen1_1, list.get(0));
+		assertEquals(ReferenceCodec.encode(john3_16), list.getCode(1));
+		list.addCode(ReferenceCodec.encode(rev22_21));
+		assertEquals(rev22_21, list.get(2));
+		assertArrayEquals(new int[] { codes[0], codes[1], ReferenceCodec.encode(rev22_21) }, list.toCodeArray());
+		assertEquals(1, list.binarySearch(ReferenceCodec.encode(john3_16)));
+		assertTrue(list.binarySearch(ReferenceCodec.encode(gen1_2)) < 0);
+	}
+
+	@Test
+	public void testSortUnionAndIntersection() {
+		IntReferenceList a = new IntReferenceList();
+		a.add(rev22_21);
+		a.add(gen1_1);
+		a.add(john3_16);
+		a.sort(null);
+		assertEquals(gen1_1, a.get(0));
+		assertEquals(rev22_21, a.get(2));
+
+		IntReferenceList b = new IntReferenceList();
+		b.add(gen1_2);
+		b.add(john3_16);
+
+		IntReferenceList union = IntReferenceList.union(a, b);
+		assertEquals(4, union.size());
+		assertEquals(gen1_1, union.get(0));
+		assertEquals(gen1_2, union.get(1));
+		assertEquals(john3_16, union.get(2));
+		assertEquals(rev22_21, union.get(3));
+
+		IntReferenceList both = IntReferenceList.intersection(a, b);
+		assertEquals(1, both.size());
+		assertEquals(john3_16, both.get(0));
+	}
+
+	@Test
+	public void testStreamsAndLambdas() {
+		IntReferenceList list = new IntReferenceList();
+		list.add(gen1_1);
+		list.add(john3_16);
+		assertEquals(2, list.stream().count());
+		assertEquals(john3_16, list.stream().filter(r -> r.getBookOfBible() == BookOfBible.John).findFirst().get());
+		List<Reference> visited = new ArrayList<Reference>();
+		list.forEach(visited::add);
+		assertEquals(list, visited);
+
+		list.replaceAll(r -> r.equals(gen1_1) ? gen1_2 : r);
+		assertEquals(gen1_2, list.get(0));
+		assertTrue(list.removeIf(r -> r.equals(gen1_2)));
+		assertEquals(1, list.size());
+		assertFalse(list.removeIf(r -> false));
+		assertTrue(list.removeIf(r -> true));
+		assertTrue(list.isEmpty());
+	}
+
+	@Test
+	public void testModelListsEachReferenceOnce() {
+		// A Bible can have more than one verse with the same reference.
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(gen1_1, "In the beginning"));
+		verses.add(new Verse(gen1_1, "In the beginning, again"));
+		verses.add(new Verse(gen1_2, "The earth was without form"));
+		verses.add(new Verse(john3_16, "For God so loved us"));
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		List<Reference> genesis = new ArrayList<Reference>();
+		genesis.add(gen1_1);
+		genesis.add(gen1_2);
+		assertEquals(genesis, model.getReferencesContaining("the"));
+		assertEquals(genesis, model.getBookReferences(BookOfBible.Genesis));
+		assertEquals(1, model.getReferencesContaining("beginning").size());
+
+		// And once however many versions have it.
+		VerseList other = new VerseList("OTH", "Other");
+		other.add(new Verse(gen1_1, "In the beginning God"));
+		other.add(new Verse(gen1_1, "In the beginning God, again"));
+		model.addBible(new ArrayListBible(other));
+		assertEquals(genesis, model.getReferencesContaining("the"));
+		assertEquals(genesis, model.getBookReferences(BookOfBible.Genesis));
+	}
+}
@@ -0,0 +1,111 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.BibleImage;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.MappedBible;
+import bibleReader.model.Reference;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for Bible images and the Bible that maps them.
+ */
+public class MappedBibleTest {
+	private TreeMapBible	bible;
+	private File			image;
+
+	@Before
+	public void setUp() throws Exception {
+		VerseList verses = new VerseList("TST", "A \u201ctest\u201d Bible");
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "In the beginning, God created the heavens and the earth."));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 2, "The earth was without form and void\u2014and darkness."));
+		verses.add(new Verse(BookOfBible.Psalms, 119, 176, ""));
+		verses.add(new Verse(BookOfBible.Revelation, 22, 21, "The grace of the Lord Jesus be with all. Amen."));
+		bible = new TreeMapBible(verses);
+		image = File.createTempFile("test", BibleImage.EXTENSION);
+		BibleImage.write(bible, image);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		image.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		MappedBible mapped = new MappedBible(image);
+		assertEquals("TST", mapped.getVersion());
+		assertEquals("A \u201ctest\u201d Bible", mapped.getTitle());
+		assertEquals(4, mapped.getNumberOfVerses());
+		assertEquals(bible.getAllVerses(), mapped.getAllVerses());
+		assertEquals("The earth was without form and void\u2014and darkness.",
+				mapped.getVerseText(new Reference(BookOfBible.Genesis, 1, 2)));
+		assertEquals("", mapped.getVerseText(new Reference(BookOfBible.Psalms, 119, 176)));
+		assertNull(mapped.getVerse(new Reference(BookOfBible.Genesis, 1, 3)));
+		assertEquals(1, mapped.getVersesContaining("VOID\u2014AND").size());
+	}
+
+	@Test
+	public void testBadImages() throws Exception {
+		// Not an image at all.
+		FileOutputStream out = new FileOutputStream(image);
+		out.write("Genesis 1:1 In the beginning".getBytes("UTF-8"));
+		out.close();
+		assertNotAnImage();
+
+		// An image that has been cut short.
+		BibleImage.write(bible, image);
+		RandomAccessFile raf = new RandomAccessFile(image, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		assertNotAnImage();
+
+		// An image from a newer version of the program.
+		BibleImage.write(bible, image);
+		raf = new RandomAccessFile(image, "rw");
+		raf.seek(4);
+		raf.writeInt(BibleImage.FORMAT_VERSION + 1);
+		raf.close();
+		assertNotAnImage();
+
+		// A reference to a book that doesn't exist, or text offsets that go backwards. These have to fail when the
+		// image is opened, not when the verses are looked at.
+		BibleImage.write(bible, image);
+		raf = new RandomAccessFile(image, "rw");
+		int codesStart = BibleImage.readHeader(raf).getLength();
+		raf.seek(codesStart + 4 * 3);
+		raf.writeInt(0x7F000001);
+		raf.close();
+		assertNotAnImage();
+
+		BibleImage.write(bible, image);
+		raf = new RandomAccessFile(image, "rw");
+		raf.seek(codesStart + 4 * 4 + 4 * 2);
+		raf.writeInt(1000);
+		raf.close();
+		assertNotAnImage();
+	}
+
+	private void assertNotAnImage() {
+		try {
+			new MappedBible(image);
+			fail("Should not have opened " + image);
+		} catch (IOException e) {
+			// This is what should happen.
+		}
+	}
+}
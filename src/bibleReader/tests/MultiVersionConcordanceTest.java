@@ -0,0 +1,153 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArchaicStemmer;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.IntReferenceList;
+import bibleReader.model.MultiVersionConcordance;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceCodec;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TermIndex;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for searching several versions with one concordance.
+ */
+public class MultiVersionConcordanceTest {
+	private static TreeMap<String, Concordance>	versions;
+	private static MultiVersionConcordance		all;
+
+	/*
+	 * Make versions from the ESV cross references, each missing some verses and with some words changed, so that the
+	 * versions have different verses and words.
+	 */
+	@BeforeClass
+	public static void makeVersions() {
+		VerseList esv = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(esv);
+		Random random = new Random(19);
+		versions = new TreeMap<String, Concordance>();
+		for (int v = 0; v < 5; v++) {
+			VerseList verses = new VerseList("V" + v, "Version " + v);
+			for (Verse verse : esv) {
+				if (random.nextInt(10) < 2) {
+					continue;
+				}
+				String text = verse.getText();
+				if (random.nextInt(4) == 0) {
+					text = text.replace("John", "Jn" + v).replace("Ps", "Psalm");
+				}
+				verses.add(new Verse(verse.getReference(), text));
+			}
+			versions.put(verses.getVersion(), new Concordance(new ArrayListBible(verses), null));
+		}
+		all = new MultiVersionConcordance(versions);
+	}
+
+	@Test
+	public void testSameAsSearchingEachVersion() {
+		ArrayList<String> words = new ArrayList<String>();
+		for (Concordance concordance : versions.values()) {
+			TermIndex terms = concordance.getTermIndex();
+			words.addAll(Arrays.asList(terms.getTerms(0, terms.size())));
+		}
+		words.add("notaword");
+		String[] names = all.getVersions();
+		assertEquals(Arrays.asList("V0", "V1", "V2", "V3", "V4"), Arrays.asList(names));
+		long[] masks = { all.getAllVersions(), all.getVersionMask("V1"), all.getVersionMask("V0", "V3", "V4"), 0,
+				all.getVersionMask("V2", "NONE") };
+		for (long mask : masks) {
+			for (String word : words) {
+				ArrayList<String> one = new ArrayList<String>(Arrays.asList(word));
+				assertEquals(word, eachVersion(one, mask), all.getReferencesContaining(word.toUpperCase(), mask));
+			}
+		}
+		Random random = new Random(5);
+		for (int i = 0; i < 300; i++) {
+			List<String> query = new ArrayList<String>();
+			for (int n = 1 + random.nextInt(3); n > 0; n--) {
+				query.add(words.get(random.nextInt(words.size())));
+			}
+			long mask = masks[random.nextInt(masks.length)];
+			assertEquals(query.toString(), eachVersion(query, mask), all.getReferencesContainingAll(query, mask));
+		}
+		assertEquals(0, all.getReferencesContainingAll(new ArrayList<String>(), all.getAllVersions()).size());
+	}
+
+	@Test
+	public void testVersionsContaining() {
+		ReferenceList jn2 = all.getReferencesContaining("jn2", all.getAllVersions());
+		assertTrue(jn2.size() > 0);
+		int ordinal = all.getVerses("jn2", all.getAllVersions()).toArray()[0];
+		assertEquals(jn2.get(0), ReferenceCodec.decode(all.getCode(ordinal)));
+		assertEquals(all.getVersionMask("V2"), all.getVersionsContaining("jn2", ordinal));
+		assertEquals(0, all.getVersionsContaining("jn3", ordinal));
+	}
+
+	@Test
+	public void testModel() {
+		Reference gen = new Reference(BookOfBible.Genesis, 1, 1);
+		Reference john = new Reference(BookOfBible.John, 1, 1);
+		VerseList kjv = new VerseList("KJV", "King James");
+		kjv.add(new Verse(gen, "In the beginning God created the heaven and the earth."));
+		kjv.add(new Verse(john, "In the beginning was the Word"));
+		VerseList esv = new VerseList("ESV", "English Standard");
+		esv.add(new Verse(gen, "In the beginning, God created the heavens and the earth."));
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(kjv));
+		model.addBible(new ArrayListBible(esv));
+
+		MultiVersionConcordance both = model.getMultiVersionConcordance();
+		assertEquals(Arrays.asList(gen, john), model.getReferencesContainingAllWordsAndPhrases("beginning"));
+		assertEquals(Arrays.asList(gen), model.getReferencesContainingAllWordsAndPhrases("heavens"));
+		assertEquals(Arrays.asList(gen), both.getReferencesContaining("beginning", both.getVersionMask("ESV")));
+		// The words must all be in one version.
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("heavens word").size());
+
+		// Adding a version makes a new one.
+		VerseList asv = new VerseList("ASV", "American Standard");
+		asv.add(new Verse(john, "In the beginning was the Word, and the Word was with God"));
+		model.addBible(new ArrayListBible(asv));
+		assertTrue(both != model.getMultiVersionConcordance());
+		assertEquals(Arrays.asList(gen, john), model.getReferencesContainingAllWordsAndPhrases("god beginning"));
+
+		model.setMatchWordForms(true);
+		assertEquals(new ArchaicStemmer().getName(), model.getMultiVersionConcordance().getStemmer().getName());
+		assertEquals(Arrays.asList(gen), model.getReferencesContainingAllWordsAndPhrases("heaven"));
+	}
+
+	/*
+	 * Search each version in the mask on its own, and unite the results.
+	 */
+	private static ReferenceList eachVersion(List<String> words, long mask) {
+		IntReferenceList result = new IntReferenceList();
+		String[] names = all.getVersions();
+		for (int v = 0; v < names.length; v++) {
+			if ((mask & (1L << v)) != 0) {
+				result = IntReferenceList.union(result,
+						IntReferenceList.copyOf(versions.get(names[v]).getReferencesContainingAll(
+								new ArrayList<String>(words))));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,137 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.PostingSet;
+import bibleReader.model.QueryParser;
+import bibleReader.model.QueryPlan;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceCodec;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for finding words near each other.
+ */
+public class NearQueryTest {
+	private static final Reference	ROM_5_2		= new Reference(BookOfBible.Romans, 5, 2);
+	private static final Reference	EPH_2_8		= new Reference(BookOfBible.Ephesians, 2, 8);
+	private static final Reference	EPH_2_9		= new Reference(BookOfBible.Ephesians, 2, 9);
+	private static final Reference	JAS_2_17	= new Reference(BookOfBible.James, 2, 17);
+	private static final Reference	JAS_2_18	= new Reference(BookOfBible.James, 2, 18);
+	private static final Reference	PET1_5_14	= new Reference(BookOfBible.Peter1, 5, 14);
+	private static final Reference	PET2_1_1	= new Reference(BookOfBible.Peter2, 1, 1);
+
+	private BibleReaderModel		model;
+	private Concordance				concordance;
+
+	@Before
+	public void setUp() {
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(ROM_5_2, "Through him we have also obtained access by faith into this grace"));
+		verses.add(new Verse(EPH_2_8, "For by grace you have been saved through faith."));
+		verses.add(new Verse(EPH_2_9, "And this is not your own doing"));
+		verses.add(new Verse(JAS_2_17, "So also faith by itself,"));
+		verses.add(new Verse(JAS_2_18, "is dead without grace and works."));
+		verses.add(new Verse(PET1_5_14, "Greet one another with the kiss of love and faith."));
+		verses.add(new Verse(PET2_1_1, "Grace and peace be multiplied to you"));
+		model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		concordance = new Concordance(new ArrayListBible(verses));
+	}
+
+	@Test
+	public void testNear() {
+		assertEquals(Arrays.asList(ROM_5_2), search("grace NEAR/3 faith"));
+		assertEquals(Arrays.asList(ROM_5_2), search("faith NEAR/3 grace"));
+		assertEquals(0, search("grace NEAR/2 faith").size());
+		assertEquals(Arrays.asList(ROM_5_2, EPH_2_8), search("grace NEAR/6 faith"));
+		assertEquals(Arrays.asList(ROM_5_2, EPH_2_8), search("gra* NEAR/6 fait?"));
+		// Next to each other.
+		assertEquals(Arrays.asList(ROM_5_2, JAS_2_17), search("by NEAR/1 faith"));
+		// A word isn't near itself.
+		assertEquals(0, search("faith NEAR/5 faith").size());
+		// However far apart the words can be, they still have to be in the same verse.
+		for (String near : new String[] { "NEAR/1000000", "NEAR/2147483646", "NEAR/2147483647" }) {
+			assertEquals(near, Arrays.asList(ROM_5_2, EPH_2_8), search("grace " + near + " faith"));
+		}
+		assertEquals(Arrays.asList(EPH_2_8), search("grace PRE/2147483647 faith"));
+		assertEquals(Arrays.asList(ROM_5_2, EPH_2_8, JAS_2_17, JAS_2_18), search("grace NEAR/2147483647+ faith"));
+	}
+
+	@Test
+	public void testOrdered() {
+		assertEquals(Arrays.asList(EPH_2_8), search("grace PRE/6 faith"));
+		assertEquals(Arrays.asList(ROM_5_2), search("faith PRE/6 grace"));
+		assertEquals(0, search("grace PRE/3 faith").size());
+	}
+
+	@Test
+	public void testAcrossVerses() {
+		// "faith by itself, | is dead without grace" is 6 words apart, across two verses.
+		assertEquals(Arrays.asList(ROM_5_2, EPH_2_8, JAS_2_17, JAS_2_18), search("grace NEAR/6+ faith"));
+		assertEquals(Arrays.asList(ROM_5_2), search("grace NEAR/5+ faith"));
+		assertEquals(Arrays.asList(ROM_5_2, JAS_2_17, JAS_2_18), search("faith PRE/6+ grace"));
+		assertEquals(Arrays.asList(EPH_2_8), search("grace PRE/6+ faith"));
+		// The last verse of 1 Peter and the first of 2 Peter are in different books.
+		assertEquals(0, search("faith NEAR/1+ grace").size());
+		// Both verses match, but only one of them has "works".
+		assertEquals(Arrays.asList(JAS_2_18), search("faith NEAR/6+ grace works"));
+		assertEquals(Arrays.asList(ROM_5_2, EPH_2_8, JAS_2_17), search("faith NEAR/6+ grace NOT works"));
+
+		PostingSet within = PostingSet.of(new int[] { concordance.getOrdinal(ReferenceCodec.encode(JAS_2_18)) });
+		PostingSet found = concordance.getVersesNear(concordance.getPositions("faith"), concordance.getPositions(
+				"grace"), 6, true, true, within);
+		assertEquals(within, found);
+	}
+
+	@Test
+	public void testManyVerses() {
+		// Every verse is near itself and both of its neighbours.
+		VerseList verses = new VerseList("TST", "Test");
+		for (int verse = 1; verse <= 20; verse++) {
+			verses.add(new Verse(new Reference(BookOfBible.Titus, 2, verse), "grace and faith"));
+		}
+		Concordance many = new Concordance(new ArrayListBible(verses));
+		assertEquals(20, new QueryPlan(new QueryParser().parse("grace NEAR/5+ faith"), many).execute().cardinality());
+		assertEquals(20, many.getVersesNear(many.getPositions("faith"), many.getPositions("grace"), 2, false, true,
+				null).cardinality());
+	}
+
+	@Test
+	public void testParse() {
+		QueryParser parser = new QueryParser();
+		assertEquals("grace NEAR/5 faith AND love", parser.parse("grace NEAR/5 faith love").toString());
+		assertEquals("grace PRE/5+ faith", parser.parse("grace PRE/5+ faith").toString());
+		for (String bad : new String[] { "grace NEAR/3", "NEAR/3 faith", "(grace love) NEAR/3 faith",
+				"\"by grace\" NEAR/2 faith", "grace NEAR/0 faith", "grace NEAR/99999999999 faith" }) {
+			try {
+				parser.parse(bad);
+				fail(bad);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		// Lowercase, or without a number, it is just a word.
+		assertEquals("grace AND (near AND 3) AND faith", parser.parse("grace near/3 faith").toString());
+
+		String explained = model.explain("grace NEAR/3 faith");
+		assertTrue(explained, explained.contains("grace NEAR/3 faith (estimated 4, found 1)"));
+	}
+
+	private ReferenceList search(String search) {
+		return model.getReferencesContainingAllWordsAndPhrases(search);
+	}
+}
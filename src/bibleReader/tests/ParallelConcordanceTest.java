@@ -0,0 +1,108 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Bible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.Positions;
+import bibleReader.model.TermIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that building a concordance in parallel gives the same index as building it on one thread.
+ */
+public class ParallelConcordanceTest {
+	private ExecutorService	executor;
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSameAsSequential() {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Bible bible = new TreeMapBible(verses);
+		assertSameIndex(bible, words(verses));
+	}
+
+	@Test
+	public void testDuplicatesAndOrder() {
+		// Duplicate references, out of order, including one whose copies are split around other books.
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(BookOfBible.Ruth, 1, 1, "in the days when the judges ruled"));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "in the beginning"));
+		verses.add(new Verse(BookOfBible.Exodus, 1, 1, "these are the names"));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "god created the heavens"));
+		verses.add(new Verse(BookOfBible.Leviticus, 1, 1, "the lord called moses"));
+		verses.add(new Verse(BookOfBible.Numbers, 1, 1, "the lord spoke to moses"));
+		assertSameIndex(new ArrayListBible(verses), words(verses));
+	}
+
+	private void assertSameIndex(Bible bible, TreeSet<String> words) {
+		Concordance sequential = new Concordance(bible, null);
+		Concordance parallel = new Concordance(bible, executor);
+		for (String word : words) {
+			assertEquals(word, sequential.getVerses(word), parallel.getVerses(word));
+			assertEquals(word, sequential.getReferencesContaining(word), parallel.getReferencesContaining(word));
+			assertEquals(word, describe(sequential, word), describe(parallel, word));
+		}
+		ArrayList<String> pair = new ArrayList<String>(Arrays.asList("the", "lord"));
+		assertEquals(sequential.getReferencesContainingAll(pair), parallel.getReferencesContainingAll(pair));
+		assertEquals(0, parallel.getReferencesContaining("xyzzy").size());
+	}
+
+	/*
+	 * The positions of a word with the text of its separators, since the shards number separators differently.
+	 */
+	private static String describe(Concordance concordance, String word) {
+		Positions positions = concordance.getPositions(word);
+		TermIndex terms = concordance.getTermIndex();
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < positions.size(); i++) {
+			result.append(positions.getOrdinal(i)).append(':');
+			for (int o = positions.getStart(i); o < positions.getEnd(i); o++) {
+				result.append(' ').append(positions.getPosition(o));
+				result.append('[').append(separator(terms, positions.getSeparatorBefore(o))).append('|');
+				result.append(separator(terms, positions.getSeparatorAfter(o))).append(']');
+			}
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+	private static String separator(TermIndex terms, int id) {
+		return id == Positions.UNKNOWN_SEPARATOR ? null : terms.getSeparator(id);
+	}
+
+	private static TreeSet<String> words(VerseList verses) {
+		TreeSet<String> words = new TreeSet<String>();
+		for (Verse v : verses) {
+			words.addAll(Concordance.extractWords(v.getText()));
+		}
+		return words;
+	}
+}
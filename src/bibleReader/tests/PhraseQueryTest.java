@@ -0,0 +1,125 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.ConcordanceIndex;
+import bibleReader.model.MappedConcordance;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for finding phrases with the positions in the concordance.
+ */
+public class PhraseQueryTest {
+	private static final Reference	GEN_1_1		= new Reference(BookOfBible.Genesis, 1, 1);
+	private static final Reference	GEN_27_18	= new Reference(BookOfBible.Genesis, 27, 18);
+	private static final Reference	MAT_3_16	= new Reference(BookOfBible.Matthew, 3, 16);
+	private static final Reference	MARK_1_10	= new Reference(BookOfBible.Mark, 1, 10);
+
+	private Concordance				concordance;
+	private File					index;
+
+	@Before
+	public void setUp() throws Exception {
+		VerseList verses = new VerseList("TST", "Test");
+		// Two copies of Genesis 1:1, which a phrase can't run across.
+		verses.add(new Verse(GEN_1_1, "In the"));
+		verses.add(new Verse(GEN_1_1, "beginning God created the heavens and the earth."));
+		verses.add(new Verse(GEN_27_18, "So he went in to his father and said, \"My father.\" "
+				+ "And he said, \"Here I am. Who are you, my son?\""));
+		verses.add(new Verse(MAT_3_16, "And when Jesus was baptized, immediately he went up from the water,"));
+		verses.add(new Verse(MARK_1_10, "And when he came up out of the water, immediately he saw the heavens opening"));
+		concordance = new Concordance(new ArrayListBible(verses));
+		index = File.createTempFile("test", ConcordanceIndex.EXTENSION);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		index.delete();
+	}
+
+	@Test
+	public void testPunctuationBetweenWords() {
+		assertEquals(Arrays.asList(MAT_3_16), concordance.getReferencesContainingPhrase("baptized, immediately"));
+		assertEquals(0, concordance.getReferencesContainingPhrase("baptized immediately").size());
+		assertEquals(Arrays.asList(MARK_1_10), concordance.getReferencesContainingPhrase("water, immediately he"));
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase("who are you, my son?"));
+		assertEquals(0, concordance.getReferencesContainingPhrase("who are you my son").size());
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase("Here I am"));
+	}
+
+	@Test
+	public void testTextAroundThePhrase() {
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase(" my son?"));
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase("son?\""));
+		assertEquals(0, concordance.getReferencesContainingPhrase("son!").size());
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase("\"my father"));
+		assertEquals(Arrays.asList(MAT_3_16, MARK_1_10), concordance.getReferencesContainingPhrase("the water,"));
+		assertEquals(Arrays.asList(MARK_1_10), concordance.getReferencesContainingPhrase("of the water, "));
+		assertEquals(0, concordance.getReferencesContainingPhrase("the water.").size());
+	}
+
+	@Test
+	public void testWholeWordsAndVerses() {
+		// "the earth" contains "he earth", but not as words.
+		assertEquals(Arrays.asList(GEN_1_1), concordance.getReferencesContainingPhrase("the earth"));
+		assertEquals(0, concordance.getReferencesContainingPhrase("he earth").size());
+		// The phrase is in neither copy of Genesis 1:1 on its own.
+		assertEquals(Arrays.asList(GEN_1_1), concordance.getReferencesContainingPhrase("in the"));
+		assertEquals(0, concordance.getReferencesContainingPhrase("the beginning").size());
+		// A repeated word.
+		assertEquals(Arrays.asList(GEN_27_18), concordance.getReferencesContainingPhrase("And he said"));
+		assertEquals(0, concordance.getReferencesContainingPhrase("he said, my father").size());
+		assertEquals(0, concordance.getReferencesContainingPhrase("").size());
+		assertEquals(0, concordance.getReferencesContainingPhrase("zebra crossing").size());
+	}
+
+	@Test
+	public void testMappedConcordance() throws Exception {
+		ConcordanceIndex.write(concordance, 0, 0, index);
+		MappedConcordance mapped = new MappedConcordance(index);
+		List<String> phrases = Arrays.asList("baptized, immediately", "baptized immediately", "who are you, my son?",
+				" my son?", "son!", "the earth", "he earth", "the beginning", "and he said", "the water", "heavens");
+		for (String phrase : phrases) {
+			assertEquals(phrase, concordance.getReferencesContainingPhrase(phrase),
+					mapped.getReferencesContainingPhrase(phrase));
+		}
+	}
+
+	@Test
+	public void testModel() {
+		BibleReaderModel model = new BibleReaderModel();
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(MAT_3_16, "And when Jesus was baptized, immediately he went up from the water,"));
+		verses.add(new Verse(MARK_1_10, "And when he came up out of the water, immediately he saw the heavens opening"));
+		model.addBible(new ArrayListBible(verses));
+		VerseList other = new VerseList("OTH", "Other");
+		other.add(new Verse(MARK_1_10, "And straightway coming up out of the water, he saw the heavens opened"));
+		model.addBible(new ArrayListBible(other));
+
+		ReferenceList results = model.getReferencesContainingAllWordsAndPhrases("\"the heavens opened\"");
+		assertEquals(Arrays.asList(MARK_1_10), results);
+		results = model.getReferencesContainingAllWordsAndPhrases("\"Jesus was\" \"the water,\"");
+		assertEquals(Arrays.asList(MAT_3_16), results);
+		results = model.getReferencesContainingAllWordsAndPhrases("\"Jesus was\" \"he saw\"");
+		assertTrue(results.isEmpty());
+		results = model.getReferencesContainingAllWordsAndPhrases("\"\"");
+		assertEquals(new ArrayList<Reference>(), results);
+	}
+}
@@ -0,0 +1,118 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.PostingLists;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for the posting lists the Concordance is built on.
+ */
+public class PostingListsTest {
+
+	@Test
+	public void testGallop() {
+		int[] list = { 2, 4, 6, 8, 10, 12, 14, 16, 18 };
+		assertEquals(0, PostingLists.gallop(list, 0, 1));
+		assertEquals(0, PostingLists.gallop(list, 0, 2));
+		assertEquals(1, PostingLists.gallop(list, 0, 3));
+		assertEquals(6, PostingLists.gallop(list, 0, 13));
+		assertEquals(8, PostingLists.gallop(list, 3, 18));
+		assertEquals(9, PostingLists.gallop(list, 3, 19));
+		assertEquals(5, PostingLists.gallop(list, 5, 0));
+		assertEquals(9, PostingLists.gallop(list, 9, 100));
+		assertEquals(0, PostingLists.gallop(new int[0], 0, 5));
+	}
+
+	@Test
+	public void testIntersectAllMatchesNaive() {
+		Random random = new Random(42);
+		for (int trial = 0; trial < 500; trial++) {
+			int[][] lists = new int[1 + random.nextInt(4)][];
+			for (int i = 0; i < lists.length; i++) {
+				lists[i] = randomList(random, random.nextInt(i == 0 ? 20 : 2000), 3000);
+			}
+			int[][] before = new int[lists.length][];
+			for (int i = 0; i < lists.length; i++) {
+				before[i] = lists[i].clone();
+			}
+			assertArrayEquals(naiveIntersection(lists), PostingLists.intersectAll(lists));
+			// The lists themselves, and their order, are left alone.
+			for (int i = 0; i < lists.length; i++) {
+				assertArrayEquals(before[i], lists[i]);
+			}
+		}
+		assertEquals(0, PostingLists.intersectAll(new int[0][]).length);
+	}
+
+	@Test
+	public void testConcordanceOrderAndDuplicates() {
+		// An ArrayListBible keeps verses in the order they are given if they can't be put in order, and keeps
+		// duplicates. The concordance should still give each reference once, in canonical order.
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(BookOfBible.John, 3, 16, "For God so loved the world"));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "In the beginning God created"));
+		verses.add(new Verse(BookOfBible.Genesis, 1, 1, "In the beginning, the world"));
+		verses.add(new Verse(BookOfBible.Exodus, 3, 14, "God said to Moses"));
+		Concordance concordance = new Concordance(new ArrayListBible(verses));
+
+		ReferenceList god = concordance.getReferencesContaining("GOD");
+		assertEquals(Arrays.asList(new Reference(BookOfBible.Genesis, 1, 1), new Reference(BookOfBible.Exodus, 3, 14),
+				new Reference(BookOfBible.John, 3, 16)), god);
+
+		ArrayList<String> words = new ArrayList<String>(Arrays.asList("world", "God"));
+		assertEquals(Arrays.asList(new Reference(BookOfBible.Genesis, 1, 1), new Reference(BookOfBible.John, 3, 16)),
+				concordance.getReferencesContainingAll(words));
+		words.add("moses");
+		assertEquals(0, concordance.getReferencesContainingAll(words).size());
+		words.set(2, "unicorn");
+		assertEquals(0, concordance.getReferencesContainingAll(words).size());
+		assertEquals(0, concordance.getReferencesContainingAll(new ArrayList<String>()).size());
+	}
+
+	private static int[] randomList(Random random, int size, int bound) {
+		boolean[] present = new boolean[bound];
+		for (int i = 0; i < size; i++) {
+			present[random.nextInt(bound)] = true;
+		}
+		int count = 0;
+		int[] list = new int[bound];
+		for (int i = 0; i < bound; i++) {
+			if (present[i]) {
+				list[count++] = i;
+			}
+		}
+		return Arrays.copyOf(list, count);
+	}
+
+	private static int[] naiveIntersection(int[][] lists) {
+		ArrayList<Integer> result = new ArrayList<Integer>();
+		for (int value : lists[0]) {
+			boolean inAll = true;
+			for (int[] list : lists) {
+				inAll &= Arrays.binarySearch(list, value) >= 0;
+			}
+			if (inAll) {
+				result.add(value);
+			}
+		}
+		int[] array = new int[result.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = result.get(i);
+		}
+		return array;
+	}
+}
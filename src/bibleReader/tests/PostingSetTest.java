@@ -0,0 +1,149 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bibleReader.model.PostingSet;
+
+/**
+ * Tests for PostingSet, checked against java.util.BitSet.
+ */
+public class PostingSetTest {
+
+	@Test
+	public void testContainerChoice() {
+		// Sparse: an array.
+		PostingSet sparse = PostingSet.of(new int[] { 3, 70, 1000, 30000 });
+		assertArrayEquals(new int[] { 1, 0, 0 }, sparse.getContainerCounts());
+		assertEquals(8, sparse.getSizeInBytes() - 2);
+
+		// Dense and scattered: a bitmap.
+		int[] evens = new int[10000];
+		for (int i = 0; i < evens.length; i++) {
+			evens[i] = 2 * i;
+		}
+		PostingSet dense = PostingSet.of(evens);
+		assertArrayEquals(new int[] { 0, 1, 0 }, dense.getContainerCounts());
+		assertEquals(10000, dense.cardinality());
+
+		// Consecutive: runs.
+		PostingSet book = PostingSet.range(1533, 2680);
+		assertArrayEquals(new int[] { 0, 0, 1 }, book.getContainerCounts());
+		assertEquals(1147, book.cardinality());
+		assertTrue(book.contains(1533));
+		assertTrue(book.contains(2679));
+		assertFalse(book.contains(2680));
+		assertFalse(book.contains(1532));
+
+		// A range crossing chunks.
+		PostingSet wide = PostingSet.range(65000, 140000);
+		assertArrayEquals(new int[] { 0, 0, 3 }, wide.getContainerCounts());
+		assertEquals(75000, wide.cardinality());
+		assertEquals(PostingSet.EMPTY, PostingSet.range(5, 5));
+	}
+
+	@Test
+	public void testOperationsMatchBitSet() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 300; trial++) {
+			BitSet a = randomBits(random);
+			BitSet b = randomBits(random);
+			PostingSet x = PostingSet.of(toArray(a));
+			PostingSet y = PostingSet.of(toArray(b));
+			assertSameValues(toArray(a), x.toArray());
+			assertEquals(a.cardinality(), x.cardinality());
+
+			BitSet and = (BitSet) a.clone();
+			and.and(b);
+			assertSameValues(toArray(and), x.and(y).toArray());
+			assertSameValues(toArray(and), y.and(x).toArray());
+
+			BitSet or = (BitSet) a.clone();
+			or.or(b);
+			assertSameValues(toArray(or), x.or(y).toArray());
+			assertSameValues(toArray(or), y.or(x).toArray());
+
+			BitSet andNot = (BitSet) a.clone();
+			andNot.andNot(b);
+			assertSameValues(toArray(andNot), x.andNot(y).toArray());
+
+			for (int k = 0; k < 50; k++) {
+				int value = random.nextInt(140000);
+				assertEquals(a.get(value), x.contains(value));
+			}
+		}
+	}
+
+	@Test
+	public void testBadValues() {
+		try {
+			PostingSet.of(new int[] { 1, 5, 5 });
+			fail("Duplicates should be rejected");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			PostingSet.of(new int[] { 9, 2 });
+			fail("Values out of order should be rejected");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			PostingSet.of(new int[] { -1, 2 });
+			fail("Negative values should be rejected");
+		} catch (IllegalArgumentException e) {
+		}
+		assertFalse(PostingSet.of(new int[] { 0 }).contains(-1));
+	}
+
+	/*
+	 * A mixture of sparse values, dense values and runs, over a little more than two chunks.
+	 */
+	private static BitSet randomBits(Random random) {
+		BitSet bits = new BitSet();
+		int sparse = random.nextInt(3000);
+		for (int i = 0; i < sparse; i++) {
+			bits.set(random.nextInt(140000));
+		}
+		if (random.nextBoolean()) {
+			int from = random.nextInt(65536);
+			double density = random.nextDouble();
+			for (int i = from; i < from + 30000; i++) {
+				if (random.nextDouble() < density) {
+					bits.set(i);
+				}
+			}
+		}
+		int runs = random.nextInt(20);
+		for (int i = 0; i < runs; i++) {
+			int from = random.nextInt(140000);
+			bits.set(from, from + random.nextInt(5000));
+		}
+		return bits;
+	}
+
+	/*
+	 * assertArrayEquals compares element by element through reflection, which is too slow for arrays this big.
+	 */
+	private static void assertSameValues(int[] expected, int[] actual) {
+		if (!Arrays.equals(expected, actual)) {
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	private static int[] toArray(BitSet bits) {
+		int[] values = new int[bits.cardinality()];
+		int n = 0;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			values[n++] = i;
+		}
+		return values;
+	}
+}
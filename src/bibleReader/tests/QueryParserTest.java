@@ -0,0 +1,136 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.QueryParser;
+import bibleReader.model.QueryPlan;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for searching with AND, OR, NOT, parentheses, books and versions.
+ */
+public class QueryParserTest {
+	private static final Reference	ROM_5_2		= new Reference(BookOfBible.Romans, 5, 2);
+	private static final Reference	ROM_8_24	= new Reference(BookOfBible.Romans, 8, 24);
+	private static final Reference	ROM_8_15	= new Reference(BookOfBible.Romans, 8, 15);
+	private static final Reference	COR_13_13	= new Reference(BookOfBible.Corinthians1, 13, 13);
+	private static final Reference	JOHN_4_18	= new Reference(BookOfBible.John1, 4, 18);
+
+	private QueryParser				parser;
+	private BibleReaderModel		model;
+
+	@Before
+	public void setUp() {
+		parser = new QueryParser();
+		model = new BibleReaderModel();
+		VerseList esv = new VerseList("ESV", "Test");
+		esv.add(new Verse(ROM_5_2, "Through him we have obtained access by faith into this grace, and we rejoice in "
+				+ "hope of the glory of God."));
+		esv.add(new Verse(ROM_8_15, "For you did not receive the spirit of slavery to fall back into fear"));
+		esv.add(new Verse(ROM_8_24, "For in this hope we were saved. Now hope that is seen is not hope."));
+		esv.add(new Verse(COR_13_13, "So now faith, hope, and love abide, these three; but the greatest of these is "
+				+ "love."));
+		esv.add(new Verse(JOHN_4_18, "There is no fear in love, but perfect love casts out fear."));
+		model.addBible(new ArrayListBible(esv));
+		VerseList kjv = new VerseList("KJV", "Test");
+		kjv.add(new Verse(COR_13_13, "And now abideth faith, hope, charity, these three; but the greatest of these is "
+				+ "charity."));
+		kjv.add(new Verse(JOHN_4_18, "There is no fear in love; but perfect love casteth out fear"));
+		model.addBible(new ArrayListBible(kjv));
+	}
+
+	@Test
+	public void testParse() {
+		assertEquals("faith AND hope", parser.parse("faith hope").toString());
+		assertEquals("faith AND hope", parser.parse("faith AND hope").toString());
+		assertEquals("faith OR (hope AND love)", parser.parse("faith OR hope love").toString());
+		assertEquals("(faith OR hope) AND NOT fear", parser.parse("(faith OR hope) NOT fear").toString());
+		assertEquals("NOT (faith OR hope)", parser.parse("NOT (Faith OR HOPE)").toString());
+		assertEquals("\"faith, hope\" AND book:\"1 Corinthians\" AND version:KJV",
+				parser.parse("\"Faith, hope\" book:\"1 Cor\" version:KJV").toString());
+		assertEquals("book:Romans AND bless*", parser.parse("book:rom bless*").toString());
+		// Lowercase operators are just words.
+		assertEquals("faith AND and AND love", parser.parse("faith and love").toString());
+		assertEquals("\"the end\"", parser.parse("\"The end").toString());
+
+		for (String bad : new String[] { "love AND", "AND love", "love OR", "NOT", "love NOT", "(love", "love)",
+				"book:nowhere", "love AND AND hope" }) {
+			try {
+				parser.parse(bad);
+				fail(bad);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+		assertTrue(QueryParser.isPlain("faith hope bless*"));
+		assertFalse(QueryParser.isPlain("faith OR hope"));
+		assertFalse(QueryParser.isPlain("\"faith\""));
+		assertFalse(QueryParser.isPlain("book:John"));
+		assertFalse(QueryParser.isPlain("(faith)"));
+	}
+
+	@Test
+	public void testSearch() {
+		assertEquals(Arrays.asList(ROM_5_2, ROM_8_24, COR_13_13), search("hope"));
+		assertEquals(Arrays.asList(ROM_5_2, ROM_8_15, ROM_8_24, COR_13_13, JOHN_4_18), search("hope OR fear"));
+		// The KJV's 1 Corinthians 13:13 has "charity" instead.
+		assertEquals(Arrays.asList(ROM_5_2, ROM_8_24, COR_13_13), search("hope NOT love"));
+		assertEquals(Arrays.asList(ROM_8_24), search("hope NOT (faith OR love)"));
+		assertEquals(Arrays.asList(ROM_5_2, ROM_8_15, ROM_8_24), search("book:Romans"));
+		assertEquals(Arrays.asList(ROM_8_15), search("fear book:Rom"));
+		assertEquals(Arrays.asList(ROM_5_2, COR_13_13), search("(faith AND hope) NOT book:\"1 John\""));
+		assertEquals(Arrays.asList(ROM_5_2, ROM_8_24), search("\"hope\" AND NOT \"faith, hope, and love\" version:ESV"));
+		assertEquals(0, search("love AND").size());
+
+		// A verse has to match in one version: only the KJV has "charity", and only the ESV "casts".
+		assertEquals(Arrays.asList(COR_13_13), search("charity"));
+		assertEquals(Arrays.asList(COR_13_13), search("version:kjv faith"));
+		assertEquals(Arrays.asList(COR_13_13, JOHN_4_18), search("version:KJV"));
+		assertEquals(Arrays.asList(COR_13_13, JOHN_4_18), search("love NOT version:KJV"));
+		assertEquals(Arrays.asList(JOHN_4_18), search("love NOT version:ESV"));
+		assertEquals(0, search("charity casts").size());
+		assertEquals(Arrays.asList(COR_13_13, JOHN_4_18), search("charity OR casts"));
+		assertEquals(Arrays.asList(JOHN_4_18), search("casts NOT version:ESV OR casteth"));
+	}
+
+	@Test
+	public void testPlan() {
+		// A version the concordance isn't of needs nothing else to run.
+		String explained = model.explain("version:KJV fear love");
+		assertTrue(explained, explained.contains("ESV:\n  AND (estimated 0, found 0)\n    version:KJV (estimated 0, "
+				+ "found 0)\n    fear (estimated 2, skipped)\n"));
+		assertEquals("Missing )", model.explain("(fear"));
+
+		// NOT only removes verses from the ones the rest found.
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(ROM_8_24, "hope hope hope"));
+		verses.add(new Verse(COR_13_13, "faith hope love"));
+		Concordance concordance = new Concordance(new ArrayListBible(verses));
+		QueryPlan plan = new QueryPlan(parser.parse("NOT love hope faith"), concordance);
+		assertEquals(0, plan.execute().cardinality());
+		String[] lines = plan.explain().split("\n");
+		assertEquals("  faith (estimated 1, found 1)", lines[1]);
+		assertEquals("  hope (estimated 2, found 1)", lines[2]);
+		assertEquals("  NOT (estimated 1, found 0)", lines[3]);
+	}
+
+	private ReferenceList search(String search) {
+		return model.getReferencesContainingAllWordsAndPhrases(search);
+	}
+}
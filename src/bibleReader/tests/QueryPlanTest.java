@@ -0,0 +1,121 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.PostingSet;
+import bibleReader.model.Query;
+import bibleReader.model.QueryPlan;
+import bibleReader.model.Reference;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for planning and running searches on a concordance.
+ */
+public class QueryPlanTest {
+	private static final Reference	MAT_8_20	= new Reference(BookOfBible.Matthew, 8, 20);
+	private static final Reference	MAT_16_13	= new Reference(BookOfBible.Matthew, 16, 13);
+	private static final Reference	MARK_2_10	= new Reference(BookOfBible.Mark, 2, 10);
+	private static final Reference	LUKE_19_10	= new Reference(BookOfBible.Luke, 19, 10);
+	private static final Reference	JOHN_3_14	= new Reference(BookOfBible.John, 3, 14);
+
+	private VerseList				verses;
+	private Concordance				concordance;
+
+	@Before
+	public void setUp() {
+		verses = new VerseList("TST", "Test");
+		verses.add(new Verse(MAT_8_20, "Foxes have holes, and birds of the air have nests, but the Son of Man has "
+				+ "nowhere to lay his head."));
+		verses.add(new Verse(MAT_16_13, "Who do people say that the Son of Man is?"));
+		verses.add(new Verse(MARK_2_10, "But that you may know that the Son of Man has authority on earth to "
+				+ "forgive sins"));
+		verses.add(new Verse(LUKE_19_10, "For the Son of Man came to seek and to save the lost."));
+		verses.add(new Verse(JOHN_3_14, "And as Moses lifted up the serpent in the wilderness, so must the son be "
+				+ "lifted up, the man"));
+		concordance = new Concordance(new ArrayListBible(verses));
+	}
+
+	@Test
+	public void testOrder() {
+		Query query = Query.and(Arrays.asList(Query.phrase("son of man"), Query.term("the"), Query.term("has"),
+				Query.term("earth")));
+		QueryPlan plan = new QueryPlan(query, concordance);
+		assertEquals(1, plan.getEstimate());
+		assertEquals("AND (estimated 1, skipped)\n" + "  earth (estimated 1, skipped)\n"
+				+ "  has (estimated 2, skipped)\n" + "  the (estimated 5, skipped)\n"
+				+ "  \"son of man\" (estimated 4, skipped)\n", plan.explain());
+
+		assertEquals(Arrays.asList(MARK_2_10), plan.getReferences());
+		// The phrase only checks the verse the words found.
+		assertEquals("AND (estimated 1, found 1)\n" + "  earth (estimated 1, found 1)\n"
+				+ "  has (estimated 2, found 1)\n" + "  the (estimated 5, found 1)\n"
+				+ "  \"son of man\" (estimated 4, found 1)\n", plan.explain());
+		assertEquals("\"son of man\" AND the AND has AND earth", query.toString());
+	}
+
+	@Test
+	public void testShortCircuit() {
+		Query query = Query.and(Arrays.asList(Query.term("son"), Query.phrase("son of god"), Query.term("man")));
+		QueryPlan plan = new QueryPlan(query, concordance);
+		assertEquals(0, plan.execute().cardinality());
+		// "god" isn't in any verse, so the phrase can't be either, and nothing else runs.
+		String[] lines = plan.explain().split("\n");
+		assertEquals("  \"son of god\" (estimated 0, found 0)", lines[1]);
+		assertEquals("  son (estimated 5, skipped)", lines[2]);
+		assertEquals("  man (estimated 5, skipped)", lines[3]);
+
+		query = Query.and(Arrays.asList(Query.term("son"), Query.term("notaword"), Query.pattern("m?n")));
+		plan = new QueryPlan(query, concordance);
+		assertEquals(0, plan.execute().cardinality());
+		lines = plan.explain().split("\n");
+		assertEquals("  notaword (estimated 0, found 0)", lines[1]);
+		assertEquals("  son (estimated 5, skipped)", lines[2]);
+		assertEquals("  m?n (estimated 5, skipped)", lines[3]);
+
+		assertEquals(0, new QueryPlan(Query.and(new ArrayList<Query>()), concordance).execute().cardinality());
+	}
+
+	@Test
+	public void testSameAsWithoutPlan() {
+		List<List<Query>> queries = new ArrayList<List<Query>>();
+		queries.add(Arrays.asList(Query.phrase("son of man"), Query.phrase("the son")));
+		queries.add(Arrays.asList(Query.term("man"), Query.phrase("son be lifted"), Query.similar("serpant")));
+		queries.add(Arrays.asList(Query.pattern("s*"), Query.phrase("son of man has")));
+		for (List<Query> parts : queries) {
+			PostingSet expected = null;
+			for (Query part : parts) {
+				PostingSet verses = new QueryPlan(part, concordance).execute();
+				expected = (expected == null) ? verses : expected.and(verses);
+			}
+			assertEquals(parts.toString(), concordance.getReferences(expected),
+					new QueryPlan(Query.and(parts), concordance).getReferences());
+		}
+	}
+
+	@Test
+	public void testModel() {
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		// Words outside the quotes only have to be somewhere in the verse.
+		assertEquals(Arrays.asList(MAT_8_20, MARK_2_10), model.getReferencesContainingAllWordsAndPhrases(
+				"\"son of man\" has"));
+		assertEquals(Arrays.asList(MARK_2_10), model.getReferencesContainingAllWordsAndPhrases(
+				"has \"son of man has\" earth"));
+		String explained = model.explain("\"son of man\" has");
+		assertTrue(explained, explained.startsWith("TST:\n  AND (estimated 2, found 2)\n"));
+		assertTrue(explained, explained.contains("\n    has (estimated 2, found 2)\n"));
+	}
+}
@@ -0,0 +1,153 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArchaicStemmer;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.Bm25;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.ConcordanceIndex;
+import bibleReader.model.MappedConcordance;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceCodec;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for ranking verses by how well they match a search.
+ */
+public class RankedSearchTest {
+	private static final Reference	GEN_1_1		= new Reference(BookOfBible.Genesis, 1, 1);
+	private static final Reference	PS_23_1		= new Reference(BookOfBible.Psalms, 23, 1);
+	private static final Reference	PS_136_1	= new Reference(BookOfBible.Psalms, 136, 1);
+	private static final Reference	JOHN_3_16	= new Reference(BookOfBible.John, 3, 16);
+	private static final Reference	ROM_5_8		= new Reference(BookOfBible.Romans, 5, 8);
+
+	@Test
+	public void testLengths() throws Exception {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Concordance concordance = new Concordance(new ArrayListBible(verses));
+		// Verses with the same reference share an ordinal, so their words are counted together.
+		int[] lengths = new int[concordance.getNumberOfVerses()];
+		long total = 0;
+		for (Verse verse : verses) {
+			int ordinal = concordance.getOrdinal(ReferenceCodec.encode(verse.getReference()));
+			int length = Concordance.extractWords(verse.getText()).size();
+			lengths[ordinal] += length;
+			total += length;
+		}
+		for (int i = 0; i < lengths.length; i++) {
+			assertEquals(lengths[i], concordance.getLength(i));
+		}
+		assertEquals((double) total / lengths.length, concordance.getAverageLength(), 1e-9);
+
+		Concordance stems = concordance.stemmed(new ArchaicStemmer());
+		File index = File.createTempFile("test", ConcordanceIndex.EXTENSION);
+		try {
+			ConcordanceIndex.write(concordance, 0, 0, index);
+			MappedConcordance mapped = new MappedConcordance(index);
+			for (int i = 0; i < concordance.getNumberOfVerses(); i++) {
+				assertEquals(concordance.getLength(i), mapped.getLength(i));
+				assertEquals(concordance.getLength(i), stems.getLength(i));
+			}
+		} finally {
+			index.delete();
+		}
+	}
+
+	@Test
+	public void testScores() {
+		Concordance concordance = new Concordance(new ArrayListBible(sample()));
+		List<String> query = Arrays.asList("Love", "world", "mercy", "notaword");
+		int[] ordinals = new int[concordance.getNumberOfVerses()];
+		for (int i = 0; i < ordinals.length; i++) {
+			ordinals[i] = i;
+		}
+		double[] scores = new Bm25().score(concordance, query, ordinals);
+		VerseList verses = sample();
+		Collections.sort(verses);
+		double average = 0;
+		for (Verse verse : verses) {
+			average += Concordance.extractWords(verse.getText()).size();
+		}
+		average /= verses.size();
+		for (int i = 0; i < ordinals.length; i++) {
+			// Work the score out from the text.
+			List<String> words = Concordance.extractWords(verses.get(i).getText());
+			double expected = 0;
+			for (String word : query) {
+				int tf = Collections.frequency(words, word.toLowerCase());
+				int df = 0;
+				for (Verse verse : verses) {
+					df += new HashSet<String>(Concordance.extractWords(verse.getText())).contains(word.toLowerCase())
+							? 1 : 0;
+				}
+				if (tf > 0) {
+					double norm = Bm25.K1 * (1 - Bm25.B + Bm25.B * words.size() / average);
+					expected += Bm25.idf(verses.size(), df) * tf * (Bm25.K1 + 1) / (tf + norm);
+				}
+			}
+			assertEquals(verses.get(i).toString(), expected, scores[i], 1e-9);
+		}
+	}
+
+	@Test
+	public void testModel() {
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(sample()));
+		ReferenceList canonical = model.getReferencesContainingAllWordsAndPhrases("love");
+		assertEquals(Arrays.asList(PS_136_1, JOHN_3_16, ROM_5_8), canonical);
+
+		model.setRankedSearch(true);
+		// Said twice in a short verse beats once in a long one.
+		ReferenceList ranked = model.getReferencesContainingAllWordsAndPhrases("love");
+		assertEquals(new HashSet<Reference>(canonical), new HashSet<Reference>(ranked));
+		assertEquals(ROM_5_8, ranked.get(0));
+		assertEquals(Arrays.asList(JOHN_3_16), model.getReferencesContainingAllWordsAndPhrases("love world"));
+		// The words of phrases count too.
+		assertEquals(JOHN_3_16, model.getReferencesContainingAllWordsAndPhrases("\"the world\"").get(0));
+		assertEquals(Arrays.asList(PS_23_1), model.getReferencesContainingAllWordsAndPhrases("shepherd"));
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("notaword").size());
+
+		// A verse scores its best in any version.
+		VerseList other = new VerseList("OTH", "Other");
+		other.add(new Verse(PS_136_1, "Love, love, love, for his love endures"));
+		other.add(new Verse(GEN_1_1, "In the beginning God made the heavens"));
+		other.add(new Verse(PS_23_1, "The Lord is my shepherd"));
+		other.add(new Verse(JOHN_3_16, "God gave his Son"));
+		model.addBible(new ArrayListBible(other));
+		assertEquals(PS_136_1, model.getReferencesContainingAllWordsAndPhrases("love").get(0));
+		// Equal scores stay in canonical order.
+		List<Reference> none = new ArrayList<Reference>(model.rank(canonical, "zebra"));
+		assertEquals(canonical, none);
+		assertTrue(model.isRankedSearch());
+	}
+
+	private static VerseList sample() {
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(JOHN_3_16, "For God so loved the world, that he gave his only Son, that whoever believes "
+				+ "in him should not perish but have eternal life. Love the world."));
+		verses.add(new Verse(GEN_1_1, "In the beginning, God created the heavens and the earth."));
+		verses.add(new Verse(ROM_5_8, "But God shows his love for us: love."));
+		verses.add(new Verse(PS_23_1, "The Lord is my shepherd; I shall not want."));
+		verses.add(new Verse(PS_136_1, "Give thanks to the Lord, for he is good, for his steadfast love and mercy "
+				+ "endure forever and ever and ever."));
+		return verses;
+	}
+}
@@ -0,0 +1,78 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceCodec;
+
+/**
+ * Tests for the packed int form of references and the shared Reference pool.
+ */
+public class ReferenceCodecTest {
+
+	@Test
+	public void testRoundTrip() {
+		int code = ReferenceCodec.encode(BookOfBible.Psalms, 119, 176);
+		assertEquals(BookOfBible.Psalms, ReferenceCodec.getBook(code));
+		assertEquals(119, ReferenceCodec.getChapter(code));
+		assertEquals(176, ReferenceCodec.getVerse(code));
+		assertEquals(new Reference(BookOfBible.Psalms, 119, 176), ReferenceCodec.decode(code));
+
+		code = ReferenceCodec.encode(BookOfBible.Dummy, 1, 1);
+		assertEquals(BookOfBible.Dummy, ReferenceCodec.getBook(code));
+	}
+
+	@Test
+	public void testCodesSortInCanonicalOrder() {
+		Reference[] refs = { new Reference(BookOfBible.Genesis, 1, 1), new Reference(BookOfBible.Genesis, 1, 31),
+				new Reference(BookOfBible.Genesis, 2, 1), new Reference(BookOfBible.Exodus, 1, 1),
+				new Reference(BookOfBible.Psalms, 119, 176), new Reference(BookOfBible.Revelation, 22, 21) };
+		for (int i = 0; i < refs.length; i++) {
+			for (int j = 0; j < refs.length; j++) {
+				int byCode = ReferenceCodec.encode(refs[i]) - ReferenceCodec.encode(refs[j]);
+				assertEquals(Integer.signum(refs[i].compareTo(refs[j])), Integer.signum(byCode));
+			}
+		}
+	}
+
+	@Test
+	public void testCanEncode() {
+		assertTrue(ReferenceCodec.canEncode(BookOfBible.John, 3, 16));
+		assertFalse(ReferenceCodec.canEncode(null, 3, 16));
+		assertFalse(ReferenceCodec.canEncode(BookOfBible.John, -1, 16));
+		assertFalse(ReferenceCodec.canEncode(BookOfBible.John, 3, ReferenceCodec.MAX_VERSE + 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodeOutOfRange() {
+		ReferenceCodec.encode(BookOfBible.John, ReferenceCodec.MAX_CHAPTER + 1, 1);
+	}
+
+	@Test
+	public void testOfReturnsSharedInstances() {
+		Reference r1 = Reference.of(BookOfBible.John, 3, 16);
+		Reference r2 = Reference.of(BookOfBible.John, 3, 16);
+		assertSame(r1, r2);
+		assertEquals(new Reference(BookOfBible.John, 3, 16), r1);
+		assertEquals(new Reference(BookOfBible.John, 3, 16).hashCode(), r1.hashCode());
+		assertSame(r1, ReferenceCodec.decode(ReferenceCodec.encode(BookOfBible.John, 3, 16)));
+
+		// Growing the pool for a later verse must not lose the earlier one.
+		Reference r3 = Reference.of(BookOfBible.John, 3, 36);
+		assertSame(r1, Reference.of(BookOfBible.John, 3, 16));
+		assertSame(r3, Reference.of(BookOfBible.John, 3, 36));
+
+		// References that can't be packed still work, but aren't shared.
+		Reference odd1 = Reference.of(BookOfBible.John, -3, 16);
+		Reference odd2 = Reference.of(BookOfBible.John, -3, 16);
+		assertNotSame(odd1, odd2);
+		assertEquals(odd1, odd2);
+	}
+}
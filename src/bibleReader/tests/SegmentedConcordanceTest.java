@@ -0,0 +1,127 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.Reference;
+import bibleReader.model.SegmentedConcordance;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for changing a concordance a segment at a time.
+ */
+public class SegmentedConcordanceTest {
+	private static final String[]	WORDS	= { "john", "jn", "ps", "gen", "matt", "1", "3", "zzz" };
+	private static List<Verse>		verses;
+
+	@BeforeClass
+	public static void readBible() {
+		VerseList esv = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(esv);
+		verses = new ArrayList<Verse>(esv.subList(0, 3000));
+	}
+
+	@Test
+	public void testSameAsRebuilding() {
+		SegmentedConcordance segmented = new SegmentedConcordance("TST", null);
+		segmented.setMaxSegments(3);
+		TreeMap<Reference, Verse> expected = new TreeMap<Reference, Verse>();
+		Random random = new Random(20);
+		for (int step = 0; step < 25; step++) {
+			if (random.nextInt(4) == 0) {
+				List<Reference> removed = new ArrayList<Reference>();
+				for (int i = random.nextInt(300); i > 0; i--) {
+					removed.add(verses.get(random.nextInt(verses.size())).getReference());
+				}
+				segmented.remove(removed);
+				for (Reference reference : removed) {
+					expected.remove(reference);
+				}
+			} else {
+				// A batch of verses, some of them changed.
+				List<Verse> batch = new ArrayList<Verse>();
+				int from = random.nextInt(verses.size());
+				int to = Math.min(verses.size(), from + 1 + random.nextInt((step == 0) ? 3000 : 200));
+				for (Verse verse : verses.subList(from, to)) {
+					String text = verse.getText();
+					if (random.nextInt(3) == 0) {
+						text = text.replace("John", "Jn " + step);
+					}
+					batch.add(new Verse(verse.getReference(), text));
+				}
+				segmented.add(batch);
+				for (Verse verse : batch) {
+					expected.put(verse.getReference(), verse);
+				}
+			}
+			assertTrue(segmented.getSegmentCount() <= 3);
+			assertSame(expected, segmented);
+		}
+	}
+
+	@Test
+	public void testBackgroundMerges() throws Exception {
+		ExecutorService merger = Executors.newSingleThreadExecutor();
+		try {
+			SegmentedConcordance segmented = new SegmentedConcordance("TST", merger);
+			TreeMap<Reference, Verse> expected = new TreeMap<Reference, Verse>();
+			for (int i = 0; i < 20; i++) {
+				List<Verse> batch = verses.subList(i * 150, (i + 1) * 150);
+				segmented.add(batch);
+				for (Verse verse : batch) {
+					expected.put(verse.getReference(), verse);
+				}
+				// Searches see every verse added so far, merged or not.
+				assertEquals(expected.size(), segmented.getNumberOfVerses());
+			}
+			segmented.remove(Arrays.asList(verses.get(0).getReference(), verses.get(2999).getReference()));
+			expected.remove(verses.get(0).getReference());
+			expected.remove(verses.get(2999).getReference());
+			segmented.awaitMerges();
+			assertTrue(segmented.getSegmentCount() <= SegmentedConcordance.DEFAULT_MAX_SEGMENTS);
+			assertSame(expected, segmented);
+
+			// Removing everything leaves nothing to search.
+			segmented.remove(new ArrayList<Reference>(expected.keySet()));
+			segmented.awaitMerges();
+			assertEquals(0, segmented.getNumberOfVerses());
+			assertEquals(0, segmented.getSegmentCount());
+			assertEquals(0, segmented.getReferencesContaining("john").size());
+		} finally {
+			merger.shutdown();
+		}
+	}
+
+	/*
+	 * Check that a segmented concordance finds what a concordance of the same verses would.
+	 */
+	private static void assertSame(TreeMap<Reference, Verse> expected, SegmentedConcordance segmented) {
+		assertEquals(expected.size(), segmented.getNumberOfVerses());
+		VerseList list = new VerseList("TST", "", expected.values());
+		Concordance rebuilt = new Concordance(new ArrayListBible(list), null);
+		for (String word : WORDS) {
+			assertEquals(word, rebuilt.getReferencesContaining(word), segmented.getReferencesContaining(word));
+		}
+		ArrayList<String> pair = new ArrayList<String>(Arrays.asList("john", "3"));
+		assertEquals(rebuilt.getReferencesContainingAll(pair), segmented.getReferencesContainingAll(pair));
+		assertEquals(rebuilt.getReferencesContainingPhrase("john 3"), segmented.getReferencesContainingPhrase("john 3"));
+		assertEquals(rebuilt.getReferencesMatching("j*"), segmented.getReferencesMatching("j*"));
+	}
+}
@@ -0,0 +1,104 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.Concordance;
+import bibleReader.model.Tokenizer;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests that the Tokenizer finds the same words as the regular expressions Concordance.extractWords used to use.
+ */
+public class TokenizerTest {
+	// Pieces that the regular expressions treat specially, for making up awkward text.
+	private static final String[]	PIECES	= { "a", "B", "god", "S", "s", "'", "`", "'s", "`S", ",", " ", ", ", ".",
+			"<sup>", "</sup>", "<SUP>", "<sup>1,2</sup>", "<sup>a</sup>", "<sup>-</sup>", "&#", ";", "&#8212;",
+			"&#x;", "&", "#", "_", "9", "\u00E9", "\u00C9", "\u0130", "\u212A", "\u03A3", "\"", "<", ">", "/" };
+
+	/*
+	 * The only Bible file here is esvCrossrefs.atv, whose "verses" are the ESV's lists of cross references for each
+	 * verse ("Job 38:4-7; Ps. 33:6; ..."), not the text of the verses. Prose is covered by the other tests.
+	 */
+	@Test
+	public void testCrossReferenceFile() {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Tokenizer tokenizer = new Tokenizer();
+		for (Verse verse : verses) {
+			String text = verse.getText();
+			assertEquals(text, regexWords(text), tokenizer.words(text));
+		}
+	}
+
+	@Test
+	public void testAwkwardText() {
+		String[] texts = { "", " ", ",", "In the beginning", "God's word", "the LORD`s house", "a,b", "a, b",
+				"says<sup>a</sup> the LORD", "x&#8212;y", "x&#8212 y", "<sup>1</sup>", "<sup></sup>", "'s's", "''ss",
+				"<sup>a<sup>b</sup>c</sup>", "&#&#1;;", "\u0130stanbul's", "\u212Aelvin", "caf\u00E9 au lait",
+				"<sup>\u0130</sup>x", "&#\u0130;", "under_score", "'<sup>1</sup>s", "',s", "end.'" };
+		Tokenizer tokenizer = new Tokenizer();
+		for (String text : texts) {
+			assertEquals(text, regexWords(text), tokenizer.words(text));
+		}
+	}
+
+	@Test
+	public void testRandomText() {
+		Random random = new Random(42);
+		Tokenizer tokenizer = new Tokenizer();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder text = new StringBuilder();
+			int pieces = random.nextInt(12);
+			for (int j = 0; j < pieces; j++) {
+				text.append(PIECES[random.nextInt(PIECES.length)]);
+			}
+			assertEquals(text.toString(), regexWords(text.toString()), tokenizer.words(text));
+		}
+	}
+
+	@Test
+	public void testOffsets() {
+		final String text = "And God's Spirit<sup>1</sup> said, \"a,b x&#8212;y.\"";
+		final List<String> found = new ArrayList<String>();
+		new Tokenizer().tokenize(text, new Tokenizer.Handler() {
+			@Override
+			public void word(char[] chars, int length, int start, int end, boolean joined) {
+				found.add(new String(chars, 0, length) + " " + text.substring(start, end) + " " + joined);
+			}
+		});
+		assertEquals(Arrays.asList("and And false", "god God false", "spirit Spirit false", "said said false",
+				"ab a,b true", "xy x&#8212;y true"), found);
+
+		assertArrayEquals(new String[] { "", " ", "'s ", "<sup>1</sup> ", null, null, null },
+				Concordance.separatorsOf(text));
+		String[] separators = Concordance.separatorsOf("\"Who are you, my son?\"");
+		assertArrayEquals(new String[] { "\"", " ", " ", ", ", " ", "?\"" }, separators);
+		assertNull(Concordance.separatorsOf("a,b")[0]);
+	}
+
+	/*
+	 * How Concordance.extractWords used to find words.
+	 */
+	private static ArrayList<String> regexWords(String text) {
+		text = text.toLowerCase();
+		text = text.replaceAll("(<sup>[,\\w]*?</sup>|'s|`s|&#\\w*;)", "");
+		text = text.replaceAll(",", "");
+		String[] words = text.split("\\W+");
+		ArrayList<String> toReturn = new ArrayList<String>(Arrays.asList(words));
+		toReturn.remove("");
+		return toReturn;
+	}
+}
@@ -0,0 +1,148 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.Bm25;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.NavigableResults;
+import bibleReader.model.PostingSet;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.TopKScorer;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for finding the best verses for a search without scoring all of them.
+ */
+public class TopKScorerTest {
+	private static VerseList	verses;
+	private static Concordance	concordance;
+
+	@BeforeClass
+	public static void readFile() {
+		verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		concordance = new Concordance(new ArrayListBible(verses));
+	}
+
+	@Test
+	public void testSameAsScoringEverything() {
+		List<List<String>> queries = new ArrayList<List<String>>();
+		queries.add(Arrays.asList("john"));
+		queries.add(Arrays.asList("John", "1"));
+		queries.add(Arrays.asList("ps", "3", "1", "notaword"));
+		queries.add(Arrays.asList("genesis", "matthew", "rom", "12"));
+		int[] filter = new int[(concordance.getNumberOfVerses() + 2) / 3];
+		for (int i = 0; i < filter.length; i++) {
+			filter[i] = 3 * i;
+		}
+		for (List<String> query : queries) {
+			for (int k : new int[] { 1, 5, 20, 1000, 100000 }) {
+				check(query, null, k);
+				check(query, filter, k);
+			}
+		}
+		assertEquals(0, concordance.getTopKScorer().top(Arrays.asList("notaword"), null, 10).size());
+		assertEquals(0, concordance.getTopKScorer().top(Arrays.asList("john"), null, 0).size());
+	}
+
+	@Test
+	public void testSkipsVerses() {
+		List<String> query = Arrays.asList("1", "3", "ps");
+		int matches = 0;
+		for (double score : new Bm25().score(concordance, query, allOrdinals())) {
+			matches += (score > 0) ? 1 : 0;
+		}
+		TopKScorer.Hits hits = concordance.getTopKScorer().top(query, null, 10);
+		assertEquals(10, hits.size());
+		assertTrue(hits.getScoredCount() + " of " + matches, hits.getScoredCount() < matches / 2);
+	}
+
+	@Test
+	public void testPages() {
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+		model.setRankedSearch(true);
+		for (String search : new String[] { "1", "john 3", "\"psalm 3\"", "notaword" }) {
+			ReferenceList expected = model.getReferencesContainingAllWordsAndPhrases(search);
+			NavigableResults results = model.getRankedResults(search);
+			assertEquals(expected.size(), results.size());
+			List<Reference> pages = new ArrayList<Reference>(results.currentResults());
+			for (ReferenceList page = results.nextResults(); page != null; page = results.nextResults()) {
+				pages.addAll(page);
+			}
+			assertEquals(search, expected, pages);
+			assertFalse(results.hasNextResults());
+		}
+
+		// The pages are the same with a second version, in which a verse may score better than in the first.
+		VerseList other = new VerseList("OTH", "Other");
+		other.add(new Verse(new Reference(BookOfBible.John, 3, 16), "John John John"));
+		other.add(new Verse(new Reference(BookOfBible.Genesis, 1, 1), "In the beginning"));
+		model.addBible(new ArrayListBible(other));
+		ReferenceList expected = model.getReferencesContainingAllWordsAndPhrases("john");
+		NavigableResults results = model.getRankedResults("john");
+		results.setWindowSize(7);
+		results.toStart();
+		List<Reference> pages = new ArrayList<Reference>(results.currentResults());
+		for (ReferenceList page = results.nextResults(); page != null; page = results.nextResults()) {
+			pages.addAll(page);
+		}
+		assertEquals(expected, pages);
+	}
+
+	/*
+	 * Check the best k verses against scoring every verse.
+	 */
+	private static void check(List<String> query, int[] filter, int k) {
+		int[] ordinals = (filter == null) ? allOrdinals() : filter;
+		final double[] scores = new Bm25().score(concordance, query, ordinals);
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < ordinals.length; i++) {
+			if (scores[i] > 0) {
+				order.add(i);
+			}
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Double.compare(scores[b], scores[a]);
+				return (c == 0) ? a - b : c;
+			}
+		});
+		TopKScorer.Hits hits = concordance.getTopKScorer().top(query, (filter == null) ? null : PostingSet.of(filter),
+				k);
+		String message = query + ", " + k + ((filter == null) ? "" : ", filtered");
+		assertEquals(message, Math.min(k, order.size()), hits.size());
+		for (int i = 0; i < hits.size(); i++) {
+			assertEquals(message, ordinals[order.get(i)], hits.getOrdinal(i));
+			assertEquals(message, scores[order.get(i)], hits.getScore(i), 0);
+		}
+	}
+
+	private static int[] allOrdinals() {
+		int[] ordinals = new int[concordance.getNumberOfVerses()];
+		for (int i = 0; i < ordinals.length; i++) {
+			ordinals[i] = i;
+		}
+		return ordinals;
+	}
+}
@@ -0,0 +1,126 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Reference;
+import bibleReader.model.ReferenceList;
+import bibleReader.model.ReferenceListView;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+import bibleReader.model.VerseListView;
+
+/**
+ * Tests for the copy-on-write views that Bibles return for passages.
+ */
+public class VerseListViewTest {
+	private Verse[]			verses;
+	private List<Verse>		backing;
+	private VerseListView	view;
+
+	@Before
+	public void setUp() throws Exception {
+		verses = new Verse[] { new Verse(BookOfBible.Genesis, 1, 1, "In the beginning..."),
+				new Verse(BookOfBible.Genesis, 1, 2, "The earth was without form..."),
+				new Verse(BookOfBible.Genesis, 1, 3, "And God said, Let there be light."),
+				new Verse(BookOfBible.Genesis, 1, 4, "And God saw the light.") };
+		backing = Arrays.asList(verses);
+		view = new VerseListView("TST", "Genesis 1:2-3", backing.subList(1, 3));
+	}
+
+	@Test
+	public void testReadsComeFromTheBackingList() {
+		assertTrue(view.isView());
+		assertEquals("TST", view.getVersion());
+		assertEquals("Genesis 1:2-3", view.getDescription());
+		assertEquals(2, view.size());
+		assertEquals(verses[1], view.get(0));
+		assertEquals(1, view.indexOf(verses[2]));
+		assertFalse(view.contains(verses[0]));
+		assertEquals(Arrays.asList(verses[1], verses[2]), view);
+		assertEquals(view, new ArrayList<Verse>(Arrays.asList(verses[1], verses[2])));
+		assertEquals(Arrays.asList(verses[1], verses[2]).hashCode(), view.hashCode());
+		assertEquals(verses[2], view.subList(1, 2).get(0));
+		VerseList copy = new VerseList("TST", "copy", view);
+		assertEquals(view, copy);
+		assertTrue(view.isView());
+	}
+
+	@Test
+	public void testChangesCopyFirst() {
+		view.add(verses[3]);
+		assertFalse(view.isView());
+		assertEquals(3, view.size());
+		assertEquals(verses[3], view.get(2));
+		// The Bible's verses are untouched.
+		assertEquals(verses[3], backing.get(3));
+		assertEquals(4, backing.size());
+
+		VerseListView other = new VerseListView("TST", "", backing);
+		other.set(0, verses[3]);
+		assertEquals(verses[3], other.get(0));
+		assertEquals(verses[0], backing.get(0));
+
+		other = new VerseListView("TST", "", backing);
+		Iterator<Verse> it = other.iterator();
+		it.next();
+		it.remove();
+		assertEquals(3, other.size());
+		assertEquals(verses[1], other.get(0));
+		assertEquals(verses[0], backing.get(0));
+
+		other = new VerseListView("TST", "", backing);
+		other.subList(0, 2).clear();
+		assertEquals(2, other.size());
+		assertEquals(4, backing.size());
+	}
+
+	@Test
+	public void testReferenceViews() {
+		ReferenceListView references = ReferenceListView.referencesOf(backing.subList(0, 2));
+		assertEquals(2, references.size());
+		assertEquals(new Reference(BookOfBible.Genesis, 1, 2), references.get(1));
+		ReferenceList expected = new ReferenceList();
+		expected.add(new Reference(BookOfBible.Genesis, 1, 1));
+		expected.add(new Reference(BookOfBible.Genesis, 1, 2));
+		assertEquals(expected, references);
+
+		references.remove(0);
+		assertFalse(references.isView());
+		assertEquals(1, references.size());
+		assertEquals(verses[0], backing.get(0));
+	}
+
+	@Test
+	public void testStreamsAndLambdas() {
+		assertEquals(2, view.stream().count());
+		assertEquals(verses[2], view.stream().filter(v -> v.getText().contains("light")).findFirst().get());
+		List<Verse> visited = new ArrayList<Verse>();
+		view.forEach(visited::add);
+		assertEquals(Arrays.asList(verses[1], verses[2]), visited);
+		assertTrue(view.isView());
+
+		assertTrue(view.removeIf(v -> v.equals(verses[1])));
+		assertFalse(view.isView());
+		assertEquals(Arrays.asList(verses[2]), view);
+		assertEquals(1, view.stream().count());
+		assertEquals(verses[1], backing.get(1));
+
+		ReferenceListView references = ReferenceListView.referencesOf(backing);
+		assertEquals(4, references.stream().count());
+		references.replaceAll(r -> new Reference(BookOfBible.Exodus, r.getChapter(), r.getVerse()));
+		assertFalse(references.isView());
+		assertEquals(new Reference(BookOfBible.Exodus, 1, 4), references.get(3));
+		assertEquals(4, references.stream().filter(r -> r.getBookOfBible() == BookOfBible.Exodus).count());
+	}
+}
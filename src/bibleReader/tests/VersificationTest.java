@@ -0,0 +1,137 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Reference;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+import bibleReader.model.Versification;
+
+/**
+ * Tests for the table of book, chapter and verse bounds.
+ */
+public class VersificationTest {
+	private Versification	versification;
+
+	@Before
+	public void setUp() throws Exception {
+		Versification.Builder builder = new Versification.Builder();
+		// Genesis 1:1-5, 2:1-3
+		for (int v = 1; v <= 5; v++) {
+			builder.add(BookOfBible.Genesis, 1, v);
+		}
+		for (int v = 1; v <= 3; v++) {
+			builder.add(BookOfBible.Genesis, 2, v);
+		}
+		// Matthew 17:20, 17:22 (no verse 21 as in the ESV), and chapter 19 but not 18.
+		builder.add(BookOfBible.Matthew, 17, 20);
+		builder.add(BookOfBible.Matthew, 17, 22);
+		builder.add(BookOfBible.Matthew, 19, 1);
+		// Jude 1:1-2
+		builder.add(BookOfBible.Jude, 1, 1);
+		builder.add(BookOfBible.Jude, 1, 2);
+		versification = builder.build();
+	}
+
+	@Test
+	public void testCounts() {
+		assertEquals(13, versification.size());
+		assertEquals(2, versification.getLastChapterNumber(BookOfBible.Genesis));
+		assertEquals(19, versification.getLastChapterNumber(BookOfBible.Matthew));
+		assertEquals(2, versification.getChapterCount(BookOfBible.Matthew));
+		assertEquals(0, versification.getLastChapterNumber(BookOfBible.Exodus));
+		assertEquals(0, versification.getLastChapterNumber(null));
+
+		assertEquals(5, versification.getVerseCount(BookOfBible.Genesis, 1));
+		assertEquals(5, versification.getLastVerseNumber(BookOfBible.Genesis, 1));
+		assertEquals(2, versification.getVerseCount(BookOfBible.Matthew, 17));
+		assertEquals(22, versification.getLastVerseNumber(BookOfBible.Matthew, 17));
+		assertEquals(0, versification.getVerseCount(BookOfBible.Matthew, 18));
+		assertEquals(0, versification.getLastVerseNumber(BookOfBible.Genesis, 3));
+	}
+
+	@Test
+	public void testOrdinals() {
+		assertEquals(0, versification.getFirstOrdinal(BookOfBible.Genesis, 1));
+		assertEquals(5, versification.getFirstOrdinal(BookOfBible.Genesis, 2));
+		assertEquals(10, versification.getFirstOrdinal(BookOfBible.Matthew, 19));
+		assertEquals(-1, versification.getFirstOrdinal(BookOfBible.Matthew, 18));
+		assertEquals(8, versification.getBookStart(BookOfBible.Matthew));
+		assertEquals(11, versification.getBookEnd(BookOfBible.Matthew));
+		assertEquals(11, versification.getBookStart(BookOfBible.Mark));
+		assertEquals(13, versification.getBookEnd(BookOfBible.Revelation));
+
+		assertEquals(3, versification.getOrdinal(BookOfBible.Genesis, 1, 4));
+		assertEquals(9, versification.getOrdinal(new Reference(BookOfBible.Matthew, 17, 22)));
+		assertEquals(-1, versification.getOrdinal(BookOfBible.Matthew, 17, 21));
+		assertEquals(-1, versification.getOrdinal(BookOfBible.Genesis, 1, 6));
+		assertEquals(-1, versification.getOrdinal(null));
+
+		// Bounds work for references that aren't there.
+		assertEquals(9, versification.lowerBound(BookOfBible.Matthew, 17, 21));
+		assertEquals(10, versification.lowerBound(BookOfBible.Matthew, 18, 1));
+		assertEquals(5, versification.lowerBound(BookOfBible.Genesis, 1, 6));
+		assertEquals(11, versification.lowerBound(BookOfBible.Luke, 1, 1));
+		assertEquals(4, versification.upperBound(new Reference(BookOfBible.Genesis, 1, 4)));
+	}
+
+	@Test
+	public void testDuplicatesHidingAGap() {
+		// Verses 1, 1, 3 span as many numbers as there are verses, but there is no verse 2.
+		Versification.Builder builder = new Versification.Builder();
+		builder.add(BookOfBible.Ruth, 1, 1);
+		builder.add(BookOfBible.Ruth, 1, 1);
+		builder.add(BookOfBible.Ruth, 1, 3);
+		Versification duplicates = builder.build();
+		assertEquals(0, duplicates.lowerBound(BookOfBible.Ruth, 1, 1));
+		assertEquals(2, duplicates.lowerBound(BookOfBible.Ruth, 1, 2));
+		assertEquals(2, duplicates.lowerBound(BookOfBible.Ruth, 1, 3));
+		assertEquals(-1, duplicates.getOrdinal(BookOfBible.Ruth, 1, 2));
+		assertEquals(2, duplicates.getOrdinal(BookOfBible.Ruth, 1, 3));
+		assertEquals(2, duplicates.upperBound(new Reference(BookOfBible.Ruth, 1, 1)));
+
+		VerseList verses = new VerseList("TST", "A test Bible");
+		verses.add(new Verse(BookOfBible.Ruth, 1, 3, "Elimelech died."));
+		verses.add(new Verse(BookOfBible.Ruth, 1, 1, "In the days when the judges ruled"));
+		verses.add(new Verse(BookOfBible.Ruth, 1, 1, "there was a famine in the land."));
+		ArrayListBible bible = new ArrayListBible(verses);
+		assertEquals(null, bible.getVerse(BookOfBible.Ruth, 1, 2));
+		assertEquals("Elimelech died.", bible.getVerseText(new Reference(BookOfBible.Ruth, 1, 3)));
+		assertEquals("In the days when the judges ruled", bible.getPassage(BookOfBible.Ruth, 1, 1, 3).get(0).getText());
+		assertEquals(3, bible.getChapter(BookOfBible.Ruth, 1).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfOrder() {
+		Versification.Builder builder = new Versification.Builder();
+		builder.add(BookOfBible.Exodus, 1, 1);
+		builder.add(BookOfBible.Genesis, 50, 26);
+	}
+
+	@Test
+	public void testBiblesUseIt() {
+		VerseList verses = new VerseList("TST", "A test Bible");
+		verses.add(new Verse(BookOfBible.Obadiah, 1, 21, "And the kingdom shall be the LORD's."));
+		verses.add(new Verse(BookOfBible.Jonah, 1, 1, "Now the word of the LORD came to Jonah."));
+		verses.add(new Verse(BookOfBible.Jonah, 1, 2, "Arise, go to Nineveh."));
+		verses.add(new Verse(BookOfBible.Obadiah, 1, 20, "The exiles of this host."));
+
+		ArrayListBible arrayListBible = new ArrayListBible(verses);
+		TreeMapBible treeMapBible = new TreeMapBible(verses);
+		assertEquals(21, arrayListBible.getLastVerseNumber(BookOfBible.Obadiah, 1));
+		assertEquals(21, treeMapBible.getLastVerseNumber(BookOfBible.Obadiah, 1));
+		assertEquals(0, treeMapBible.getLastChapterNumber(BookOfBible.Micah));
+
+		// A chapter stops at the end of its book, even if the next book starts with the same chapter number.
+		assertEquals(2, arrayListBible.getChapter(BookOfBible.Obadiah, 1).size());
+		assertEquals(2, treeMapBible.getChapter(BookOfBible.Obadiah, 1).size());
+		assertEquals(treeMapBible.getAllVerses(), arrayListBible.getAllVerses());
+		assertEquals(treeMapBible.getBook(BookOfBible.Jonah), arrayListBible.getBook(BookOfBible.Jonah));
+	}
+}
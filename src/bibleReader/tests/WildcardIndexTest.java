@@ -0,0 +1,151 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.ConcordanceIndex;
+import bibleReader.model.MappedConcordance;
+import bibleReader.model.PostingSet;
+import bibleReader.model.Reference;
+import bibleReader.model.TermIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+import bibleReader.model.WildcardIndex;
+
+/**
+ * Tests for the sorted word list and for finding words with wildcards.
+ */
+public class WildcardIndexTest {
+	private static final String[]	PATTERNS	= { "bless*", "*eth", "b*ss", "*ight*", "g?d", "?", "*", "l*r?",
+			"zzz*", "*q", "a*a*a", "god", "", "*?*?*", "??", "*s*s", "s?*?s", "jeho*", "*ah", "a", "*a", "jo*", "p?", "*s" };
+
+	private static Concordance		esv;
+
+	@BeforeClass
+	public static void readBible() {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		esv = new Concordance(new TreeMapBible(verses));
+	}
+
+	@Test
+	public void testSortedWords() {
+		TermIndex terms = esv.getTermIndex();
+		String[] all = terms.getTerms(0, terms.size());
+		String[] sorted = all.clone();
+		Arrays.sort(sorted);
+		assertTrue(Arrays.equals(sorted, all));
+		for (int i = 0; i < all.length; i++) {
+			assertEquals(all[i], terms.getTerm(i));
+			assertEquals(i, terms.indexOf(all[i]));
+			// Words that aren't there, before and after this one.
+			assertEquals(Arrays.binarySearch(all, all[i] + "~"), terms.indexOf(all[i] + "~"));
+			String shorter = all[i].substring(0, all[i].length() - 1) + "!";
+			assertEquals(Arrays.binarySearch(all, shorter), terms.indexOf(shorter));
+		}
+		assertEquals(-1, terms.indexOf(""));
+		assertEquals(-all.length - 1, terms.indexOf("~"));
+		assertTrue(Arrays.equals(Arrays.copyOfRange(all, 17, 50), terms.getTerms(17, 50)));
+		assertEquals(0, terms.getTerms(5, 5).length);
+	}
+
+	@Test
+	public void testSameAsScanningEveryWord() {
+		TermIndex terms = esv.getTermIndex();
+		String[] all = terms.getTerms(0, terms.size());
+		WildcardIndex wildcards = esv.getWildcardIndex();
+		for (String pattern : PATTERNS) {
+			assertTrue(pattern, Arrays.equals(scan(all, pattern), wildcards.find(pattern)));
+		}
+		assertTrue(WildcardIndex.matches("b*ss*d", "blessed"));
+		assertFalse(WildcardIndex.matches("b*ss*d", "blesses"));
+		assertTrue(WildcardIndex.matches("*", ""));
+		assertFalse(WildcardIndex.matches("?", ""));
+	}
+
+	@Test
+	public void testVersesMatching() throws Exception {
+		// The cross references are mostly the names of books.
+		PostingSet john = esv.getVerses("john");
+		PostingSet matching = esv.getVersesMatching("JO*");
+		assertFalse(john.isEmpty());
+		assertEquals(john, john.and(matching));
+		PostingSet family = john.or(esv.getVerses("job")).or(esv.getVerses("joel"));
+		assertEquals(family, matching.and(family));
+		assertTrue(matching.cardinality() > john.cardinality());
+		for (String pattern : new String[] { "*n", "j*n", "?s*" }) {
+			PostingSet expected = PostingSet.EMPTY;
+			TermIndex terms = esv.getTermIndex();
+			for (int t : esv.getWildcardIndex().find(pattern)) {
+				expected = expected.or(terms.getPostings(t));
+			}
+			assertFalse(pattern, expected.isEmpty());
+			assertEquals(pattern, expected, esv.getVersesMatching(pattern));
+		}
+		assertEquals(0, esv.getReferencesMatching("qqq*").size());
+
+		File index = File.createTempFile("test", ConcordanceIndex.EXTENSION);
+		try {
+			ConcordanceIndex.write(esv, 0, 0, index);
+			MappedConcordance mapped = new MappedConcordance(index);
+			for (String pattern : PATTERNS) {
+				assertEquals(pattern, esv.getVersesMatching(pattern), mapped.getVersesMatching(pattern));
+			}
+		} finally {
+			index.delete();
+		}
+	}
+
+	@Test
+	public void testModel() {
+		VerseList verses = new VerseList("TST", "Test");
+		Reference gen = new Reference(BookOfBible.Genesis, 1, 22);
+		Reference ps = new Reference(BookOfBible.Psalms, 1, 1);
+		Reference mat = new Reference(BookOfBible.Matthew, 5, 3);
+		verses.add(new Verse(gen, "And God blessed them, saying, Be fruitful and multiply"));
+		verses.add(new Verse(ps, "Blessed is the man that walketh not in the counsel of the ungodly"));
+		verses.add(new Verse(mat, "Blessed are the poor in spirit"));
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(verses));
+
+		assertEquals(Arrays.asList(gen, ps, mat), model.getReferencesContainingAllWordsAndPhrases("bless*"));
+		assertEquals(Arrays.asList(ps), model.getReferencesContainingAllWordsAndPhrases("*eth"));
+		assertEquals(Arrays.asList(gen, ps), model.getReferencesContainingAllWordsAndPhrases("bless* *god*"));
+		assertEquals(Arrays.asList(mat), model.getReferencesContainingAllWordsAndPhrases("Bless?d poor"));
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("bless* zebra").size());
+	}
+
+	/*
+	 * The indexes of the words that match a pattern, found by checking every word.
+	 */
+	private static int[] scan(String[] words, String pattern) {
+		Pattern regex = Pattern.compile(pattern.replace("?", ".").replace("*", ".*"));
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		for (int i = 0; i < words.length; i++) {
+			if (regex.matcher(words[i]).matches()) {
+				found.add(i);
+			}
+		}
+		int[] result = new int[found.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = found.get(i);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,149 @@
+package bibleReader.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import bibleReader.BibleIO;
+import bibleReader.model.ArchaicStemmer;
+import bibleReader.model.ArrayListBible;
+import bibleReader.model.BibleReaderModel;
+import bibleReader.model.BookOfBible;
+import bibleReader.model.Concordance;
+import bibleReader.model.ConcordanceIndex;
+import bibleReader.model.MappedConcordance;
+import bibleReader.model.PostingSet;
+import bibleReader.model.Reference;
+import bibleReader.model.Stemmer;
+import bibleReader.model.TermIndex;
+import bibleReader.model.TreeMapBible;
+import bibleReader.model.Verse;
+import bibleReader.model.VerseList;
+
+/**
+ * Tests for stemming words and searching for the forms of a word.
+ */
+public class WordFormsTest {
+	private static final Reference	GEN_3_6		= new Reference(BookOfBible.Genesis, 3, 6);
+	private static final Reference	EXO_16_35	= new Reference(BookOfBible.Exodus, 16, 35);
+	private static final Reference	JOHN_6_58	= new Reference(BookOfBible.John, 6, 58);
+	private static final Reference	MARK_2_16	= new Reference(BookOfBible.Mark, 2, 16);
+	private static final Reference	PS_1_1		= new Reference(BookOfBible.Psalms, 1, 1);
+
+	@Test
+	public void testStemmer() {
+		Stemmer stemmer = new ArchaicStemmer();
+		String[][] families = { { "eat", "eateth", "eatest", "eaten", "ate", "eating", "eats" },
+				{ "bless", "blessed", "blesseth", "blessest", "blessing", "blessings", "blesses" },
+				{ "love", "loveth", "lovest", "loved", "loving", "loves" },
+				{ "come", "cometh", "comest", "came", "coming", "comes" },
+				{ "sit", "sitteth", "sitting", "sat" }, { "speak", "speaketh", "spake", "spoken", "spoke" },
+				{ "priest", "priests" }, { "go", "goeth", "goes", "went", "gone" }, { "say", "saith", "said" } };
+		for (String[] family : families) {
+			String stem = stemmer.stem(family[0]);
+			for (String word : family) {
+				assertEquals(word, stem, stemmer.stem(word));
+			}
+		}
+		// Endings that aren't endings.
+		for (String word : new String[] { "king", "thing", "seed", "red", "is", "this", "us", "rest", "hill", "the" }) {
+			assertEquals(word, word, stemmer.stem(word));
+		}
+		assertFalse(stemmer.stem("eat").equals(stemmer.stem("east")));
+	}
+
+	@Test
+	public void testStems() {
+		Concordance words = new Concordance(new ArrayListBible(sample()));
+		Concordance stems = words.stemmed(new ArchaicStemmer());
+		assertNull(words.getStemmer());
+		assertEquals(Arrays.asList(EXO_16_35, JOHN_6_58), words.getReferencesContaining("ate"));
+		assertEquals(Arrays.asList(GEN_3_6, EXO_16_35, MARK_2_16, JOHN_6_58), stems.getReferencesContaining("ate"));
+		assertEquals(stems.getReferencesContaining("ate"), stems.getReferencesContaining("Eateth"));
+		assertEquals(Arrays.asList(PS_1_1), stems.getReferencesContaining("blessing"));
+		assertEquals(0, stems.getReferencesContaining("meat").size());
+
+		// Phrases match any form of each word, in the same places.
+		assertEquals(Arrays.asList(JOHN_6_58), words.getReferencesContainingPhrase("he ate this bread"));
+		assertEquals(Arrays.asList(EXO_16_35, JOHN_6_58), stems.getReferencesContainingPhrase("they eat"));
+		assertEquals(Arrays.asList(MARK_2_16), stems.getReferencesContainingPhrase("he eats and drinks"));
+		assertEquals(0, stems.getReferencesContainingPhrase("ate he").size());
+
+		// The verses and positions of a stem are those of all of its words.
+		TermIndex terms = words.getTermIndex();
+		for (String stem : new String[] { "eat", "bless", "sinner" }) {
+			PostingSet expected = PostingSet.EMPTY;
+			for (int i = 0; i < terms.size(); i++) {
+				if (stems.getStemmer().stem(terms.getTerm(i)).equals(stem)) {
+					expected = expected.or(terms.getPostings(i));
+				}
+			}
+			assertFalse(stem, expected.isEmpty());
+			assertEquals(stem, expected, stems.getVerses(stem));
+			assertEquals(stem, expected.cardinality(), stems.getPositions(stem).size());
+		}
+	}
+
+	@Test
+	public void testSavedStems() throws Exception {
+		VerseList verses = BibleIO.readBible(new File("esvCrossrefs.atv"));
+		assertNotNull(verses);
+		Stemmer stemmer = new ArchaicStemmer();
+		Concordance stems = new Concordance(new TreeMapBible(verses)).stemmed(stemmer);
+		File index = File.createTempFile("test", ConcordanceIndex.EXTENSION);
+		try {
+			ConcordanceIndex.write(stems, 0, 0, index);
+			MappedConcordance mapped = new MappedConcordance(index, stemmer);
+			assertEquals(stemmer, mapped.getStemmer());
+			TermIndex terms = stems.getTermIndex();
+			assertTrue(Arrays.equals(terms.getTerms(0, terms.size()), mapped.getTermIndex().getTerms(0, terms.size())));
+			for (String word : new String[] { "john", "johns", "kings", "king", "psalms", "ps", "zzz" }) {
+				assertEquals(word, stems.getVerses(word), mapped.getVerses(word));
+				assertEquals(word, stems.getPositions(word), mapped.getPositions(word));
+			}
+		} finally {
+			index.delete();
+		}
+		assertEquals(new File("kjv.atv." + stemmer.getName() + ".cidx"),
+				ConcordanceIndex.stemIndexFileFor(new File("kjv.atv"), stemmer));
+	}
+
+	@Test
+	public void testModel() {
+		BibleReaderModel model = new BibleReaderModel();
+		model.addBible(new ArrayListBible(sample()));
+		assertFalse(model.isMatchWordForms());
+		assertEquals(Arrays.asList(EXO_16_35, JOHN_6_58), model.getReferencesContainingAllWordsAndPhrases("ate"));
+
+		model.setMatchWordForms(true);
+		assertEquals(Arrays.asList(GEN_3_6, EXO_16_35, MARK_2_16, JOHN_6_58),
+				model.getReferencesContainingAllWordsAndPhrases("ate"));
+		assertEquals(Arrays.asList(MARK_2_16), model.getReferencesContainingAllWordsAndPhrases("eat sinner"));
+		assertEquals(Arrays.asList(MARK_2_16),
+				model.getReferencesContainingAllWordsAndPhrases("\"eating and drinking with publican\""));
+		assertEquals(Arrays.asList(GEN_3_6, EXO_16_35, MARK_2_16, JOHN_6_58),
+				model.getReferencesContainingAllWordsAndPhrases("ea*"));
+
+		model.setMatchWordForms(false);
+		assertEquals(0, model.getReferencesContainingAllWordsAndPhrases("eat sinner").size());
+	}
+
+	private static VerseList sample() {
+		VerseList verses = new VerseList("TST", "Test");
+		verses.add(new Verse(GEN_3_6, "She took of the fruit thereof, and did eat, and gave also unto her husband "
+				+ "with her; and he did eat."));
+		verses.add(new Verse(EXO_16_35, "And the children of Israel did eat manna forty years; they ate manna, until "
+				+ "they came unto the borders of the land of Canaan."));
+		verses.add(new Verse(PS_1_1, "Blessed is the man that walketh not in the counsel of the ungodly."));
+		verses.add(new Verse(MARK_2_16, "How is it that he eateth and drinketh with publicans and sinners?"));
+		verses.add(new Verse(JOHN_6_58, "Not as your fathers ate and died: he ate this bread, they eaten it too."));
+		return verses;
+	}
+}